@@ -0,0 +1,120 @@
+package tv.beenius.videostore.benchmark;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.NotificationOptions;
+import javax.enterprise.util.TypeLiteral;
+import javax.inject.Inject;
+
+/**
+ * Wires beans outside of container, i.e. without CDI and EJB.
+ *
+ * <p>Injection points are filled with the first given dependency assignable to field type.
+ * Injection points w/o a matching dependency are left null, so benchmarked paths must not
+ * reach them.
+ */
+final class Beans {
+
+  private Beans() {
+  }
+
+  /**
+   * Fills injection points of a bean and calls its post construct callbacks.
+   *
+   * @param <T> Bean type.
+   * @param bean Bean instance.
+   * @param dependencies Candidate dependencies.
+   * @return Wired bean.
+   */
+  static <T> T wire(T bean, Object... dependencies) {
+
+    for (Field field : bean.getClass().getDeclaredFields()) {
+      if (! field.isAnnotationPresent(Inject.class)) {
+        continue;
+      }
+      for (Object dependency : dependencies) {
+        if (field.getType().isInstance(dependency)) {
+          set(bean, field, dependency);
+          break;
+        }
+      }
+    }
+
+    for (Method method : bean.getClass().getDeclaredMethods()) {
+      if (method.isAnnotationPresent(PostConstruct.class)) {
+        invoke(bean, method);
+      }
+    }
+
+    return bean;
+  }
+
+  /**
+   * Creates event source discarding fired events, i.e. observers are not benchmarked.
+   *
+   * @param <T> Event type.
+   * @return Event source.
+   */
+  static <T> Event<T> discardingEvent() {
+    return new DiscardingEvent<>();
+  }
+
+  private static void set(Object bean, Field field, Object value) {
+    try {
+      field.setAccessible(true);
+      field.set(bean, value);
+    } catch (IllegalAccessException iae) {
+      throw new IllegalStateException("Cannot inject " + field + ".", iae);
+    }
+  }
+
+  private static void invoke(Object bean, Method method) {
+    try {
+      method.setAccessible(true);
+      method.invoke(bean);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Cannot call " + method + ".", e);
+    }
+  }
+
+  private static class DiscardingEvent<T> implements Event<T> {
+
+    @Override
+    public void fire(T event) {
+      // Discarded.
+    }
+
+    @Override
+    public <U extends T> CompletionStage<U> fireAsync(U event) {
+      return CompletableFuture.completedFuture(event);
+    }
+
+    @Override
+    public <U extends T> CompletionStage<U> fireAsync(U event, NotificationOptions options) {
+      return CompletableFuture.completedFuture(event);
+    }
+
+    @Override
+    public Event<T> select(Annotation... qualifiers) {
+      return this;
+    }
+
+    @Override
+    public <U extends T> Event<U> select(Class<U> subtype, Annotation... qualifiers) {
+      return new DiscardingEvent<>();
+    }
+
+    @Override
+    public <U extends T> Event<U> select(TypeLiteral<U> subtype, Annotation... qualifiers) {
+      return new DiscardingEvent<>();
+    }
+  }
+
+}
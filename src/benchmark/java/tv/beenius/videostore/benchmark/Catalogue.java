@@ -0,0 +1,212 @@
+package tv.beenius.videostore.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import tv.beenius.videostore.data.BlobStore;
+import tv.beenius.videostore.model.Actor;
+import tv.beenius.videostore.model.Image;
+import tv.beenius.videostore.model.Movie;
+
+/**
+ * Synthetic catalogue of movies, actors, casts and images.
+ *
+ * <p>Catalogue is generated from a fixed seed, so runs with the same parameters work on
+ * the same data. Titles and names are drawn from small vocabularies, so that filters match
+ * a share of catalogue. Movie {@code i} casts a contiguous block of {@code castDensity}
+ * actors starting at actor {@code i * castDensity}, wrapping around. Each movie has one
+ * image of given size when size is positive. Image content is derived from one of
+ * {@value #DISTINCT_IMAGES} patterns, so blob store holds a bounded number of blobs.
+ */
+class Catalogue {
+
+  static final String[] TITLE_WORDS = {
+      "star", "night", "river", "empire", "shadow", "return", "last", "city", "storm", "dream",
+      "king", "garden", "winter", "silent", "road", "fire", "ocean", "ghost", "summer", "wars"};
+
+  static final String[] FIRST_NAMES = {
+      "Anna", "Ben", "Clara", "David", "Eva", "Frank", "Grace", "Henry", "Iris", "Jack"};
+
+  static final String[] LAST_NAMES = {
+      "Novak", "Smith", "Horvat", "Brown", "Kranjc", "Jones", "Zupan", "Miller", "Kovac", "Wood"};
+
+  private static final int DISTINCT_IMAGES = 64;
+
+  private static final int FLUSH_SIZE = 500;
+
+  private static final long SEED = 42L;
+
+  private final int movieCount;
+
+  private final int actorCount;
+
+  private final int castDensity;
+
+  private final int imageBytes;
+
+  private final List<String> imdbIds = new ArrayList<>();
+
+  private final List<Long> actorIds = new ArrayList<>();
+
+  /**
+   * Defines catalogue.
+   *
+   * @param movieCount Number of movies.
+   * @param actorCount Number of actors.
+   * @param castDensity Number of actors per movie, less than number of actors.
+   * @param imageBytes Image size in bytes or zero for movies w/o images.
+   */
+  Catalogue(int movieCount, int actorCount, int castDensity, int imageBytes) {
+
+    if (castDensity >= actorCount) {
+      throw new IllegalArgumentException(
+          "Cast density {" + castDensity + "} should be less than number of actors.");
+    }
+
+    this.movieCount = movieCount;
+    this.actorCount = actorCount;
+    this.castDensity = castDensity;
+    this.imageBytes = imageBytes;
+  }
+
+  /**
+   * Generates catalogue into an empty database. Entities are flushed and detached
+   * in batches, so generation runs in constant memory.
+   *
+   * @param emf Entity manager factory.
+   * @param blobStore Blob store of image content.
+   * @throws IOException on blob store write error.
+   */
+  void populate(EntityManagerFactory emf, BlobStore blobStore) throws IOException {
+
+    Random random = new Random(SEED);
+    List<String> contentHashes = storeImageContent(blobStore, random);
+
+    EntityManager em = emf.createEntityManager();
+    try {
+      em.getTransaction().begin();
+
+      for (int i = 0; i < actorCount; i++) {
+        Actor actor = new Actor(null,
+            FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+            LAST_NAMES[random.nextInt(LAST_NAMES.length)] + i,
+            LocalDate.of(1930 + random.nextInt(70), 1 + random.nextInt(12), 1));
+        em.persist(actor);
+        actorIds.add(actor.getId());
+        flushBatch(em, i);
+      }
+
+      for (int i = 0; i < movieCount; i++) {
+        Movie movie = new Movie(imdbId(i), title(random), 1950 + random.nextInt(70),
+            description(random));
+
+        for (int j = 0; j < castDensity; j++) {
+          movie.getActors().add(em.find(Actor.class, actorId(i * castDensity + j)));
+        }
+
+        if (imageBytes > 0) {
+          Image image = new Image(null, "Poster of " + movie.getTitle());
+          image.setContentHash(contentHashes.get(i % contentHashes.size()));
+          image.setContentLength((long) imageBytes);
+          image.setMediaType("image/png");
+          movie.getImages().add(image);
+        }
+
+        em.persist(movie);
+        imdbIds.add(movie.getImdbId());
+        flushBatch(em, i);
+      }
+
+      em.getTransaction().commit();
+    } finally {
+      em.close();
+    }
+  }
+
+  static String imdbId(int index) {
+    return String.format("tt%07d", index);
+  }
+
+  List<String> getImdbIds() {
+    return Collections.unmodifiableList(imdbIds);
+  }
+
+  List<Long> getActorIds() {
+    return Collections.unmodifiableList(actorIds);
+  }
+
+  /**
+   * Retrieves identifier of an actor not cast in movie.
+   *
+   * @param movieIndex Movie index.
+   * @return Actor identifier.
+   */
+  Long uncastActorId(int movieIndex) {
+    return actorId(movieIndex * castDensity + castDensity);
+  }
+
+  int getMovieCount() {
+    return movieCount;
+  }
+
+  int getActorCount() {
+    return actorCount;
+  }
+
+  private Long actorId(long index) {
+    return actorIds.get((int) (index % actorCount));
+  }
+
+  private List<String> storeImageContent(BlobStore blobStore, Random random) throws IOException {
+
+    List<String> contentHashes = new ArrayList<>();
+
+    if (imageBytes > 0) {
+      for (int i = 0; i < DISTINCT_IMAGES; i++) {
+        byte[] content = new byte[imageBytes];
+        random.nextBytes(content);
+        contentHashes.add(blobStore.put(content));
+      }
+    }
+
+    return contentHashes;
+  }
+
+  private static String title(Random random) {
+
+    StringBuilder sb = new StringBuilder();
+    int words = 1 + random.nextInt(4);
+    for (int i = 0; i < words; i++) {
+      String word = TITLE_WORDS[random.nextInt(TITLE_WORDS.length)];
+      sb.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word)
+          .append(i + 1 < words ? " " : "");
+    }
+
+    return sb.toString();
+  }
+
+  private static String description(Random random) {
+
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 30; i++) {
+      sb.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]).append(' ');
+    }
+
+    return sb.toString().trim() + ".";
+  }
+
+  private static void flushBatch(EntityManager em, int index) {
+    if ((index + 1) % FLUSH_SIZE == 0) {
+      em.flush();
+      em.clear();
+    }
+  }
+
+}
@@ -0,0 +1,88 @@
+package tv.beenius.videostore.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import tv.beenius.videostore.data.BlobStore;
+import tv.beenius.videostore.data.FileSystemBlobStore;
+
+/**
+ * Embedded database populated with a synthetic catalogue, shared by benchmark threads.
+ *
+ * <p>Catalogue shape is set by JMH parameters, e.g. {@code -p movies=100000 -p castDensity=20}.
+ * Blobs are stored into a temporary directory removed after trial.
+ */
+@State(Scope.Benchmark)
+public class CatalogueState {
+
+  static final String PERSISTENCE_UNIT = "videostore-benchmark";
+
+  private static final String BLOB_DIR_PROPERTY = "videostore.blob.dir";
+
+  @Param({"10000"})
+  public int movies;
+
+  @Param({"5000"})
+  public int actors;
+
+  @Param({"5"})
+  public int castDensity;
+
+  @Param({"16384"})
+  public int imageBytes;
+
+  EntityManagerFactory emf;
+
+  BlobStore blobStore;
+
+  Catalogue catalogue;
+
+  private Path blobDir;
+
+  /**
+   * Creates database and generates catalogue.
+   *
+   * @throws IOException on blob store write error.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+
+    blobDir = Files.createTempDirectory("videostore-benchmark");
+    System.setProperty(BLOB_DIR_PROPERTY, blobDir.toString());
+    blobStore = Beans.wire(new FileSystemBlobStore());
+
+    emf = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT);
+
+    catalogue = new Catalogue(movies, actors, castDensity, imageBytes);
+    catalogue.populate(emf, blobStore);
+  }
+
+  /**
+   * Drops database and removes blobs.
+   *
+   * @throws IOException on blob removal error.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+
+    emf.close();
+
+    try (Stream<Path> paths = Files.walk(blobDir)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+}
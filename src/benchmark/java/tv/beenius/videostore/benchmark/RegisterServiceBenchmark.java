@@ -0,0 +1,73 @@
+package tv.beenius.videostore.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tv.beenius.videostore.model.Actor;
+import tv.beenius.videostore.model.Movie;
+
+/**
+ * Benchmarks register service paths including validation, i.e. w/o container interceptors.
+ *
+ * <p>Filtered pages combine search index lookup with database fetch. Registrations run in
+ * transactions rolled back after flush, so each invocation sees the same catalogue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RegisterServiceBenchmark {
+
+  @Param({"star"})
+  public String title;
+
+  @Param({"novak"})
+  public String name;
+
+  @Param({"20"})
+  public int pageSize;
+
+  @Benchmark
+  public List<Movie> findPageOfMoviesByTitle(ServiceState state) throws Exception {
+    state.clear();
+    return state.registerService.findPageOfMoviesByTitle(0, pageSize, title);
+  }
+
+  @Benchmark
+  public List<Actor> findPageOfActorsByName(ServiceState state) throws Exception {
+    state.clear();
+    return state.registerService.findPageOfActorsByName(0, pageSize, name);
+  }
+
+  @Benchmark
+  public Movie registerMovie(ServiceState state) throws Exception {
+    Movie movie = new Movie(
+        state.nextNewImdbId(), "Benchmark star", 2020, "Registered by benchmark.");
+    return state.rollingBack(() -> state.registerService.registerMovie(movie));
+  }
+
+  @Benchmark
+  public String registerCast(ServiceState state) throws Exception {
+    int movieIndex = state.nextMovieIndex();
+    String imdbId = state.catalogue.getImdbIds().get(movieIndex);
+    Long actorId = state.catalogue.uncastActorId(movieIndex);
+    return state.rollingBack(() -> {
+      state.registerService.registerCast(imdbId, actorId);
+      return imdbId;
+    });
+  }
+
+}
@@ -0,0 +1,130 @@
+package tv.beenius.videostore.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tv.beenius.videostore.data.ActorRepository;
+import tv.beenius.videostore.data.MovieRepository;
+import tv.beenius.videostore.model.Actor;
+import tv.beenius.videostore.model.Movie;
+
+/**
+ * Benchmarks listing and lookup queries of repositories.
+ *
+ * <p>Offset pages are compared with keyset pages starting at the same position.
+ * Lookups load entities by named entity graphs used by REST and JSF layers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RepositoryBenchmark {
+
+  @Param({"0", "4000"})
+  public int pageOffset;
+
+  @Param({"20"})
+  public int pageSize;
+
+  private Movie lastMovieBeforePage;
+
+  private Actor lastActorBeforePage;
+
+  /**
+   * Resolves sort keys of keyset pages starting at page offset.
+   *
+   * @param catalogueState Populated catalogue.
+   */
+  @Setup(Level.Trial)
+  public void setUp(CatalogueState catalogueState) {
+
+    if (pageOffset == 0) {
+      return;
+    }
+
+    EntityManager em = catalogueState.emf.createEntityManager();
+    try {
+      lastMovieBeforePage = Beans.wire(new MovieRepository(), em)
+          .findPage(pageOffset - 1, 1).get(0);
+      lastActorBeforePage = Beans.wire(new ActorRepository(), em)
+          .findPage(pageOffset - 1, 1).get(0);
+    } finally {
+      em.close();
+    }
+  }
+
+  @Benchmark
+  public List<Movie> findMoviePage(ServiceState state) {
+    state.clear();
+    return state.movieRepo.findPage(pageOffset, pageSize);
+  }
+
+  @Benchmark
+  public List<Movie> findMoviePageAfter(ServiceState state) {
+    state.clear();
+    return lastMovieBeforePage == null
+        ? state.movieRepo.findPageAfter(null, null, pageSize)
+        : state.movieRepo.findPageAfter(
+            lastMovieBeforePage.getTitle(), lastMovieBeforePage.getImdbId(), pageSize);
+  }
+
+  @Benchmark
+  public long countMovies(ServiceState state) {
+    state.clear();
+    return state.movieRepo.count();
+  }
+
+  @Benchmark
+  public List<Actor> findActorPage(ServiceState state) {
+    state.clear();
+    return state.actorRepo.findPage(pageOffset, pageSize);
+  }
+
+  @Benchmark
+  public List<Actor> findActorPageAfter(ServiceState state) {
+    state.clear();
+    return lastActorBeforePage == null
+        ? state.actorRepo.findPageAfter(null, null, null, pageSize)
+        : state.actorRepo.findPageAfter(lastActorBeforePage.getLastName().orElse(null),
+            lastActorBeforePage.getFirstName(), lastActorBeforePage.getId(), pageSize);
+  }
+
+  @Benchmark
+  public int findMovieWithCast(ServiceState state) {
+    state.clear();
+    return state.movieRepo.findById(state.nextImdbId(), Movie.GRAPH_WITH_CAST)
+        .get().getActors().size();
+  }
+
+  @Benchmark
+  public int findMovieWithImages(ServiceState state) {
+    state.clear();
+    return state.movieRepo.findById(state.nextImdbId(), Movie.GRAPH_WITH_IMAGES)
+        .get().getImages().size();
+  }
+
+  @Benchmark
+  public int findActorWithMovies(ServiceState state) {
+    state.clear();
+    return state.actorRepo.findById(state.nextActorId(), Actor.GRAPH_WITH_MOVIES)
+        .get().getMovies().size();
+  }
+
+}
@@ -0,0 +1,88 @@
+package tv.beenius.videostore.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tv.beenius.videostore.model.Actor;
+import tv.beenius.videostore.model.Movie;
+
+/**
+ * Benchmarks JSON serialization of REST responses by a default object mapper,
+ * the same as used by REST provider.
+ *
+ * <p>Entities are loaded once and detached, so only serialization is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SerializationBenchmark {
+
+  @Param({"20"})
+  public int pageSize;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private Movie movieWithCast;
+
+  private Actor actorWithMovies;
+
+  private List<Movie> moviePage;
+
+  private List<Actor> actorPage;
+
+  /**
+   * Loads serialized entities.
+   *
+   * @param state Wired repositories.
+   */
+  @Setup(Level.Trial)
+  public void setUp(ServiceState state) {
+
+    movieWithCast = state.movieRepo.findById(state.nextImdbId(), Movie.GRAPH_WITH_CAST).get();
+    actorWithMovies =
+        state.actorRepo.findById(state.nextActorId(), Actor.GRAPH_WITH_MOVIES).get();
+    moviePage = state.movieRepo.findPage(0, pageSize);
+    actorPage = state.actorRepo.findPage(0, pageSize);
+
+    state.clear();
+  }
+
+  @Benchmark
+  public byte[] serializeMovieWithCast() throws JsonProcessingException {
+    return mapper.writeValueAsBytes(movieWithCast);
+  }
+
+  @Benchmark
+  public byte[] serializeActorWithMovies() throws JsonProcessingException {
+    return mapper.writeValueAsBytes(actorWithMovies);
+  }
+
+  @Benchmark
+  public byte[] serializeMoviePage() throws JsonProcessingException {
+    return mapper.writeValueAsBytes(moviePage);
+  }
+
+  @Benchmark
+  public byte[] serializeActorPage() throws JsonProcessingException {
+    return mapper.writeValueAsBytes(actorPage);
+  }
+
+}
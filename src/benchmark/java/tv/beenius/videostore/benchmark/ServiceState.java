@@ -0,0 +1,144 @@
+package tv.beenius.videostore.benchmark;
+
+import java.util.concurrent.Callable;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import tv.beenius.videostore.data.ActorRepository;
+import tv.beenius.videostore.data.ImageRepository;
+import tv.beenius.videostore.data.MovieRepository;
+import tv.beenius.videostore.data.OutboxRepository;
+import tv.beenius.videostore.event.ChangeOutbox;
+import tv.beenius.videostore.search.ActorSearchIndex;
+import tv.beenius.videostore.search.MovieSearchIndex;
+import tv.beenius.videostore.service.RegisterService;
+
+/**
+ * Repositories and register service wired per benchmark thread around its own
+ * entity manager, the same as a container would do per transaction.
+ *
+ * <p>Search indexes are built from catalogue. Change events are discarded, so observers,
+ * e.g. relay, notifications and rendition, are not part of measurements. Second level cache
+ * is off, so every read reaches the database.
+ */
+@State(Scope.Thread)
+public class ServiceState {
+
+  EntityManager em;
+
+  MovieRepository movieRepo;
+
+  ActorRepository actorRepo;
+
+  RegisterService registerService;
+
+  Catalogue catalogue;
+
+  private ValidatorFactory validatorFactory;
+
+  private int nextMovie;
+
+  private int nextActor;
+
+  private int nextNewMovie;
+
+  /**
+   * Wires beans.
+   *
+   * @param catalogueState Populated catalogue.
+   */
+  @Setup(Level.Trial)
+  public void setUp(CatalogueState catalogueState) {
+
+    catalogue = catalogueState.catalogue;
+    em = catalogueState.emf.createEntityManager();
+
+    // Messages are interpolated w/o expression language, which is provided by server only.
+    validatorFactory = Validation.byDefaultProvider().configure()
+        .messageInterpolator(new ParameterMessageInterpolator())
+        .buildValidatorFactory();
+
+    movieRepo = Beans.wire(new MovieRepository(), em);
+    actorRepo = Beans.wire(new ActorRepository(), em);
+
+    ChangeOutbox changeOutbox = Beans.wire(new ChangeOutbox(),
+        Beans.wire(new OutboxRepository(), em), Beans.discardingEvent());
+
+    registerService = Beans.wire(new RegisterService(),
+        movieRepo, actorRepo, Beans.wire(new ImageRepository(), em),
+        catalogueState.blobStore, validatorFactory.getValidator(), changeOutbox,
+        Beans.wire(new MovieSearchIndex(), movieRepo),
+        Beans.wire(new ActorSearchIndex(), actorRepo));
+
+    em.clear();
+  }
+
+  /**
+   * Closes entity manager.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    em.close();
+    validatorFactory.close();
+  }
+
+  /**
+   * Runs work within a transaction rolled back afterwards, so catalogue stays unchanged.
+   * Changes are flushed before rollback, i.e. their statements are measured.
+   *
+   * @param <T> Result type.
+   * @param work Work.
+   * @return Result of work.
+   * @throws Exception on work failure.
+   */
+  <T> T rollingBack(Callable<T> work) throws Exception {
+
+    em.getTransaction().begin();
+    try {
+      T result = work.call();
+      em.flush();
+      return result;
+    } finally {
+      em.getTransaction().rollback();
+      em.clear();
+    }
+  }
+
+  /**
+   * Detaches loaded entities, so that the next read is not served by persistence context.
+   */
+  void clear() {
+    em.clear();
+  }
+
+  /** Cycles through movies of catalogue. */
+  int nextMovieIndex() {
+    nextMovie = (nextMovie + 1) % catalogue.getMovieCount();
+    return nextMovie;
+  }
+
+  String nextImdbId() {
+    return catalogue.getImdbIds().get(nextMovieIndex());
+  }
+
+  Long nextActorId() {
+    nextActor = (nextActor + 1) % catalogue.getActorCount();
+    return catalogue.getActorIds().get(nextActor);
+  }
+
+  /** Identifier of a movie not in catalogue. */
+  String nextNewImdbId() {
+    nextNewMovie = (nextNewMovie + 1) % 1000000;
+    return String.format("tt9%06d", nextNewMovie);
+  }
+
+}
@@ -0,0 +1,212 @@
+package tv.beenius.videostore.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Seeds a synthetic catalogue through bulk import and discovers catalogue through export.
+ *
+ * <p>Catalogue is seeded in two passes. Founding movies register {@code castDensity} new
+ * actors each until all actors are registered. Actors are then exported to learn their
+ * identifiers and the remaining movies cast registered actors by identifier. Movie
+ * {@code i} casts a contiguous block of actors starting at actor {@code i * castDensity}
+ * in identifier order, wrapping around, so an actor outside of the block is not cast.
+ *
+ * <p>Titles and names are drawn from small vocabularies, so that searches match
+ * a share of catalogue. Catalogue is generated from a fixed seed.
+ */
+class CatalogueSeeder {
+
+  static final String[] TITLE_WORDS = {
+      "star", "night", "river", "empire", "shadow", "return", "last", "city", "storm", "dream",
+      "king", "garden", "winter", "silent", "road", "fire", "ocean", "ghost", "summer", "wars"};
+
+  static final String[] FIRST_NAMES = {
+      "Anna", "Ben", "Clara", "David", "Eva", "Frank", "Grace", "Henry", "Iris", "Jack"};
+
+  static final String[] LAST_NAMES = {
+      "Novak", "Smith", "Horvat", "Brown", "Kranjc", "Jones", "Zupan", "Miller", "Kovac", "Wood"};
+
+  private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+  /** Number of movies imported by a single request. */
+  private static final int IMPORT_CHUNK = 2000;
+
+  private static final long SEED = 42L;
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final HttpClient client;
+
+  private final URI baseUri;
+
+  private final Random random = new Random(SEED);
+
+  CatalogueSeeder(HttpClient client, URI baseUri) {
+    this.client = client;
+    this.baseUri = baseUri;
+  }
+
+  static String imdbId(int index) {
+    return String.format("tt%07d", index);
+  }
+
+  /**
+   * Seeds catalogue into an empty database.
+   *
+   * @param movies Number of movies.
+   * @param actors Number of actors.
+   * @param castDensity Number of actors per movie.
+   * @throws IOException on request failure.
+   * @throws InterruptedException when interrupted.
+   */
+  void seed(int movies, int actors, int castDensity) throws IOException, InterruptedException {
+
+    int foundingMovies = Math.min(movies, (actors + castDensity - 1) / castDensity);
+
+    importMovies(0, foundingMovies, i -> {
+      ArrayNode cast = MAPPER.createArrayNode();
+      for (int j = i * castDensity; j < Math.min(actors, (i + 1) * castDensity); j++) {
+        cast.add(MAPPER.createObjectNode()
+            .put("firstName", FIRST_NAMES[random.nextInt(FIRST_NAMES.length)])
+            .put("lastName", LAST_NAMES[random.nextInt(LAST_NAMES.length)] + j)
+            .put("bornDate", LocalDate.of(
+                1930 + random.nextInt(70), 1 + random.nextInt(12), 1).toString()));
+      }
+      return cast;
+    });
+
+    List<Long> actorIds = exportActorIds();
+
+    importMovies(foundingMovies, movies, i -> {
+      ArrayNode cast = MAPPER.createArrayNode();
+      for (int j = 0; j < castDensity && j < actorIds.size(); j++) {
+        cast.add(MAPPER.createObjectNode()
+            .put("id", actorIds.get((i * castDensity + j) % actorIds.size())));
+      }
+      return cast;
+    });
+  }
+
+  /**
+   * Exports identifiers of registered movies.
+   *
+   * @return Movie identifiers.
+   * @throws IOException on request failure.
+   * @throws InterruptedException when interrupted.
+   */
+  List<String> exportImdbIds() throws IOException, InterruptedException {
+    return export("/export/movies", node -> node.get("imdbId").asText());
+  }
+
+  /**
+   * Exports identifiers of registered actors.
+   *
+   * @return Actor identifiers in ascending order.
+   * @throws IOException on request failure.
+   * @throws InterruptedException when interrupted.
+   */
+  List<Long> exportActorIds() throws IOException, InterruptedException {
+    return export("/export/actors", node -> node.get("id").asLong());
+  }
+
+  private void importMovies(int from, int to, IntFunction<ArrayNode> cast)
+      throws IOException, InterruptedException {
+
+    for (int chunk = from; chunk < to; chunk += IMPORT_CHUNK) {
+      StringBuilder body = new StringBuilder();
+
+      for (int i = chunk; i < Math.min(to, chunk + IMPORT_CHUNK); i++) {
+        ObjectNode movie = MAPPER.createObjectNode()
+            .put("imdbId", imdbId(i))
+            .put("title", title())
+            .put("year", 1950 + random.nextInt(70))
+            .put("description", description());
+        movie.set("actors", cast.apply(i));
+        body.append(MAPPER.writeValueAsString(movie)).append('\n');
+      }
+
+      HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+          .uri(resolve("/import/movies"))
+          .header("Content-Type", APPLICATION_NDJSON)
+          .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+          .build(), HttpResponse.BodyHandlers.ofString());
+
+      if (response.statusCode() != 200) {
+        throw new IOException("Import failed with status " + response.statusCode()
+            + ": " + response.body());
+      }
+
+      JsonNode report = MAPPER.readTree(response.body());
+      System.out.println("Imported " + report.get("imported").asInt() + " of "
+          + report.get("received").asInt() + " movies in "
+          + report.get("elapsedMillis").asLong() + " ms, "
+          + report.get("failures").size() + " failed.");
+    }
+  }
+
+  private <T> List<T> export(String path, Function<JsonNode, T> id)
+      throws IOException, InterruptedException {
+
+    HttpResponse<Stream<String>> response = client.send(HttpRequest.newBuilder()
+        .uri(resolve(path))
+        .GET()
+        .build(), HttpResponse.BodyHandlers.ofLines());
+
+    if (response.statusCode() != 200) {
+      throw new IOException("Export " + path + " failed with status " + response.statusCode());
+    }
+
+    List<JsonNode> nodes = new ArrayList<>();
+    try (Stream<String> lines = response.body()) {
+      for (String line : lines.filter(line -> ! line.isBlank()).collect(Collectors.toList())) {
+        nodes.add(MAPPER.readTree(line));
+      }
+    }
+
+    return nodes.stream().map(id).collect(Collectors.toList());
+  }
+
+  private URI resolve(String path) {
+    return URI.create(baseUri + path);
+  }
+
+  private String title() {
+
+    StringBuilder sb = new StringBuilder();
+    int words = 1 + random.nextInt(4);
+    for (int i = 0; i < words; i++) {
+      String word = TITLE_WORDS[random.nextInt(TITLE_WORDS.length)];
+      sb.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word)
+          .append(i + 1 < words ? " " : "");
+    }
+
+    return sb.toString();
+  }
+
+  private String description() {
+
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 30; i++) {
+      sb.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]).append(' ');
+    }
+
+    return sb.toString().trim() + ".";
+  }
+
+}
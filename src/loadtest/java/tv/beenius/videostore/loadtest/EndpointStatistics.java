@@ -0,0 +1,135 @@
+package tv.beenius.videostore.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latency histograms and response counts per endpoint.
+ *
+ * <p>Latencies are recorded in microseconds with three significant digits. Recording is
+ * wait-free, so that completing requests do not contend. Latency of a request is measured
+ * from its intended start, so that a stalled server is not hidden by requests
+ * not sent on time, i.e. the load test does not suffer from coordinated omission.
+ */
+class EndpointStatistics {
+
+  private static final int SIGNIFICANT_DIGITS = 3;
+
+  private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+  /**
+   * Records a completed request.
+   *
+   * @param endpoint Endpoint, e.g. GET /movies/{imdbId}.
+   * @param latencyNanos Latency from intended start.
+   * @param status Response status or zero when request failed w/o response.
+   */
+  void record(String endpoint, long latencyNanos, int status) {
+
+    Endpoint statistics = endpoints.computeIfAbsent(endpoint, key -> new Endpoint());
+
+    statistics.recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+
+    if (status >= 500) {
+      statistics.serverErrors.increment();
+    } else if (status >= 400) {
+      statistics.clientErrors.increment();
+    } else if (status == 0) {
+      statistics.failed.increment();
+    }
+  }
+
+  /**
+   * Discards recorded requests, e.g. after warm up.
+   */
+  void reset() {
+    endpoints.clear();
+  }
+
+  /**
+   * Prints throughput, latency percentiles and response counts per endpoint.
+   *
+   * @param out Report output.
+   * @param elapsedNanos Length of measurement.
+   */
+  void report(PrintStream out, long elapsedNanos) {
+
+    double seconds = elapsedNanos / 1e9;
+
+    out.println(String.format("%-44s %9s %9s %9s %9s %9s %9s %7s %7s %7s",
+        "Endpoint", "Requests", "Req/s", "p50 ms", "p99 ms", "p999 ms", "max ms",
+        "4xx", "5xx", "failed"));
+
+    histograms().forEach((endpoint, histogram) -> {
+      Endpoint statistics = endpoints.get(endpoint);
+      out.println(String.format("%-44s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %7d %7d %7d",
+          endpoint,
+          histogram.getTotalCount(),
+          histogram.getTotalCount() / seconds,
+          histogram.getValueAtPercentile(50) / 1e3,
+          histogram.getValueAtPercentile(99) / 1e3,
+          histogram.getValueAtPercentile(99.9) / 1e3,
+          histogram.getMaxValue() / 1e3,
+          statistics.clientErrors.sum(),
+          statistics.serverErrors.sum(),
+          statistics.failed.sum()));
+    });
+  }
+
+  /**
+   * Writes percentile distribution of each endpoint in HdrHistogram format,
+   * which can be plotted by HdrHistogram plotter.
+   *
+   * @param directory Output directory.
+   * @throws IOException on write error.
+   */
+  void writeHistograms(Path directory) throws IOException {
+
+    Files.createDirectories(directory);
+
+    for (Map.Entry<String, Histogram> entry : histograms().entrySet()) {
+      String fileName = entry.getKey().replaceAll("[^A-Za-z0-9]+", "_") + ".hgrm";
+      try (PrintStream out = new PrintStream(
+          Files.newOutputStream(directory.resolve(fileName)), false, "UTF-8")) {
+        entry.getValue().outputPercentileDistribution(out, 1000.0);
+      }
+    }
+  }
+
+  /** Collects histograms recorded so far. */
+  private Map<String, Histogram> histograms() {
+
+    Map<String, Histogram> histograms = new TreeMap<>();
+    endpoints.forEach((endpoint, statistics) -> {
+      statistics.total.add(statistics.recorder.getIntervalHistogram());
+      histograms.put(endpoint, statistics.total.copy());
+    });
+
+    return histograms;
+  }
+
+  private static class Endpoint {
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+
+    private final LongAdder clientErrors = new LongAdder();
+
+    private final LongAdder serverErrors = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+  }
+
+}
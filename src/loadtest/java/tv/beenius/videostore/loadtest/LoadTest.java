@@ -0,0 +1,155 @@
+package tv.beenius.videostore.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load test of registration REST service deployed to a running server, e.g. WildFly
+ * with the in-memory VideostoreDS.
+ *
+ * <p>Load test seeds a synthetic catalogue via bulk import, discovers it via export and
+ * drives a weighted mix of requests, see {@link Workload}, at a constant target rate.
+ * Requests are sent open loop, i.e. on schedule regardless of responses, and latency
+ * is measured from the scheduled start. When maximal number of requests is in flight,
+ * sending waits and the wait counts into latency. Requests sent during warm up are
+ * not reported.
+ *
+ * <p>Throughput and p50/p99/p999 latencies are printed per endpoint and percentile
+ * distributions are written into {@value #HISTOGRAM_DIR} in HdrHistogram format.
+ *
+ * <p>Load test is configured by system properties:
+ * <ul>
+ * <li>{@value #BASE_URI_PROPERTY}, defaults to {@value #DEFAULT_BASE_URI},</li>
+ * <li>{@value #SEED_PROPERTY}, seeds catalogue when true, defaults to true,</li>
+ * <li>{@value #MOVIES_PROPERTY}, {@value #ACTORS_PROPERTY} and
+ *     {@value #CAST_DENSITY_PROPERTY}, catalogue shape, default to 10000, 5000 and 5,</li>
+ * <li>{@value #IMAGE_BYTES_PROPERTY}, approximate uploaded image size, defaults to 16384,</li>
+ * <li>{@value #MIX_PROPERTY}, weights of operations, defaults to
+ *     {@value Workload#DEFAULT_MIX},</li>
+ * <li>{@value #RATE_PROPERTY}, target requests per second, defaults to 200,</li>
+ * <li>{@value #WARMUP_PROPERTY} and {@value #DURATION_PROPERTY}, in seconds,
+ *     default to 30 and 60,</li>
+ * <li>{@value #MAX_IN_FLIGHT_PROPERTY}, defaults to 256.</li>
+ * </ul>
+ */
+public class LoadTest {
+
+  static final String BASE_URI_PROPERTY = "loadtest.baseUri";
+  static final String SEED_PROPERTY = "loadtest.seed";
+  static final String MOVIES_PROPERTY = "loadtest.movies";
+  static final String ACTORS_PROPERTY = "loadtest.actors";
+  static final String CAST_DENSITY_PROPERTY = "loadtest.castDensity";
+  static final String IMAGE_BYTES_PROPERTY = "loadtest.imageBytes";
+  static final String MIX_PROPERTY = "loadtest.mix";
+  static final String RATE_PROPERTY = "loadtest.rate";
+  static final String WARMUP_PROPERTY = "loadtest.warmupSeconds";
+  static final String DURATION_PROPERTY = "loadtest.durationSeconds";
+  static final String MAX_IN_FLIGHT_PROPERTY = "loadtest.maxInFlight";
+
+  static final String DEFAULT_BASE_URI = "http://localhost:8080/videostore/rest/registration";
+
+  static final String HISTOGRAM_DIR = "target/loadtest";
+
+  private final Workload workload;
+
+  private final long intervalNanos;
+
+  private final int maxInFlight;
+
+  private final Semaphore inFlight;
+
+  LoadTest(Workload workload, int rate, int maxInFlight) {
+    this.workload = workload;
+    this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+    this.maxInFlight = maxInFlight;
+    this.inFlight = new Semaphore(maxInFlight);
+  }
+
+  /**
+   * Runs load test.
+   *
+   * @param args Not used, load test is configured by system properties.
+   * @throws Exception on failure.
+   */
+  public static void main(String[] args) throws Exception {
+
+    URI baseUri = URI.create(System.getProperty(BASE_URI_PROPERTY, DEFAULT_BASE_URI));
+    int castDensity = Integer.getInteger(CAST_DENSITY_PROPERTY, 5);
+
+    HttpClient client = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+
+    CatalogueSeeder seeder = new CatalogueSeeder(client, baseUri);
+
+    if (Boolean.parseBoolean(System.getProperty(SEED_PROPERTY, "true"))) {
+      seeder.seed(Integer.getInteger(MOVIES_PROPERTY, 10000),
+          Integer.getInteger(ACTORS_PROPERTY, 5000), castDensity);
+    }
+
+    List<String> imdbIds = seeder.exportImdbIds();
+    List<Long> actorIds = seeder.exportActorIds();
+
+    if (imdbIds.isEmpty() || actorIds.isEmpty()) {
+      throw new IllegalStateException("Catalogue is empty, seed it by -D" + SEED_PROPERTY + ".");
+    }
+
+    System.out.println("Catalogue has " + imdbIds.size() + " movies and "
+        + actorIds.size() + " actors.");
+
+    EndpointStatistics statistics = new EndpointStatistics();
+
+    Workload workload = new Workload(client, baseUri, imdbIds, actorIds, castDensity,
+        Payloads.pngs(Integer.getInteger(IMAGE_BYTES_PROPERTY, 16384)),
+        Workload.parseMix(System.getProperty(MIX_PROPERTY, Workload.DEFAULT_MIX)),
+        statistics);
+
+    LoadTest loadTest = new LoadTest(workload, Integer.getInteger(RATE_PROPERTY, 200),
+        Integer.getInteger(MAX_IN_FLIGHT_PROPERTY, 256));
+
+    loadTest.run(TimeUnit.SECONDS.toNanos(Long.getLong(WARMUP_PROPERTY, 30)));
+    statistics.reset();
+
+    long start = System.nanoTime();
+    loadTest.run(TimeUnit.SECONDS.toNanos(Long.getLong(DURATION_PROPERTY, 60)));
+    long elapsed = System.nanoTime() - start;
+
+    statistics.report(System.out, elapsed);
+    statistics.writeHistograms(Paths.get(HISTOGRAM_DIR));
+  }
+
+  /**
+   * Sends requests at target rate for given time and waits for responses.
+   *
+   * @param durationNanos Duration.
+   * @throws InterruptedException when interrupted.
+   */
+  void run(long durationNanos) throws InterruptedException {
+
+    long next = System.nanoTime();
+    long end = next + durationNanos;
+
+    while (next < end) {
+      long now;
+      while ((now = System.nanoTime()) < next) {
+        LockSupport.parkNanos(next - now);
+      }
+
+      inFlight.acquire();
+      workload.send(next).whenComplete((result, error) -> inFlight.release());
+
+      next += intervalNanos;
+    }
+
+    // All permits are available once no request is in flight.
+    inFlight.acquire(maxInFlight);
+    inFlight.release(maxInFlight);
+  }
+
+}
@@ -0,0 +1,89 @@
+package tv.beenius.videostore.loadtest;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Request payloads of load test.
+ */
+final class Payloads {
+
+  /** Number of distinct uploaded images. */
+  private static final int DISTINCT_IMAGES = 8;
+
+  private static final String BOUNDARY = "videostore-loadtest-boundary";
+
+  private Payloads() {
+  }
+
+  /**
+   * Generates PNG images of noise, which barely compresses, so that image size
+   * approximates the given size. Images are real, so that renditions can be rendered.
+   *
+   * @param approximateBytes Approximate image size in bytes.
+   * @return Encoded images.
+   */
+  static List<byte[]> pngs(int approximateBytes) {
+
+    Random random = new Random(approximateBytes);
+    int side = Math.max(8, (int) Math.sqrt(approximateBytes / 3.0));
+    List<byte[]> images = new ArrayList<>();
+
+    for (int i = 0; i < DISTINCT_IMAGES; i++) {
+      BufferedImage image = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+      for (int y = 0; y < side; y++) {
+        for (int x = 0; x < side; x++) {
+          image.setRGB(x, y, random.nextInt(0x1000000));
+        }
+      }
+
+      try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+        ImageIO.write(image, "png", output);
+        images.add(output.toByteArray());
+      } catch (IOException ioe) {
+        throw new UncheckedIOException(ioe);
+      }
+    }
+
+    return images;
+  }
+
+  static String multipartContentType() {
+    return "multipart/form-data; boundary=" + BOUNDARY;
+  }
+
+  /**
+   * Composes multipart image upload with image attributes and image content parts.
+   *
+   * @param description Image description.
+   * @param png PNG image content.
+   * @return Multipart body.
+   */
+  static byte[] imageUpload(String description, byte[] png) {
+
+    try (ByteArrayOutputStream output = new ByteArrayOutputStream(png.length + 512)) {
+      output.write(("--" + BOUNDARY + "\r\n"
+          + "Content-Disposition: form-data; name=\"attributes\"\r\n"
+          + "Content-Type: application/json\r\n\r\n"
+          + "{\"description\": \"" + description + "\"}\r\n"
+          + "--" + BOUNDARY + "\r\n"
+          + "Content-Disposition: form-data; name=\"image\"; filename=\"image.png\"\r\n"
+          + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+      output.write(png);
+      output.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+      return output.toByteArray();
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+}
@@ -0,0 +1,241 @@
+package tv.beenius.videostore.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mix of REST requests driven by load test.
+ *
+ * <p>Mix is given as weights of operations, e.g. {@code MOVIE=30,MOVIE_SEARCH=10}.
+ * Each operation picks its parameters at random from the discovered catalogue.
+ */
+class Workload {
+
+  /** Default mix, dominated by reads as in interactive use. */
+  static final String DEFAULT_MIX = "MOVIE=25,ACTOR=15,MOVIE_PAGE=10,DEEP_MOVIE_PAGE=5,"
+      + "MOVIE_SEARCH=15,ACTOR_SEARCH=10,SUGGEST=10,IMAGE_UPLOAD=5,CAST_EDIT=5";
+
+  private static final String CAST_REMOVAL_ENDPOINT = "DELETE /movies/{imdbId}/actors/{id}";
+
+  private static final int PAGE_LIMIT = 20;
+
+  /** Shallow pages are taken from the first pages of catalogue. */
+  private static final int SHALLOW_PAGES = 5;
+
+  /**
+   * Load test operations together with reported endpoints.
+   */
+  enum Operation {
+    MOVIE("GET /movies/{imdbId}"),
+    ACTOR("GET /actors/{id}"),
+    MOVIE_PAGE("GET /movies?pageOffset"),
+    DEEP_MOVIE_PAGE("GET /movies?pageOffset (deep)"),
+    MOVIE_SEARCH("GET /movies?searchFor&ranked"),
+    ACTOR_SEARCH("GET /actors?searchFor"),
+    SUGGEST("GET /suggest?q"),
+    IMAGE_UPLOAD("POST /movies/{imdbId}/images"),
+    CAST_EDIT("POST /movies/{imdbId}/actors/{id}");
+
+    private final String endpoint;
+
+    Operation(String endpoint) {
+      this.endpoint = endpoint;
+    }
+
+    String getEndpoint() {
+      return endpoint;
+    }
+  }
+
+  private final HttpClient client;
+
+  private final URI baseUri;
+
+  private final List<String> imdbIds;
+
+  private final List<Long> actorIds;
+
+  private final int castDensity;
+
+  private final List<byte[]> images;
+
+  private final EndpointStatistics statistics;
+
+  private final Operation[] operations;
+
+  private final int[] cumulativeWeights;
+
+  /**
+   * Defines workload.
+   *
+   * @param client HTTP client.
+   * @param baseUri Base URI of registration REST service.
+   * @param imdbIds Registered movies.
+   * @param actorIds Registered actors in ascending order.
+   * @param castDensity Number of actors per movie the catalogue was seeded with.
+   * @param images Uploaded images.
+   * @param mix Weights of operations.
+   * @param statistics Statistics of completed requests.
+   */
+  Workload(HttpClient client, URI baseUri, List<String> imdbIds, List<Long> actorIds,
+      int castDensity, List<byte[]> images, Map<Operation, Integer> mix,
+      EndpointStatistics statistics) {
+
+    this.client = client;
+    this.baseUri = baseUri;
+    this.imdbIds = imdbIds;
+    this.actorIds = actorIds;
+    this.castDensity = castDensity;
+    this.images = images;
+    this.statistics = statistics;
+
+    operations = mix.keySet().toArray(new Operation[0]);
+    cumulativeWeights = new int[operations.length];
+    int total = 0;
+    for (int i = 0; i < operations.length; i++) {
+      total += mix.get(operations[i]);
+      cumulativeWeights[i] = total;
+    }
+  }
+
+  /**
+   * Parses mix of operations.
+   *
+   * @param mix Weights of operations, e.g. {@code MOVIE=30,MOVIE_SEARCH=10}.
+   * @return Positive weights by operation.
+   * @throws IllegalArgumentException on unknown operation or invalid weight.
+   */
+  static Map<Operation, Integer> parseMix(String mix) {
+
+    Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+
+    for (String entry : mix.split(",")) {
+      String[] parts = entry.trim().split("=");
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("Mix entry {" + entry + "} is not OPERATION=weight.");
+      }
+      int weight = Integer.parseInt(parts[1].trim());
+      if (weight > 0) {
+        weights.put(Operation.valueOf(parts[0].trim()), weight);
+      }
+    }
+
+    if (weights.isEmpty()) {
+      throw new IllegalArgumentException("Mix {" + mix + "} has no operation.");
+    }
+
+    return weights;
+  }
+
+  /**
+   * Sends a request of an operation picked by weight.
+   *
+   * @param intendedStartNanos Intended start of request, latency is measured from it.
+   * @return Completion of the request.
+   */
+  CompletableFuture<Void> send(long intendedStartNanos) {
+
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    int index = 0;
+    while (cumulativeWeights[index] <= pick) {
+      index++;
+    }
+    Operation operation = operations[index];
+
+    if (operation == Operation.CAST_EDIT) {
+      return editCast(intendedStartNanos, random);
+    }
+
+    return send(operation.getEndpoint(), request(operation, random), intendedStartNanos)
+        .thenApply(status -> null);
+  }
+
+  private HttpRequest request(Operation operation, ThreadLocalRandom random) {
+
+    switch (operation) {
+      case MOVIE:
+        return get("/movies/" + randomImdbId(random));
+      case ACTOR:
+        return get("/actors/" + actorIds.get(random.nextInt(actorIds.size())));
+      case MOVIE_PAGE:
+        return get("/movies?pageLimit=" + PAGE_LIMIT + "&pageOffset="
+            + random.nextInt(SHALLOW_PAGES) * PAGE_LIMIT);
+      case DEEP_MOVIE_PAGE:
+        return get("/movies?pageLimit=" + PAGE_LIMIT + "&pageOffset="
+            + random.nextInt(Math.max(1, imdbIds.size() - PAGE_LIMIT)));
+      case MOVIE_SEARCH:
+        return get("/movies?ranked=true&pageLimit=" + PAGE_LIMIT + "&searchFor="
+            + randomWord(CatalogueSeeder.TITLE_WORDS, random));
+      case ACTOR_SEARCH:
+        return get("/actors?pageLimit=" + PAGE_LIMIT + "&searchFor="
+            + randomWord(CatalogueSeeder.LAST_NAMES, random));
+      case SUGGEST:
+        return get("/suggest?q=" + randomWord(CatalogueSeeder.TITLE_WORDS, random)
+            .substring(0, 1 + random.nextInt(3)));
+      case IMAGE_UPLOAD:
+        return HttpRequest.newBuilder(resolve("/movies/" + randomImdbId(random) + "/images"))
+            .header("Content-Type", Payloads.multipartContentType())
+            .POST(HttpRequest.BodyPublishers.ofByteArray(Payloads.imageUpload(
+                "Load test image", images.get(random.nextInt(images.size())))))
+            .build();
+      default:
+        throw new IllegalArgumentException("Operation {" + operation + "} is not a request.");
+    }
+  }
+
+  /**
+   * Casts an actor outside of movie cast and removes the cast again once registered,
+   * so that catalogue stays the same. Removal is measured from its own start.
+   */
+  private CompletableFuture<Void> editCast(long intendedStartNanos, ThreadLocalRandom random) {
+
+    int movieIndex = random.nextInt(imdbIds.size());
+    String path = "/movies/" + imdbIds.get(movieIndex) + "/actors/"
+        + actorIds.get((movieIndex * castDensity + castDensity) % actorIds.size());
+
+    return send(Operation.CAST_EDIT.getEndpoint(),
+        HttpRequest.newBuilder(resolve(path)).POST(HttpRequest.BodyPublishers.noBody()).build(),
+        intendedStartNanos)
+        .thenCompose(status -> status == 201
+            ? send(CAST_REMOVAL_ENDPOINT,
+                HttpRequest.newBuilder(resolve(path)).DELETE().build(), System.nanoTime())
+            : CompletableFuture.completedFuture(status))
+        .thenApply(status -> null);
+  }
+
+  private CompletableFuture<Integer> send(
+      String endpoint, HttpRequest request, long intendedStartNanos) {
+
+    return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+        .handle((response, error) -> {
+          int status = error == null ? response.statusCode() : 0;
+          statistics.record(endpoint, System.nanoTime() - intendedStartNanos, status);
+          return status;
+        });
+  }
+
+  private HttpRequest get(String path) {
+    return HttpRequest.newBuilder(resolve(path)).GET().build();
+  }
+
+  private URI resolve(String path) {
+    return URI.create(baseUri + path);
+  }
+
+  private String randomImdbId(ThreadLocalRandom random) {
+    return imdbIds.get(random.nextInt(imdbIds.size()));
+  }
+
+  private static String randomWord(String[] words, ThreadLocalRandom random) {
+    return words[random.nextInt(words.length)].toLowerCase();
+  }
+
+}
@@ -1,21 +1,53 @@
 package tv.beenius.videostore.data;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 
+import org.hibernate.query.NativeQuery;
+
+import tv.beenius.videostore.metrics.Instrumented;
+import tv.beenius.videostore.metrics.Instrumented.Layer;
 import tv.beenius.videostore.model.Actor;
+import tv.beenius.videostore.tracing.Traced;
 
 @ApplicationScoped
+@Instrumented(Layer.REPOSITORY)
+@Traced
 public class ActorRepository {
 
+  private static final String FETCH_GRAPH = "javax.persistence.fetchgraph";
+  private static final String FETCH_SIZE = "org.hibernate.fetchSize";
+  private static final String READ_ONLY = "org.hibernate.readOnly";
+  
+  /** Number of rows fetched at a time by streaming queries. */
+  private static final int STREAM_FETCH_SIZE = 500;
+  
+  /** Maximum number of identifiers bound to a single IN parameter. */
+  private static final int MAX_IDS = 1000;
+  
+  /** Join table of movie cast, see {@link tv.beenius.videostore.model.Movie#getActors()}. */
+  private static final String CAST_TABLE = "CAST";
+  
   @Inject
   private EntityManager em;
   
+  @Inject
+  private MovieRepository movieRepo;
+  
   /**
    * Saves actor into database.
    * 
@@ -30,12 +62,13 @@ public class ActorRepository {
   /**
    * Fetches actor entity into persistence context.
    * Updates selected attribute firstName, lastName and bornDate.
+   * Actor is marked as modified, so that its version is incremented on flush.
    * 
    * @param actor Updated actor.
-   * @return Optional Actor.
+   * @return Optional Actor together with related movies.
    */
   public Optional<Actor> update(Actor actor) {
-    Optional<Actor> optionalActor = findById(actor.getId());
+    Optional<Actor> optionalActor = findById(actor.getId(), Actor.GRAPH_WITH_MOVIES);
     
     if (optionalActor.isPresent()) {
       Actor retrievedActor = optionalActor.get();
@@ -51,6 +84,7 @@ public class ActorRepository {
       if (actor.getBornDate() != null) {
         retrievedActor.setBornDate(actor.getBornDate());
       }   
+      retrievedActor.markModified();
     }
     
     return optionalActor;
@@ -60,13 +94,128 @@ public class ActorRepository {
    * Retrieves actor by identifier.
    * 
    * @param id Actor identifier.
-   * @return Optional actor.
+   * @return Optional actor w/o related movies.
    */
   public Optional<Actor> findById(Long id) {
-    Actor actor = em.find(Actor.class, id);
+    return findById(id, Actor.GRAPH_SUMMARY);
+  }
+
+  /**
+   * Retrieves actor by identifier together with related entities
+   * listed by named entity graph. Related entities not listed are fetched lazily.
+   * 
+   * @param id Actor identifier.
+   * @param graphName Entity graph name, e.g. {@link Actor#GRAPH_WITH_MOVIES}.
+   * @return Optional actor.
+   */
+  public Optional<Actor> findById(Long id, String graphName) {
+    Actor actor = em.find(Actor.class, id, 
+        Map.of(FETCH_GRAPH, em.getEntityGraph(graphName)));
     return actor != null ? Optional.of(actor) : Optional.empty();
   }
 
+  /**
+   * Checks whether an actor exists. Only the key is queried.
+   * 
+   * @param id Actor identifier.
+   * @return True when actor exists.
+   */
+  public boolean existsById(Long id) {
+    TypedQuery<Long> q = em.createQuery(
+        "  SELECT a.id FROM Actor a "
+        + "WHERE a.id = :id", Long.class);
+    q.setParameter("id", id);
+    
+    return ! q.getResultList().isEmpty();
+  }
+
+  /**
+   * Retrieves identifiers of existing actors among given identifiers.
+   * Keys are queried by a single query.
+   * 
+   * @param ids Actor identifiers.
+   * @return Set of existing actor identifiers.
+   */
+  public Set<Long> findExistingIds(Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return new HashSet<>();
+    }
+    
+    TypedQuery<Long> q = em.createQuery(
+        "  SELECT a.id FROM Actor a "
+        + "WHERE a.id IN :ids", Long.class);
+    q.setParameter("ids", ids);
+    
+    return new HashSet<>(q.getResultList());
+  }
+
+  /**
+   * Retrieves versions of existing actors among given identifiers.
+   * Keys and versions are queried by a single query, actors are not loaded.
+   * 
+   * @param ids Actor identifiers.
+   * @return Versions by existing actor identifier.
+   */
+  public Map<Long, Long> findVersionsByIds(Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return new HashMap<>();
+    }
+    
+    TypedQuery<Object[]> q = em.createQuery(
+        "  SELECT a.id, a.version FROM Actor a "
+        + "WHERE a.id IN :ids", Object[].class);
+    q.setParameter("ids", ids);
+    
+    Map<Long, Long> versions = new HashMap<>();
+    q.getResultList().forEach(row -> versions.put((Long) row[0], (Long) row[1]));
+    
+    return versions;
+  }
+
+  /**
+   * Marks actors as modified by a single bulk update, i.e. increments their versions and sets
+   * their modification time as {@link Actor#markModified()} does. Actors are not loaded,
+   * so actors already held by persistence context become stale.
+   * 
+   * @param ids Actor identifiers.
+   * @return Number of updated actors.
+   */
+  public int markModifiedByIds(Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return 0;
+    }
+    
+    return em.createQuery(
+        "  UPDATE Actor a "
+        + "SET a.version = a.version + 1, a.lastModified = :now "
+        + "WHERE a.id IN :ids")
+        .setParameter("now", Instant.now())
+        .setParameter("ids", ids)
+        .executeUpdate();
+  }
+
+  /**
+   * Retrieves revision of an actor together with related movies.
+   * Revision is aggregated from versions, entities are not loaded.
+   * 
+   * @param id Actor identifier.
+   * @return Optional revision.
+   */
+  public Optional<Revision> findRevisionById(Long id) {
+    TypedQuery<Revision> q = em.createQuery(
+        "  SELECT NEW tv.beenius.videostore.data.Revision("
+        + "    a.version, SUM(m.version), a.lastModified, MAX(m.lastModified)) "
+        + "FROM Actor a "
+        + "LEFT JOIN a.movies m "
+        + "WHERE a.id = :id "
+        + "GROUP BY a.id, a.version, a.lastModified", Revision.class);
+    q.setParameter("id", id);
+    
+    List<Revision> revisions = q.getResultList();
+    
+    return revisions.isEmpty() ? Optional.empty() : Optional.of(revisions.get(0));
+  }
+
   /**
    * Retrieves a single actor by identifier lazily.
    *  
@@ -89,13 +238,14 @@ public class ActorRepository {
   /**
    * Retrieves all actors ordered by last and first name.
    * 
-   * @return Sorted list of actors.
+   * @return Sorted list of actors together with related movies.
    */
   public List<Actor> findAll() {
     TypedQuery<Actor> q = em.createQuery(
-        "SELECT a FROM Actor a "
+        "SELECT DISTINCT a FROM Actor a "
         + "ORDER BY a.lastName, a.firstName", 
         Actor.class);   
+    q.setHint(FETCH_GRAPH, em.getEntityGraph(Actor.GRAPH_WITH_MOVIES));
 
     return q.getResultList();
   }
@@ -129,51 +279,196 @@ public class ActorRepository {
    */
   public List<Actor> findPage(int startPosition, int maxResult) {
     TypedQuery<Actor> q = em.createQuery(
-        "  SELECT NEW Actor(a.id, a.firstName, a.lastName, a.bornDate) "
+        "  SELECT NEW Actor(a.id, a.firstName, a.lastName, a.bornDate, a.version) "
         + "FROM Actor a "
         + "ORDER BY a.lastName, a.firstName ", Actor.class);
     q.setFirstResult(startPosition);
     q.setMaxResults(maxResult);  
-    
+    SecondLevelCache.cacheQuery(q, SecondLevelCache.PAGE_REGION);
+
     return q.getResultList();
   }
   
   /**
-   * Retrieves selected page of actors ordered by last and first name.
-   * 
-   * @param startPosition Starting actor record for page.
+   * Retrieves page of actors ordered by last name, first name and identifier
+   * using keyset pagination. Page starts right after the actor with given sort keys.
+   *
+   * <p>Actors without last name are sorted first, so the seek predicate
+   * treats null last name explicitly.
+   *
+   * @param afterLastName Last name of the last actor on previous page (may be null).
+   * @param afterFirstName First name of the last actor on previous page.
+   * @param afterId Identifier of the last actor on previous page or null for first page.
    * @param maxResult Maximum page size.
    * @return Sorted list of actors.
    */
-  public List<Actor> findPageByName(int startPosition, int maxResult, String searchFor) {
+  public List<Actor> findPageAfter(
+      String afterLastName,
+      String afterFirstName,
+      Long afterId,
+      int maxResult) {
+
+    String seekPredicate = "";
+
+    if (afterId != null) {
+      String seekByFirstName = "a.firstName > :afterFirstName "
+          + "OR (a.firstName = :afterFirstName AND a.id > :afterId)";
+      seekPredicate = afterLastName == null
+          ? "WHERE a.lastName IS NOT NULL OR " + seekByFirstName + " "
+          : "WHERE a.lastName > :afterLastName "
+              + "OR (a.lastName = :afterLastName AND (" + seekByFirstName + ")) ";
+    }
+
     TypedQuery<Actor> q = em.createQuery(
-        "  SELECT NEW Actor(a.id, a.firstName, a.lastName, a.bornDate) "
+        "  SELECT NEW Actor(a.id, a.firstName, a.lastName, a.bornDate, a.version) "
         + "FROM Actor a "
-        + "WHERE a.firstName LIKE :likeString OR a.lastName LIKE :likeString "
-        + "ORDER BY a.lastName, a.firstName ", Actor.class);
-    q.setParameter("likeString","%" + searchFor + "%");
-    q.setFirstResult(startPosition);
-    q.setMaxResults(maxResult);  
+        + seekPredicate
+        + "ORDER BY a.lastName, a.firstName, a.id", Actor.class);
+
+    if (afterId != null) {
+      if (afterLastName != null) {
+        q.setParameter("afterLastName", afterLastName);
+      }
+      q.setParameter("afterFirstName", afterFirstName);
+      q.setParameter("afterId", afterId);
+    }
+    q.setMaxResults(maxResult);
+    SecondLevelCache.cacheQuery(q, SecondLevelCache.PAGE_REGION);
+
+    return q.getResultList();
+  }
+
+  /**
+   * Retrieves actors lazily by identifiers.
+   * Identifiers of absent actors are skipped.
+   *
+   * @param ids Actor identifiers.
+   * @return List of actors in order of identifiers.
+   */
+  public List<Actor> findByIds(List<Long> ids) {
+    
+    Map<Long, Actor> actors = new HashMap<>();
+    
+    for (int from = 0; from < ids.size(); from += MAX_IDS) {
+      TypedQuery<Actor> q = em.createQuery(
+          "  SELECT NEW Actor(a.id, a.firstName, a.lastName, a.bornDate, a.version) "
+          + "FROM Actor a "
+          + "WHERE a.id IN :ids", Actor.class);
+      q.setParameter("ids", ids.subList(from, Math.min(from + MAX_IDS, ids.size())));
+      
+      q.getResultList().forEach(actor -> actors.put(actor.getId(), actor));
+    }
+    
+    return ids.stream()
+        .map(actors::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Retrieves actors by identifiers into persistence context, so that they can be changed.
+   * Identifiers are bound by chunks of {@value #MAX_IDS}, i.e. usually by a single query.
+   * Identifiers of absent actors are skipped.
+   *
+   * @param ids Actor identifiers.
+   * @return List of managed actors in order of identifiers.
+   */
+  public List<Actor> findByIdsForUpdate(List<Long> ids) {
+    
+    Map<Long, Actor> actors = new HashMap<>();
+    
+    for (int from = 0; from < ids.size(); from += MAX_IDS) {
+      TypedQuery<Actor> q = em.createQuery(
+          "  SELECT a FROM Actor a "
+          + "WHERE a.id IN :ids", Actor.class);
+      q.setParameter("ids", ids.subList(from, Math.min(from + MAX_IDS, ids.size())));
+      
+      q.getResultList().forEach(actor -> actors.put(actor.getId(), actor));
+    }
+    
+    return ids.stream()
+        .map(actors::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Retrieves batch of actors lazily ordered by identifier.
+   * Intended to read all actors batch by batch, e.g. for indexing.
+   *
+   * @param afterId Identifier of the last actor in previous batch or null for first batch.
+   * @param maxResult Maximum batch size.
+   * @return Batch of actors.
+   */
+  public List<Actor> findBatchAfter(Long afterId, int maxResult) {
+    TypedQuery<Actor> q = em.createQuery(
+        "  SELECT NEW Actor(a.id, a.firstName, a.lastName, a.bornDate, a.version) "
+        + "FROM Actor a "
+        + (afterId == null ? "" : "WHERE a.id > :afterId ")
+        + "ORDER BY a.id", Actor.class);
+    
+    if (afterId != null) {
+      q.setParameter("afterId", afterId);
+    }
+    q.setMaxResults(maxResult);
     
     return q.getResultList();
-  }  
-  
+  }
+
+  /**
+   * Streams actors modified since given instant ordered by identifier.
+   * 
+   * <p>Rows are read by a forward-only cursor fetching {@value #STREAM_FETCH_SIZE} rows
+   * at a time. Actors are not managed, so heap use does not grow with the number of actors.
+   * Stream should be closed after use.
+   *
+   * @param since Minimal last modification instant or null for all actors.
+   * @return Stream of actors w/o related movies.
+   */
+  public Stream<Actor> streamAll(Instant since) {
+    TypedQuery<Actor> q = em.createQuery(
+        "  SELECT NEW Actor(a.id, a.firstName, a.lastName, a.bornDate, a.version) "
+        + "FROM Actor a "
+        + (since == null ? "" : "WHERE a.lastModified >= :since ")
+        + "ORDER BY a.id", Actor.class);
+    
+    if (since != null) {
+      q.setParameter("since", since);
+    }
+    q.setHint(FETCH_SIZE, STREAM_FETCH_SIZE);
+    q.setHint(READ_ONLY, true);
+    
+    return q.getResultStream();
+  }
+
   /**
    * Removes actor and movie references from database.
    * Operation is idempotent.
    * 
+   * <p>Movies and their casts are not loaded. Cast rows of the actor are deleted
+   * by a single bulk statement, which invalidates only cached cast collections.
+   * Movies of the actor are marked as modified by
+   * {@link MovieRepository#markModifiedByIds(Collection)}.
+   * 
    * @param id Actor identifier.
    * @return Returns true when entity actually existed.
    */
   public boolean removeById(Long id) {    
     Optional<Actor> optionalActor = findById(id);  
     if (optionalActor.isPresent()) {
-      Actor actor = optionalActor.get();
+      List<String> imdbIds = em.createQuery(
+          "  SELECT m.imdbId FROM Movie m JOIN m.actors a "
+          + "WHERE a.id = :id", String.class)
+          .setParameter("id", id)
+          .getResultList();
       
-      actor.getMovies().forEach(movie -> {
-        movie.getActors().remove(actor);
-      });      
-      em.remove(actor);
+      em.createNativeQuery("DELETE FROM " + CAST_TABLE + " WHERE ACTOR_ID = :id")
+          .setParameter("id", id)
+          .unwrap(NativeQuery.class)
+          .addSynchronizedQuerySpace(CAST_TABLE)
+          .executeUpdate();
+      em.remove(optionalActor.get());
+      movieRepo.markModifiedByIds(imdbIds);
       return true;
     } 
     
@@ -189,23 +484,8 @@ public class ActorRepository {
     TypedQuery<Long> q = em.createQuery(
         "  SELECT COUNT(a) from Actor a", 
         Long.class);    
+    SecondLevelCache.cacheQuery(q, SecondLevelCache.COUNT_REGION);
     return q.getSingleResult();
   }
   
-  /**
-   * Counts actors with name containing search string.
-   * 
-   * @param searchFor Search string from firstname/lastname.
-   * @return Number of filtered actors.
-   */
-  public long countByName(String searchFor) {
-    TypedQuery<Long> q = em.createQuery(
-        "  SELECT COUNT(a) from Actor a "
-        + "WHERE a.firstName LIKE :likeString OR a.lastName LIKE :likeString", 
-        Long.class);
-    q.setParameter("likeString","%" + searchFor + "%");
-
-    return q.getSingleResult();
-  }
-
 }
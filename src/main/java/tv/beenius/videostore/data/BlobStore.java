@@ -0,0 +1,93 @@
+package tv.beenius.videostore.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Content addressed storage of binary large objects, e.g. image content.
+ *
+ * <p>Blob key is the hexadecimal SHA-256 hash of blob content, so identical content is stored
+ * only once. Blobs are immutable. Storage is not transactional, blob is stored before
+ * referencing entity is saved.
+ */
+public interface BlobStore {
+
+  /**
+   * Stores content unless content with the same hash has already been stored.
+   *
+   * @param content Blob content.
+   * @return Blob key.
+   * @throws IOException on write error.
+   */
+  String put(byte[] content) throws IOException;
+
+  /**
+   * Streams content into store while hashing it, so that content is never held on heap.
+   * Content with the same hash is stored only once.
+   *
+   * @param input Content stream, read to its end and left open.
+   * @param maxLength Maximal content length in bytes.
+   * @return Blob key.
+   * @throws IOException on read or write error or when content exceeds maximal length.
+   */
+  String put(InputStream input, long maxLength) throws IOException;
+
+  /**
+   * Retrieves blob length.
+   *
+   * @param key Blob key.
+   * @return Blob length in bytes.
+   * @throws IOException on read error or when blob is not stored.
+   */
+  long size(String key) throws IOException;
+
+  /**
+   * Checks whether a blob is stored.
+   *
+   * @param key Blob key.
+   * @return True when blob is stored.
+   */
+  boolean contains(String key);
+
+  /**
+   * Retrieves total length of stored blobs. Identical content is counted once.
+   *
+   * @return Stored bytes.
+   */
+  long getStoredBytes();
+
+  /**
+   * Reads whole blob content into memory.
+   * Prefer {@link #transferTo(String, WritableByteChannel)} for large blobs.
+   *
+   * @param key Blob key.
+   * @return Blob content.
+   * @throws IOException on read error or when blob is not stored.
+   */
+  byte[] read(String key) throws IOException;
+
+  /**
+   * Transfers blob content to a channel w/o copying it onto heap where possible.
+   *
+   * @param key Blob key.
+   * @param target Target channel, left open.
+   * @return Number of transferred bytes.
+   * @throws IOException on read or write error or when blob is not stored.
+   */
+  long transferTo(String key, WritableByteChannel target) throws IOException;
+
+  /**
+   * Transfers a window of blob content to a channel. Only the window is read from storage.
+   *
+   * @param key Blob key.
+   * @param position Position of first transferred byte.
+   * @param count Number of transferred bytes.
+   * @param target Target channel, left open.
+   * @return Number of transferred bytes, less than count when blob ends before window.
+   * @throws IOException on read or write error or when blob is not stored.
+   */
+  long transferTo(String key, long position, long count, WritableByteChannel target) 
+      throws IOException;
+
+}
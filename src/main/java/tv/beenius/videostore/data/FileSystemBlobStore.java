@@ -0,0 +1,208 @@
+package tv.beenius.videostore.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.util.BoundedInputStream;
+import tv.beenius.videostore.util.HashUtil;
+
+/**
+ * Blob store keeping blobs as files in local file system.
+ *
+ * <p>Blob with key {@code abcdef...} is stored as {@code <root>/ab/cd/abcdef...}, so that
+ * directories stay small. Blob is written into a temporary file first and then atomically
+ * hard linked into place, i.e. readers never see partially written blobs and a blob stored
+ * concurrently is never replaced. Streamed content is
+ * hashed while spooled into the temporary file, so uploads need only a fixed size buffer.
+ *
+ * <p>Root directory is set by system property {@value #ROOT_PROPERTY} and defaults
+ * to {@code videostore/blobs} in server data directory. Stored bytes are summed up
+ * at startup and counted as blobs are linked into place.
+ */
+@ApplicationScoped
+public class FileSystemBlobStore implements BlobStore {
+
+  static final String ROOT_PROPERTY = "videostore.blob.dir";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+  Logger logger = Logger.getLogger(getClass());
+
+  private Path root;
+
+  private Path temp;
+
+  private final AtomicLong storedBytes = new AtomicLong();
+
+  @PostConstruct
+  private void init() {
+    root = Paths.get(System.getProperty(ROOT_PROPERTY, Paths.get(
+        System.getProperty("jboss.server.data.dir", System.getProperty("java.io.tmpdir")),
+        "videostore", "blobs").toString()));
+    temp = root.resolve("tmp");
+
+    try {
+      Files.createDirectories(temp);
+      try (Stream<Path> paths = Files.walk(root)) {
+        storedBytes.set(paths
+            .filter(path -> ! path.startsWith(temp) && Files.isRegularFile(path))
+            .mapToLong(path -> path.toFile().length())
+            .sum());
+      }
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+
+    logger.log(Level.INFO, "Blobs are stored in " + root + ", " + storedBytes + " bytes.");
+  }
+
+  @Override
+  public String put(byte[] content) throws IOException {
+
+    String key = HashUtil.sha256Hex(content);
+    Path path = resolve(key);
+
+    if (Files.exists(path)) {
+      return key;
+    }
+
+    Path tempPath = Files.createTempFile(temp, key, null);
+    try {
+      Files.write(tempPath, content);
+      if (linkIntoPlace(tempPath, path)) {
+        storedBytes.addAndGet(content.length);
+      }
+    } finally {
+      Files.deleteIfExists(tempPath);
+    }
+
+    return key;
+  }
+
+  @Override
+  public String put(InputStream input, long maxLength) throws IOException {
+
+    MessageDigest messageDigest = HashUtil.newSha256();
+    InputStream digestInput = 
+        new DigestInputStream(new BoundedInputStream(input, maxLength), messageDigest);
+
+    Path tempPath = Files.createTempFile(temp, "upload", null);
+    try {
+      try (OutputStream output = Files.newOutputStream(tempPath)) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = digestInput.read(buffer)) != -1) {
+          output.write(buffer, 0, read);
+        }
+      }
+
+      String key = HashUtil.toHex(messageDigest.digest());
+      Path path = resolve(key);
+
+      if (! Files.exists(path)) {
+        long length = Files.size(tempPath);
+        if (linkIntoPlace(tempPath, path)) {
+          storedBytes.addAndGet(length);
+        }
+      }
+
+      return key;
+    } finally {
+      Files.deleteIfExists(tempPath);
+    }
+  }
+
+  @Override
+  public boolean contains(String key) {
+    return Files.exists(resolve(key));
+  }
+
+  @Override
+  public long getStoredBytes() {
+    return storedBytes.get();
+  }
+
+  @Override
+  public long size(String key) throws IOException {
+    return Files.size(resolve(key));
+  }
+
+  @Override
+  public byte[] read(String key) throws IOException {
+    return Files.readAllBytes(resolve(key));
+  }
+
+  @Override
+  public long transferTo(String key, WritableByteChannel target) throws IOException {
+    return transferTo(key, 0, Long.MAX_VALUE, target);
+  }
+
+  @Override
+  public long transferTo(String key, long position, long count, WritableByteChannel target)
+      throws IOException {
+
+    try (FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ)) {
+      long end = Math.min(channel.size(), position + Math.min(count, Long.MAX_VALUE - position));
+      long current = position;
+
+      while (current < end) {
+        current += channel.transferTo(current, end - current, target);
+      }
+
+      return Math.max(0, end - position);
+    }
+  }
+
+
+  private Path resolve(String key) {
+
+    if (key == null || ! KEY_PATTERN.matcher(key).matches()) {
+      throw new IllegalArgumentException("Blob key {" + key + "} is not a SHA-256 hash.");
+    }
+
+    return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+  }
+
+  /**
+   * Links blob into place, returns false when stored concurrently. Unlike atomic move,
+   * which silently replaces the target on POSIX, linking fails when the blob exists.
+   * File systems w/o hard links fall back to a move that does not replace the target.
+   */
+  private static boolean linkIntoPlace(Path tempPath, Path path) throws IOException {
+    Files.createDirectories(path.getParent());
+    try {
+      try {
+        Files.createLink(path, tempPath);
+      } catch (UnsupportedOperationException uoe) {
+        Files.move(tempPath, path);
+      }
+      return true;
+    } catch (FileAlreadyExistsException faee) {
+      // Stored concurrently, content is the same.
+      return false;
+    }
+  }
+
+}
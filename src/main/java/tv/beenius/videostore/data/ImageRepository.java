@@ -9,10 +9,17 @@ import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 
+import tv.beenius.videostore.metrics.Instrumented;
+import tv.beenius.videostore.metrics.Instrumented.Layer;
 import tv.beenius.videostore.model.Image;
+import tv.beenius.videostore.model.ImageRendition;
 import tv.beenius.videostore.model.Movie;
+import tv.beenius.videostore.model.RenditionSize;
+import tv.beenius.videostore.tracing.Traced;
 
 @ApplicationScoped
+@Instrumented(Layer.REPOSITORY)
+@Traced
 public class ImageRepository {
   
   @Inject
@@ -20,7 +27,8 @@ public class ImageRepository {
     
   /**
    * Fetches image entity into persistence context.
-   * Updates selected attributes description and contents.
+   * Updates selected attributes description and content reference.
+   * Image is marked as modified, so that its version is incremented on flush.
    * 
    * @param image Updated image.
    * @return Optional image.
@@ -35,9 +43,12 @@ public class ImageRepository {
         retrievedImage.setDescription(image.getDescription());
       }
       
-      if (image.getContent() != null) {
-        retrievedImage.setContent(image.getContent());
+      if (image.getContentHash() != null) {
+        retrievedImage.setContentHash(image.getContentHash());
+        retrievedImage.setContentLength(image.getContentLength());
+        retrievedImage.setMediaType(image.getMediaType());
       }
+      retrievedImage.markModified();
     }
     
     return optionalImage;
@@ -69,6 +80,96 @@ public class ImageRepository {
     return movie != null ? new ArrayList<Image>(movie.getImages()) : new ArrayList<Image>();
   }
   
+  /**
+   * Retrieves movie images lazily w/o content. 
+   * 
+   * @param imdbId Movie identifier.
+   * @return List of images sorted by description.
+   */
+  public List<Image> findMovieImagesLazily(String imdbId) {
+    TypedQuery<Image> q = em.createQuery(
+        "  SELECT NEW Image(i.id, i.description) FROM Movie m "
+        + "JOIN m.images i "
+        + "WHERE m.imdbId = :imdbId " 
+        + "ORDER BY i.description", 
+        Image.class);
+    q.setParameter("imdbId", imdbId);
+    
+    return q.getResultList();
+  }
+  
+  /**
+   * Retrieves image content hash only. 
+   * 
+   * @param id Image identifier.
+   * @return Optional content hash, i.e. blob key.
+   */
+  public Optional<String> findContentHashById(Long id) {
+    TypedQuery<String> q = em.createQuery(
+        "  SELECT i.contentHash FROM Image i "
+        + "WHERE i.id = :id", 
+        String.class);
+    q.setParameter("id", id);
+    
+    List<String> contentHashes = q.getResultList();
+    
+    return contentHashes.isEmpty() ? Optional.empty() : Optional.of(contentHashes.get(0));
+  }
+  
+  /**
+   * Retrieves content hash of an up to date image rendition.
+   * Rendition is up to date when rendered from current image version.
+   * 
+   * @param id Image identifier.
+   * @param size Rendition size.
+   * @return Optional rendition content hash, i.e. blob key.
+   */
+  public Optional<String> findRenditionHash(Long id, RenditionSize size) {
+    TypedQuery<String> q = em.createQuery(
+        "  SELECT r.contentHash FROM ImageRendition r "
+        + "JOIN r.image i "
+        + "WHERE i.id = :id AND r.size = :size AND r.sourceVersion = i.version", 
+        String.class);
+    q.setParameter("id", id);
+    q.setParameter("size", size);
+    
+    List<String> contentHashes = q.getResultList();
+    
+    return contentHashes.isEmpty() ? Optional.empty() : Optional.of(contentHashes.get(0));
+  }
+  
+  /**
+   * Saves image rendition rendered from current image version.
+   * Previous rendition of the same size is replaced.
+   * 
+   * @param image Original image.
+   * @param size Rendition size.
+   * @param contentHash Rendition content hash, i.e. blob key.
+   * @return Saved rendition.
+   */
+  public ImageRendition saveRendition(Image image, RenditionSize size, String contentHash) {
+    TypedQuery<ImageRendition> q = em.createQuery(
+        "  SELECT r FROM ImageRendition r "
+        + "WHERE r.image.id = :id AND r.size = :size", 
+        ImageRendition.class);
+    q.setParameter("id", image.getId());
+    q.setParameter("size", size);
+    
+    List<ImageRendition> renditions = q.getResultList();
+    ImageRendition rendition = renditions.isEmpty() 
+        ? new ImageRendition(image, size) 
+        : renditions.get(0);
+    
+    rendition.setSourceVersion(image.getVersion());
+    rendition.setContentHash(contentHash);
+    
+    if (rendition.getId() == null) {
+      em.persist(rendition);
+    }
+    
+    return rendition;
+  }
+  
   /**
    * Retrieves a movie image. 
    * 
@@ -107,6 +208,40 @@ public class ImageRepository {
     Image image = em.find(Image.class, id);
     
     return image != null ? Optional.of(image) : Optional.empty();
-  }  
+  }
+
+  /**
+   * Checks whether an image exists. Only the key is queried.
+   *  
+   * @param id Image identifier.
+   * @return True when image exists.
+   */
+  public boolean existsById(Long id) {
+    TypedQuery<Long> q = em.createQuery(
+        "  SELECT i.id FROM Image i "
+        + "WHERE i.id = :id", Long.class);
+    q.setParameter("id", id);
+    
+    return ! q.getResultList().isEmpty();
+  }
+
+  /**
+   * Checks whether an image belongs to a movie. Only the keys are queried.
+   *  
+   * @param imdbId Movie identifier.
+   * @param id Image identifier.
+   * @return True when movie image exists.
+   */
+  public boolean existsMovieImageById(String imdbId, Long id) {
+    TypedQuery<Long> q = em.createQuery(
+        "  SELECT i.id FROM Movie m "
+        + "JOIN m.images i "
+        + "WHERE m.imdbId = :imdbId " 
+        + "  AND i.id = :id", Long.class);
+    q.setParameter("imdbId", imdbId);
+    q.setParameter("id", id);
+    
+    return ! q.getResultList().isEmpty();
+  }
   
 }
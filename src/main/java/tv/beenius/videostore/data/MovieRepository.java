@@ -1,9 +1,20 @@
 package tv.beenius.videostore.data;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
@@ -11,15 +22,37 @@ import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.validation.constraints.NotNull;
 
+import tv.beenius.videostore.metrics.Instrumented;
+import tv.beenius.videostore.metrics.Instrumented.Layer;
+import tv.beenius.videostore.model.Actor;
 import tv.beenius.videostore.model.Image;
 import tv.beenius.videostore.model.Movie;
+import tv.beenius.videostore.tracing.Traced;
 
 @ApplicationScoped
+@Instrumented(Layer.REPOSITORY)
+@Traced
 public class MovieRepository {
   
+  private static final String FETCH_GRAPH = "javax.persistence.fetchgraph";
+  private static final String FETCH_SIZE = "org.hibernate.fetchSize";
+  private static final String READ_ONLY = "org.hibernate.readOnly";
+  
+  /** Number of rows fetched at a time by streaming queries. */
+  private static final int STREAM_FETCH_SIZE = 500;
+  
+  /** Maximum number of identifiers bound to a single IN parameter. */
+  private static final int MAX_IDS = 1000;
+  
+  /** Number of saved movies flushed at once, in line with hibernate.jdbc.batch_size. */
+  private static final int FLUSH_SIZE = 50;
+  
   @Inject
   private EntityManager em;
   
+  @Inject
+  private ActorRepository actorRepo;
+  
   /**
    * Saves movie into database.
    * 
@@ -31,15 +64,45 @@ public class MovieRepository {
     return movie;
   }
   
+  /**
+   * Saves movies into database by JDBC batches.
+   * Cast actors with identifier are referenced w/o loading, other cast actors are saved.
+   * Persistence context is flushed and cleared periodically, so saved movies get detached.
+   * 
+   * @param movies Movies with cast.
+   */
+  public void saveAll(List<Movie> movies) {
+    
+    for (int i = 0; i < movies.size(); i++) {
+      Movie movie = movies.get(i);
+      
+      movie.setActors(movie.getActors().stream()
+          .map(actor -> actor.getId() == null 
+              ? actor 
+              : em.getReference(Actor.class, actor.getId()))
+          .collect(Collectors.toSet()));
+      em.persist(movie);
+      
+      if ((i + 1) % FLUSH_SIZE == 0) {
+        em.flush();
+        em.clear();
+      }
+    }
+    
+    em.flush();
+    em.clear();
+  }
+  
   /**
    * Fetches movie entity into persistence context.
    * Updates selected attributes title, description and year.
+   * Movie is marked as modified, so that its version is incremented on flush.
    * 
    * @param movie Movie to be updated.
-   * @return Optional Movie.
+   * @return Optional Movie together with related actors.
    */
   public Optional<Movie> update(Movie movie) {
-    Optional<Movie> optionalMovie = findById(movie.getImdbId());
+    Optional<Movie> optionalMovie = findById(movie.getImdbId(), Movie.GRAPH_WITH_CAST);
     
     if (optionalMovie.isPresent()) {
       Movie retrievedMovie = optionalMovie.get();
@@ -53,6 +116,7 @@ public class MovieRepository {
       if (movie.getYear() != null) {
         retrievedMovie.setYear(movie.getYear());
       }
+      retrievedMovie.markModified();
     }
     
     return optionalMovie;
@@ -62,13 +126,83 @@ public class MovieRepository {
    * Retrieves a single movie by identifier.
    *  
    * @param imdbId Movie identifier.
-   * @return Optional movie together with related actors and images.
+   * @return Optional movie w/o related actors and images.
    */
   public Optional<Movie> findById(String imdbId) {
-    Movie movie  = em.find(Movie.class, imdbId);   
+    return findById(imdbId, Movie.GRAPH_SUMMARY);
+  }
+
+  /**
+   * Retrieves a single movie by identifier together with related entities
+   * listed by named entity graph. Related entities not listed are fetched lazily.
+   *  
+   * @param imdbId Movie identifier.
+   * @param graphName Entity graph name, e.g. {@link Movie#GRAPH_WITH_CAST}.
+   * @return Optional movie.
+   */
+  public Optional<Movie> findById(String imdbId, String graphName) {
+    Movie movie  = em.find(Movie.class, imdbId, 
+        Map.of(FETCH_GRAPH, em.getEntityGraph(graphName)));   
     return movie != null ? Optional.of(movie) : Optional.empty();
   }
 
+  /**
+   * Checks whether a movie exists. Only the key is queried.
+   *  
+   * @param imdbId Movie identifier.
+   * @return True when movie exists.
+   */
+  public boolean existsById(String imdbId) {
+    TypedQuery<String> q = em.createQuery(
+        "  SELECT m.imdbId FROM Movie m "
+        + "WHERE m.imdbId = :imdbId", String.class);
+    q.setParameter("imdbId", imdbId);
+    
+    return ! q.getResultList().isEmpty();
+  }
+
+  /**
+   * Retrieves identifiers of existing movies among given identifiers.
+   * Keys are queried by a single query.
+   *  
+   * @param imdbIds Movie identifiers.
+   * @return Set of existing movie identifiers.
+   */
+  public Set<String> findExistingIds(Collection<String> imdbIds) {
+    if (imdbIds.isEmpty()) {
+      return new HashSet<>();
+    }
+    
+    TypedQuery<String> q = em.createQuery(
+        "  SELECT m.imdbId FROM Movie m "
+        + "WHERE m.imdbId IN :imdbIds", String.class);
+    q.setParameter("imdbIds", imdbIds);
+    
+    return new HashSet<>(q.getResultList());
+  }
+
+  /**
+   * Retrieves revision of a movie together with related actors.
+   * Revision is aggregated from versions, entities are not loaded.
+   *  
+   * @param imdbId Movie identifier.
+   * @return Optional revision.
+   */
+  public Optional<Revision> findRevisionById(String imdbId) {
+    TypedQuery<Revision> q = em.createQuery(
+        "  SELECT NEW tv.beenius.videostore.data.Revision("
+        + "    m.version, SUM(a.version), m.lastModified, MAX(a.lastModified)) "
+        + "FROM Movie m "
+        + "LEFT JOIN m.actors a "
+        + "WHERE m.imdbId = :imdbId "
+        + "GROUP BY m.imdbId, m.version, m.lastModified", Revision.class);
+    q.setParameter("imdbId", imdbId);
+    
+    List<Revision> revisions = q.getResultList();
+    
+    return revisions.isEmpty() ? Optional.empty() : Optional.of(revisions.get(0));
+  }
+
   /**
    * Retrieves a single movie by identifier lazily.
    *  
@@ -88,23 +222,6 @@ public class MovieRepository {
     return movies.size() != 0 ? Optional.of(movies.get(0)) : Optional.empty();
   }
   
-  /**
-   * Retrieves a sorted list of movies containing search string.
-   * 
-   * @param searchFor Search string from Title.
-   * @return List of selected movies ordered by title.
-   */
-  public List<Movie> findByTitle(String searchFor) {
-    TypedQuery<Movie> q = em.createQuery(
-        "  SELECT new Movie(m.imdbId, m.title, m.year, m.description) FROM Movie m "
-        + "WHERE m.title LIKE :likeString "
-        + "ORDER BY m.title", 
-        Movie.class);
-    q.setParameter("likeString","%" + searchFor + "%");
-    
-    return q.getResultList();
-  }
-  
   /**
    * Retrieves all movies ordered by title.
    * 
@@ -148,38 +265,195 @@ public class MovieRepository {
    */
   public List<Movie> findPage(int startPosition, int maxResult) {
     TypedQuery<Movie> q = em.createQuery(
-        "  SELECT NEW Movie(m.imdbId, m.title, m.year, m.description) FROM Movie m "
+        "  SELECT NEW Movie(m.imdbId, m.title, m.year, m.description, m.version) FROM Movie m "
         + "ORDER BY m.title", Movie.class);
     q.setFirstResult(startPosition);
     q.setMaxResults(maxResult); 
-    
+    SecondLevelCache.cacheQuery(q, SecondLevelCache.PAGE_REGION);
+
     return q.getResultList();
   }
 
   /**
-   * Retrieves selected page of movies lazily with title containing searchFor ordered by title.
-   * 
-   * @param startPosition Starting movie record for page.
+   * Retrieves page of movies lazily ordered by title and imdbId using keyset pagination.
+   * Page starts right after the movie with given sort keys.
+   *
+   * <p>Unlike {@link #findPage(int, int)} previous pages are not scanned,
+   * because the database seeks directly to the first record via title index.
+   *
+   * @param afterTitle Title of the last movie on previous page or null for first page.
+   * @param afterImdbId Identifier of the last movie on previous page.
    * @param maxResult Maximum page size.
-   * @param searchFor Search string from title.
-   * @return Page with sorted list of filtered movies.
+   * @return Page with sorted list of movies.
    */
-  public List<Movie> findPageByTitle(int startPosition, int maxResult, String searchFor) {
-  
+  public List<Movie> findPageAfter(String afterTitle, String afterImdbId, int maxResult) {
+
     TypedQuery<Movie> q = em.createQuery(
-        "  SELECT NEW Movie(m.imdbId, m.title, m.year, m.description) FROM Movie m "
-        + "WHERE m.title LIKE :likeString "
-        + "ORDER BY m.title", Movie.class);
-    q.setParameter("likeString","%" + searchFor + "%");
-    q.setFirstResult(startPosition);
-    q.setMaxResults(maxResult); 
+        "  SELECT NEW Movie(m.imdbId, m.title, m.year, m.description, m.version) FROM Movie m "
+        + (afterTitle == null ? "" : "WHERE m.title > :afterTitle "
+            + "OR (m.title = :afterTitle AND m.imdbId > :afterImdbId) ")
+        + "ORDER BY m.title, m.imdbId", Movie.class);
+
+    if (afterTitle != null) {
+      q.setParameter("afterTitle", afterTitle);
+      q.setParameter("afterImdbId", afterImdbId);
+    }
+    q.setMaxResults(maxResult);
+    SecondLevelCache.cacheQuery(q, SecondLevelCache.PAGE_REGION);
+
+    return q.getResultList();
+  }
+
+  /**
+   * Retrieves movies lazily by identifiers.
+   * Identifiers of absent movies are skipped.
+   *
+   * @param imdbIds Movie identifiers.
+   * @return List of movies in order of identifiers.
+   */
+  public List<Movie> findByIds(List<String> imdbIds) {
+    
+    Map<String, Movie> movies = new HashMap<>();
+    
+    for (int from = 0; from < imdbIds.size(); from += MAX_IDS) {
+      TypedQuery<Movie> q = em.createQuery(
+          "  SELECT NEW Movie(m.imdbId, m.title, m.year, m.description, m.version) "
+          + "FROM Movie m "
+          + "WHERE m.imdbId IN :imdbIds", Movie.class);
+      q.setParameter("imdbIds", imdbIds.subList(from, Math.min(from + MAX_IDS, imdbIds.size())));
+      
+      q.getResultList().forEach(movie -> movies.put(movie.getImdbId(), movie));
+    }
+    
+    return imdbIds.stream()
+        .map(movies::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Retrieves movies by identifiers into persistence context together with related entities
+   * listed by named entity graph, so that they can be changed.
+   * Identifiers are bound by chunks of {@value #MAX_IDS}, i.e. usually by a single query.
+   * Identifiers of absent movies are skipped.
+   *
+   * @param imdbIds Movie identifiers.
+   * @param graphName Entity graph name, e.g. {@link Movie#GRAPH_WITH_CAST}.
+   * @return List of managed movies in order of identifiers.
+   */
+  public List<Movie> findByIdsForUpdate(List<String> imdbIds, String graphName) {
+    
+    Map<String, Movie> movies = new HashMap<>();
+    
+    for (int from = 0; from < imdbIds.size(); from += MAX_IDS) {
+      TypedQuery<Movie> q = em.createQuery(
+          "  SELECT DISTINCT m FROM Movie m "
+          + "WHERE m.imdbId IN :imdbIds", Movie.class);
+      q.setParameter("imdbIds", imdbIds.subList(from, Math.min(from + MAX_IDS, imdbIds.size())));
+      q.setHint(FETCH_GRAPH, em.getEntityGraph(graphName));
+      
+      q.getResultList().forEach(movie -> movies.put(movie.getImdbId(), movie));
+    }
+    
+    return imdbIds.stream()
+        .map(movies::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Retrieves batch of movies lazily ordered by imdbId.
+   * Intended to read all movies batch by batch, e.g. for indexing.
+   *
+   * @param afterImdbId Identifier of the last movie in previous batch or null for first batch.
+   * @param maxResult Maximum batch size.
+   * @return Batch of movies.
+   */
+  public List<Movie> findBatchAfter(String afterImdbId, int maxResult) {
+    TypedQuery<Movie> q = em.createQuery(
+        "  SELECT NEW Movie(m.imdbId, m.title, m.year, m.description, m.version) FROM Movie m "
+        + (afterImdbId == null ? "" : "WHERE m.imdbId > :afterImdbId ")
+        + "ORDER BY m.imdbId", Movie.class);
+    
+    if (afterImdbId != null) {
+      q.setParameter("afterImdbId", afterImdbId);
+    }
+    q.setMaxResults(maxResult);
     
     return q.getResultList();
   }
-  
+
+  /**
+   * Streams movies modified since given instant together with cast actor identifiers,
+   * ordered by imdbId.
+   * 
+   * <p>Rows are read by a forward-only cursor fetching {@value #STREAM_FETCH_SIZE} rows
+   * at a time. Movies are not managed, so heap use does not grow with the number of movies.
+   * Cast actors hold identifier only. Stream should be closed after use.
+   *
+   * @param since Minimal last modification instant or null for all movies.
+   * @return Stream of movies.
+   */
+  public Stream<Movie> streamAll(Instant since) {
+    TypedQuery<Object[]> q = em.createQuery(
+        "  SELECT m.imdbId, m.title, m.year, m.description, m.version, a.id "
+        + "FROM Movie m "
+        + "LEFT JOIN m.actors a "
+        + (since == null ? "" : "WHERE m.lastModified >= :since ")
+        + "ORDER BY m.imdbId", Object[].class);
+    
+    if (since != null) {
+      q.setParameter("since", since);
+    }
+    q.setHint(FETCH_SIZE, STREAM_FETCH_SIZE);
+    q.setHint(READ_ONLY, true);
+    
+    Stream<Object[]> rows = q.getResultStream();
+    Iterator<Object[]> rowIterator = rows.iterator();
+    
+    // Consecutive rows of a movie are joined into a single movie.
+    Iterator<Movie> movieIterator = new Iterator<Movie>() {
+      
+      private Object[] row;
+      
+      @Override
+      public boolean hasNext() {
+        return row != null || rowIterator.hasNext();
+      }
+
+      @Override
+      public Movie next() {
+        if (row == null) {
+          row = rowIterator.next();
+        }
+        
+        Movie movie = new Movie(
+            (String) row[0], (String) row[1], (Integer) row[2], (String) row[3], (Long) row[4]);
+        
+        while (row != null && movie.getImdbId().equals(row[0])) {
+          if (row[5] != null) {
+            movie.getActors().add(new Actor((Long) row[5], null, null, null));
+          }
+          row = rowIterator.hasNext() ? rowIterator.next() : null;
+        }
+        
+        return movie;
+      }
+    };
+    
+    return StreamSupport
+        .stream(Spliterators.spliteratorUnknownSize(
+            movieIterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .onClose(rows::close);
+  }
+
   /**
    * Removes a movie, images and actor references from database.
    * Operation is idempotent.
+   * 
+   * <p>Actors and their movies are not loaded. Movie owns the cast, so its cast rows
+   * are deleted by a single statement together with the movie. Actors of the cast
+   * are marked as modified by {@link ActorRepository#markModifiedByIds(Collection)}.
    *  
    * @param imdbId Movie identifier.
    * @return Returns true when entity actually existed.
@@ -188,16 +462,41 @@ public class MovieRepository {
     Optional<Movie> optionalMovie = findById(imdbId);
     
     if (optionalMovie.isPresent()) {
-      Movie movie = optionalMovie.get();
-      movie.getActors().forEach(actor -> {
-        actor.getMovies().remove(movie);
-      });
-      em.remove(movie);
+      List<Long> actorIds = em.createQuery(
+          "  SELECT a.id FROM Movie m JOIN m.actors a "
+          + "WHERE m.imdbId = :imdbId", Long.class)
+          .setParameter("imdbId", imdbId)
+          .getResultList();
+      
+      em.remove(optionalMovie.get());
+      actorRepo.markModifiedByIds(actorIds);
       return true;
     }
     
     return false;
   }
+
+  /**
+   * Marks movies as modified by a single bulk update, i.e. increments their versions and sets
+   * their modification time as {@link Movie#markModified()} does. Movies are not loaded,
+   * so movies already held by persistence context become stale.
+   * 
+   * @param imdbIds Movie identifiers.
+   * @return Number of updated movies.
+   */
+  public int markModifiedByIds(Collection<String> imdbIds) {
+    if (imdbIds.isEmpty()) {
+      return 0;
+    }
+    
+    return em.createQuery(
+        "  UPDATE Movie m "
+        + "SET m.version = m.version + 1, m.lastModified = :now "
+        + "WHERE m.imdbId IN :imdbIds")
+        .setParameter("now", Instant.now())
+        .setParameter("imdbIds", imdbIds)
+        .executeUpdate();
+  }
   
   /**
    * Saves a movie image.
@@ -207,12 +506,13 @@ public class MovieRepository {
    * @return image.
    */
   public Image saveMovieImage(String imdbId, Image image) {
-    Optional<Movie> optionalMovie = findById(imdbId);
+    Optional<Movie> optionalMovie = findById(imdbId, Movie.GRAPH_WITH_IMAGES);
     Movie retrievedMovie = optionalMovie.get();
     
     retrievedMovie.getImages().add(image);
+    retrievedMovie.markModified();
     
-    em.flush();
+    em.persist(image);
     
     return image;
   }
@@ -225,7 +525,7 @@ public class MovieRepository {
    */
   public Optional<Image> findMovieImageById(String imdbId, Long id) {
     
-    Optional<Movie> optionalMovie = findById(imdbId);
+    Optional<Movie> optionalMovie = findById(imdbId, Movie.GRAPH_WITH_IMAGES);
     
     if (optionalMovie.isEmpty()) {
       return Optional.empty();
@@ -256,7 +556,7 @@ public class MovieRepository {
    */
   public boolean removeMovieImageById(String imdbId, Long id) {
     
-    Optional<Movie> optionalMovie = findById(imdbId);
+    Optional<Movie> optionalMovie = findById(imdbId, Movie.GRAPH_WITH_IMAGES);
     Movie retrievedMovie = optionalMovie.get();
     
     Set<Image> retrievedImages = retrievedMovie.getImages();
@@ -266,6 +566,7 @@ public class MovieRepository {
       Image image = (Image) iterator.next();
       if (image.getId().equals(id)) {
         retrievedImages.remove(image);
+        retrievedMovie.markModified();
         em.remove(image);
         return true;
       }
@@ -281,22 +582,7 @@ public class MovieRepository {
    */
   public long count() {
     TypedQuery<Long> q = em.createQuery("  SELECT COUNT(m) from Movie m", Long.class);
-    
-    return q.getSingleResult();
-  }
-
-  /**
-   * Counts movies containing search string.
-   * 
-   * @param searchFor Search string from Title.
-   * @return Number of filtered movies.
-   */
-  public long countByTitle(String searchFor) {
-    TypedQuery<Long> q = em.createQuery(
-        "  SELECT COUNT(m) from Movie m "
-        + "WHERE m.title LIKE :likeString", 
-        Long.class);
-    q.setParameter("likeString","%" + searchFor + "%");
+    SecondLevelCache.cacheQuery(q, SecondLevelCache.COUNT_REGION);
 
     return q.getSingleResult();
   }
@@ -314,7 +600,8 @@ public class MovieRepository {
         + "WHERE m.imdbId = :imdbId", 
         Long.class);
     q.setParameter("imdbId", imdbId);
-    
+    SecondLevelCache.cacheQuery(q, SecondLevelCache.COUNT_REGION);
+
     return q.getSingleResult();
   }
   
@@ -0,0 +1,73 @@
+package tv.beenius.videostore.data;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+import tv.beenius.videostore.metrics.Instrumented;
+import tv.beenius.videostore.metrics.Instrumented.Layer;
+import tv.beenius.videostore.model.OutboxEvent;
+import tv.beenius.videostore.tracing.Traced;
+
+@ApplicationScoped
+@Instrumented(Layer.REPOSITORY)
+@Traced
+public class OutboxRepository {
+
+  @Inject
+  private EntityManager em;
+
+  /**
+   * Persists outbox events in the current transaction.
+   *
+   * @param events Outbox events.
+   */
+  public void saveAll(List<OutboxEvent> events) {
+    events.forEach(em::persist);
+  }
+
+  /**
+   * Retrieves the oldest pending outbox events.
+   *
+   * @param maxResult Maximal number of events.
+   * @return Outbox events in recording order.
+   */
+  public List<OutboxEvent> findPending(int maxResult) {
+    TypedQuery<OutboxEvent> q = em.createQuery(
+        "SELECT e FROM OutboxEvent e ORDER BY e.id", OutboxEvent.class);
+    q.setMaxResults(maxResult);
+
+    return q.getResultList();
+  }
+
+  /**
+   * Removes published outbox events.
+   *
+   * @param events Published outbox events.
+   * @return Number of removed events.
+   */
+  public int removeAll(List<OutboxEvent> events) {
+
+    if (events.isEmpty()) {
+      return 0;
+    }
+
+    return em.createQuery("DELETE FROM OutboxEvent e WHERE e.id IN :ids")
+        .setParameter("ids", events.stream().map(OutboxEvent::getId).collect(Collectors.toList()))
+        .executeUpdate();
+  }
+
+  /**
+   * Counts pending outbox events.
+   *
+   * @return Number of pending events.
+   */
+  public long count() {
+    return em.createQuery("SELECT COUNT(e) FROM OutboxEvent e", Long.class).getSingleResult();
+  }
+
+}
@@ -0,0 +1,87 @@
+package tv.beenius.videostore.data;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import tv.beenius.videostore.util.HashUtil;
+
+/**
+ * Revision of an entity representation.
+ *
+ * <p>Revision is derived from entity version and versions of related entities
+ * included in the representation, so it can be queried without loading the entity graph.
+ * Tag is intended for entity tags, modification time for Last-Modified headers.
+ */
+@SuppressWarnings("serial")
+public class Revision implements Serializable {
+
+  private final String tag;
+
+  private final Instant lastModified;
+
+  /**
+   * Intended for JPQL constructor expressions aggregating related entities.
+   *
+   * @param version Entity version.
+   * @param relatedVersions Sum of related entity versions or null when none are related.
+   * @param lastModified Entity modification time.
+   * @param relatedLastModified Latest related entity modification time or null.
+   */
+  public Revision(
+      Long version,
+      Long relatedVersions,
+      Instant lastModified,
+      Instant relatedLastModified) {
+    super();
+
+    this.tag = version + "." + (relatedVersions == null ? 0L : relatedVersions);
+
+    Instant latest = lastModified;
+    if (latest == null || (relatedLastModified != null && relatedLastModified.isAfter(latest))) {
+      latest = relatedLastModified;
+    }
+    // HTTP dates are precise to seconds.
+    this.lastModified = latest == null ? null : latest.truncatedTo(ChronoUnit.SECONDS);
+  }
+
+  /**
+   * Revision w/o modification time.
+   *
+   * @param tag Revision tag.
+   */
+  public Revision(String tag) {
+    super();
+    this.tag = tag;
+    this.lastModified = null;
+  }
+
+  /**
+   * Computes revision of a list, e.g. a page, from identifiers and versions of its elements.
+   * Revision changes whenever list membership, order or any element version changes.
+   *
+   * @param keys Identifier and version pairs of list elements in list order.
+   * @return Revision.
+   */
+  public static Revision ofList(List<String> keys) {
+    return new Revision(HashUtil.sha256Hex(
+        String.join(",", keys).getBytes(StandardCharsets.UTF_8)));
+  }
+
+  public String getTag() {
+    return this.tag;
+  }
+
+  public Optional<Instant> getLastModified() {
+    return Optional.ofNullable(this.lastModified);
+  }
+
+  @Override
+  public String toString() {
+    return "Revision {tag='" + tag + "', lastModified='" + lastModified + "'}";
+  }
+
+}
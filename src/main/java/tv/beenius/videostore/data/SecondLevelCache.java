@@ -0,0 +1,146 @@
+package tv.beenius.videostore.data;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.TypedQuery;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.CacheImplementor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.event.EntityChange;
+import tv.beenius.videostore.model.Actor;
+import tv.beenius.videostore.model.Image;
+import tv.beenius.videostore.model.Movie;
+import tv.beenius.videostore.model.OutboxEvent;
+import tv.beenius.videostore.tracing.Traced;
+
+/**
+ * Maintains second-level cache of Movie, Actor and Image entities and their collections.
+ *
+ * <p>Cached entities and collections are evicted by observing recorded outbox events
+ * after the change is committed. Inverse side of movie cast is not tracked by Hibernate,
+ * so related collections are evicted explicitly.
+ * Cached count and page query results are invalidated by Hibernate on table changes.
+ *
+ * <p>Hit, miss and put counts are provided per cache region by
+ * {@link #getRegionStatistics(String)} and exposed as application metrics. Statistics are
+ * enabled by {@code hibernate.generate_statistics} in the persistence unit, so that
+ * the metrics are meaningful, at the cost of bookkeeping on every session and cache access.
+ */
+@ApplicationScoped
+public class SecondLevelCache {
+
+  /** Query cache region of count queries. */
+  public static final String COUNT_REGION = "tv.beenius.videostore.count";
+
+  /** Query cache region of page queries. */
+  public static final String PAGE_REGION = "tv.beenius.videostore.page";
+
+  private static final String CACHEABLE = "org.hibernate.cacheable";
+  private static final String CACHE_REGION = "org.hibernate.cacheRegion";
+
+  private static final String MOVIE_ACTORS = Movie.class.getName() + ".actors";
+  private static final String MOVIE_IMAGES = Movie.class.getName() + ".images";
+  private static final String ACTOR_MOVIES = Actor.class.getName() + ".movies";
+
+  Logger logger = Logger.getLogger(getClass());
+
+  @PersistenceUnit
+  private EntityManagerFactory emf;
+
+  /**
+   * Marks query results as cacheable in given query cache region.
+   *
+   * @param q Query.
+   * @param region Query cache region.
+   * @return Query.
+   */
+  public static <T> TypedQuery<T> cacheQuery(TypedQuery<T> q, String region) {
+    q.setHint(CACHEABLE, true);
+    q.setHint(CACHE_REGION, region);
+
+    return q;
+  }
+
+  /**
+   * Evicts changed entity right after recording transaction is completed, i.e. before
+   * the change is relayed, so that readers do not see stale cache in the meantime.
+   *
+   * @param recorded Recorded outbox event.
+   */
+  @Traced
+  public void onRecorded(
+      @Observes(during = TransactionPhase.AFTER_SUCCESS)
+      final OutboxEvent recorded) {
+    evict(recorded.toEntityChange());
+  }
+
+  /**
+   * Retrieves names of all second-level and query cache regions. Query cache regions
+   * of count and page queries are otherwise created on first query, so they are created here.
+   *
+   * @return Region names.
+   */
+  public Set<String> getRegionNames() {
+
+    CacheImplementor cache = emf.unwrap(SessionFactoryImplementor.class).getCache();
+    cache.getQueryResultsCache(COUNT_REGION);
+    cache.getQueryResultsCache(PAGE_REGION);
+
+    return new TreeSet<>(Arrays.asList(statistics().getSecondLevelCacheRegionNames()));
+  }
+
+  /**
+   * Retrieves statistics of a second-level or query cache region.
+   *
+   * @param regionName Region name.
+   * @return Optional hit, miss and put counts, empty when second-level cache is disabled.
+   */
+  public Optional<CacheRegionStatistics> getRegionStatistics(String regionName) {
+    return Optional.ofNullable(statistics().getCacheRegionStatistics(regionName));
+  }
+
+  private Statistics statistics() {
+    return emf.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  private void evict(EntityChange change) {
+
+    Cache cache = emf.unwrap(SessionFactory.class).getCache();
+    boolean removed = change.getOperation() == EntityChange.Operation.REMOVED;
+
+    if (change.getEntityType() == Movie.class) {
+      cache.evictEntityData(Movie.class, change.getId());
+      cache.evictCollectionData(MOVIE_ACTORS, change.getId());
+      cache.evictCollectionData(MOVIE_IMAGES, change.getId());
+      if (removed) {
+        cache.evictCollectionData(ACTOR_MOVIES);
+      }
+    } else if (change.getEntityType() == Actor.class) {
+      cache.evictEntityData(Actor.class, change.getId());
+      cache.evictCollectionData(ACTOR_MOVIES, change.getId());
+      if (removed) {
+        cache.evictCollectionData(MOVIE_ACTORS);
+      }
+    } else if (change.getEntityType() == Image.class) {
+      cache.evictEntityData(Image.class, change.getId());
+    }
+
+    logger.log(Level.DEBUG, "Evicted " + change);
+  }
+
+}
@@ -1,35 +1,59 @@
 package tv.beenius.videostore.event;
 
-import javax.enterprise.context.RequestScoped;
+import java.util.Collections;
+
+import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
-import javax.enterprise.event.TransactionPhase;
 import javax.faces.push.Push;
 import javax.faces.push.PushContext;
 import javax.inject.Inject;
 
+import tv.beenius.videostore.tracing.Traced;
+
 /**
- * Notifies actor list facelet(s) about a actor list change via WebSocket push mechanism.
- * Notification is triggered by Java Event mechanism. 
+ * Notifies actor facelet(s) about actor changes via WebSocket push mechanism.
+ * Notification is triggered by Java Event mechanism and sent by
+ * {@link ChangeNotificationDispatcher}, i.e. asynchronously and coalesced.
  */
-@RequestScoped
+@ApplicationScoped
 public class ActorChangeNotifier {
 
+  /** Notification event as handled in facelet. */
+  static final String EVENT = "actorListNotification";
+
   @SuppressWarnings("cdi-ambiguous-dependency")
   @Inject 
   @Push (channel = "actorChannel")
   private PushContext actorChannel;
   
+  @Inject
+  ChangeNotificationDispatcher dispatcher;
+  
+  /**
+   * Enqueues an update notification to WebSocket as defined in facelet.
+   * Method is triggered by Observer when the change is relayed after commit.
+   * 
+   * @param change Actor change.
+   */
+  @Traced
+  public void onActorChange(
+      @Observes 
+      @ActorEvent 
+      final EntityChange change) {
+    dispatcher.enqueue(EVENT, actorChannel, Collections.singletonList(change));
+  }
+
   /**
-   * Sends an update notification to WebSocket as defined in facelet.
-   * Method is triggered by Observer after event delivering transaction is completed. 
+   * Enqueues an update notification of batch changes, e.g. of import.
    * 
-   * @param event Actor event.
+   * @param changes Actor changes.
    */
-  public void onActorEvent(
-      @Observes(during = TransactionPhase.AFTER_SUCCESS) 
+  @Traced
+  public void onActorChanges(
+      @Observes 
       @ActorEvent 
-      final String event) {
-    actorChannel.send("actorListNotification");
+      final EntityChangeBatch changes) {
+    dispatcher.enqueue(EVENT, actorChannel, changes.getChanges());
   }
 
 }
@@ -0,0 +1,181 @@
+package tv.beenius.videostore.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+
+import tv.beenius.videostore.tracing.Traced;
+
+/**
+ * Bounded in-memory feed of published movie, actor, image and cast changes.
+ *
+ * <p>Changes are appended to a ring buffer in publication order and numbered by a sequence,
+ * so that readers may resume after the last sequence they have seen. Appending never waits
+ * for readers, the oldest changes are overwritten instead. Reader that has fallen behind
+ * the buffer is told so and has to resynchronize. Sequence restarts with the server.
+ *
+ * <p>Buffer capacity is set by system property {@value #CAPACITY_PROPERTY}, defaults to 1024.
+ */
+@ApplicationScoped
+public class ChangeFeed {
+
+  static final String CAPACITY_PROPERTY = "videostore.feed.capacity";
+
+  private static final int DEFAULT_CAPACITY = 1024;
+
+  private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+  private FeedEvent[] buffer;
+
+  private long nextSequence = 1;
+
+  @PostConstruct
+  private void init() {
+    buffer = new FeedEvent[Math.max(1, Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY))];
+  }
+
+  /**
+   * Appends published movie change.
+   *
+   * @param change Movie change.
+   */
+  @Traced
+  public void onMovieChange(
+      @Observes 
+      @MovieEvent 
+      final EntityChange change) {
+    append(Collections.singletonList(change));
+  }
+
+  /**
+   * Appends published batch of movie changes.
+   *
+   * @param changes Movie changes.
+   */
+  @Traced
+  public void onMovieChanges(
+      @Observes 
+      @MovieEvent 
+      final EntityChangeBatch changes) {
+    append(changes.getChanges());
+  }
+
+  /**
+   * Appends published actor change.
+   *
+   * @param change Actor change.
+   */
+  @Traced
+  public void onActorChange(
+      @Observes 
+      @ActorEvent 
+      final EntityChange change) {
+    append(Collections.singletonList(change));
+  }
+
+  /**
+   * Appends published batch of actor changes.
+   *
+   * @param changes Actor changes.
+   */
+  @Traced
+  public void onActorChanges(
+      @Observes 
+      @ActorEvent 
+      final EntityChangeBatch changes) {
+    append(changes.getChanges());
+  }
+
+  /**
+   * Appends changes and notifies listeners. Listeners are run by appending thread,
+   * so they should only schedule reading.
+   *
+   * @param changes Entity changes.
+   */
+  public void append(List<EntityChange> changes) {
+
+    if (changes.isEmpty()) {
+      return;
+    }
+
+    synchronized (this) {
+      for (EntityChange change : changes) {
+        buffer[(int) (nextSequence % buffer.length)] = new FeedEvent(nextSequence, change);
+        nextSequence++;
+      }
+    }
+
+    listeners.forEach(Runnable::run);
+  }
+
+  /**
+   * Reads changes appended after a sequence.
+   *
+   * @param sequence Last sequence seen by reader, 0 for none.
+   * @param maxEvents Maximal number of changes read.
+   * @return Changes in sequence order, empty optional when changes after the sequence 
+   *         have already been overwritten or sequence is unknown, e.g. of previous server run.
+   */
+  public synchronized Optional<List<FeedEvent>> readAfter(long sequence, int maxEvents) {
+
+    long oldest = Math.max(1, nextSequence - buffer.length);
+
+    if (sequence < oldest - 1 || sequence >= nextSequence) {
+      return Optional.empty();
+    }
+
+    List<FeedEvent> events = new ArrayList<>();
+    for (long next = sequence + 1; next < nextSequence && events.size() < maxEvents; next++) {
+      events.add(buffer[(int) (next % buffer.length)]);
+    }
+
+    return Optional.of(events);
+  }
+
+  /**
+   * Retrieves sequence of the last appended change.
+   *
+   * @return Last sequence, 0 when no change has been appended.
+   */
+  public synchronized long getLastSequence() {
+    return nextSequence - 1;
+  }
+
+  public void addListener(Runnable listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Runnable listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Change numbered by feed sequence.
+   */
+  public static class FeedEvent {
+
+    private final long sequence;
+
+    private final EntityChange change;
+
+    FeedEvent(long sequence, EntityChange change) {
+      this.sequence = sequence;
+      this.change = change;
+    }
+
+    public long getSequence() {
+      return sequence;
+    }
+
+    public EntityChange getChange() {
+      return change;
+    }
+  }
+
+}
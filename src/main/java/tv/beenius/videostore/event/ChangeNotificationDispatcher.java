@@ -0,0 +1,218 @@
+package tv.beenius.videostore.event;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.faces.push.PushContext;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.annotation.RegistryType;
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.event.EntityChange.Operation;
+import tv.beenius.videostore.metrics.ApplicationGauges;
+
+/**
+ * Dispatches WebSocket change notifications asynchronously, coalesced per notification event.
+ *
+ * <p>First change of an event opens a window, changes arriving within the window are merged
+ * into a single notification sent when the window closes. Notification is sent by a managed
+ * scheduler thread, i.e. neither by transaction thread nor by request thread. Notification
+ * payload carries notification event and operations by entity type and identifier, e.g.
+ * <pre>{"event": "movieListNotification",
+ *  "changes": {"Image": {"7": "CREATED"}, "Movie": {"tt0107048": "UPDATED"}}}</pre>
+ * so that facelets can decide whether displayed data is affected.
+ *
+ * <p>Repeated changes of an entity within a window are merged. Update following creation
+ * remains creation, otherwise the last operation wins. When more entities than set by system
+ * property {@value #MAX_IDS_PROPERTY} (defaults to 1000) change within a window, identifiers
+ * are dropped and notification carries a reload flag instead of changes, e.g.
+ * <pre>{"event": "movieListNotification", "reload": true}</pre>
+ * so that facelets reload displayed data.
+ *
+ * <p>Window length is set by system property {@value #WINDOW_PROPERTY}, defaults to 250 ms.
+ * Queue depth, i.e. pending identifiers, fan-out latency, i.e. time from first change
+ * to completed send, and failed notifications are exposed as application metrics
+ * registered by {@link ApplicationGauges}.
+ */
+@ApplicationScoped
+public class ChangeNotificationDispatcher {
+
+  static final String WINDOW_PROPERTY = "videostore.notification.windowMillis";
+
+  static final String MAX_IDS_PROPERTY = "videostore.notification.maxIds";
+
+  private static final long DEFAULT_WINDOW_MILLIS = 250;
+
+  private static final int DEFAULT_MAX_IDS = 1000;
+
+  Logger logger = Logger.getLogger(getClass());
+
+  @Resource
+  ManagedScheduledExecutorService scheduler;
+
+  @Inject
+  @RegistryType(type = MetricRegistry.Type.APPLICATION)
+  MetricRegistry registry;
+
+  private final ConcurrentMap<String, PendingNotification> pending = new ConcurrentHashMap<>();
+
+  private final AtomicInteger queueDepth = new AtomicInteger();
+
+  /**
+   * Enqueues changes for notification.
+   *
+   * @param event Notification event, e.g. movieListNotification.
+   * @param channel Push channel of notification event.
+   * @param changes Changed entities.
+   */
+  public void enqueue(String event, PushContext channel, Collection<EntityChange> changes) {
+
+    if (changes.isEmpty()) {
+      return;
+    }
+
+    pending.compute(event, (key, notification) -> {
+      if (notification == null) {
+        notification = new PendingNotification(channel);
+        scheduler.schedule(() -> send(key), getWindowMillis(), TimeUnit.MILLISECONDS);
+      }
+
+      queueDepth.addAndGet(notification.add(changes, getMaxIds()));
+
+      return notification;
+    });
+  }
+
+  /**
+   * Retrieves queue depth, i.e. number of changed identifiers waiting for notification.
+   *
+   * @return Queue depth.
+   */
+  public int getQueueDepth() {
+    return queueDepth.get();
+  }
+
+  private void send(String event) {
+
+    PendingNotification notification = pending.remove(event);
+
+    if (notification == null) {
+      return;
+    }
+
+    queueDepth.addAndGet(- notification.size());
+
+    Map<String, Object> payload = new TreeMap<>();
+    payload.put("event", event);
+    if (notification.reload) {
+      payload.put("reload", true);
+    } else {
+      payload.put("changes", notification.getChanges());
+    }
+
+    try {
+      notification.channel.send(payload);
+
+      registry.timer(ApplicationGauges.NOTIFICATION_FAN_OUT)
+          .update(System.nanoTime() - notification.openedNanos, TimeUnit.NANOSECONDS);
+    } catch (RuntimeException rte) {
+      registry.counter(ApplicationGauges.NOTIFICATION_FAILURES).inc();
+      logger.log(Level.ERROR, "Notification " + event + " failed: " + rte.getLocalizedMessage());
+    }
+  }
+
+  private static long getWindowMillis() {
+    return Long.getLong(WINDOW_PROPERTY, DEFAULT_WINDOW_MILLIS);
+  }
+
+  private static int getMaxIds() {
+    return Integer.getInteger(MAX_IDS_PROPERTY, DEFAULT_MAX_IDS);
+  }
+
+  /**
+   * Operations by entity type and identifier collected within a window, or reload flag
+   * once too many identifiers have been collected.
+   * Guarded by pending map, i.e. modified only within compute.
+   */
+  private static class PendingNotification {
+
+    private final PushContext channel;
+
+    private final long openedNanos = System.nanoTime();
+
+    private final Map<String, Map<String, Operation>> changes = new TreeMap<>();
+
+    private int size;
+
+    private boolean reload;
+
+    PendingNotification(PushContext channel) {
+      this.channel = channel;
+    }
+
+    /**
+     * Adds changes unless reload is already required.
+     *
+     * @param entityChanges Changed entities.
+     * @param maxIds Maximal number of identifiers collected before reload is required.
+     * @return Change of the number of collected identifiers, negative when dropped.
+     */
+    int add(Collection<EntityChange> entityChanges, int maxIds) {
+      if (reload) {
+        return 0;
+      }
+      int before = size;
+      for (EntityChange change : entityChanges) {
+        Map<String, Operation> typeChanges = changes.computeIfAbsent(
+            change.getEntityType().getSimpleName(), type -> new LinkedHashMap<>());
+        String id = String.valueOf(change.getId());
+        Operation previous = typeChanges.get(id);
+        if (previous == null) {
+          if (size >= maxIds) {
+            reload = true;
+            changes.clear();
+            size = 0;
+            return - before;
+          }
+          typeChanges.put(id, change.getOperation());
+          size++;
+        } else {
+          typeChanges.put(id, merge(previous, change.getOperation()));
+        }
+      }
+      return size - before;
+    }
+
+    int size() {
+      return size;
+    }
+
+    /** Copies changes with operation names, as push encodes plain JSON values only. */
+    Map<String, Map<String, String>> getChanges() {
+      Map<String, Map<String, String>> copy = new TreeMap<>();
+      changes.forEach((type, typeChanges) -> {
+        Map<String, String> typeCopy = new LinkedHashMap<>();
+        typeChanges.forEach((id, operation) -> typeCopy.put(id, operation.name()));
+        copy.put(type, typeCopy);
+      });
+      return copy;
+    }
+
+    private static Operation merge(Operation previous, Operation next) {
+      return previous == Operation.CREATED && next == Operation.UPDATED ? previous : next;
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+package tv.beenius.videostore.event;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.data.OutboxRepository;
+import tv.beenius.videostore.model.OutboxEvent;
+import tv.beenius.videostore.model.OutboxEvent.Channel;
+
+/**
+ * Records entity changes into outbox within the transaction of the change.
+ *
+ * <p>Changes are stored only when the transaction commits and are published by
+ * {@link tv.beenius.videostore.service.ChangeRelay} afterwards. Each recorded
+ * {@link OutboxEvent} is fired, so that its observers of transaction success evict
+ * second-level cache and trigger relay.
+ */
+@ApplicationScoped
+public class ChangeOutbox {
+
+  Logger logger = Logger.getLogger(getClass());
+
+  @Inject
+  OutboxRepository outboxRepo;
+
+  @Inject
+  private Event<OutboxEvent> outboxEventSrc;
+
+  /**
+   * Records entity changes.
+   *
+   * @param channel Event channel.
+   * @param changes Entity changes.
+   */
+  public void record(Channel channel, EntityChange... changes) {
+    record(channel, Arrays.asList(changes));
+  }
+
+  /**
+   * Records entity changes. Versions are recorded as given, see
+   * {@link EntityChange#of(Class, java.io.Serializable, EntityChange.Operation,
+   * tv.beenius.videostore.model.Versioned)}, so that neither persistence context
+   * is flushed nor changed entities are loaded.
+   *
+   * @param channel Event channel.
+   * @param changes Entity changes.
+   */
+  public void record(Channel channel, List<EntityChange> changes) {
+
+    if (changes.isEmpty()) {
+      return;
+    }
+
+    List<OutboxEvent> events = changes.stream()
+        .map(change -> new OutboxEvent(channel, change))
+        .collect(Collectors.toList());
+
+    outboxRepo.saveAll(events);
+
+    events.forEach(event -> {
+      logger.log(Level.DEBUG, event);
+      outboxEventSrc.fire(event);
+    });
+  }
+
+}
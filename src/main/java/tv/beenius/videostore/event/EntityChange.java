@@ -0,0 +1,103 @@
+package tv.beenius.videostore.event;
+
+import java.io.Serializable;
+
+import tv.beenius.videostore.model.Versioned;
+
+/**
+ * Identifies a single changed entity.
+ *
+ * <p>Recorded into outbox by {@link ChangeOutbox} and published with {@link MovieEvent} 
+ * or {@link ActorEvent} qualifier by {@link tv.beenius.videostore.service.ChangeRelay}, 
+ * so that observers may act on the changed entity only.
+ */
+@SuppressWarnings("serial")
+public class EntityChange implements Serializable {
+
+  /** Kind of entity change. */
+  public enum Operation { CREATED, UPDATED, REMOVED }
+
+  private final Class<?> entityType;
+
+  private final Serializable id;
+
+  private final Operation operation;
+
+  private final Long version;
+
+  /**
+   * Entity change.
+   *
+   * @param entityType Entity class.
+   * @param id Entity identifier.
+   * @param operation Kind of change.
+   */
+  public EntityChange(Class<?> entityType, Serializable id, Operation operation) {
+    this(entityType, id, operation, null);
+  }
+
+  /**
+   * Entity change of known entity version.
+   *
+   * @param entityType Entity class.
+   * @param id Entity identifier.
+   * @param operation Kind of change.
+   * @param version Entity version after change or null, e.g. of removed entity.
+   */
+  public EntityChange(Class<?> entityType, Serializable id, Operation operation, Long version) {
+    super();
+    this.entityType = entityType;
+    this.id = id;
+    this.operation = operation;
+    this.version = version;
+  }
+
+  /**
+   * Change of a versioned entity held by the changing transaction.
+   *
+   * <p>Version is taken as it will be committed, so that entity is neither flushed
+   * nor loaded again: created entity keeps the version seeded on persist, updated entity
+   * is incremented once on flush. Updated entity must therefore be dirty, e.g. marked
+   * by {@link tv.beenius.videostore.model.Movie#markModified()}, and not flushed since.
+   *
+   * @param entityType Entity class.
+   * @param id Entity identifier.
+   * @param operation Kind of change, either created or updated.
+   * @param entity Changed entity.
+   * @return Entity change.
+   */
+  public static EntityChange of(
+      Class<?> entityType, Serializable id, Operation operation, Versioned entity) {
+
+    Long version = entity.getVersion();
+
+    if (operation == Operation.UPDATED && version != null) {
+      version++;
+    }
+
+    return new EntityChange(entityType, id, operation, version);
+  }
+
+  public Class<?> getEntityType() {
+    return this.entityType;
+  }
+
+  public Serializable getId() {
+    return this.id;
+  }
+
+  public Operation getOperation() {
+    return this.operation;
+  }
+
+  public Long getVersion() {
+    return this.version;
+  }
+
+  @Override
+  public String toString() {
+    return "EntityChange {entityType='" + entityType.getSimpleName()
+        + "', id='" + id + "', operation='" + operation + "', version='" + version + "'}";
+  }
+
+}
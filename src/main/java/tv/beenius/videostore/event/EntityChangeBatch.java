@@ -0,0 +1,50 @@
+package tv.beenius.videostore.event;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregates changes of many entities, e.g. of a bulk import batch.
+ *
+ * <p>Fired with {@link MovieEvent} or {@link ActorEvent} qualifier once per batch
+ * instead of an {@link EntityChange} per entity, so that observers may process
+ * the whole batch at once.
+ */
+@SuppressWarnings("serial")
+public class EntityChangeBatch implements Serializable {
+
+  private final List<EntityChange> changes;
+
+  /**
+   * Batch of entity changes.
+   *
+   * @param changes Entity changes.
+   */
+  public EntityChangeBatch(List<EntityChange> changes) {
+    super();
+    this.changes = changes;
+  }
+
+  public List<EntityChange> getChanges() {
+    return this.changes;
+  }
+
+  /**
+   * Selects changes of given entity type.
+   *
+   * @param entityType Entity class.
+   * @return Changes of entity type in batch order.
+   */
+  public List<EntityChange> getChanges(Class<?> entityType) {
+    return changes.stream()
+        .filter(change -> change.getEntityType() == entityType)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public String toString() {
+    return "EntityChangeBatch {size='" + changes.size() + "'}";
+  }
+
+}
@@ -1,35 +1,59 @@
 package tv.beenius.videostore.event;
 
-import javax.enterprise.context.RequestScoped;
+import java.util.Collections;
+
+import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
-import javax.enterprise.event.TransactionPhase;
 import javax.faces.push.Push;
 import javax.faces.push.PushContext;
 import javax.inject.Inject;
 
+import tv.beenius.videostore.tracing.Traced;
+
 /**
- * Notifies movie list facelet(s) about a movie list change via WebSocket push mechanism.
- * Notification is triggered by Java Event mechanism. 
+ * Notifies movie facelet(s) about movie changes via WebSocket push mechanism.
+ * Notification is triggered by Java Event mechanism and sent by
+ * {@link ChangeNotificationDispatcher}, i.e. asynchronously and coalesced.
  */
-@RequestScoped
+@ApplicationScoped
 public class MovieChangeNotifier {
 
+  /** Notification event as handled in facelet. */
+  static final String EVENT = "movieListNotification";
+
   @SuppressWarnings("cdi-ambiguous-dependency")
   @Inject 
   @Push (channel = "movieChannel")
   private PushContext movieChannel;
   
+  @Inject
+  ChangeNotificationDispatcher dispatcher;
+  
+  /**
+   * Enqueues an update notification to WebSocket as defined in facelet.
+   * Method is triggered by Observer when the change is relayed after commit.
+   * 
+   * @param change Movie change.
+   */
+  @Traced
+  public void onMovieChange(
+      @Observes 
+      @MovieEvent 
+      final EntityChange change) {
+    dispatcher.enqueue(EVENT, movieChannel, Collections.singletonList(change));
+  }
+
   /**
-   * Sends an update notification to WebSocket as defined in facelet.
-   * Method is triggered by Observer after event delivering transaction is completed.
+   * Enqueues an update notification of batch changes, e.g. of import.
    * 
-   * @param event Movie event.
+   * @param changes Movie changes.
    */
-  public void onMovieEvent(
-      @Observes(during = TransactionPhase.AFTER_SUCCESS) 
+  @Traced
+  public void onMovieChanges(
+      @Observes 
       @MovieEvent 
-      final String event) {
-    movieChannel.send("movieListNotification");
+      final EntityChangeBatch changes) {
+    dispatcher.enqueue(EVENT, movieChannel, changes.getChanges());
   }
 
 }
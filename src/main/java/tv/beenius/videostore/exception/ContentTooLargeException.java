@@ -0,0 +1,16 @@
+package tv.beenius.videostore.exception;
+
+import java.io.IOException;
+
+/**
+ * Content exceeds maximal length, e.g. an oversized upload. Intended to be answered
+ * with status REQUEST_ENTITY_TOO_LARGE rather than as a read error.
+ */
+@SuppressWarnings("serial")
+public class ContentTooLargeException extends IOException {
+
+  public ContentTooLargeException(String string) {
+    super(string);
+  }
+
+}
@@ -4,6 +4,8 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.enterprise.context.SessionScoped;
 import javax.faces.model.DataModel;
@@ -99,17 +101,13 @@ public class ActorCastCandidateTableModel implements Serializable {
    */
   protected void refreshDataModel() {
     
-    Iterator<Actor> iterator;
-
-    iterator = actors.iterator();
-    
     try {
-      while (iterator.hasNext()) {
-        
-        if (! register.findActorByIdLazily(iterator.next().getId()).isPresent()) {
-          iterator.remove();
-        }
-      }
+      // Check all candidates by a single query.
+      Set<Long> registered = register.findRegisteredActorIds(actors.stream()
+          .map(Actor::getId)
+          .collect(Collectors.toList()));
+      
+      actors.removeIf(actor -> ! registered.contains(actor.getId()));
       resetEmptyListStatus();
     } catch (RuntimeException rte) {
       setEmptyListStatus("Table refresh failed. For more details dive into server log");
@@ -2,6 +2,7 @@ package tv.beenius.videostore.jsf.model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import javax.enterprise.context.SessionScoped;
 import javax.faces.model.ListDataModel;
@@ -11,6 +12,7 @@ import javax.inject.Named;
 import org.jboss.logging.Logger;
 import org.jboss.logging.Logger.Level;
 
+import tv.beenius.videostore.event.EntityChange.Operation;
 import tv.beenius.videostore.exception.EjbConstraintViolationException;
 import tv.beenius.videostore.model.Actor;
 import tv.beenius.videostore.service.RegisterService;
@@ -68,6 +70,29 @@ public class ActorTableModel extends DataListingSupport<Actor> {
     setRecordCount(recordCount);
   }
   
+  /**
+   * Patches updated actors displayed on the current page, other pushed changes 
+   * of actors require reload. Filtered listing is reloaded on any actor change 
+   * as updated actors may enter or leave it.
+   */
+  @Override
+  protected boolean applyChanges(Map<String, Map<String, Operation>> changes) {
+    
+    Map<String, Operation> actorChanges = changes.get(Actor.class.getSimpleName());
+    
+    if (actorChanges != null && nameFilter.isChkFilterApplied()) {
+      return false;
+    }
+    
+    try {
+      return patchRows(actorChanges, Actor::getId, 
+          id -> register.findActorByIdLazily(Long.valueOf(id)));
+    } catch (RuntimeException rte) {
+      logger.log(Level.WARN, rte.getLocalizedMessage());
+      return false;
+    }
+  }
+  
   // Getters/setters.
 
   public TextFilter getNameFilter() {
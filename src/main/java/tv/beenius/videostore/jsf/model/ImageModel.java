@@ -1,9 +1,9 @@
 package tv.beenius.videostore.jsf.model;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 
@@ -142,10 +142,12 @@ public class ImageModel implements Serializable {
   public void registerImage() {
   
     try {
-      setContent(imageUtil.getImageFromPart(imageFile));
+      setContent(null);
 
       imageFromFaceletVariables();
       image.setId(null);
+      image.setContentHash(null);
+      uploadImageFile();
 
       final Image registeredImage = register.registerMovieImage(imdbId, image);
 
@@ -175,9 +177,10 @@ public class ImageModel implements Serializable {
   public void updateImage() {
 
     try {
-      setContent(imageUtil.getImageFromPart(imageFile));
+      setContent(null);
 
       imageFromFaceletVariables();
+      uploadImageFile();
 
       register.updateImage(image);
       
@@ -250,12 +253,6 @@ public class ImageModel implements Serializable {
     
   // Utilities.
  
-  // Converts byte array image to a string to be displayed in facelet.
-  public static String convertImage(byte[] content) {
-    
-    return content == null ? "" : new String(Base64.getEncoder().encode(content));
-  }
-  
   /**
    * Validate image file attributes.
    * 
@@ -273,20 +270,30 @@ public class ImageModel implements Serializable {
       return;
     }
     
-    if (file.getSize() > 20971520) {
+    if (file.getSize() > imageUtil.getMaxUploadBytes()) {
       messages.add(new FacesMessage(
           FacesMessage.SEVERITY_ERROR, 
           "Image could not be uploaded!", 
-          "File is bigger than 20 MB."));
-      logger.log(Level.ERROR, "File is bigger than 20 MB.");
+          "File is bigger than " + imageUtil.getMaxUploadBytes() + " bytes."));
+      logger.log(Level.ERROR, "File is bigger than " + imageUtil.getMaxUploadBytes() + " bytes.");
     }
     
-    if (!"image/jpeg".equals(file.getContentType())) {
+    // Media type is detected from leading bytes as on upload, declared type is ignored.
+    
+    String mediaType;
+    try (InputStream input = file.getInputStream()) {
+      mediaType = imageUtil.getMediaType(input.readNBytes(ImageUtil.MEDIA_TYPE_HEAD_LENGTH));
+    } catch (IOException ioe) {
+      mediaType = null;
+      logger.log(Level.ERROR, ioe.getLocalizedMessage());
+    }
+    
+    if (!imageUtil.isSupportedImage(mediaType)) {
       messages.add(new FacesMessage(
           FacesMessage.SEVERITY_ERROR, 
           "Image could not be uploaded!", 
-          "Not a image/jpeg file"));
-      logger.log(Level.ERROR, "Not a image/jpeg file");
+          "Not a JPEG, PNG or GIF image file"));
+      logger.log(Level.ERROR, "Not a JPEG, PNG or GIF image file");
     }
     
     if (!messages.isEmpty()) {
@@ -294,6 +301,23 @@ public class ImageModel implements Serializable {
     }
   }
     
+  /**
+   * Streams uploaded image file, if any, into blob store via
+   * {@link tv.beenius.videostore.service.RegisterService#uploadImageContent(Image, InputStream)}.
+   * 
+   * @throws IOException on read error or invalid image file.
+   */
+  private void uploadImageFile() throws IOException {
+    
+    if (imageFile == null) {
+      return;
+    }
+    
+    try (InputStream input = imageFile.getInputStream()) {
+      register.uploadImageContent(image, input);
+    }
+  }
+  
   private void imageToFaceletVariables() {
     setId(image.getId());
     setDescription(image.getDescription());
@@ -78,7 +78,7 @@ public class ImageTableModel implements Serializable {
     long recordCount = 0L;
     
     try {
-      images = register.findMovieImages(imdbId);
+      images = register.findMovieImagesLazily(imdbId);
       recordCount = images.size();
       resetEmptyListStatus();
     } catch (EjbConstraintViolationException | EjbValidationException e) {
@@ -4,6 +4,8 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.enterprise.context.SessionScoped;
 import javax.faces.model.DataModel;
@@ -99,17 +101,13 @@ public class MovieCastCandidateTableModel implements Serializable {
    */
   protected void refreshDataModel() {
     
-    Iterator<Movie> iterator;
-
-    iterator = movies.iterator();
-    
     try {
-      while (iterator.hasNext()) {
-
-        if (!register.findMovieById(iterator.next().getImdbId()).isPresent()) {
-          iterator.remove();
-        }
-      } 
+      // Check all candidates by a single query.
+      Set<String> registered = register.findRegisteredImdbIds(movies.stream()
+          .map(Movie::getImdbId)
+          .collect(Collectors.toList()));
+      
+      movies.removeIf(movie -> ! registered.contains(movie.getImdbId()));
       resetEmptyListStatus();
     } catch (RuntimeException rte) {
       setEmptyListStatus("Table refresh failed. For more details dive into server log");
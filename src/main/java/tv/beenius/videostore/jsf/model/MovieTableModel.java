@@ -2,6 +2,7 @@ package tv.beenius.videostore.jsf.model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import javax.enterprise.context.SessionScoped;
 import javax.faces.model.ListDataModel;
@@ -11,6 +12,7 @@ import javax.inject.Named;
 import org.jboss.logging.Logger;
 import org.jboss.logging.Logger.Level;
 
+import tv.beenius.videostore.event.EntityChange.Operation;
 import tv.beenius.videostore.exception.EjbConstraintViolationException;
 import tv.beenius.videostore.model.Movie;
 import tv.beenius.videostore.service.RegisterService;
@@ -68,6 +70,29 @@ public class MovieTableModel extends DataListingSupport<Movie> {
     setRecordCount(recordCount);
   }
   
+  /**
+   * Patches updated movies displayed on the current page, other pushed changes 
+   * of movies require reload. Filtered listing is reloaded on any movie change 
+   * as updated movies may enter or leave it.
+   */
+  @Override
+  protected boolean applyChanges(Map<String, Map<String, Operation>> changes) {
+    
+    Map<String, Operation> movieChanges = changes.get(Movie.class.getSimpleName());
+    
+    if (movieChanges != null && titleFilter.isChkFilterApplied()) {
+      return false;
+    }
+    
+    try {
+      return patchRows(movieChanges, Movie::getImdbId, 
+          register::findMovieByIdLazily);
+    } catch (RuntimeException rte) {
+      logger.log(Level.WARN, rte.getLocalizedMessage());
+      return false;
+    }
+  }
+  
   // Getters/setters.
 
   public TextFilter getTitleFilter() {
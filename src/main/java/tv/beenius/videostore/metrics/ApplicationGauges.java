@@ -0,0 +1,225 @@
+package tv.beenius.videostore.metrics;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.enterprise.event.Observes;
+import javax.faces.event.WebsocketEvent;
+import javax.faces.event.WebsocketEvent.Closed;
+import javax.faces.event.WebsocketEvent.Opened;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.annotation.RegistryType;
+import org.hibernate.stat.CacheRegionStatistics;
+
+import tv.beenius.videostore.data.BlobStore;
+import tv.beenius.videostore.data.SecondLevelCache;
+import tv.beenius.videostore.event.ChangeNotificationDispatcher;
+import tv.beenius.videostore.rest.ChangeStreamer;
+
+/**
+ * Registers application gauges: bytes of stored image content, open WebSocket sessions
+ * per push channel, connected Server-Sent Events subscribers, change notification queue depth
+ * and hit, miss and put counts of second-level cache regions. Registers also change notification
+ * fan-out timer and failure counter updated by {@link ChangeNotificationDispatcher}.
+ *
+ * <p>WebSocket sessions are counted by observing JSF WebSocket open and close events.
+ * Gauges of push channels are registered at startup, gauges of other channels
+ * when their first session opens. Gauges of cache regions are tagged by region name
+ * and read Hibernate statistics enabled by the persistence unit.
+ */
+@Singleton
+@Startup
+public class ApplicationGauges {
+
+  public static final String IMAGE_BYTES = "images.stored.bytes";
+
+  public static final String WEBSOCKET_SESSIONS = "websocket.sessions";
+
+  public static final String SSE_SUBSCRIBERS = "sse.subscribers";
+
+  public static final String NOTIFICATION_QUEUE_DEPTH = "notifications.queue.depth";
+
+  public static final String NOTIFICATION_FAN_OUT = "notifications.fanout";
+
+  public static final String NOTIFICATION_FAILURES = "notifications.failed";
+
+  public static final String CACHE_HITS = "cache.hits";
+
+  public static final String CACHE_MISSES = "cache.misses";
+
+  public static final String CACHE_PUTS = "cache.puts";
+
+  public static final String CACHE_HIT_RATIO = "cache.hit.ratio";
+
+  /** Channels pushed by movie and actor change notifiers. */
+  private static final List<String> CHANNELS = List.of("movieChannel", "actorChannel");
+
+  private static final Metadata IMAGE_BYTES_METADATA = Metadata.builder()
+      .withName(IMAGE_BYTES)
+      .withDescription("Bytes of stored image content, identical content counted once.")
+      .withType(MetricType.GAUGE)
+      .withUnit(MetricUnits.BYTES)
+      .build();
+
+  private static final Metadata WEBSOCKET_SESSIONS_METADATA = Metadata.builder()
+      .withName(WEBSOCKET_SESSIONS)
+      .withDescription("Open WebSocket sessions of push channel.")
+      .withType(MetricType.GAUGE)
+      .withUnit(MetricUnits.NONE)
+      .build();
+
+  private static final Metadata SSE_SUBSCRIBERS_METADATA = Metadata.builder()
+      .withName(SSE_SUBSCRIBERS)
+      .withDescription("Connected subscribers of change stream.")
+      .withType(MetricType.GAUGE)
+      .withUnit(MetricUnits.NONE)
+      .build();
+
+  private static final Metadata NOTIFICATION_QUEUE_DEPTH_METADATA = Metadata.builder()
+      .withName(NOTIFICATION_QUEUE_DEPTH)
+      .withDescription("Changed identifiers waiting for WebSocket change notification.")
+      .withType(MetricType.GAUGE)
+      .withUnit(MetricUnits.NONE)
+      .build();
+
+  private static final Metadata NOTIFICATION_FAN_OUT_METADATA = Metadata.builder()
+      .withName(NOTIFICATION_FAN_OUT)
+      .withDescription("Time from first coalesced change to sent WebSocket change notification.")
+      .withType(MetricType.TIMER)
+      .withUnit(MetricUnits.NANOSECONDS)
+      .build();
+
+  private static final Metadata NOTIFICATION_FAILURES_METADATA = Metadata.builder()
+      .withName(NOTIFICATION_FAILURES)
+      .withDescription("WebSocket change notifications failed to be sent.")
+      .withType(MetricType.COUNTER)
+      .withUnit(MetricUnits.NONE)
+      .build();
+
+  private static final Metadata CACHE_HITS_METADATA = Metadata.builder()
+      .withName(CACHE_HITS)
+      .withDescription("Hits of second-level cache region.")
+      .withType(MetricType.GAUGE)
+      .withUnit(MetricUnits.NONE)
+      .build();
+
+  private static final Metadata CACHE_MISSES_METADATA = Metadata.builder()
+      .withName(CACHE_MISSES)
+      .withDescription("Misses of second-level cache region.")
+      .withType(MetricType.GAUGE)
+      .withUnit(MetricUnits.NONE)
+      .build();
+
+  private static final Metadata CACHE_PUTS_METADATA = Metadata.builder()
+      .withName(CACHE_PUTS)
+      .withDescription("Puts into second-level cache region.")
+      .withType(MetricType.GAUGE)
+      .withUnit(MetricUnits.NONE)
+      .build();
+
+  private static final Metadata CACHE_HIT_RATIO_METADATA = Metadata.builder()
+      .withName(CACHE_HIT_RATIO)
+      .withDescription("Ratio of hits to lookups of second-level cache region.")
+      .withType(MetricType.GAUGE)
+      .withUnit(MetricUnits.NONE)
+      .build();
+
+  @Inject
+  @RegistryType(type = MetricRegistry.Type.APPLICATION)
+  MetricRegistry registry;
+
+  @Inject
+  BlobStore blobStore;
+
+  @Inject
+  ChangeStreamer changeStreamer;
+
+  @Inject
+  ChangeNotificationDispatcher notificationDispatcher;
+
+  @Inject
+  SecondLevelCache secondLevelCache;
+
+  private final ConcurrentMap<String, AtomicInteger> sessions = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  private void init() {
+    registry.register(IMAGE_BYTES_METADATA, (Gauge<Long>) blobStore::getStoredBytes);
+    registry.register(SSE_SUBSCRIBERS_METADATA,
+        (Gauge<Integer>) changeStreamer::getSubscriberCount);
+    CHANNELS.forEach(this::sessions);
+    registry.register(NOTIFICATION_QUEUE_DEPTH_METADATA,
+        (Gauge<Integer>) notificationDispatcher::getQueueDepth);
+    registry.timer(NOTIFICATION_FAN_OUT_METADATA);
+    registry.counter(NOTIFICATION_FAILURES_METADATA);
+    secondLevelCache.getRegionNames().forEach(this::registerCacheRegion);
+  }
+
+  /**
+   * Counts opened WebSocket session.
+   *
+   * @param event WebSocket event.
+   */
+  @Lock(LockType.READ)
+  public void onOpen(@Observes @Opened WebsocketEvent event) {
+    sessions(event.getChannel()).incrementAndGet();
+  }
+
+  /**
+   * Counts closed WebSocket session.
+   *
+   * @param event WebSocket event.
+   */
+  @Lock(LockType.READ)
+  public void onClose(@Observes @Closed WebsocketEvent event) {
+    sessions(event.getChannel()).decrementAndGet();
+  }
+
+  private void registerCacheRegion(String regionName) {
+
+    Tag region = new Tag("region", regionName);
+
+    registry.register(CACHE_HITS_METADATA,
+        (Gauge<Long>) () -> count(regionName, CacheRegionStatistics::getHitCount), region);
+    registry.register(CACHE_MISSES_METADATA,
+        (Gauge<Long>) () -> count(regionName, CacheRegionStatistics::getMissCount), region);
+    registry.register(CACHE_PUTS_METADATA,
+        (Gauge<Long>) () -> count(regionName, CacheRegionStatistics::getPutCount), region);
+    registry.register(CACHE_HIT_RATIO_METADATA, (Gauge<Double>) () -> {
+      long hits = count(regionName, CacheRegionStatistics::getHitCount);
+      long lookups = hits + count(regionName, CacheRegionStatistics::getMissCount);
+      return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }, region);
+  }
+
+  private long count(String regionName, ToLongFunction<CacheRegionStatistics> counter) {
+    return secondLevelCache.getRegionStatistics(regionName)
+        .map(counter::applyAsLong)
+        .orElse(0L);
+  }
+
+  private AtomicInteger sessions(String channel) {
+    return sessions.computeIfAbsent(channel, key -> {
+      AtomicInteger count = new AtomicInteger();
+      registry.register(WEBSOCKET_SESSIONS_METADATA, (Gauge<Integer>) count::get,
+          new Tag("channel", key));
+      return count;
+    });
+  }
+
+}
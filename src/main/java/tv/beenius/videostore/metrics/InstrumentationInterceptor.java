@@ -0,0 +1,210 @@
+package tv.beenius.videostore.metrics;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Response;
+
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.annotation.RegistryType;
+
+import tv.beenius.videostore.metrics.Instrumented.Layer;
+
+/**
+ * Times invocations and counts failures of {@link Instrumented} beans into application
+ * metric registry, which is scraped in Prometheus format from {@code /metrics/application}
+ * of server management interface.
+ *
+ * <p>REST requests are tagged by endpoint, e.g. {@code GET /registration/movies/{imdbId}},
+ * and count as failed when an exception is thrown or response status is a server error.
+ * Service invocations are tagged by method and count as failed by exception type, including
+ * application exceptions such as validation failures. Repository queries are tagged by
+ * repository and method, rows of returned collections or optionals are recorded
+ * into a histogram. Streamed results are timed until the stream is returned.
+ *
+ * <p>SQL statements of REST requests and service invocations are counted within
+ * a {@link StatementScope} and reported by {@link StatementReporter}.
+ */
+@Instrumented
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class InstrumentationInterceptor {
+
+  private static final Map<Layer, Metadata> TIMERS = metadata(
+      MetricType.TIMER, MetricUnits.NANOSECONDS, Layer::getTimerName, " time.");
+
+  private static final Map<Layer, Metadata> ERRORS = metadata(
+      MetricType.COUNTER, MetricUnits.NONE, Layer::getErrorsName, " failures.");
+
+  private static final Map<Layer, Metadata> ROWS = metadata(
+      MetricType.HISTOGRAM, MetricUnits.NONE, Layer::getRowsName, " returned rows.");
+
+  /** Tags and scope names of intercepted methods, resolved once per method. */
+  private static final ConcurrentMap<Method, Site> SITES = new ConcurrentHashMap<>();
+
+  @Inject
+  @RegistryType(type = MetricRegistry.Type.APPLICATION)
+  MetricRegistry registry;
+
+  @Inject
+  StatementReporter statementReporter;
+
+  /**
+   * Times invocation and counts failure.
+   *
+   * @param ctx Invocation context.
+   * @return Invocation result.
+   * @throws Exception thrown by invocation.
+   */
+  @AroundInvoke
+  public Object measure(InvocationContext ctx) throws Exception {
+
+    Layer layer = layerOf(ctx);
+    Site site = SITES.computeIfAbsent(ctx.getMethod(), method -> new Site(layer, method));
+    Tag[] tags = site.tags;
+    StatementScope scope = layer != Layer.REPOSITORY ? StatementScope.open(site.name) : null;
+    long start = System.nanoTime();
+
+    try {
+      Object result = ctx.proceed();
+
+      if (layer == Layer.REPOSITORY) {
+        rowsOf(result).ifPresent(rows -> registry.histogram(ROWS.get(layer), tags).update(rows));
+      } else if (layer == Layer.REST && result instanceof Response) {
+        int status = ((Response) result).getStatus();
+        if (status >= 500) {
+          countFailure(layer, tags, new Tag("status", String.valueOf(status)));
+        }
+      }
+
+      return result;
+    } catch (Exception e) {
+      countFailure(layer, tags, new Tag("exception", e.getClass().getSimpleName()));
+      throw e;
+    } finally {
+      registry.timer(TIMERS.get(layer), tags)
+          .update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+      if (scope != null) {
+        scope.close();
+        statementReporter.report(scope, layer, tags);
+      }
+    }
+  }
+
+  private void countFailure(Layer layer, Tag[] tags, Tag cause) {
+    Tag[] failureTags = Arrays.copyOf(tags, tags.length + 1);
+    failureTags[tags.length] = cause;
+    registry.counter(ERRORS.get(layer), failureTags).inc();
+  }
+
+  private static Layer layerOf(InvocationContext ctx) {
+
+    Instrumented instrumented = ctx.getMethod().getAnnotation(Instrumented.class);
+
+    if (instrumented == null) {
+      instrumented = ctx.getMethod().getDeclaringClass().getAnnotation(Instrumented.class);
+    }
+
+    return instrumented != null ? instrumented.value() : Layer.SERVICE;
+  }
+
+  /** Composes endpoint from HTTP method and resource paths. */
+  private static String endpointOf(Method method) {
+
+    String httpMethod = Arrays.stream(method.getAnnotations())
+        .map(Annotation::annotationType)
+        .filter(type -> type.isAnnotationPresent(HttpMethod.class))
+        .map(type -> type.getAnnotation(HttpMethod.class).value())
+        .findFirst()
+        .orElse(method.getName());
+
+    Path classPath = method.getDeclaringClass().getAnnotation(Path.class);
+    Path methodPath = method.getAnnotation(Path.class);
+
+    return httpMethod + " " + (classPath != null ? classPath.value() : "")
+        + (methodPath != null ? methodPath.value() : "");
+  }
+
+  private static Optional<Integer> rowsOf(Object result) {
+
+    if (result instanceof Collection) {
+      return Optional.of(((Collection<?>) result).size());
+    }
+    if (result instanceof Map) {
+      return Optional.of(((Map<?, ?>) result).size());
+    }
+    if (result instanceof Optional) {
+      return Optional.of(((Optional<?>) result).isPresent() ? 1 : 0);
+    }
+
+    return Optional.empty();
+  }
+
+  static Map<Layer, Metadata> metadata(
+      MetricType type, String unit, Function<Layer, String> name, String description) {
+
+    Map<Layer, Metadata> metadata = new EnumMap<>(Layer.class);
+
+    for (Layer layer : Layer.values()) {
+      metadata.put(layer, Metadata.builder()
+          .withName(name.apply(layer))
+          .withDescription(layer.getDescription() + description)
+          .withType(type)
+          .withUnit(unit)
+          .build());
+    }
+
+    return metadata;
+  }
+
+  /** Intercepted method. */
+  private static class Site {
+
+    private final Tag[] tags;
+
+    /** Name of statement scope, endpoint or class and method. */
+    private final String name;
+
+    private Site(Layer layer, Method method) {
+
+      String className = method.getDeclaringClass().getSimpleName();
+
+      switch (layer) {
+        case REST:
+          name = endpointOf(method);
+          tags = new Tag[] {new Tag("endpoint", name)};
+          break;
+        case REPOSITORY:
+          name = className + "." + method.getName();
+          tags = new Tag[] {
+              new Tag("repository", className), new Tag("method", method.getName())};
+          break;
+        default:
+          name = className + "." + method.getName();
+          tags = new Tag[] {new Tag("method", method.getName())};
+      }
+    }
+  }
+
+}
@@ -0,0 +1,85 @@
+package tv.beenius.videostore.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import javax.enterprise.util.Nonbinding;
+import javax.interceptor.InterceptorBinding;
+
+/**
+ * Binds {@link InstrumentationInterceptor}, which times and counts invocations
+ * of the annotated bean by layer.
+ */
+@Inherited
+@InterceptorBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Instrumented {
+
+  /**
+   * Layer of the annotated bean, selects metric names and tags.
+   *
+   * @return Layer.
+   */
+  @Nonbinding
+  Layer value() default Layer.SERVICE;
+
+  /**
+   * Instrumented layers. Metrics are tagged by endpoint for REST layer, by method for
+   * service layer and by repository and method for repository layer. JSF views are not
+   * intercepted, their statements are counted by {@link ViewStatementFilter} tagged by view.
+   */
+  enum Layer {
+    REST("rest.request", "REST request"),
+    SERVICE("service.invocation", "Service invocation"),
+    REPOSITORY("repository.query", "Repository query"),
+    VIEW("view.request", "JSF view request");
+
+    private final String name;
+
+    private final String description;
+
+    Layer(String name, String description) {
+      this.name = name;
+      this.description = description;
+    }
+
+    /** Timer of invocations. */
+    public String getTimerName() {
+      return name + ".time";
+    }
+
+    /** Counter of failed invocations. */
+    public String getErrorsName() {
+      return name + ".errors";
+    }
+
+    /** Histogram of returned rows, repository layer only. */
+    public String getRowsName() {
+      return name + ".rows";
+    }
+
+    /** Histogram of prepared SQL statements, all layers but repository layer. */
+    public String getStatementsName() {
+      return name + ".statements";
+    }
+
+    /** Counter of statements repeated above threshold, i.e. suspected N+1 queries. */
+    public String getRepeatedStatementsName() {
+      return name + ".statements.repeated";
+    }
+
+    /** Counter of slow statements. */
+    public String getSlowStatementsName() {
+      return name + ".statements.slow";
+    }
+
+    String getDescription() {
+      return description;
+    }
+  }
+
+}
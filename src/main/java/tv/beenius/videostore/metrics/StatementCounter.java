@@ -0,0 +1,33 @@
+package tv.beenius.videostore.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts SQL statements prepared by Hibernate into open {@link StatementScope}s
+ * and remembers the last statement of each thread for {@link StatementTimer}.
+ *
+ * <p>Counter is registered by persistence unit property
+ * {@code hibernate.session_factory.statement_inspector}, statements are not changed.
+ */
+@SuppressWarnings("serial")
+public class StatementCounter implements StatementInspector {
+
+  private static final ThreadLocal<String> LAST_STATEMENT = new ThreadLocal<>();
+
+  @Override
+  public String inspect(String sql) {
+    LAST_STATEMENT.set(sql);
+    StatementScope.record(sql);
+    return sql;
+  }
+
+  /**
+   * Retrieves the statement last prepared by the current thread.
+   *
+   * @return Statement text or null.
+   */
+  static String lastStatement() {
+    return LAST_STATEMENT.get();
+  }
+
+}
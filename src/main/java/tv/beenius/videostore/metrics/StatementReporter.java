@@ -0,0 +1,83 @@
+package tv.beenius.videostore.metrics;
+
+import java.util.Map;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.annotation.RegistryType;
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.metrics.Instrumented.Layer;
+
+/**
+ * Reports statements of closed {@link StatementScope} into application metric registry.
+ *
+ * <p>Statement prepared at least {@value #REPEAT_THRESHOLD_PROPERTY} system property times,
+ * 10 by default, is logged and counted as suspected N+1 query. Repeated statement is
+ * reported once, by the innermost scope that reaches the threshold.
+ */
+@ApplicationScoped
+public class StatementReporter {
+
+  static final String REPEAT_THRESHOLD_PROPERTY = "videostore.statements.repeatThreshold";
+
+  private static final int DEFAULT_REPEAT_THRESHOLD = 10;
+
+  private static final Map<Layer, Metadata> STATEMENTS = InstrumentationInterceptor.metadata(
+      MetricType.HISTOGRAM, MetricUnits.NONE, Layer::getStatementsName,
+      " prepared statements.");
+
+  private static final Map<Layer, Metadata> REPEATED = InstrumentationInterceptor.metadata(
+      MetricType.COUNTER, MetricUnits.NONE, Layer::getRepeatedStatementsName,
+      " statements repeated above threshold.");
+
+  private static final Map<Layer, Metadata> SLOW = InstrumentationInterceptor.metadata(
+      MetricType.COUNTER, MetricUnits.NONE, Layer::getSlowStatementsName,
+      " slow statements.");
+
+  Logger logger = Logger.getLogger(getClass());
+
+  @Inject
+  @RegistryType(type = MetricRegistry.Type.APPLICATION)
+  MetricRegistry registry;
+
+  /**
+   * Reports statements of closed scope.
+   *
+   * @param scope Closed scope.
+   * @param layer Layer of scope.
+   * @param tags Tags of scope.
+   */
+  public void report(StatementScope scope, Layer layer, Tag... tags) {
+
+    registry.histogram(STATEMENTS.get(layer), tags).update(scope.getStatements());
+
+    scope.takeRepeatedStatements(getRepeatThreshold()).forEach((sql, count) -> {
+      registry.counter(REPEATED.get(layer), tags).inc();
+      logger.log(Level.WARN, "Statement prepared " + count + " times by " + scope.getName()
+          + ", suspected N+1 query: " + sql);
+    });
+
+    if (scope.getSlowStatements() > 0) {
+      registry.counter(SLOW.get(layer), tags).inc(scope.getSlowStatements());
+    }
+  }
+
+  /**
+   * Retrieves number of executions of a statement within a scope,
+   * from which the statement is reported as a suspected N+1 query.
+   *
+   * @return Threshold.
+   */
+  public int getRepeatThreshold() {
+    return Integer.getInteger(REPEAT_THRESHOLD_PROPERTY, DEFAULT_REPEAT_THRESHOLD);
+  }
+
+}
@@ -0,0 +1,133 @@
+package tv.beenius.videostore.metrics;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counts SQL statements prepared by the current thread while the scope is open,
+ * e.g. during a request or a service invocation.
+ *
+ * <p>Scopes nest, a statement counts into every open scope of the thread. Statements are
+ * counted by {@link StatementCounter} and slow statements by {@link StatementTimer}.
+ * Statement text carries parameter placeholders, so a query repeated with different
+ * parameters, e.g. an N+1 query issued per row, counts as the same statement.
+ *
+ * <p>Scope is used by a single thread and must be closed by it, preferably by
+ * try-with-resources.
+ */
+public final class StatementScope implements AutoCloseable {
+
+  private static final ThreadLocal<StatementScope> CURRENT = new ThreadLocal<>();
+
+  private final StatementScope parent;
+
+  private final String name;
+
+  private final Map<String, Integer> executions = new HashMap<>();
+
+  /** Repeated statements already reported by this or a nested scope. */
+  private final Set<String> reported = new HashSet<>();
+
+  private int statements;
+
+  private int slowStatements;
+
+  private StatementScope(StatementScope parent, String name) {
+    this.parent = parent;
+    this.name = name;
+  }
+
+  /**
+   * Opens a scope nested into the current scope of the thread.
+   *
+   * @param name Name of scope, e.g. endpoint or method.
+   * @return Open scope.
+   */
+  public static StatementScope open(String name) {
+    StatementScope scope = new StatementScope(CURRENT.get(), name);
+    CURRENT.set(scope);
+    return scope;
+  }
+
+  /**
+   * Counts prepared statement into open scopes of the thread.
+   *
+   * @param sql Statement text.
+   */
+  static void record(String sql) {
+    for (StatementScope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+      scope.statements++;
+      scope.executions.merge(sql, 1, Integer::sum);
+    }
+  }
+
+  /**
+   * Counts slow statement into open scopes of the thread.
+   */
+  static void recordSlow() {
+    for (StatementScope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+      scope.slowStatements++;
+    }
+  }
+
+  /**
+   * Closes scope, its parent becomes the current scope of the thread.
+   *
+   * @throws IllegalStateException when a nested scope is still open.
+   */
+  @Override
+  public void close() {
+
+    if (CURRENT.get() != this) {
+      throw new IllegalStateException("Scope {" + name + "} is not the current scope.");
+    }
+
+    if (parent != null) {
+      CURRENT.set(parent);
+    } else {
+      CURRENT.remove();
+    }
+  }
+
+  /**
+   * Retrieves statements executed at least given times and not reported yet, neither by
+   * this scope nor by a nested one, and marks them reported in this and enclosing scopes.
+   *
+   * @param threshold Minimal number of executions.
+   * @return Executions by statement.
+   */
+  public Map<String, Integer> takeRepeatedStatements(int threshold) {
+
+    Map<String, Integer> repeated = new LinkedHashMap<>();
+
+    executions.forEach((sql, count) -> {
+      if (count >= threshold && ! reported.contains(sql)) {
+        repeated.put(sql, count);
+      }
+    });
+
+    for (StatementScope scope = this; scope != null; scope = scope.parent) {
+      scope.reported.addAll(repeated.keySet());
+    }
+
+    return repeated;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** Number of prepared statements. */
+  public int getStatements() {
+    return statements;
+  }
+
+  /** Number of statements slower than {@link StatementTimer#getSlowMillis()}. */
+  public int getSlowStatements() {
+    return slowStatements;
+  }
+
+}
@@ -0,0 +1,107 @@
+package tv.beenius.videostore.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.BaseSessionEventListener;
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.tracing.Span;
+import tv.beenius.videostore.tracing.Tracing;
+
+/**
+ * Times JDBC statement and batch executions of a Hibernate session and logs statements
+ * slower than {@value #SLOW_MILLIS_PROPERTY} system property, 200 ms by default.
+ * Slow statements are counted into open {@link StatementScope}s.
+ *
+ * <p>Executions and flushes are traced by {@code jdbc.execute}, {@code jdbc.batch} and
+ * {@code hibernate.flush} spans, so that database time is told apart from Hibernate time.
+ *
+ * <p>Timer is registered by persistence unit property {@code hibernate.session.events.auto},
+ * Hibernate creates one per session.
+ */
+@SuppressWarnings("serial")
+public class StatementTimer extends BaseSessionEventListener {
+
+  static final String SLOW_MILLIS_PROPERTY = "videostore.statements.slowMillis";
+
+  private static final long DEFAULT_SLOW_MILLIS = 200;
+
+  Logger logger = Logger.getLogger(getClass());
+
+  private final long slowNanos = TimeUnit.MILLISECONDS.toNanos(getSlowMillis());
+
+  private long start;
+
+  private transient Span executionSpan;
+
+  private transient Span flushSpan;
+
+  /**
+   * Retrieves slow statement threshold.
+   *
+   * @return Milliseconds.
+   */
+  public static long getSlowMillis() {
+    return Long.getLong(SLOW_MILLIS_PROPERTY, DEFAULT_SLOW_MILLIS);
+  }
+
+  @Override
+  public void jdbcExecuteStatementStart() {
+    executionSpan = startSpan("jdbc.execute");
+    start = System.nanoTime();
+  }
+
+  @Override
+  public void jdbcExecuteStatementEnd() {
+    measure("Statement");
+  }
+
+  @Override
+  public void jdbcExecuteBatchStart() {
+    executionSpan = startSpan("jdbc.batch");
+    start = System.nanoTime();
+  }
+
+  @Override
+  public void jdbcExecuteBatchEnd() {
+    measure("Batch");
+  }
+
+  @Override
+  public void flushStart() {
+    flushSpan = Tracing.start("hibernate.flush");
+  }
+
+  @Override
+  public void flushEnd(int numberOfEntities, int numberOfCollections) {
+    if (flushSpan != null) {
+      flushSpan
+          .setAttribute("hibernate.flush.entities", numberOfEntities)
+          .setAttribute("hibernate.flush.collections", numberOfCollections)
+          .end();
+      flushSpan = null;
+    }
+  }
+
+  private static Span startSpan(String name) {
+    return Tracing.start(name).setAttribute("db.statement", StatementCounter.lastStatement());
+  }
+
+  private void measure(String kind) {
+
+    long elapsed = System.nanoTime() - start;
+
+    if (executionSpan != null) {
+      executionSpan.end();
+      executionSpan = null;
+    }
+
+    if (elapsed >= slowNanos) {
+      StatementScope.recordSlow();
+      logger.log(Level.WARN, kind + " took " + TimeUnit.NANOSECONDS.toMillis(elapsed)
+          + " ms: " + StatementCounter.lastStatement());
+    }
+  }
+
+}
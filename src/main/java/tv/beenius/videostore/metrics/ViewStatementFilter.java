@@ -0,0 +1,55 @@
+package tv.beenius.videostore.metrics;
+
+import java.io.IOException;
+
+import javax.faces.application.ResourceHandler;
+import javax.inject.Inject;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.microprofile.metrics.Tag;
+
+import tv.beenius.videostore.metrics.Instrumented.Layer;
+
+/**
+ * Counts SQL statements of JSF view requests within a {@link StatementScope}, so that
+ * statements of backing beans calling services per table row are reported together.
+ * Statements are tagged by view, requests of JSF resources and unknown views are
+ * not reported.
+ */
+@SuppressWarnings("serial")
+@WebFilter(urlPatterns = "*.xhtml")
+public class ViewStatementFilter extends HttpFilter {
+
+  @Inject
+  StatementReporter statementReporter;
+
+  @Override
+  protected void doFilter(HttpServletRequest request, HttpServletResponse response,
+      FilterChain chain) throws IOException, ServletException {
+
+    String view = request.getServletPath();
+
+    if (view.startsWith(ResourceHandler.RESOURCE_IDENTIFIER)) {
+      chain.doFilter(request, response);
+      return;
+    }
+
+    StatementScope scope = StatementScope.open(view);
+
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      scope.close();
+
+      if (response.getStatus() != HttpServletResponse.SC_NOT_FOUND) {
+        statementReporter.report(scope, Layer.VIEW, new Tag("view", view));
+      }
+    }
+  }
+
+}
@@ -2,6 +2,7 @@ package tv.beenius.videostore.model;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
@@ -10,30 +11,61 @@ import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToMany;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.PastOrPresent;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
  * Entity implementation class for Actor.
+ * 
+ * <p>Related movies are fetched lazily. Callers request related entities
+ * they need by one of named entity graphs.
+ *
+ * <p>Actor and its movies are held in second-level cache.
  *
  */
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 @Entity
+@Cacheable
+@NamedEntityGraphs({
+    @NamedEntityGraph(name = Actor.GRAPH_SUMMARY),
+    @NamedEntityGraph(name = Actor.GRAPH_WITH_MOVIES, 
+        attributeNodes = @NamedAttributeNode("movies"))
+    })
+@Table(indexes = @Index(name = "ACTOR_NAME_IDX", columnList = "LAST_NAME, FIRST_NAME, ID"))
 @SuppressWarnings("serial")
-public class Actor implements Serializable {
+public class Actor implements Serializable, Versioned {
+
+  /** Actor attributes w/o related movies. */
+  public static final String GRAPH_SUMMARY = "actor-summary";
+  
+  /** Actor attributes together with related movies. */
+  public static final String GRAPH_WITH_MOVIES = "actor-with-movies";
 
   @Id
   @GeneratedValue
@@ -55,7 +87,18 @@ public class Actor implements Serializable {
   @Column(name = "BORN_DATE")
   private LocalDate bornDate;
 
-  @ManyToMany(mappedBy = "actors", fetch = FetchType.EAGER, cascade = CascadeType.PERSIST)
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  @Version
+  @Column(name = "VERSION")
+  private Long version;
+
+  @JsonIgnore
+  @Column(name = "LAST_MODIFIED")
+  private Instant lastModified;
+
+  @JsonIgnoreProperties("actors")
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+  @ManyToMany(mappedBy = "actors", fetch = FetchType.LAZY, cascade = CascadeType.PERSIST)
   private Set<Movie> movies = new HashSet<>();
 
   public Actor() {
@@ -78,6 +121,20 @@ public class Actor implements Serializable {
     this.bornDate = bornDate;
   }
 
+  /**
+   * Intended to enforce lazy entity retrieval together with version.
+   * 
+   * @param id Actor identifier.
+   * @param firstName First name.
+   * @param lastName Last name.
+   * @param bornDate Date of birth.
+   * @param version Actor version.
+   */
+  public Actor(Long id, String firstName, String lastName, LocalDate bornDate, Long version) {
+    this(id, firstName, lastName, bornDate);
+    this.version = version;
+  }
+
   public Long getId() {
     return this.id;
   }
@@ -114,6 +171,26 @@ public class Actor implements Serializable {
     this.bornDate = bornDate;
   }
 
+  @Override
+  public Long getVersion() {
+    return this.version;
+  }
+
+  public Instant getLastModified() {
+    return this.lastModified;
+  }
+
+  /**
+   * Marks actor as modified. 
+   * Must be called when related movies change, 
+   * so that version and modification time reflect the change.
+   */
+  @PrePersist
+  @PreUpdate
+  public void markModified() {
+    this.lastModified = Instant.now();
+  }
+
   public Set<Movie> getMovies() {
     return this.movies;
   }
@@ -0,0 +1,27 @@
+package tv.beenius.videostore.model;
+
+/**
+ * Cast of an actor in a movie.
+ *
+ * <p>Cast is not an entity, it is kept as association of {@link Movie} and {@link Actor}.
+ * Class is used as entity type of cast changes, identified by {@link #id(String, Long)}.
+ */
+public final class Cast {
+
+  private static final String SEPARATOR = ":";
+
+  private Cast() {
+  }
+
+  /**
+   * Composes cast identifier.
+   *
+   * @param imdbId Movie identifier.
+   * @param actorId Actor identifier.
+   * @return Cast identifier, e.g. tt0107048:12.
+   */
+  public static String id(String imdbId, Long actorId) {
+    return imdbId + SEPARATOR + actorId;
+  }
+
+}
@@ -1,19 +1,34 @@
 package tv.beenius.videostore.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.Serializable;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
 
+import javax.persistence.Cacheable;
+import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
-import javax.persistence.Lob;
+import javax.persistence.OneToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Transient;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 
 
 /**
  * Entity implementation class for Image.
  *
  * <p>This entity stores images of Movies.
+ * Image content is kept in {@link tv.beenius.videostore.data.BlobStore} under its hash,
+ * the entity stores only hash, length and media type of content.
  *
  * <p>But in the future this entity might also store images of Actors.
  * That's why Movies comprise unidirectional one-one-to-many relationships.
@@ -22,7 +37,8 @@ import javax.validation.constraints.NotNull;
  */
 @SuppressWarnings("serial")
 @Entity
-public class Image implements Serializable {
+@Cacheable
+public class Image implements Serializable, Versioned {
 
   @Id
   @GeneratedValue
@@ -32,14 +48,54 @@ public class Image implements Serializable {
   @NotNull
   private String description;
   
-  @Lob
-  @NotNull
+  /** Uploaded content, stored in blob store on registration or update. Never loaded. */
+  @JsonIgnore
+  @Transient
   private byte[] content;
 
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  @NotNull
+  @Size(min = 64, max = 64)
+  @Column(name = "CONTENT_HASH", length = 64)
+  private String contentHash;
+
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  @Column(name = "CONTENT_LENGTH")
+  private Long contentLength;
+
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  @Column(name = "MEDIA_TYPE")
+  private String mediaType;
+
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  @Version
+  @Column(name = "VERSION")
+  private Long version;
+
+  @JsonIgnore
+  @Column(name = "LAST_MODIFIED")
+  private Instant lastModified;
+
+  @JsonIgnore
+  @OneToMany(mappedBy = "image", fetch = FetchType.LAZY, cascade = CascadeType.REMOVE)
+  private Set<ImageRendition> renditions = new HashSet<>();
+
   public Image() {
     super();
   }
 
+  /**
+   * Intended to enforce lazy entity retrieval w/o content.
+   * 
+   * @param id Image identifier.
+   * @param description Image description.
+   */
+  public Image(Long id, String description) {
+    super();
+    this.id = id;
+    this.description = description;
+  }
+
   public Long getId() {
     return this.id;
   }
@@ -64,6 +120,50 @@ public class Image implements Serializable {
     this.content = content;
   }
 
+  public String getContentHash() {
+    return this.contentHash;
+  }
+
+  public void setContentHash(String contentHash) {
+    this.contentHash = contentHash;
+  }
+
+  public Long getContentLength() {
+    return this.contentLength;
+  }
+
+  public void setContentLength(Long contentLength) {
+    this.contentLength = contentLength;
+  }
+
+  public String getMediaType() {
+    return this.mediaType;
+  }
+
+  public void setMediaType(String mediaType) {
+    this.mediaType = mediaType;
+  }
+
+  @Override
+  public Long getVersion() {
+    return this.version;
+  }
+
+  public Instant getLastModified() {
+    return this.lastModified;
+  }
+
+  /**
+   * Marks image as modified. 
+   * Must be called when image content or renditions change, 
+   * so that version and modification time reflect the change.
+   */
+  @PrePersist
+  @PreUpdate
+  public void markModified() {
+    this.lastModified = Instant.now();
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
@@ -0,0 +1,102 @@
+package tv.beenius.videostore.model;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Scaled down image derived from an original image.
+ * Rendition is up to date while its source version matches image version.
+ * Content is kept in {@link tv.beenius.videostore.data.BlobStore}.
+ */
+@SuppressWarnings("serial")
+@Entity
+@Table(name = "IMAGE_RENDITION", 
+    uniqueConstraints = @UniqueConstraint(columnNames = { "IMAGE_ID", "RENDITION_SIZE" }))
+public class ImageRendition implements Serializable {
+
+  @Id
+  @GeneratedValue
+  @Column(name = "ID")
+  private Long id;
+
+  @NotNull
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "IMAGE_ID")
+  private Image image;
+
+  @NotNull
+  @Enumerated(EnumType.STRING)
+  @Column(name = "RENDITION_SIZE")
+  private RenditionSize size;
+
+  @NotNull
+  @Column(name = "SOURCE_VERSION")
+  private Long sourceVersion;
+
+  @NotNull
+  @Column(name = "CONTENT_HASH", length = 64)
+  private String contentHash;
+
+  public ImageRendition() {
+    super();
+  }
+
+  /**
+   * Image rendition.
+   * 
+   * @param image Original image.
+   * @param size Rendition size.
+   */
+  public ImageRendition(Image image, RenditionSize size) {
+    super();
+    this.image = image;
+    this.size = size;
+  }
+
+  public Long getId() {
+    return this.id;
+  }
+
+  public Image getImage() {
+    return this.image;
+  }
+
+  public RenditionSize getSize() {
+    return this.size;
+  }
+
+  public Long getSourceVersion() {
+    return this.sourceVersion;
+  }
+
+  public void setSourceVersion(Long sourceVersion) {
+    this.sourceVersion = sourceVersion;
+  }
+
+  public String getContentHash() {
+    return this.contentHash;
+  }
+
+  public void setContentHash(String contentHash) {
+    this.contentHash = contentHash;
+  }
+
+  @Override
+  public String toString() {
+    return "ImageRendition {id='" + id + "', size='" + size 
+        + "', sourceVersion='" + sourceVersion + "'}";
+  }
+
+}
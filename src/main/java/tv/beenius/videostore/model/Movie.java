@@ -2,21 +2,33 @@ package tv.beenius.videostore.model;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
 import javax.persistence.OneToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
@@ -24,15 +36,41 @@ import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 import javax.xml.bind.annotation.XmlRootElement;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
  * Entity implementation class for Movie.
+ * 
+ * <p>Related actors and images are fetched lazily. Callers request related entities
+ * they need by one of named entity graphs.
+ *
+ * <p>Movie, its cast and its images are held in second-level cache.
  *
  */
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "imdbId")
 @Entity
+@Cacheable
+@NamedEntityGraphs({
+    @NamedEntityGraph(name = Movie.GRAPH_SUMMARY),
+    @NamedEntityGraph(name = Movie.GRAPH_WITH_CAST, 
+        attributeNodes = @NamedAttributeNode("actors")),
+    @NamedEntityGraph(name = Movie.GRAPH_WITH_IMAGES, 
+        attributeNodes = @NamedAttributeNode("images"))
+    })
+@Table(indexes = @Index(name = "MOVIE_TITLE_IDX", columnList = "title, IMDB_ID"))
 @SuppressWarnings("serial")
 @XmlRootElement
-public class Movie implements Serializable {
+public class Movie implements Serializable, Versioned {
+
+  /** Movie attributes w/o related actors and images. */
+  public static final String GRAPH_SUMMARY = "movie-summary";
+  
+  /** Movie attributes together with related actors. */
+  public static final String GRAPH_WITH_CAST = "movie-with-cast";
+  
+  /** Movie attributes together with related images. */
+  public static final String GRAPH_WITH_IMAGES = "movie-with-images";
 
   @Id
   @Pattern(regexp = "ev\\d{7}\\/\\d{4}(-\\d)?|(ch|co|ev|ni|nm|tt)\\d{7}", 
@@ -54,14 +92,26 @@ public class Movie implements Serializable {
   @Size(max = 10000)
   private String description;
 
-  @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.PERSIST)
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  @Version
+  @Column(name = "VERSION")
+  private Long version;
+
+  @JsonIgnore
+  @Column(name = "LAST_MODIFIED")
+  private Instant lastModified;
+
+  @JsonIgnoreProperties("movies")
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+  @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.PERSIST)
   @JoinTable(name = "CAST", 
       joinColumns = { @JoinColumn(name = "IMDB_ID") }, 
       inverseJoinColumns = {@JoinColumn(name = "ACTOR_ID") })
   private Set<Actor> actors = new HashSet<>();
 
   @JsonIgnore
-  @OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+  @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
   @JoinTable(name = "MOVIE_IMAGE", joinColumns = {
       @JoinColumn(name = "IMDB_ID", referencedColumnName = "IMDB_ID") }, inverseJoinColumns = {
           @JoinColumn(name = "IMAGE_ID", referencedColumnName = "ID", unique = true) })
@@ -87,6 +137,20 @@ public class Movie implements Serializable {
     this.description = description;
   }
 
+  /**
+   * Intended to enforce lazy entity retrieval together with version.
+   * 
+   * @param imdbId Movie IMDB identifier.
+   * @param title Movie title.
+   * @param year Movie year.
+   * @param description Movie description.
+   * @param version Movie version.
+   */
+  public Movie(String imdbId, String title, Integer year, String description, Long version) {
+    this(imdbId, title, year, description);
+    this.version = version;
+  }
+
   public String getImdbId() {
     return this.imdbId;
   }
@@ -119,6 +183,26 @@ public class Movie implements Serializable {
     this.description = description;
   }
 
+  @Override
+  public Long getVersion() {
+    return this.version;
+  }
+
+  public Instant getLastModified() {
+    return this.lastModified;
+  }
+
+  /**
+   * Marks movie as modified. 
+   * Must be called when related actors or images change, 
+   * so that version and modification time reflect the change.
+   */
+  @PrePersist
+  @PreUpdate
+  public void markModified() {
+    this.lastModified = Instant.now();
+  }
+
   public Set<Actor> getActors() {
     return this.actors;
   }
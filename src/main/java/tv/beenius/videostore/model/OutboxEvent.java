@@ -0,0 +1,144 @@
+package tv.beenius.videostore.model;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Map;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+
+import tv.beenius.videostore.event.EntityChange;
+import tv.beenius.videostore.event.EntityChange.Operation;
+
+/**
+ * Entity change recorded in the transaction of the change itself.
+ *
+ * <p>Outbox events are published in identifier order by 
+ * {@link tv.beenius.videostore.service.ChangeRelay} and removed once published.
+ */
+@SuppressWarnings("serial")
+@Entity
+@Table(name = "OUTBOX_EVENT")
+public class OutboxEvent implements Serializable {
+
+  /** Event channel, i.e. qualifier the change is published with. */
+  public enum Channel { MOVIE, ACTOR }
+
+  private static final Map<String, Class<?>> ENTITY_TYPES = Map.of(
+      Actor.class.getSimpleName(), Actor.class,
+      Cast.class.getSimpleName(), Cast.class,
+      Image.class.getSimpleName(), Image.class,
+      Movie.class.getSimpleName(), Movie.class);
+
+  @Id
+  @GeneratedValue
+  @Column(name = "ID")
+  private Long id;
+
+  @NotNull
+  @Enumerated(EnumType.STRING)
+  @Column(name = "CHANNEL")
+  private Channel channel;
+
+  @NotNull
+  @Column(name = "ENTITY_TYPE")
+  private String entityType;
+
+  @NotNull
+  @Column(name = "ENTITY_ID")
+  private String entityId;
+
+  @NotNull
+  @Enumerated(EnumType.STRING)
+  @Column(name = "OPERATION")
+  private Operation operation;
+
+  @Column(name = "ENTITY_VERSION")
+  private Long entityVersion;
+
+  @NotNull
+  @Column(name = "RECORDED")
+  private Instant recorded;
+
+  public OutboxEvent() {
+    super();
+  }
+
+  /**
+   * Outbox event of an entity change.
+   *
+   * @param channel Event channel.
+   * @param change Entity change.
+   */
+  public OutboxEvent(Channel channel, EntityChange change) {
+    super();
+    this.channel = channel;
+    this.entityType = change.getEntityType().getSimpleName();
+    this.entityId = String.valueOf(change.getId());
+    this.operation = change.getOperation();
+    this.entityVersion = change.getVersion();
+    this.recorded = Instant.now();
+  }
+
+  /**
+   * Restores entity change with identifier of entity identifier type.
+   *
+   * @return Entity change.
+   */
+  public EntityChange toEntityChange() {
+
+    Class<?> type = ENTITY_TYPES.get(entityType);
+
+    if (type == null) {
+      throw new IllegalStateException("Unknown entity type {" + entityType + "}.");
+    }
+
+    Serializable entityIdentifier = type == Movie.class || type == Cast.class 
+        ? entityId 
+        : Long.valueOf(entityId);
+
+    return new EntityChange(type, entityIdentifier, operation, entityVersion);
+  }
+
+  public Long getId() {
+    return this.id;
+  }
+
+  public Channel getChannel() {
+    return this.channel;
+  }
+
+  public String getEntityType() {
+    return this.entityType;
+  }
+
+  public String getEntityId() {
+    return this.entityId;
+  }
+
+  public Operation getOperation() {
+    return this.operation;
+  }
+
+  public Long getEntityVersion() {
+    return this.entityVersion;
+  }
+
+  public Instant getRecorded() {
+    return this.recorded;
+  }
+
+  @Override
+  public String toString() {
+    return "OutboxEvent {id='" + id + "', channel='" + channel + "', entityType='" + entityType
+        + "', entityId='" + entityId + "', operation='" + operation 
+        + "', entityVersion='" + entityVersion + "'}";
+  }
+
+}
@@ -0,0 +1,54 @@
+package tv.beenius.videostore.model;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Size of an image rendition, i.e. of a scaled down image derived from original image.
+ */
+public enum RenditionSize {
+
+  /** Thumbnail for listings. */
+  THUMBNAIL(160),
+
+  /** Medium size for details. */
+  MEDIUM(640);
+
+  private final int maxDimension;
+
+  private RenditionSize(int maxDimension) {
+    this.maxDimension = maxDimension;
+  }
+
+  /**
+   * Retrieves maximum width and height of rendition in pixels.
+   *
+   * @return Maximum dimension.
+   */
+  public int getMaxDimension() {
+    return this.maxDimension;
+  }
+
+  /**
+   * Retrieves size key used in requests, e.g. thumbnail.
+   *
+   * @return Size key.
+   */
+  public String getKey() {
+    return name().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Finds size by key.
+   *
+   * @param key Size key.
+   * @return Optional size.
+   */
+  public static Optional<RenditionSize> fromKey(String key) {
+    return Arrays.stream(values())
+        .filter(size -> size.getKey().equals(key))
+        .findFirst();
+  }
+
+}
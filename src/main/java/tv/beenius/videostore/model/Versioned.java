@@ -0,0 +1,15 @@
+package tv.beenius.videostore.model;
+
+/**
+ * Entity with optimistic locking version, incremented on each change.
+ */
+public interface Versioned {
+
+  /**
+   * Retrieves entity version.
+   *
+   * @return Version or null when entity has not been persisted yet.
+   */
+  Long getVersion();
+
+}
@@ -0,0 +1,141 @@
+package tv.beenius.videostore.rest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Byte range of HTTP range request, see RFC 7233.
+ *
+ * <p>Range is resolved against representation length, so first and last byte positions
+ * are absolute and inclusive.
+ */
+public class ByteRange {
+
+  /** Maximal number of ranges served, more ranges are served as full representation. */
+  static final int MAX_RANGES = 16;
+
+  private static final String BYTES_UNIT = "bytes=";
+
+  private final long first;
+
+  private final long last;
+
+  ByteRange(long first, long last) {
+    this.first = first;
+    this.last = last;
+  }
+
+  /**
+   * Parses Range header value and resolves ranges against representation length.
+   *
+   * <p>Overlapping and adjacent ranges are coalesced. Unsatisfiable ranges are dropped,
+   * so an empty list means that no range is satisfiable. Empty optional means that header
+   * should be ignored, i.e. it is missing, malformed, not in bytes or asks for too many ranges.
+   *
+   * @param header Range header value.
+   * @param length Representation length.
+   * @return Optional list of satisfiable ranges ordered by position.
+   */
+  public static Optional<List<ByteRange>> parse(String header, long length) {
+
+    if (header == null || ! header.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length())) {
+      return Optional.empty();
+    }
+
+    String[] specs = header.substring(BYTES_UNIT.length()).split(",");
+
+    if (specs.length > MAX_RANGES) {
+      return Optional.empty();
+    }
+
+    List<ByteRange> ranges = new ArrayList<>();
+
+    for (String spec : specs) {
+      String trimmed = spec.trim();
+      int dash = trimmed.indexOf('-');
+
+      if (dash < 0) {
+        return Optional.empty();
+      }
+
+      String firstPart = trimmed.substring(0, dash);
+      String lastPart = trimmed.substring(dash + 1);
+
+      try {
+        if (firstPart.isEmpty()) {
+          // Suffix range, i.e. last n bytes.
+          long suffix = Long.parseLong(lastPart);
+          if (suffix < 0) {
+            return Optional.empty();
+          }
+          if (suffix > 0 && length > 0) {
+            ranges.add(new ByteRange(Math.max(0, length - suffix), length - 1));
+          }
+        } else {
+          long first = Long.parseLong(firstPart);
+          long last = lastPart.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastPart);
+          if (first < 0 || last < first) {
+            return Optional.empty();
+          }
+          if (first < length) {
+            ranges.add(new ByteRange(first, Math.min(last, length - 1)));
+          }
+        }
+      } catch (NumberFormatException nfe) {
+        return Optional.empty();
+      }
+    }
+
+    return Optional.of(coalesce(ranges));
+  }
+
+  private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+
+    ranges.sort(Comparator.comparingLong(ByteRange::getFirst));
+
+    List<ByteRange> coalesced = new ArrayList<>();
+
+    for (ByteRange range : ranges) {
+      ByteRange previous = coalesced.isEmpty() ? null : coalesced.get(coalesced.size() - 1);
+
+      if (previous != null && range.first <= previous.last + 1) {
+        coalesced.set(coalesced.size() - 1,
+            new ByteRange(previous.first, Math.max(previous.last, range.last)));
+      } else {
+        coalesced.add(range);
+      }
+    }
+
+    return coalesced;
+  }
+
+  public long getFirst() {
+    return first;
+  }
+
+  public long getLast() {
+    return last;
+  }
+
+  public long getLength() {
+    return last - first + 1;
+  }
+
+  /**
+   * Formats Content-Range header value.
+   *
+   * @param length Representation length.
+   * @return Content-Range header value, e.g. bytes 0-99/1000.
+   */
+  public String toContentRange(long length) {
+    return "bytes " + first + "-" + last + "/" + length;
+  }
+
+  @Override
+  public String toString() {
+    return first + "-" + last;
+  }
+
+}
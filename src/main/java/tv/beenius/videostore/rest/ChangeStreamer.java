@@ -0,0 +1,240 @@
+package tv.beenius.videostore.rest;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.event.ChangeFeed;
+import tv.beenius.videostore.event.ChangeFeed.FeedEvent;
+import tv.beenius.videostore.event.EntityChange;
+
+/**
+ * Streams {@link ChangeFeed} to Server-Sent Events subscribers.
+ *
+ * <p>Each subscriber reads the feed from its own position by a chain of asynchronous sends,
+ * the next event is sent once the previous one has been written. Managed executor threads
+ * only read the feed and start sends, so neither writers, other subscribers nor other tasks
+ * of the shared executor wait for a slow subscriber. Event identifier is feed sequence
+ * and event name is lower case entity type, e.g. movie, actor, image or cast. Event data
+ * is a JSON object with type, id, operation and version. Subscriber resumes after
+ * Last-Event-ID or starts with new changes. Subscriber that has fallen behind the feed
+ * or resumes after an unknown event gets a {@value #RESET_EVENT} event and continues with
+ * new changes, it should resynchronize by listing endpoints. Subscriber that does not
+ * accept an event in time is disconnected.
+ */
+@ApplicationScoped
+public class ChangeStreamer {
+
+  static final String RESET_EVENT = "reset";
+
+  private static final int MAX_EVENTS_PER_READ = 256;
+
+  private static final long SEND_TIMEOUT_SECONDS = 10;
+
+  Logger logger = Logger.getLogger(getClass());
+
+  @Resource
+  ManagedExecutorService executor;
+
+  @Inject
+  ChangeFeed feed;
+
+  private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+  private final Runnable feedListener = this::scheduleAll;
+
+  @PostConstruct
+  private void init() {
+    feed.addListener(feedListener);
+  }
+
+  @PreDestroy
+  private void destroy() {
+    feed.removeListener(feedListener);
+    subscriptions.forEach(subscription -> subscription.sink.close());
+    subscriptions.clear();
+  }
+
+  /**
+   * Subscribes to changes.
+   *
+   * @param sink Event sink of subscriber.
+   * @param sse Event builder factory.
+   * @param lastEventId Last-Event-ID header value or null.
+   */
+  public void subscribe(SseEventSink sink, Sse sse, String lastEventId) {
+
+    long position;
+    try {
+      position = lastEventId == null || lastEventId.isBlank()
+          ? feed.getLastSequence()
+          : Long.parseLong(lastEventId.trim());
+    } catch (NumberFormatException nfe) {
+      position = -1;
+    }
+
+    Subscription subscription = new Subscription(sink, sse, position);
+    subscriptions.add(subscription);
+    schedule(subscription);
+  }
+
+  /**
+   * Counts connected subscribers.
+   *
+   * @return Number of subscribers.
+   */
+  public int getSubscriberCount() {
+    return subscriptions.size();
+  }
+
+  private void scheduleAll() {
+    subscriptions.forEach(this::schedule);
+  }
+
+  private void schedule(Subscription subscription) {
+    if (subscription.sending.compareAndSet(false, true)) {
+      executor.execute(() -> drain(subscription));
+    }
+  }
+
+  /**
+   * Sends events after subscriber position until the feed is drained. Continues
+   * asynchronously once the events read are sent.
+   */
+  private void drain(Subscription subscription) {
+
+    try {
+      Optional<List<FeedEvent>> events = feed.readAfter(subscription.position, 
+          MAX_EVENTS_PER_READ);
+
+      if (! events.isPresent()) {
+        long last = feed.getLastSequence();
+        send(subscription, subscription.sse.newEventBuilder()
+            .id(String.valueOf(last))
+            .name(RESET_EVENT)
+            .data("Changes have been missed, resynchronize.")
+            .build(), last, () -> drain(subscription));
+      } else if (! events.get().isEmpty()) {
+        sendEach(subscription, events.get(), 0);
+      } else {
+        subscription.sending.set(false);
+        // Changes appended while sending was being finished are not missed.
+        if (feed.getLastSequence() > subscription.position) {
+          schedule(subscription);
+        }
+      }
+    } catch (RuntimeException re) {
+      disconnect(subscription, re);
+    }
+  }
+
+  private void sendEach(Subscription subscription, List<FeedEvent> events, int index) {
+
+    if (index == events.size()) {
+      drain(subscription);
+      return;
+    }
+
+    FeedEvent event = events.get(index);
+    send(subscription, toSseEvent(subscription.sse, event), event.getSequence(), 
+        () -> sendEach(subscription, events, index + 1));
+  }
+
+  /**
+   * Sends event w/o waiting for it. Position is advanced and next step is run by
+   * a managed executor thread once the event is written.
+   */
+  private void send(Subscription subscription, OutboundSseEvent event, long position, 
+      Runnable next) {
+
+    if (subscription.sink.isClosed()) {
+      throw new IllegalStateException("Event sink is closed.");
+    }
+
+    subscription.sink.send(event).toCompletableFuture()
+        .orTimeout(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        .whenCompleteAsync((result, failure) -> {
+          if (failure != null) {
+            disconnect(subscription, failure);
+            return;
+          }
+          subscription.position = position;
+          try {
+            next.run();
+          } catch (RuntimeException re) {
+            disconnect(subscription, re);
+          }
+        }, executor);
+  }
+
+  private void disconnect(Subscription subscription, Throwable cause) {
+    logger.log(Level.INFO, "Change subscriber disconnected: " + cause.getLocalizedMessage());
+    close(subscription);
+  }
+
+  private void close(Subscription subscription) {
+    subscriptions.remove(subscription);
+    subscription.sink.close();
+  }
+
+  private static OutboundSseEvent toSseEvent(Sse sse, FeedEvent event) {
+
+    EntityChange change = event.getChange();
+    String type = change.getEntityType().getSimpleName();
+
+    Map<String, Object> data = new LinkedHashMap<>();
+    data.put("type", type);
+    data.put("id", change.getId());
+    data.put("operation", change.getOperation());
+    data.put("version", change.getVersion());
+
+    return sse.newEventBuilder()
+        .id(String.valueOf(event.getSequence()))
+        .name(type.toLowerCase(Locale.ROOT))
+        .mediaType(MediaType.APPLICATION_JSON_TYPE)
+        .data(Map.class, data)
+        .build();
+  }
+
+  /**
+   * Subscriber with its feed position. Position is advanced by a single chain of sends
+   * at a time, the one that has set the sending flag.
+   */
+  private static class Subscription {
+
+    private final SseEventSink sink;
+
+    private final Sse sse;
+
+    private final AtomicBoolean sending = new AtomicBoolean();
+
+    private volatile long position;
+
+    Subscription(SseEventSink sink, Sse sse, long position) {
+      this.sink = sink;
+      this.sse = sse;
+      this.position = position;
+    }
+  }
+
+}
@@ -0,0 +1,25 @@
+package tv.beenius.videostore.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.inject.Inject;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Provides JAX-RS Jackson entity providers with the shared JSON mapper produced by
+ * {@link tv.beenius.videostore.util.Resources#produceObjectMapper()}, so that entities
+ * are read and written as by import.
+ */
+@Provider
+public class ObjectMapperResolver implements ContextResolver<ObjectMapper> {
+
+  @Inject
+  ObjectMapper mapper;
+
+  @Override
+  public ObjectMapper getContext(Class<?> type) {
+    return mapper;
+  }
+
+}
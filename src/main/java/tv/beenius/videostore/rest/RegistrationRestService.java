@@ -2,47 +2,80 @@ package tv.beenius.videostore.rest;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.validation.ConstraintViolation;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.CacheControl;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Link;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
 
 import org.jboss.logging.Logger;
 import org.jboss.logging.Logger.Level;
 import org.jboss.resteasy.plugins.providers.multipart.InputPart;
 import org.jboss.resteasy.plugins.providers.multipart.MultipartFormDataInput;
 
+import tv.beenius.videostore.data.Revision;
+import tv.beenius.videostore.exception.ContentTooLargeException;
 import tv.beenius.videostore.exception.EjbConstraintViolationException;
 import tv.beenius.videostore.exception.EjbValidationException;
+import tv.beenius.videostore.metrics.Instrumented;
+import tv.beenius.videostore.metrics.Instrumented.Layer;
 import tv.beenius.videostore.model.Actor;
 import tv.beenius.videostore.model.Image;
 import tv.beenius.videostore.model.Movie;
+import tv.beenius.videostore.model.RenditionSize;
+import tv.beenius.videostore.service.ExportService;
+import tv.beenius.videostore.service.ImportService;
 import tv.beenius.videostore.service.RegisterService;
-import tv.beenius.videostore.util.ImageUtil;
+import tv.beenius.videostore.tracing.Traced;
+import tv.beenius.videostore.util.PageCursor;
 
 @Path("/registration")
 @RequestScoped
+@Instrumented(Layer.REST)
+@Traced
 public class RegistrationRestService {
   
   Logger logger = Logger.getLogger(getClass());
@@ -50,11 +83,31 @@ public class RegistrationRestService {
   private static String MULTIPART_ATTRIBUTES = "attributes";
   private static String MULTIPART_IMAGE      = "image";
   
+  private static final String APPLICATION_NDJSON = "application/x-ndjson";
+  private static final String GZIP = "gzip";
+  
+  private static final String ACCEPT_RANGES = "Accept-Ranges";
+  private static final String CONTENT_RANGE = "Content-Range";
+  private static final String IF_RANGE = "If-Range";
+  private static final String RANGE = "Range";
+  private static final String BYTES = "bytes";
+  
+  private static final String MISSING_IDS = "Missing-Ids";
+  
   @Inject 
   RegisterService registration;
   
   @Inject
-  ImageUtil imageUtil;
+  ExportService exportService;
+  
+  @Inject
+  ImportService importService;
+  
+  @Inject
+  ObjectMapper mapper;
+  
+  @Inject
+  ChangeStreamer changeStreamer;
   
   // Create entities by POST.
   
@@ -138,6 +191,44 @@ public class RegistrationRestService {
     return builder.build();
   }
 
+  /**
+   * Imports movies with cast in bulk via
+   * {@link tv.beenius.videostore.service.ImportService#importMovies(InputStream)}.
+   * 
+   * <p>Request body is either a JSON array of movies or newline delimited JSON movies,
+   * both are read as a stream. Movies are posted in the same form as by
+   * {@link #postMovie(Movie, UriInfo)}, except that cast actor with id refers to
+   * a registered actor. Cast actor w/o id is registered together with movie.
+   * Invalid records are skipped and reported, they do not abort the import.
+   * 
+   * @param input Streamed movies.
+   * @return Response contains import report with failed records 
+   *         or error list with status BAD_REQUEST or INTERNAL_SERVER_ERROR.
+   */
+  @POST
+  @Path("/import/movies") 
+  @Consumes({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response importMovies(InputStream input) {
+    
+    Response.ResponseBuilder builder = null;
+    Map<String, String> responseObj = new HashMap<>();
+    
+    try {
+      builder = Response.ok().entity(importService.importMovies(input));
+    } catch (IOException ioe) {
+      responseObj.put("Import", ioe.getMessage());
+      builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+    } catch (RuntimeException rte) {
+      builder = Response
+          .status(Response.Status.INTERNAL_SERVER_ERROR)
+          .entity("For more details dive into server log.");
+      logger.log(Level.ERROR, rte.getLocalizedMessage());
+    }
+    
+    return builder.build();
+  }
+
   /**
    * Posts new cast between movie and actor via 
    * {@link tv.beenius.videostore.service.RegisterService#registerCast(String, Long)}.
@@ -177,6 +268,87 @@ public class RegistrationRestService {
     return builder.build();
   }
   
+  /**
+   * Posts new casts between movie and many actors via 
+   * {@link tv.beenius.videostore.service.RegisterService#registerMovieCasts(String, List)},
+   * e.g. the whole cast of a movie by a single request.
+   * 
+   * @param imdbId Movie identifier.
+   * @param ids JSON array of actor identifiers.
+   * @return Response with status CREATED 
+   *         or error list with status BAD_REQUEST or INTERNAL_SERVER_ERROR.
+   */
+  @POST
+  @Path("/movies/{imdbId}/actors") 
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response postMovieCasts(
+      @PathParam("imdbId") String imdbId, 
+      List<Long> ids) {
+    
+    Response.ResponseBuilder builder = null;
+    Map<String, String> responseObj = new HashMap<>();
+    
+    try {
+      registration.registerMovieCasts(imdbId, ids);  
+      
+      builder = Response.status(Response.Status.CREATED);
+    } catch (EjbConstraintViolationException cve) {
+      responseObj = createViolationMap(cve.getConstraintViolations()); 
+      builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+    } catch (EjbValidationException ve) {
+      responseObj.put("Cast", ve.getMessage());
+      builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+    } catch (RuntimeException rte) {
+      builder = Response
+          .status(Response.Status.INTERNAL_SERVER_ERROR)
+          .entity("For more details dive into server log.");
+      logger.log(Level.ERROR, rte.getLocalizedMessage());
+    }
+    
+    return builder.build();
+  }
+  
+  /**
+   * Posts new casts between actor and many movies via 
+   * {@link tv.beenius.videostore.service.RegisterService#registerActorCasts(Long, List)}.
+   * 
+   * @param id Actor identifier.
+   * @param imdbIds JSON array of movie identifiers.
+   * @return Response with status CREATED 
+   *         or error list with status BAD_REQUEST or INTERNAL_SERVER_ERROR.
+   */
+  @POST
+  @Path("/actors/{id}/movies") 
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response postActorCasts(
+      @PathParam("id") Long id, 
+      List<String> imdbIds) {
+    
+    Response.ResponseBuilder builder = null;
+    Map<String, String> responseObj = new HashMap<>();
+    
+    try {
+      registration.registerActorCasts(id, imdbIds);  
+      
+      builder = Response.status(Response.Status.CREATED);
+    } catch (EjbConstraintViolationException cve) {
+      responseObj = createViolationMap(cve.getConstraintViolations()); 
+      builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+    } catch (EjbValidationException ve) {
+      responseObj.put("Cast", ve.getMessage());
+      builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+    } catch (RuntimeException rte) {
+      builder = Response
+          .status(Response.Status.INTERNAL_SERVER_ERROR)
+          .entity("For more details dive into server log.");
+      logger.log(Level.ERROR, rte.getLocalizedMessage());
+    }
+    
+    return builder.build();
+  }
+  
   /**
    * Posts new movie image via 
    * {@link tv.beenius.videostore.service.RegisterService#registerMovieImage(String, Image)}.
@@ -184,7 +356,8 @@ public class RegistrationRestService {
    * <p>@param imdbId Movie identifier.
    * @param multiPart Image file attributes and content.
    * @return Response contains id and description of a registered image 
-   *         or error list with status BAD_REQUEST or INTERNAL_SERVER_ERROR.
+   *         or error list with status BAD_REQUEST, REQUEST_ENTITY_TOO_LARGE
+   *         or INTERNAL_SERVER_ERROR.
    */
   @POST
   @Path("/movies/{imdbId}/images") 
@@ -211,6 +384,9 @@ public class RegistrationRestService {
     } catch (EjbValidationException ve) {
       responseObj.put("Image", ve.getMessage());
       builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+    } catch (ContentTooLargeException ctle) {
+      responseObj.put("Image", ctle.getMessage());
+      builder = Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).entity(responseObj);
     } catch (IOException ioe) {
       responseObj.put("Image", ioe.getMessage());
       builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
@@ -230,28 +406,47 @@ public class RegistrationRestService {
    * Retrieves an actor by Id provided via 
    * {@link tv.beenius.videostore.service.RegisterService#findActorById(Long)}.
    * 
+   * <p>Response carries ETag and Last-Modified headers of actor revision provided via
+   * {@link tv.beenius.videostore.service.RegisterService#findActorRevision(Long)}.
+   * Conditional request with matching revision is answered with status NOT_MODIFIED
+   * w/o retrieving the actor.
+   * 
    * <p>@param id Actor identifier.
    * @return Response contains entity when found or error list with
    *         status NOT_FOUND when not found or
+   *         status NOT_MODIFIED when not modified or
    *         status BAD_REQUEST with a list of constraint violations or
    *         status INTERNAL_SERVER_ERROR on server error.
    */
   @GET
   @Path("/actors/{id}") 
   @Produces(MediaType.APPLICATION_JSON)
-  public Response getActorById(@PathParam("id") Long id) {
+  public Response getActorById(
+      @PathParam("id") Long id,
+      @Context Request request,
+      @Context HttpHeaders headers) {
     
     Response.ResponseBuilder builder = null;
     Map<String, String> responseObj = new HashMap<>();
 
+    Optional<Revision> optionalRevision;
     Optional<Actor> optionalActor;
 
     try {      
       registration.validateActorId(id);
-      optionalActor = registration.findActorById(id);
+      optionalRevision = registration.findActorRevision(id);
 
-      if (optionalActor.isPresent()) {
-        builder = Response.ok().entity(optionalActor.get());
+      if (optionalRevision.isPresent()) {
+        builder = evaluatePreconditions(optionalRevision.get(), request, headers);
+        
+        if (builder == null) {
+          optionalActor = registration.findActorById(id);
+          builder = optionalActor.isPresent() 
+              ? Response.ok().entity(optionalActor.get()) 
+              : Response.status(Response.Status.NOT_FOUND);
+        }
+        
+        tagRevision(builder, optionalRevision.get());
       } else {
         builder = Response
             .status(Response.Status.NOT_FOUND);
@@ -273,28 +468,47 @@ public class RegistrationRestService {
    * Retrieves a movie by imdbId provided via 
    * {@link tv.beenius.videostore.service.RegisterService#findMovieById(String)}.
    * 
+   * <p>Response carries ETag and Last-Modified headers of movie revision provided via
+   * {@link tv.beenius.videostore.service.RegisterService#findMovieRevision(String)}.
+   * Conditional request with matching revision is answered with status NOT_MODIFIED
+   * w/o retrieving the movie.
+   * 
    * <p>@param imdbId Movie identifier.
    * @return Response contains entity when found or error list with
    *         status NOT_FOUND when not found or
+   *         status NOT_MODIFIED when not modified or
    *         status BAD_REQUEST with a list of constraint violations or
    *         status INTERNAL_SERVER_ERROR on server error.
    */
   @GET
   @Path("/movies/{imdbId}") 
   @Produces(MediaType.APPLICATION_JSON)
-  public Response getMovieByImdbId(@PathParam("imdbId") String imdbId) {
+  public Response getMovieByImdbId(
+      @PathParam("imdbId") String imdbId,
+      @Context Request request,
+      @Context HttpHeaders headers) {
     
     Response.ResponseBuilder builder = null;
     Map<String, String> responseObj = new HashMap<>();
 
+    Optional<Revision> optionalRevision;
     Optional<Movie> optionalMovie;
 
     try {      
       registration.validateImdbId(imdbId);
-      optionalMovie = registration.findMovieById(imdbId);
+      optionalRevision = registration.findMovieRevision(imdbId);
 
-      if (optionalMovie.isPresent()) {
-        builder = Response.ok().entity(optionalMovie.get());
+      if (optionalRevision.isPresent()) {
+        builder = evaluatePreconditions(optionalRevision.get(), request, headers);
+        
+        if (builder == null) {
+          optionalMovie = registration.findMovieById(imdbId);
+          builder = optionalMovie.isPresent() 
+              ? Response.ok().entity(optionalMovie.get()) 
+              : Response.status(Response.Status.NOT_FOUND);
+        }
+        
+        tagRevision(builder, optionalRevision.get());
       } else {
         builder = Response
             .status(Response.Status.NOT_FOUND);
@@ -342,7 +556,7 @@ public class RegistrationRestService {
       optionalImage = registration.findMovieImageById(imdbId, id);
 
       if (optionalImage.isPresent()) {
-        builder = Response.ok().entity(optionalImage.get().toString());
+        builder = Response.ok().entity(optionalImage.get());
       } else {
         builder = Response
             .status(Response.Status.NOT_FOUND);
@@ -363,15 +577,143 @@ public class RegistrationRestService {
     return builder.build();
   }
 
+  /**
+   * Retrieves image content by id provided via 
+   * {@link tv.beenius.videostore.service.RegisterService#transferContent(String, 
+   * java.nio.channels.WritableByteChannel)}.
+   * 
+   * <p>Content is returned as binary body with media type detected from content.
+   * Original content is streamed from blob store w/o loading it onto heap.
+   * Strong entity tag is content hash. Clients are asked to revalidate
+   * cached content, so request with matching If-None-Match header 
+   * is answered with status NOT_MODIFIED and no body.
+   * 
+   * <p>Range requests are supported, so that interrupted downloads can be resumed.
+   * A single range is answered with status PARTIAL_CONTENT, multiple ranges as
+   * multipart/byteranges. Only requested windows are read from blob store. Range is ignored
+   * when If-Range header does not match current entity tag. Unsatisfiable range is answered
+   * with status REQUESTED_RANGE_NOT_SATISFIABLE.
+   * 
+   * <p>Optional size selects a scaled down rendition, i.e. thumbnail or medium, provided via
+   * {@link tv.beenius.videostore.service.RegisterService#findImageRenditionHash(Long, 
+   * RenditionSize)}. Original content is returned when rendition is not available yet.
+   * Both are streamed from blob store and tagged by their blob key, i.e. content hash.
+   * 
+   * @param id Image identifier.
+   * @param size Optional rendition size.
+   * @param request Request used for evaluation of preconditions.
+   * @param headers Request headers, i.e. Range and If-Range.
+   * @return Response contains image content when found or error list with
+   *         status NOT_FOUND when not found or
+   *         status BAD_REQUEST with a list of constraint violations or
+   *         status INTERNAL_SERVER_ERROR on server error.
+   */
+  @GET
+  @Path("/images/{id}/content") 
+  public Response getImageContent(
+      @PathParam("id") Long id,
+      @QueryParam("size") String size,
+      @Context Request request,
+      @Context HttpHeaders headers) {
+    
+    Response.ResponseBuilder builder = null;
+    Map<String, String> responseObj = new HashMap<>();
+
+    Optional<RenditionSize> renditionSize = RenditionSize.fromKey(size);
+
+    try {      
+      registration.validateEntityIdentifier(id, true);
+      registration.validateImageId(id);
+      
+      if (size != null && ! renditionSize.isPresent()) {
+        responseObj.put("size", "Size should be thumbnail or medium.");
+        builder = Response.status(Response.Status.BAD_REQUEST)
+            .type(MediaType.APPLICATION_JSON)
+            .entity(responseObj);
+      } else if (renditionSize.isPresent()) {
+        Optional<String> optionalContentHash = 
+            registration.findImageRenditionHash(id, renditionSize.get());
+        
+        if (optionalContentHash.isPresent()) {
+          String contentHash = optionalContentHash.get();
+          builder = contentResponse(request, headers, contentHash, 
+              registration.findContentMediaType(contentHash), 
+              registration.findContentLength(contentHash), 
+              (position, count, output) -> registration.transferContent(
+                  contentHash, position, count, Channels.newChannel(output)));
+        } else {
+          builder = Response
+              .status(Response.Status.NOT_FOUND);
+        }
+      } else {
+        Optional<Image> optionalImage = registration.findMovieImageById(id);
+        
+        if (optionalImage.isPresent()) {
+          String contentHash = optionalImage.get().getContentHash();
+          builder = contentResponse(request, headers, contentHash, 
+              optionalImage.get().getMediaType(), optionalImage.get().getContentLength(), 
+              (position, count, output) -> registration.transferContent(
+                  contentHash, position, count, Channels.newChannel(output)));
+        } else {
+          builder = Response
+              .status(Response.Status.NOT_FOUND);
+        }
+      }
+    } catch (EjbConstraintViolationException cve) {
+      responseObj = createViolationMap(cve.getConstraintViolations()); 
+      builder = Response.status(Response.Status.BAD_REQUEST)
+          .type(MediaType.APPLICATION_JSON)
+          .entity(responseObj);
+    } catch (EjbValidationException ve) {
+      responseObj.put("Image", ve.getMessage());
+      builder = Response.status(Response.Status.BAD_REQUEST)
+          .type(MediaType.APPLICATION_JSON)
+          .entity(responseObj);
+    } catch (RuntimeException rte) {
+      builder = Response
+          .status(Response.Status.INTERNAL_SERVER_ERROR)
+          .type(MediaType.TEXT_PLAIN)
+          .entity("For more details dive into server log.");
+      logger.log(Level.ERROR, rte.getLocalizedMessage());
+    }
+   
+    return builder.build();
+  }
+
   /**
    * Retrieves a page of actors using offset pagination approach and optional filtering via 
    * {@link tv.beenius.videostore.service.RegisterService#findPageOfActorsByName(int, int, String)}
    * or {@link tv.beenius.videostore.service.RegisterService#findPageOfActors(int, int)}.
    * Records are pre-sorted on last and first name.
+   * 
+   * <p>When parameter after is present keyset pagination is used instead via
+   * {@link tv.beenius.videostore.service.RegisterService#findPageOfActorsByNameAfter(
+   * String, String, Long, int, String)}
+   * or {@link tv.beenius.videostore.service.RegisterService#findPageOfActorsAfter(
+   * String, String, Long, int)} and pageOffset is ignored. Empty after parameter
+   * requests the first page. Records are pre-sorted on last name, first name and id.
+   * A full page is returned together with a Link header (rel="next")
+   * carrying the cursor of the following page.
+   * 
+   * <p>When parameter ranked is set, offset pagination of filtered actors is ranked by relevance
+   * via {@link tv.beenius.videostore.service.RegisterService#searchActors(int, int, String)}.
+   * 
+   * <p>When parameter ids is set, listed actors are retrieved by a single query via
+   * {@link tv.beenius.videostore.service.RegisterService#findActorsByIds(List)} in order
+   * of identifiers and other parameters are ignored. Identifiers are comma separated
+   * or the parameter is repeated. Identifiers of unregistered actors are listed
+   * by the Missing-Ids header.
+   * 
+   * <p>Response carries ETag computed from identifiers and versions of listed actors.
+   * Conditional request with matching ETag is answered with status NOT_MODIFIED.
    *  
    * @param pageOffset Starting record number.
    * @param pageLimit Maximum number of records returned.
-   * @return List of movies or or error list with
+   * @param searchFor Search string from name.
+   * @param after Opaque cursor of the last actor on previous page.
+   * @param ranked Ranks filtered actors by relevance instead of sorting them.
+   * @param ids Identifiers of requested actors.
+   * @return List of actors or or error list with
    *         status BAD_REQUEST with a list of constraint violations or
    *         status INTERNAL_SERVER_ERROR on server error.
    */
@@ -381,7 +723,13 @@ public class RegistrationRestService {
   public Response getPageOfActorsByName(
       @QueryParam("pageOffset") int pageOffset, 
       @QueryParam("pageLimit") int pageLimit,
-      @QueryParam("searchFor") String searchFor) {
+      @QueryParam("searchFor") String searchFor,
+      @QueryParam("after") String after,
+      @QueryParam("ranked") boolean ranked,
+      @QueryParam("ids") List<String> ids,
+      @Context UriInfo uriInfo,
+      @Context Request request,
+      @Context HttpHeaders headers) {
     
     Response.ResponseBuilder builder = null;
     Map<String, String> responseObj = new HashMap<>();
@@ -389,16 +737,65 @@ public class RegistrationRestService {
     List<Actor> actors;
 
     try {      
-      if (searchFor == null) {
-        actors = registration.findPageOfActors(pageOffset, pageLimit);
+      if (! ids.isEmpty()) {
+        List<Long> actorIds = splitIds(ids).stream()
+            .map(Long::valueOf)
+            .collect(Collectors.toList());
+        
+        actors = registration.findActorsByIds(actorIds);
+        
+        builder = pageResponse(actors, Actor::getId, Actor::getVersion, request, headers);
+        reportMissingIds(builder, actorIds, actors.stream()
+            .map(Actor::getId)
+            .collect(Collectors.toSet()));
+      } else if (after != null) {
+        String afterLastName = null;
+        String afterFirstName = null;
+        Long afterId = null;
+        
+        if (!after.isEmpty()) {
+          List<String> keys = PageCursor.decode(after, 3);
+          afterLastName = keys.get(0);
+          afterFirstName = keys.get(1);
+          afterId = Long.valueOf(keys.get(2));
+        }
+        
+        if (searchFor == null) {
+          actors = registration.findPageOfActorsAfter(
+              afterLastName, afterFirstName, afterId, pageLimit);
+        } else {
+          actors = registration.findPageOfActorsByNameAfter(
+              afterLastName, afterFirstName, afterId, pageLimit, searchFor);
+        }
+        
+        builder = pageResponse(actors, Actor::getId, Actor::getVersion, request, headers);
+        
+        if (actors.size() == pageLimit) {
+          Actor last = actors.get(actors.size() - 1);
+          String cursor = PageCursor.encode(
+              last.getLastName().orElse(null), last.getFirstName(), last.getId().toString());
+          builder.links(Link.fromUriBuilder(
+              uriInfo.getRequestUriBuilder().replaceQueryParam("after", cursor))
+              .rel("next")
+              .build());
+        }
       } else {
-        actors = registration.findPageOfActorsByName(pageOffset, pageLimit, searchFor);
+        if (searchFor == null) {
+          actors = registration.findPageOfActors(pageOffset, pageLimit);
+        } else if (ranked) {
+          actors = registration.searchActors(pageOffset, pageLimit, searchFor);
+        } else {
+          actors = registration.findPageOfActorsByName(pageOffset, pageLimit, searchFor);
+        }
+        
+        builder = pageResponse(actors, Actor::getId, Actor::getVersion, request, headers);
       }
-      
-      builder = Response.ok().entity(actors);
     } catch (EjbConstraintViolationException cve) {
       responseObj = createViolationMap(cve.getConstraintViolations()); 
       builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+    } catch (IllegalArgumentException iae) {
+      responseObj.put(ids.isEmpty() ? "after" : "ids", iae.getMessage());
+      builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
     } catch (RuntimeException rte) {
       builder = Response
           .status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -414,9 +811,34 @@ public class RegistrationRestService {
    * {@link tv.beenius.videostore.service.RegisterService#findPageOfMoviesByTitle(int,int,String)}
    * or {@link tv.beenius.videostore.service.RegisterService#findPageOfMovies(int, int)}.
    * Movie records are pre-sorted on title.
+   * 
+   * <p>When parameter after is present keyset pagination is used instead via
+   * {@link tv.beenius.videostore.service.RegisterService#findPageOfMoviesByTitleAfter(
+   * String, String, int, String)}
+   * or {@link tv.beenius.videostore.service.RegisterService#findPageOfMoviesAfter(
+   * String, String, int)} and pageOffset is ignored. Empty after parameter
+   * requests the first page. Movie records are pre-sorted on title and imdbId.
+   * A full page is returned together with a Link header (rel="next")
+   * carrying the cursor of the following page.
+   * 
+   * <p>When parameter ranked is set, offset pagination of filtered movies is ranked by relevance
+   * via {@link tv.beenius.videostore.service.RegisterService#searchMovies(int, int, String)}.
+   * 
+   * <p>When parameter ids is set, listed movies are retrieved by a single query via
+   * {@link tv.beenius.videostore.service.RegisterService#findMoviesByIds(List)} in order
+   * of identifiers and other parameters are ignored. Identifiers are comma separated
+   * or the parameter is repeated. Identifiers of unregistered movies are listed
+   * by the Missing-Ids header.
+   * 
+   * <p>Response carries ETag computed from identifiers and versions of listed movies.
+   * Conditional request with matching ETag is answered with status NOT_MODIFIED.
    *  
    * @param pageOffset Starting record number.
    * @param pageLimit Maximum number of records returned.
+   * @param searchFor Search string from title.
+   * @param after Opaque cursor of the last movie on previous page.
+   * @param ranked Ranks filtered movies by relevance instead of sorting them.
+   * @param ids Identifiers of requested movies.
    * @return List of movies or or error list with
    *         status BAD_REQUEST with a list of constraint violations or
    *         status INTERNAL_SERVER_ERROR on server error.
@@ -427,7 +849,13 @@ public class RegistrationRestService {
   public Response getPageOfMoviesByTitle(
       @QueryParam("pageOffset") int pageOffset, 
       @QueryParam("pageLimit") int pageLimit,
-      @QueryParam("searchFor") String searchFor) {
+      @QueryParam("searchFor") String searchFor,
+      @QueryParam("after") String after,
+      @QueryParam("ranked") boolean ranked,
+      @QueryParam("ids") List<String> ids,
+      @Context UriInfo uriInfo,
+      @Context Request request,
+      @Context HttpHeaders headers) {
     
     Response.ResponseBuilder builder = null;
     Map<String, String> responseObj = new HashMap<>();
@@ -435,16 +863,59 @@ public class RegistrationRestService {
     List<Movie> movies;
 
     try {  
-      if (searchFor == null) {
-        movies = registration.findPageOfMovies(pageOffset, pageLimit);
+      if (! ids.isEmpty()) {
+        List<String> imdbIds = splitIds(ids);
+        
+        movies = registration.findMoviesByIds(imdbIds);
+        
+        builder = pageResponse(movies, Movie::getImdbId, Movie::getVersion, request, headers);
+        reportMissingIds(builder, imdbIds, movies.stream()
+            .map(Movie::getImdbId)
+            .collect(Collectors.toSet()));
+      } else if (after != null) {
+        String afterTitle = null;
+        String afterImdbId = null;
+        
+        if (!after.isEmpty()) {
+          List<String> keys = PageCursor.decode(after, 2);
+          afterTitle = keys.get(0);
+          afterImdbId = keys.get(1);
+        }
+        
+        if (searchFor == null) {
+          movies = registration.findPageOfMoviesAfter(afterTitle, afterImdbId, pageLimit);
+        } else {
+          movies = registration.findPageOfMoviesByTitleAfter(
+              afterTitle, afterImdbId, pageLimit, searchFor);
+        }
+        
+        builder = pageResponse(movies, Movie::getImdbId, Movie::getVersion, request, headers);
+        
+        if (movies.size() == pageLimit) {
+          Movie last = movies.get(movies.size() - 1);
+          String cursor = PageCursor.encode(last.getTitle(), last.getImdbId());
+          builder.links(Link.fromUriBuilder(
+              uriInfo.getRequestUriBuilder().replaceQueryParam("after", cursor))
+              .rel("next")
+              .build());
+        }
       } else {
-        movies = registration.findPageOfMoviesByTitle(pageOffset, pageLimit, searchFor);        
+        if (searchFor == null) {
+          movies = registration.findPageOfMovies(pageOffset, pageLimit);
+        } else if (ranked) {
+          movies = registration.searchMovies(pageOffset, pageLimit, searchFor);
+        } else {
+          movies = registration.findPageOfMoviesByTitle(pageOffset, pageLimit, searchFor);        
+        }
+        
+        builder = pageResponse(movies, Movie::getImdbId, Movie::getVersion, request, headers);
       }
-
-      builder = Response.ok().entity(movies);
     } catch (EjbConstraintViolationException cve) {
       responseObj = createViolationMap(cve.getConstraintViolations()); 
       builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+    } catch (IllegalArgumentException iae) {
+      responseObj.put("after", iae.getMessage());
+      builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
     } catch (RuntimeException rte) {
       builder = Response
           .status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -455,6 +926,116 @@ public class RegistrationRestService {
     return builder.build();
   }
 
+  /**
+   * Suggests movies or actors for typeahead via
+   * {@link tv.beenius.videostore.service.RegisterService#suggestMovies(String, int)} or
+   * {@link tv.beenius.videostore.service.RegisterService#suggestActors(String, int)}.
+   * 
+   * <p>Suggestions are served from in-memory prefix indexes of word suffixes w/o database access.
+   * A movie is suggested when a word of its title starts with query,
+   * an actor when first or last name starts with query.
+   * 
+   * @param query Prefix typed so far.
+   * @param type Suggested entity type, movie or actor.
+   * @param limit Maximum number of suggestions.
+   * @return List of suggestions (id and text) or error list with
+   *         status BAD_REQUEST with a list of constraint violations or
+   *         status INTERNAL_SERVER_ERROR on server error.
+   */
+  @GET
+  @Path("/suggest") 
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response getSuggestions(
+      @QueryParam("q") String query,
+      @QueryParam("type") @DefaultValue("movie") String type,
+      @QueryParam("limit") @DefaultValue("10") int limit) {
+    
+    Response.ResponseBuilder builder = null;
+    Map<String, String> responseObj = new HashMap<>();
+    
+    try {
+      if ("movie".equals(type)) {
+        builder = Response.ok().entity(registration.suggestMovies(query, limit));
+      } else if ("actor".equals(type)) {
+        builder = Response.ok().entity(registration.suggestActors(query, limit));
+      } else {
+        responseObj.put("type", "Type should be movie or actor.");
+        builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+      }
+    } catch (EjbConstraintViolationException cve) {
+      responseObj = createViolationMap(cve.getConstraintViolations()); 
+      builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+    } catch (RuntimeException rte) {
+      builder = Response
+          .status(Response.Status.INTERNAL_SERVER_ERROR)
+          .entity("For more details dive into server log.");
+      logger.log(Level.ERROR, rte.getLocalizedMessage());
+    }
+    
+    return builder.build();
+  }
+
+  /**
+   * Exports movies with cast actor identifiers as newline delimited JSON via
+   * {@link tv.beenius.videostore.service.ExportService#exportMovies(Instant, OutputStream)}.
+   * 
+   * <p>Movies are streamed from database into response, so that catalogue is never held
+   * in memory. Response is compressed when client accepts gzip encoding.
+   * 
+   * @param since ISO-8601 instant, only movies modified since are exported (optional).
+   * @param headers Request headers.
+   * @return Streamed movies or error list with status BAD_REQUEST on invalid since.
+   */
+  @GET
+  @Path("/export/movies") 
+  @Produces(APPLICATION_NDJSON)
+  public Response exportMovies(
+      @QueryParam("since") String since,
+      @Context HttpHeaders headers) {
+    return exportResponse(since, headers, exportService::exportMovies);
+  }
+
+  /**
+   * Exports actors as newline delimited JSON via
+   * {@link tv.beenius.videostore.service.ExportService#exportActors(Instant, OutputStream)}.
+   * 
+   * <p>Actors are streamed from database into response, so that catalogue is never held
+   * in memory. Response is compressed when client accepts gzip encoding.
+   * 
+   * @param since ISO-8601 instant, only actors modified since are exported (optional).
+   * @param headers Request headers.
+   * @return Streamed actors or error list with status BAD_REQUEST on invalid since.
+   */
+  @GET
+  @Path("/export/actors") 
+  @Produces(APPLICATION_NDJSON)
+  public Response exportActors(
+      @QueryParam("since") String since,
+      @Context HttpHeaders headers) {
+    return exportResponse(since, headers, exportService::exportActors);
+  }
+
+  /**
+   * Streams movie, actor, image and cast changes as Server-Sent Events via
+   * {@link ChangeStreamer}.
+   * 
+   * <p>Event identifier is a sequence, a reconnecting subscriber resumes after
+   * Last-Event-ID. Event named reset tells that changes have been missed.
+   * 
+   * @param lastEventId Last received event identifier.
+   * @param sink Event sink.
+   * @param sse Event builder factory.
+   */
+  @GET
+  @Path("/changes") 
+  @Produces(MediaType.SERVER_SENT_EVENTS)
+  public void streamChanges(
+      @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId,
+      @Context SseEventSink sink,
+      @Context Sse sse) {
+    changeStreamer.subscribe(sink, sse, lastEventId);
+  }
+
   // Update entities by PUT.
   
   /**
@@ -552,7 +1133,8 @@ public class RegistrationRestService {
    * <p>@param imdbId Movie identifier.
    * @param multiPart Image file attributes and content.
    * @return Response contains id and description of a registered image 
-   *         or error list with status BAD_REQUEST or INTERNAL_SERVER_ERROR.
+   *         or error list with status BAD_REQUEST, REQUEST_ENTITY_TOO_LARGE
+   *         or INTERNAL_SERVER_ERROR.
    */
   @PUT
   @Path("/images/{id}") 
@@ -580,6 +1162,9 @@ public class RegistrationRestService {
     } catch (EjbValidationException ve) {
       responseObj.put("Image", ve.getMessage());
       builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+    } catch (ContentTooLargeException ctle) {
+      responseObj.put("Image", ctle.getMessage());
+      builder = Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).entity(responseObj);
     } catch (IOException ioe) {
       responseObj.put("Image", ioe.getMessage());
       builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
@@ -749,6 +1334,297 @@ public class RegistrationRestService {
 
   // Utilities.
   
+  /**
+   * Streams an export into response, compressed when client accepts gzip encoding.
+   * 
+   * @param since ISO-8601 instant or null.
+   * @param headers Request headers.
+   * @param exporter Export writer.
+   * @return Streaming response or error list with status BAD_REQUEST on invalid since.
+   */
+  private Response exportResponse(String since, HttpHeaders headers, Exporter exporter) {
+    
+    Response.ResponseBuilder builder = null;
+    Map<String, String> responseObj = new HashMap<>();
+    
+    try {
+      Instant sinceInstant = since == null ? null : Instant.parse(since);
+      boolean gzip = acceptsGzip(Optional
+          .ofNullable(headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING))
+          .orElse(List.of()));
+      
+      StreamingOutput stream = output -> {
+        try {
+          if (gzip) {
+            GZIPOutputStream gzipOutput = new GZIPOutputStream(output);
+            exporter.export(sinceInstant, gzipOutput);
+            gzipOutput.finish();
+          } else {
+            exporter.export(sinceInstant, output);
+          }
+        } catch (RuntimeException rte) {
+          logger.log(Level.ERROR, rte.getLocalizedMessage());
+          throw rte;
+        }
+      };
+      
+      builder = Response.ok(stream).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+      if (gzip) {
+        builder.encoding(GZIP);
+      }
+    } catch (DateTimeParseException dtpe) {
+      responseObj.put("since", "Since should be an ISO-8601 instant, e.g. 2020-01-01T00:00:00Z.");
+      builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+    }
+    
+    return builder.build();
+  }
+  
+  /**
+   * Evaluates conditional request headers against a revision.
+   * Modification time is evaluated only when If-None-Match header is absent.
+   * 
+   * @param revision Revision of requested representation.
+   * @param request Request.
+   * @param headers Request headers.
+   * @return Builder with status NOT_MODIFIED or null when representation is needed.
+   */
+  private Response.ResponseBuilder evaluatePreconditions(
+      Revision revision, 
+      Request request, 
+      HttpHeaders headers) {
+    
+    EntityTag entityTag = new EntityTag(revision.getTag(), true);
+    
+    if (headers.getHeaderString(HttpHeaders.IF_NONE_MATCH) != null
+        || revision.getLastModified().isEmpty()) {
+      return request.evaluatePreconditions(entityTag);
+    }
+    
+    return request.evaluatePreconditions(Date.from(revision.getLastModified().get()));
+  }
+  
+  /**
+   * Creates content response tagged by content hash.
+   * Clients are asked to revalidate cached content.
+   * 
+   * <p>Range header is evaluated unless If-Range header does not match content hash.
+   * Malformed Range header is ignored, i.e. full content is returned.
+   * 
+   * @param request Request.
+   * @param headers Request headers.
+   * @param contentHash Content hash.
+   * @param mediaType Content media type.
+   * @param contentLength Content length in bytes.
+   * @param writer Content writer, writes only requested windows.
+   * @return Builder with full or partial content, with status NOT_MODIFIED
+   *         or with status REQUESTED_RANGE_NOT_SATISFIABLE.
+   */
+  private Response.ResponseBuilder contentResponse(
+      Request request,
+      HttpHeaders headers,
+      String contentHash,
+      String mediaType,
+      long contentLength,
+      ContentWriter writer) {
+    
+    EntityTag entityTag = new EntityTag(contentHash);
+    CacheControl cacheControl = new CacheControl();
+    cacheControl.setNoCache(true);
+    
+    Response.ResponseBuilder builder = request.evaluatePreconditions(entityTag);
+    if (builder != null) {
+      return builder.tag(entityTag).cacheControl(cacheControl);
+    }
+    
+    String ifRange = headers.getHeaderString(IF_RANGE);
+    Optional<List<ByteRange>> optionalRanges = 
+        ifRange == null || ifRange.trim().equals("\"" + contentHash + "\"")
+            ? ByteRange.parse(headers.getHeaderString(RANGE), contentLength)
+            : Optional.empty();
+    
+    if (optionalRanges.isEmpty()) {
+      StreamingOutput content = output -> writer.write(0, contentLength, output);
+      builder = Response
+          .ok(content, mediaType)
+          .header(HttpHeaders.CONTENT_LENGTH, contentLength);
+    } else if (optionalRanges.get().isEmpty()) {
+      builder = Response
+          .status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+          .header(CONTENT_RANGE, BYTES + " */" + contentLength);
+    } else if (optionalRanges.get().size() == 1) {
+      ByteRange range = optionalRanges.get().get(0);
+      StreamingOutput content = output -> 
+          writer.write(range.getFirst(), range.getLength(), output);
+      builder = Response
+          .status(Response.Status.PARTIAL_CONTENT)
+          .entity(content)
+          .type(mediaType)
+          .header(CONTENT_RANGE, range.toContentRange(contentLength))
+          .header(HttpHeaders.CONTENT_LENGTH, range.getLength());
+    } else {
+      builder = multipartRangesResponse(
+          optionalRanges.get(), mediaType, contentLength, writer);
+    }
+    
+    return builder.header(ACCEPT_RANGES, BYTES).tag(entityTag).cacheControl(cacheControl);
+  }
+  
+  /**
+   * Creates multipart/byteranges response with a part per range.
+   * 
+   * @param ranges Satisfiable ranges.
+   * @param mediaType Content media type.
+   * @param contentLength Content length in bytes.
+   * @param writer Content writer.
+   * @return Builder with status PARTIAL_CONTENT.
+   */
+  private Response.ResponseBuilder multipartRangesResponse(
+      List<ByteRange> ranges,
+      String mediaType,
+      long contentLength,
+      ContentWriter writer) {
+    
+    String boundary = UUID.randomUUID().toString().replace("-", "");
+    
+    List<byte[]> partHeaders = ranges.stream()
+        .map(range -> ("\r\n--" + boundary 
+            + "\r\n" + HttpHeaders.CONTENT_TYPE + ": " + mediaType
+            + "\r\n" + CONTENT_RANGE + ": " + range.toContentRange(contentLength) 
+            + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII))
+        .collect(Collectors.toList());
+    byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+    
+    long length = closing.length;
+    for (int i = 0; i < ranges.size(); i++) {
+      length += partHeaders.get(i).length + ranges.get(i).getLength();
+    }
+    
+    StreamingOutput content = output -> {
+      for (int i = 0; i < ranges.size(); i++) {
+        output.write(partHeaders.get(i));
+        writer.write(ranges.get(i).getFirst(), ranges.get(i).getLength(), output);
+      }
+      output.write(closing);
+    };
+    
+    return Response
+        .status(Response.Status.PARTIAL_CONTENT)
+        .entity(content)
+        .type("multipart/byteranges; boundary=" + boundary)
+        .header(HttpHeaders.CONTENT_LENGTH, length);
+  }
+  
+  private Response.ResponseBuilder tagRevision(
+      Response.ResponseBuilder builder, 
+      Revision revision) {
+    
+    builder.tag(new EntityTag(revision.getTag(), true));
+    revision.getLastModified().ifPresent(lastModified -> 
+        builder.lastModified(Date.from(lastModified)));
+    
+    return builder;
+  }
+  
+  /**
+   * Creates page response tagged by page revision.
+   * Page revision is computed from identifiers and versions of listed entities.
+   * 
+   * @param page Page of entities.
+   * @param idMapper Entity identifier getter.
+   * @param versionMapper Entity version getter.
+   * @param request Request.
+   * @param headers Request headers.
+   * @return Builder with page or with status NOT_MODIFIED.
+   */
+  private <T> Response.ResponseBuilder pageResponse(
+      List<T> page, 
+      Function<T, Object> idMapper, 
+      Function<T, Long> versionMapper, 
+      Request request, 
+      HttpHeaders headers) {
+    
+    Revision revision = Revision.ofList(page.stream()
+        .map(entity -> idMapper.apply(entity) + ":" + versionMapper.apply(entity))
+        .collect(Collectors.toList()));
+    
+    Response.ResponseBuilder builder = evaluatePreconditions(revision, request, headers);
+    if (builder == null) {
+      builder = Response.ok().entity(page);
+    }
+    
+    return tagRevision(builder, revision);
+  }
+  
+  /**
+   * Checks whether gzip content coding is acceptable by Accept-Encoding header, see RFC 7231.
+   * Coding with quality value 0, e.g. {@code gzip;q=0}, is not acceptable. Wildcard applies
+   * when gzip is not listed. Malformed quality value is taken as 0.
+   * 
+   * @param acceptEncodings Accept-Encoding header values.
+   * @return True when gzip is acceptable.
+   */
+  private static boolean acceptsGzip(List<String> acceptEncodings) {
+    
+    Double gzipQuality = null;
+    Double wildcardQuality = null;
+    
+    List<String> elements = acceptEncodings.stream()
+        .flatMap(value -> Arrays.stream(value.split(",")))
+        .collect(Collectors.toList());
+    
+    for (String element : elements) {
+      String[] params = element.split(";");
+      String coding = params[0].trim().toLowerCase(Locale.ROOT);
+      double quality = 1.0;
+      
+      for (int i = 1; i < params.length; i++) {
+        String param = params[i].trim();
+        if (param.regionMatches(true, 0, "q=", 0, 2)) {
+          try {
+            quality = Double.parseDouble(param.substring(2).trim());
+          } catch (NumberFormatException nfe) {
+            quality = 0;
+          }
+        }
+      }
+      
+      if (coding.equals(GZIP) || coding.equals("x-" + GZIP)) {
+        gzipQuality = quality;
+      } else if (coding.equals("*")) {
+        wildcardQuality = quality;
+      }
+    }
+    
+    Double quality = gzipQuality != null ? gzipQuality : wildcardQuality;
+    
+    return quality != null && quality > 0;
+  }
+  
+  private static List<String> splitIds(List<String> ids) {
+    return ids.stream()
+        .flatMap(value -> Arrays.stream(value.split(",")))
+        .map(String::trim)
+        .filter(id -> ! id.isEmpty())
+        .collect(Collectors.toList());
+  }
+  
+  private static <K> void reportMissingIds(
+      Response.ResponseBuilder builder, 
+      List<K> ids, 
+      Set<K> foundIds) {
+    
+    String missingIds = ids.stream()
+        .filter(id -> ! foundIds.contains(id))
+        .distinct()
+        .map(String::valueOf)
+        .collect(Collectors.joining(","));
+    
+    if (! missingIds.isEmpty()) {
+      builder.header(MISSING_IDS, missingIds);
+    }
+  }
+  
   private Map<String, String> createViolationMap(Set<ConstraintViolation<?>> violations) {
     
     Map<String, String> responseObj = new HashMap<>();
@@ -764,7 +1640,6 @@ public class RegistrationRestService {
       throws IOException {
     
     Map<String, List<InputPart>> formDataMap = multiPart.getFormDataMap();
-    ObjectMapper mapper = new ObjectMapper();
     
     // Retrieve Image attributes w/o content.
     
@@ -794,9 +1669,29 @@ public class RegistrationRestService {
       return image;
     }
     
-    image.setContent(imageUtil.getImageFromInputPart(imageInputParts.get(0)));
+    try (InputStream input = imageInputParts.get(0).getBody(InputStream.class, null)) {
+      registration.uploadImageContent(image, input);
+    }
 
     return image;
   }
 
+  /**
+   * Writes a window of content.
+   */
+  @FunctionalInterface
+  private interface ContentWriter {
+    
+    void write(long position, long count, OutputStream output) throws IOException;
+  }
+
+  /**
+   * Writes an export of entities modified since given instant.
+   */
+  @FunctionalInterface
+  private interface Exporter {
+    
+    long export(Instant since, OutputStream output) throws IOException;
+  }
+
 }
@@ -0,0 +1,36 @@
+package tv.beenius.videostore.rest;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+
+import tv.beenius.videostore.tracing.Tracing;
+
+/**
+ * Clears spans of a REST request once it is processed.
+ *
+ * <p>Server span is ended by {@link TracingFilter} only when response pipeline completes.
+ * Exception escaping resource method or entity writing leaves the span bound to the request
+ * thread, so spans still in progress are ended and cleared here, before the thread serves
+ * another request.
+ */
+@WebFilter(urlPatterns = "/rest/*")
+public class TracingCleanupFilter implements Filter {
+
+  @Override
+  public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+      throws IOException, ServletException {
+
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      Tracing.clear();
+    }
+  }
+
+}
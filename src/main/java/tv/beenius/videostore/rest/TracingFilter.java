@@ -0,0 +1,106 @@
+package tv.beenius.videostore.rest;
+
+import java.io.IOException;
+import java.lang.reflect.AnnotatedElement;
+
+import javax.ws.rs.Path;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import tv.beenius.videostore.tracing.Span;
+import tv.beenius.videostore.tracing.Tracing;
+
+/**
+ * Traces REST requests.
+ *
+ * <p>Server span of a request is named by endpoint, e.g.
+ * {@code GET /registration/movies/{imdbId}}, and continues the trace of the caller given
+ * by W3C traceparent header. It covers resource method invocation, response filtering and
+ * writing of response entity, i.e. server span of a response with entity ends after the entity
+ * is written. Writing is traced by a separate child span, so that serialization is told apart
+ * from processing. Spans left in progress by a failed request are ended by
+ * {@link TracingCleanupFilter}.
+ */
+@Provider
+public class TracingFilter
+    implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+  private static final String SPAN_PROPERTY = Span.class.getName();
+
+  @Context
+  ResourceInfo resourceInfo;
+
+  @Override
+  public void filter(ContainerRequestContext requestContext) {
+
+    if (! Tracing.isEnabled()) {
+      return;
+    }
+
+    String endpoint = requestContext.getMethod() + " "
+        + pathOf(resourceInfo.getResourceClass()) + pathOf(resourceInfo.getResourceMethod());
+
+    // Server span is a root or continues remote trace, never a child of a leftover span.
+    Span span = Tracing.start(endpoint,
+        Tracing.parseTraceparent(requestContext.getHeaderString("traceparent")))
+        .setAttribute("http.method", requestContext.getMethod())
+        .setAttribute("http.target", requestContext.getUriInfo().getRequestUri().getRawPath());
+
+    requestContext.setProperty(SPAN_PROPERTY, span);
+  }
+
+  @Override
+  public void filter(ContainerRequestContext requestContext,
+      ContainerResponseContext responseContext) {
+
+    Object span = requestContext.getProperty(SPAN_PROPERTY);
+
+    if (span instanceof Span) {
+      ((Span) span).setAttribute("http.status_code", responseContext.getStatus());
+
+      // Writer interceptor ends server span of a response with entity.
+      if (! responseContext.hasEntity()) {
+        ((Span) span).end();
+      }
+    }
+  }
+
+  @Override
+  public void aroundWriteTo(WriterInterceptorContext context)
+      throws IOException, WebApplicationException {
+
+    Object parent = context.getProperty(SPAN_PROPERTY);
+
+    if (! (parent instanceof Span)) {
+      context.proceed();
+      return;
+    }
+
+    Span span = Tracing.start("serialize " + context.getType().getSimpleName(), (Span) parent)
+        .setAttribute("http.response.content_type", String.valueOf(context.getMediaType()));
+
+    try {
+      context.proceed();
+    } catch (IOException | RuntimeException e) {
+      span.setError(e);
+      throw e;
+    } finally {
+      span.end();
+      ((Span) parent).end();
+    }
+  }
+
+  private static String pathOf(AnnotatedElement element) {
+    Path path = element != null ? element.getAnnotation(Path.class) : null;
+    return path != null ? path.value() : "";
+  }
+
+}
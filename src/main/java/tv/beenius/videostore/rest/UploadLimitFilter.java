@@ -0,0 +1,81 @@
+package tv.beenius.videostore.rest;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+
+import tv.beenius.videostore.exception.ContentTooLargeException;
+
+import tv.beenius.videostore.util.BoundedInputStream;
+import tv.beenius.videostore.util.ImageUtil;
+
+/**
+ * Limits size of multipart uploads before request entity is read.
+ *
+ * <p>Request declaring a larger Content-Length is rejected with status REQUEST_ENTITY_TOO_LARGE
+ * without reading its entity. Request of unknown length, i.e. chunked, fails as soon as
+ * the limit is exceeded while entity is read, also with status REQUEST_ENTITY_TOO_LARGE
+ * rather than as a read error. Limit is maximal upload size plus allowance for multipart
+ * headers and attributes.
+ */
+@Provider
+public class UploadLimitFilter implements ContainerRequestFilter, ReaderInterceptor {
+
+  /** Allowance for multipart boundaries, part headers and image attributes. */
+  private static final long MULTIPART_OVERHEAD = 64 * 1024;
+
+  @Inject
+  ImageUtil imageUtil;
+
+  @Override
+  public void filter(ContainerRequestContext requestContext) {
+
+    if (! MediaType.MULTIPART_FORM_DATA_TYPE.isCompatible(requestContext.getMediaType())) {
+      return;
+    }
+
+    long maxLength = imageUtil.getMaxUploadBytes() + MULTIPART_OVERHEAD;
+
+    if (requestContext.getLength() > maxLength) {
+      requestContext.abortWith(tooLarge("Upload exceeds maximal size of " + maxLength + " bytes."));
+      return;
+    }
+
+    requestContext.setEntityStream(
+        new BoundedInputStream(requestContext.getEntityStream(), maxLength));
+  }
+
+  @Override
+  public Object aroundReadFrom(ReaderInterceptorContext context)
+      throws IOException, WebApplicationException {
+
+    try {
+      return context.proceed();
+    } catch (IOException | RuntimeException e) {
+      // Entity reader may wrap overflow of bounded stream.
+      for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+        if (cause instanceof ContentTooLargeException) {
+          throw new WebApplicationException(cause, tooLarge(cause.getMessage()));
+        }
+      }
+      throw e;
+    }
+  }
+
+  private static Response tooLarge(String message) {
+    return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE)
+        .type(MediaType.APPLICATION_JSON)
+        .entity(Collections.singletonMap("Image", message))
+        .build();
+  }
+
+}
@@ -0,0 +1,242 @@
+package tv.beenius.videostore.search;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.data.ActorRepository;
+import tv.beenius.videostore.event.ActorEvent;
+import tv.beenius.videostore.event.EntityChange;
+import tv.beenius.videostore.event.EntityChangeBatch;
+import tv.beenius.videostore.model.Actor;
+import tv.beenius.videostore.tracing.Traced;
+
+/**
+ * Full-text index of actor names.
+ *
+ * <p>Actors are filtered by first or last name and sorted by last name, first name and id,
+ * the same as database listings. Actors are ranked by name terms.
+ *
+ * <p>Index is built at startup and kept up to date by observing actor events
+ * after the change is committed. Full names are also kept in a prefix index
+ * for typeahead suggestions.
+ */
+@Singleton
+@Startup
+public class ActorSearchIndex {
+
+  private static final int BATCH_SIZE = 1000;
+
+  private static final int NAME_WEIGHT = 1;
+
+  Logger logger = Logger.getLogger(getClass());
+
+  @Inject
+  ActorRepository actorRepo;
+
+  private final TextIndex<Long> index = new TextIndex<>();
+
+  private final PrefixIndex<Long> suggestions = new PrefixIndex<>();
+
+  @PostConstruct
+  private void init() {
+    reindex();
+  }
+
+  /**
+   * Rebuilds index from all registered actors. Actors are read batch by batch.
+   */
+  @Lock(LockType.WRITE)
+  public void reindex() {
+
+    index.clear();
+    suggestions.clear();
+
+    List<Actor> batch = actorRepo.findBatchAfter(null, BATCH_SIZE);
+    while (! batch.isEmpty()) {
+      batch.forEach(this::put);
+      batch = batch.size() < BATCH_SIZE
+          ? List.of()
+          : actorRepo.findBatchAfter(batch.get(batch.size() - 1).getId(), BATCH_SIZE);
+    }
+
+    logger.log(Level.INFO, "Indexed " + index.size() + " actors.");
+  }
+
+  /**
+   * Retrieves ids of actors with first or last name containing search string.
+   *
+   * @param searchFor Search string.
+   * @return List of ids sorted by last and first name.
+   */
+  @Lock(LockType.READ)
+  public List<Long> filter(String searchFor) {
+    return index.filter(searchFor);
+  }
+
+  /**
+   * Retrieves ids of actors with first or last name containing search string
+   * skipping given number of them.
+   *
+   * @param searchFor Search string.
+   * @param offset Number of skipped actors.
+   * @param maxResult Maximum number of ids.
+   * @return List of ids sorted by last and first name.
+   */
+  @Lock(LockType.READ)
+  public List<Long> filter(String searchFor, int offset, int maxResult) {
+    return index.filter(searchFor, offset, maxResult);
+  }
+
+  /**
+   * Retrieves ids of actors with first or last name containing search string
+   * starting right after given actor.
+   *
+   * @param searchFor Search string.
+   * @param afterLastName Last name of the last actor on previous page (may be null).
+   * @param afterFirstName First name of the last actor on previous page.
+   * @param afterId Identifier of the last actor on previous page or null for first page.
+   * @param maxResult Maximum number of ids.
+   * @return List of ids sorted by last and first name.
+   */
+  @Lock(LockType.READ)
+  public List<Long> filterAfter(
+      String searchFor,
+      String afterLastName,
+      String afterFirstName,
+      Long afterId,
+      int maxResult) {
+    return index.filterAfter(
+        searchFor, Arrays.asList(afterLastName, afterFirstName), afterId, maxResult);
+  }
+
+  /**
+   * Counts actors with first or last name containing search string.
+   *
+   * @param searchFor Search string.
+   * @return Number of actors.
+   */
+  @Lock(LockType.READ)
+  public int count(String searchFor) {
+    return index.count(searchFor);
+  }
+
+  /**
+   * Retrieves ids of actors matching all query terms by name.
+   *
+   * @param query Query terms.
+   * @param offset Number of skipped most relevant actors.
+   * @param maxResult Maximum number of ids.
+   * @return List of ids ranked by relevance.
+   */
+  @Lock(LockType.READ)
+  public List<Long> rank(String query, int offset, int maxResult) {
+    return index.rank(query, offset, maxResult);
+  }
+
+  /**
+   * Suggests actors with a word of first or last name starting with prefix.
+   *
+   * @param prefix Prefix.
+   * @param limit Maximum number of suggestions.
+   * @return List of suggestions in lexical order.
+   */
+  @Lock(LockType.READ)
+  public List<Suggestion> suggest(String prefix, int limit) {
+    return suggestions.suggest(prefix, limit).entrySet().stream()
+        .map(entry -> new Suggestion(entry.getKey(), entry.getValue()))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Updates index after actor change is completed.
+   *
+   * @param change Actor change.
+   */
+  @Lock(LockType.WRITE)
+  @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+  @Traced
+  public void onActorChange(
+      @Observes
+      @ActorEvent
+      final EntityChange change) {
+
+    if (change.getEntityType() != Actor.class) {
+      return;
+    }
+
+    Long id = (Long) change.getId();
+    Optional<Actor> optionalActor = change.getOperation() == EntityChange.Operation.REMOVED
+        ? Optional.empty()
+        : actorRepo.findByIdLazily(id);
+
+    if (optionalActor.isPresent()) {
+      put(optionalActor.get());
+    } else {
+      index.remove(id);
+      suggestions.remove(id);
+    }
+  }
+
+  /**
+   * Updates index after a batch of actor changes is completed.
+   * Changed actors are reloaded at once.
+   *
+   * @param changes Actor changes.
+   */
+  @Lock(LockType.WRITE)
+  @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+  @Traced
+  public void onActorChanges(
+      @Observes
+      @ActorEvent
+      final EntityChangeBatch changes) {
+
+    List<Long> ids = changes.getChanges(Actor.class).stream()
+        .map(change -> (Long) change.getId())
+        .collect(Collectors.toList());
+    Set<Long> absentIds = new HashSet<>(ids);
+
+    actorRepo.findByIds(ids).forEach(actor -> {
+      put(actor);
+      absentIds.remove(actor.getId());
+    });
+
+    absentIds.forEach(id -> {
+      index.remove(id);
+      suggestions.remove(id);
+    });
+  }
+
+  private void put(Actor actor) {
+
+    String lastName = actor.getLastName().orElse(null);
+
+    index.put(
+        actor.getId(),
+        Arrays.asList(lastName, actor.getFirstName()),
+        Arrays.asList(actor.getFirstName(), lastName),
+        Arrays.asList(actor.getFirstName(), lastName),
+        Arrays.asList(NAME_WEIGHT, NAME_WEIGHT));
+    suggestions.put(
+        actor.getId(),
+        lastName == null ? actor.getFirstName() : actor.getFirstName() + " " + lastName);
+  }
+
+}
@@ -0,0 +1,240 @@
+package tv.beenius.videostore.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.data.MovieRepository;
+import tv.beenius.videostore.event.EntityChange;
+import tv.beenius.videostore.event.EntityChangeBatch;
+import tv.beenius.videostore.event.MovieEvent;
+import tv.beenius.videostore.model.Movie;
+import tv.beenius.videostore.tracing.Traced;
+
+/**
+ * Full-text index of movie titles and descriptions.
+ *
+ * <p>Movies are filtered by title and sorted by title and imdbId, the same as
+ * database listings. Movies are ranked by title and description terms,
+ * title terms weigh more.
+ *
+ * <p>Index is built at startup and kept up to date by observing movie events
+ * after the change is committed. Titles are also kept in a prefix index
+ * for typeahead suggestions.
+ */
+@Singleton
+@Startup
+public class MovieSearchIndex {
+
+  private static final int BATCH_SIZE = 1000;
+
+  private static final int TITLE_WEIGHT = 3;
+
+  private static final int DESCRIPTION_WEIGHT = 1;
+
+  Logger logger = Logger.getLogger(getClass());
+
+  @Inject
+  MovieRepository movieRepo;
+
+  private final TextIndex<String> index = new TextIndex<>();
+
+  private final PrefixIndex<String> suggestions = new PrefixIndex<>();
+
+  @PostConstruct
+  private void init() {
+    reindex();
+  }
+
+  /**
+   * Rebuilds index from all registered movies. Movies are read batch by batch.
+   */
+  @Lock(LockType.WRITE)
+  public void reindex() {
+
+    index.clear();
+    suggestions.clear();
+
+    List<Movie> batch = movieRepo.findBatchAfter(null, BATCH_SIZE);
+    while (! batch.isEmpty()) {
+      batch.forEach(this::put);
+      batch = batch.size() < BATCH_SIZE
+          ? List.of()
+          : movieRepo.findBatchAfter(batch.get(batch.size() - 1).getImdbId(), BATCH_SIZE);
+    }
+
+    logger.log(Level.INFO, "Indexed " + index.size() + " movies.");
+  }
+
+  /**
+   * Retrieves imdbIds of movies with title containing search string.
+   *
+   * @param searchFor Search string.
+   * @return List of imdbIds sorted by title.
+   */
+  @Lock(LockType.READ)
+  public List<String> filter(String searchFor) {
+    return index.filter(searchFor);
+  }
+
+  /**
+   * Retrieves imdbIds of movies with title containing search string
+   * skipping given number of them.
+   *
+   * @param searchFor Search string.
+   * @param offset Number of skipped movies.
+   * @param maxResult Maximum number of imdbIds.
+   * @return List of imdbIds sorted by title.
+   */
+  @Lock(LockType.READ)
+  public List<String> filter(String searchFor, int offset, int maxResult) {
+    return index.filter(searchFor, offset, maxResult);
+  }
+
+  /**
+   * Retrieves imdbIds of movies with title containing search string
+   * starting right after given movie.
+   *
+   * @param searchFor Search string.
+   * @param afterTitle Title of the last movie on previous page.
+   * @param afterImdbId Identifier of the last movie on previous page or null for first page.
+   * @param maxResult Maximum number of imdbIds.
+   * @return List of imdbIds sorted by title.
+   */
+  @Lock(LockType.READ)
+  public List<String> filterAfter(
+      String searchFor,
+      String afterTitle,
+      String afterImdbId,
+      int maxResult) {
+    return index.filterAfter(
+        searchFor, Collections.singletonList(afterTitle), afterImdbId, maxResult);
+  }
+
+  /**
+   * Counts movies with title containing search string.
+   *
+   * @param searchFor Search string.
+   * @return Number of movies.
+   */
+  @Lock(LockType.READ)
+  public int count(String searchFor) {
+    return index.count(searchFor);
+  }
+
+  /**
+   * Retrieves imdbIds of movies matching all query terms by title or description.
+   *
+   * @param query Query terms.
+   * @param offset Number of skipped most relevant movies.
+   * @param maxResult Maximum number of imdbIds.
+   * @return List of imdbIds ranked by relevance.
+   */
+  @Lock(LockType.READ)
+  public List<String> rank(String query, int offset, int maxResult) {
+    return index.rank(query, offset, maxResult);
+  }
+
+  /**
+   * Suggests movies with a word of title starting with prefix.
+   *
+   * @param prefix Prefix.
+   * @param limit Maximum number of suggestions.
+   * @return List of suggestions in lexical order.
+   */
+  @Lock(LockType.READ)
+  public List<Suggestion> suggest(String prefix, int limit) {
+    return suggestions.suggest(prefix, limit).entrySet().stream()
+        .map(entry -> new Suggestion(entry.getKey(), entry.getValue()))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Updates index after movie change is completed.
+   *
+   * @param change Movie change.
+   */
+  @Lock(LockType.WRITE)
+  @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+  @Traced
+  public void onMovieChange(
+      @Observes
+      @MovieEvent
+      final EntityChange change) {
+
+    if (change.getEntityType() != Movie.class) {
+      return;
+    }
+
+    String imdbId = (String) change.getId();
+    Optional<Movie> optionalMovie = change.getOperation() == EntityChange.Operation.REMOVED
+        ? Optional.empty()
+        : movieRepo.findByIdLazily(imdbId);
+
+    if (optionalMovie.isPresent()) {
+      put(optionalMovie.get());
+    } else {
+      index.remove(imdbId);
+      suggestions.remove(imdbId);
+    }
+  }
+
+  /**
+   * Updates index after a batch of movie changes is completed.
+   * Changed movies are reloaded at once.
+   *
+   * @param changes Movie changes.
+   */
+  @Lock(LockType.WRITE)
+  @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+  @Traced
+  public void onMovieChanges(
+      @Observes
+      @MovieEvent
+      final EntityChangeBatch changes) {
+
+    List<String> imdbIds = changes.getChanges(Movie.class).stream()
+        .map(change -> (String) change.getId())
+        .collect(Collectors.toList());
+    Set<String> absentImdbIds = new HashSet<>(imdbIds);
+
+    movieRepo.findByIds(imdbIds).forEach(movie -> {
+      put(movie);
+      absentImdbIds.remove(movie.getImdbId());
+    });
+
+    absentImdbIds.forEach(imdbId -> {
+      index.remove(imdbId);
+      suggestions.remove(imdbId);
+    });
+  }
+
+  private void put(Movie movie) {
+
+    index.put(
+        movie.getImdbId(),
+        Collections.singletonList(movie.getTitle()),
+        Collections.singletonList(movie.getTitle()),
+        Arrays.asList(movie.getTitle(), movie.getDescription()),
+        Arrays.asList(TITLE_WEIGHT, DESCRIPTION_WEIGHT));
+    suggestions.put(movie.getImdbId(), movie.getTitle());
+  }
+
+}
@@ -0,0 +1,152 @@
+package tv.beenius.videostore.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * In-memory prefix index of short texts intended for typeahead suggestions.
+ *
+ * <p>Each text is indexed from every word start, so that a prefix of any word
+ * suggests the whole text, e.g. "day" suggests "Groundhog Day". Texts are normalized
+ * by {@link TextIndex#normalize(String)}. Word suffixes are kept in a sorted set
+ * as offsets into the normalized text, i.e. a text costs a single string and an entry
+ * per word. Suffixes starting with prefix form a contiguous range, which is located
+ * by a tree lookup. Suggestions are collected in lexical order of word suffixes,
+ * shorter suffixes first, and traversal stops at the limit.
+ *
+ * <p>Index is not thread-safe, concurrency must be provided by the owner.
+ *
+ * @param <K> Text key.
+ */
+public class PrefixIndex<K> {
+
+  private final NavigableSet<Suffix<K>> suffixes = new TreeSet<>();
+
+  private final Map<K, List<Suffix<K>>> suffixesByKey = new HashMap<>();
+
+  private final Map<K, String> texts = new HashMap<>();
+
+  private long sequence;
+
+  /**
+   * Adds or replaces a text.
+   *
+   * @param key Text key.
+   * @param text Suggested text.
+   */
+  public void put(K key, String text) {
+
+    remove(key);
+
+    String normalized = TextIndex.normalize(text);
+    List<Suffix<K>> keySuffixes = new ArrayList<>(1);
+
+    for (int i = 0; i < normalized.length(); i++) {
+      if (Character.isLetterOrDigit(normalized.charAt(i))
+          && (i == 0 || ! Character.isLetterOrDigit(normalized.charAt(i - 1)))) {
+        keySuffixes.add(new Suffix<>(normalized, i, sequence++, key));
+      }
+    }
+
+    suffixes.addAll(keySuffixes);
+    suffixesByKey.put(key, keySuffixes);
+    texts.put(key, text);
+  }
+
+  /**
+   * Removes a text when present.
+   *
+   * @param key Text key.
+   */
+  public void remove(K key) {
+
+    List<Suffix<K>> keySuffixes = suffixesByKey.remove(key);
+
+    if (keySuffixes == null) {
+      return;
+    }
+
+    suffixes.removeAll(keySuffixes);
+    texts.remove(key);
+  }
+
+  /**
+   * Removes all texts.
+   */
+  public void clear() {
+    suffixes.clear();
+    suffixesByKey.clear();
+    texts.clear();
+  }
+
+  /**
+   * Suggests texts with a word starting with prefix.
+   *
+   * @param prefix Prefix.
+   * @param limit Maximum number of suggestions.
+   * @return Suggested texts by key in suggestion order.
+   */
+  public Map<K, String> suggest(String prefix, int limit) {
+
+    Map<K, String> suggestions = new LinkedHashMap<>();
+    String normalized = TextIndex.normalize(prefix);
+
+    // Probe sorts before any suffix starting with prefix.
+    Suffix<K> probe = new Suffix<>(normalized, 0, Long.MIN_VALUE, null);
+
+    for (Suffix<K> suffix : suffixes.tailSet(probe, true)) {
+      if (suggestions.size() >= limit || ! suffix.startsWith(normalized)) {
+        break;
+      }
+      suggestions.putIfAbsent(suffix.key, texts.get(suffix.key));
+    }
+
+    return suggestions;
+  }
+
+  private static final class Suffix<K> implements Comparable<Suffix<K>> {
+
+    private final String text;
+
+    private final int start;
+
+    private final long sequence;
+
+    private final K key;
+
+    private Suffix(String text, int start, long sequence, K key) {
+      this.text = text;
+      this.start = start;
+      this.sequence = sequence;
+      this.key = key;
+    }
+
+    private boolean startsWith(String prefix) {
+      return text.startsWith(prefix, start);
+    }
+
+    @Override
+    public int compareTo(Suffix<K> other) {
+
+      int length = text.length() - start;
+      int otherLength = other.text.length() - other.start;
+
+      for (int i = 0; i < Math.min(length, otherLength); i++) {
+        int diff = text.charAt(start + i) - other.text.charAt(other.start + i);
+        if (diff != 0) {
+          return diff;
+        }
+      }
+
+      return length != otherLength
+          ? Integer.compare(length, otherLength)
+          : Long.compare(sequence, other.sequence);
+    }
+  }
+
+}
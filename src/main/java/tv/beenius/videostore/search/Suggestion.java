@@ -0,0 +1,40 @@
+package tv.beenius.videostore.search;
+
+import java.io.Serializable;
+
+/**
+ * Typeahead suggestion, i.e. identifier of suggested entity and its display text.
+ */
+@SuppressWarnings("serial")
+public class Suggestion implements Serializable {
+
+  private final Serializable id;
+
+  private final String text;
+
+  /**
+   * Suggestion.
+   *
+   * @param id Entity identifier.
+   * @param text Display text.
+   */
+  public Suggestion(Serializable id, String text) {
+    super();
+    this.id = id;
+    this.text = text;
+  }
+
+  public Serializable getId() {
+    return this.id;
+  }
+
+  public String getText() {
+    return this.text;
+  }
+
+  @Override
+  public String toString() {
+    return "Suggestion {id='" + id + "', text='" + text + "'}";
+  }
+
+}
@@ -0,0 +1,467 @@
+package tv.beenius.videostore.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory full-text index of short texts, e.g. movie titles and actor names.
+ *
+ * <p>Documents are filtered by substring match on their filter texts.
+ * Filtering is supported by trigram postings, so that only documents sharing
+ * all trigrams of the search string are verified. Search strings shorter
+ * than a trigram are verified against all documents, their counts are cached until
+ * the index changes.
+ *
+ * <p>Documents are kept sorted by sort key ignoring case and then by key, i.e. in the order
+ * of H2 VARCHAR_IGNORECASE columns, diacritics are not ignored. Filtered documents are
+ * listed by walking the sorted documents from the requested position up to the end
+ * of the page, so that a page is retrieved w/o collecting and sorting all matches.
+ * Only a few candidates of a selective search string are sorted instead.
+ *
+ * <p>Documents are ranked by weighted terms of their search texts. Query terms match
+ * document terms by prefix, exact matches score double. Prefixes are retrieved
+ * by range lookup in sorted term dictionary. Only as many best documents as requested
+ * are kept while ranking.
+ *
+ * <p>Texts are normalized to lower case w/o diacritics.
+ * Index is not thread-safe, concurrency must be provided by the owner. Reads do not
+ * modify the index apart from the concurrent count cache, so they may run concurrently.
+ *
+ * @param <K> Document key.
+ */
+public class TextIndex<K extends Comparable<K>> {
+
+  private static final int GRAM_LENGTH = 3;
+
+  private static final int EXACT_TERM_FACTOR = 2;
+
+  /** Candidates are sorted when fewer than this fraction of documents, otherwise walked. */
+  private static final int SORTED_CANDIDATES_RATIO = 8;
+
+  /** Maximal number of cached counts of short search strings. */
+  private static final int MAX_CACHED_COUNTS = 4096;
+
+  private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+  private static final Pattern TERM_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  private final Map<K, Document<K>> documents = new HashMap<>();
+
+  private final NavigableSet<Document<K>> sortedDocuments = new TreeSet<>();
+
+  private final Map<String, Set<K>> grams = new HashMap<>();
+
+  private final NavigableMap<String, Map<K, Integer>> terms = new TreeMap<>();
+
+  private final Map<String, Integer> shortQueryCounts = new ConcurrentHashMap<>();
+
+  /**
+   * Adds or replaces a document.
+   *
+   * @param key Document key.
+   * @param sortKey Values documents are sorted by, in order of significance.
+   * @param filterTexts Texts matched by substring filter.
+   * @param searchTexts Texts matched by ranked search, possibly equal.
+   * @param searchWeights Weights of search texts in the same order.
+   */
+  public void put(
+      K key,
+      List<String> sortKey,
+      List<String> filterTexts,
+      List<String> searchTexts,
+      List<Integer> searchWeights) {
+
+    if (searchTexts.size() != searchWeights.size()) {
+      throw new IllegalArgumentException("Each search text should have a weight.");
+    }
+
+    remove(key);
+    shortQueryCounts.clear();
+
+    Document<K> document = new Document<>(
+        key,
+        new ArrayList<>(sortKey),
+        filterTexts.stream().map(TextIndex::normalize).collect(Collectors.toList()));
+
+    for (int i = 0; i < searchTexts.size(); i++) {
+      int weight = searchWeights.get(i);
+      tokenize(searchTexts.get(i))
+          .forEach(term -> document.terms.merge(term, weight, Math::max));
+    }
+
+    documents.put(key, document);
+    sortedDocuments.add(document);
+    document.filterTexts.forEach(text -> toGrams(text)
+        .forEach(gram -> grams.computeIfAbsent(gram, g -> new HashSet<>()).add(key)));
+    document.terms.forEach((term, weight) ->
+        terms.computeIfAbsent(term, t -> new HashMap<>()).put(key, weight));
+  }
+
+  /**
+   * Removes a document when present.
+   *
+   * @param key Document key.
+   */
+  public void remove(K key) {
+
+    Document<K> document = documents.remove(key);
+
+    if (document == null) {
+      return;
+    }
+
+    shortQueryCounts.clear();
+    sortedDocuments.remove(document);
+    document.filterTexts.forEach(text -> toGrams(text).forEach(gram -> {
+      Set<K> posting = grams.get(gram);
+      if (posting != null && posting.remove(key) && posting.isEmpty()) {
+        grams.remove(gram);
+      }
+    }));
+    document.terms.keySet().forEach(term -> {
+      Map<K, Integer> posting = terms.get(term);
+      if (posting != null && posting.remove(key) != null && posting.isEmpty()) {
+        terms.remove(term);
+      }
+    });
+  }
+
+  /**
+   * Removes all documents.
+   */
+  public void clear() {
+    documents.clear();
+    sortedDocuments.clear();
+    grams.clear();
+    terms.clear();
+    shortQueryCounts.clear();
+  }
+
+  public int size() {
+    return documents.size();
+  }
+
+  /**
+   * Retrieves sorted keys of documents with filter text containing search string.
+   *
+   * @param searchFor Search string.
+   * @return Sorted list of keys.
+   */
+  public List<K> filter(String searchFor) {
+    return filter(searchFor, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Retrieves a page of sorted keys of documents with filter text containing search string
+   * (offset pagination). Matches are verified up to the end of the page only.
+   *
+   * @param searchFor Search string.
+   * @param offset Number of matching documents skipped.
+   * @param maxResult Maximum number of keys.
+   * @return Sorted list of keys.
+   */
+  public List<K> filter(String searchFor, int offset, int maxResult) {
+    return matching(normalize(searchFor), null)
+        .skip(offset)
+        .limit(maxResult)
+        .map(document -> document.key)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Retrieves sorted keys of documents with filter text containing search string
+   * starting right after given document sort key (keyset pagination).
+   *
+   * @param searchFor Search string.
+   * @param afterSortKey Sort key of the last document on previous page.
+   * @param afterKey Key of the last document on previous page or null for first page.
+   * @param maxResult Maximum number of keys.
+   * @return Sorted list of keys.
+   */
+  public List<K> filterAfter(
+      String searchFor,
+      List<String> afterSortKey,
+      K afterKey,
+      int maxResult) {
+
+    Document<K> after = afterKey == null
+        ? null
+        : new Document<>(afterKey, afterSortKey, List.of());
+
+    return matching(normalize(searchFor), after)
+        .limit(maxResult)
+        .map(document -> document.key)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Counts documents with filter text containing search string.
+   *
+   * @param searchFor Search string.
+   * @return Number of documents.
+   */
+  public int count(String searchFor) {
+
+    String query = normalize(searchFor);
+    Set<K> candidates = findCandidates(query);
+
+    if (candidates != null) {
+      return (int) candidates.stream()
+          .map(documents::get)
+          .filter(document -> document.matches(query))
+          .count();
+    }
+
+    Integer cachedCount = shortQueryCounts.get(query);
+
+    if (cachedCount != null) {
+      return cachedCount;
+    }
+
+    int count = (int) documents.values().stream()
+        .filter(document -> document.matches(query))
+        .count();
+
+    if (shortQueryCounts.size() < MAX_CACHED_COUNTS) {
+      shortQueryCounts.put(query, count);
+    }
+
+    return count;
+  }
+
+  /**
+   * Retrieves a page of keys of documents matching all query terms ranked by relevance.
+   * Equally relevant documents are sorted by sort key. Only documents up to the end
+   * of the page are kept and sorted.
+   *
+   * @param query Query terms.
+   * @param offset Number of the most relevant documents skipped.
+   * @param maxResult Maximum number of keys.
+   * @return Ranked list of keys.
+   */
+  public List<K> rank(String query, int offset, int maxResult) {
+
+    Map<K, Integer> scores = null;
+
+    for (String queryTerm : tokenize(query)) {
+      Map<K, Integer> termScores = new HashMap<>();
+
+      terms.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false)
+          .forEach((term, posting) -> {
+            int factor = term.equals(queryTerm) ? EXACT_TERM_FACTOR : 1;
+            posting.forEach((key, weight) -> termScores.merge(key, factor * weight, Math::max));
+          });
+
+      if (scores == null) {
+        scores = termScores;
+      } else {
+        scores.keySet().retainAll(termScores.keySet());
+        scores.replaceAll((key, score) -> score + termScores.get(key));
+      }
+    }
+
+    if (scores == null) {
+      return List.of();
+    }
+
+    final Map<K, Integer> rankedScores = scores;
+    Comparator<Document<K>> ranking = Comparator
+        .comparing((Document<K> document) -> rankedScores.get(document.key))
+        .reversed()
+        .thenComparing(Comparator.naturalOrder());
+
+    long pageEnd = Math.min((long) offset + maxResult, rankedScores.size());
+
+    if (offset >= pageEnd) {
+      return List.of();
+    }
+
+    // Bounded heap of the best documents with the worst of them on top.
+    PriorityQueue<Document<K>> best = new PriorityQueue<>(ranking.reversed());
+
+    for (K key : rankedScores.keySet()) {
+      Document<K> document = documents.get(key);
+      if (best.size() < pageEnd) {
+        best.add(document);
+      } else if (ranking.compare(document, best.peek()) < 0) {
+        best.poll();
+        best.add(document);
+      }
+    }
+
+    return best.stream()
+        .sorted(ranking)
+        .skip(offset)
+        .map(document -> document.key)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Normalizes text to lower case w/o diacritics.
+   *
+   * @param text Text or null.
+   * @return Normalized text or null.
+   */
+  public static String normalize(String text) {
+
+    if (text == null) {
+      return null;
+    }
+
+    return DIACRITICS
+        .matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+        .replaceAll("")
+        .toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Splits normalized text into distinct terms.
+   *
+   * @param text Text.
+   * @return Terms in order of appearance.
+   */
+  public static Set<String> tokenize(String text) {
+
+    if (text == null) {
+      return Set.of();
+    }
+
+    return Arrays.stream(TERM_SEPARATOR.split(normalize(text)))
+        .filter(term -> ! term.isEmpty())
+        .collect(Collectors.toCollection(LinkedHashSet::new));
+  }
+
+  /**
+   * Streams sorted documents with filter text containing normalized search string.
+   * Documents are verified lazily, i.e. only as far as the stream is consumed.
+   *
+   * @param query Normalized search string.
+   * @param after Document preceding the first streamed document or null.
+   * @return Sorted matching documents.
+   */
+  private Stream<Document<K>> matching(String query, Document<K> after) {
+
+    Set<K> candidates = findCandidates(query);
+    Stream<Document<K>> ordered;
+
+    if (candidates != null
+        && candidates.size() < sortedDocuments.size() / SORTED_CANDIDATES_RATIO) {
+      ordered = candidates.stream()
+          .map(documents::get)
+          .filter(document -> after == null || document.compareTo(after) > 0)
+          .sorted();
+    } else {
+      ordered = (after == null ? sortedDocuments : sortedDocuments.tailSet(after, false))
+          .stream()
+          .filter(document -> candidates == null || candidates.contains(document.key));
+    }
+
+    return ordered.filter(document -> document.matches(query));
+  }
+
+  /**
+   * Finds keys of documents sharing all trigrams of normalized search string.
+   *
+   * @param query Normalized search string.
+   * @return Candidate keys to be verified or null when all documents are candidates.
+   */
+  private Set<K> findCandidates(String query) {
+
+    if (query.length() < GRAM_LENGTH) {
+      return null;
+    }
+
+    List<Set<K>> postings = new ArrayList<>();
+
+    for (String gram : toGrams(query)) {
+      Set<K> posting = grams.get(gram);
+      if (posting == null) {
+        return new HashSet<>();
+      }
+      postings.add(posting);
+    }
+
+    // Intersect starting with the shortest posting.
+    postings.sort(Comparator.comparingInt(Set::size));
+    Set<K> keys = new HashSet<>(postings.get(0));
+    for (int i = 1; i < postings.size() && ! keys.isEmpty(); i++) {
+      keys.retainAll(postings.get(i));
+    }
+
+    return keys;
+  }
+
+  private static Set<String> toGrams(String text) {
+
+    Set<String> textGrams = new HashSet<>();
+
+    if (text != null) {
+      for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+        textGrams.add(text.substring(i, i + GRAM_LENGTH));
+      }
+    }
+
+    return textGrams;
+  }
+
+  /**
+   * Indexed document sorted by sort key ignoring case and key.
+   * Null sort values are sorted first.
+   */
+  private static final class Document<K extends Comparable<K>>
+      implements Comparable<Document<K>> {
+
+    private static final Comparator<String> SORT_VALUE_ORDER =
+        Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+
+    private final K key;
+
+    private final List<String> sortKey;
+
+    private final List<String> filterTexts;
+
+    private final Map<String, Integer> terms = new HashMap<>();
+
+    private Document(K key, List<String> sortKey, List<String> filterTexts) {
+      this.key = key;
+      this.sortKey = sortKey;
+      this.filterTexts = filterTexts;
+    }
+
+    private boolean matches(String query) {
+      return filterTexts.stream().anyMatch(text -> text != null && text.contains(query));
+    }
+
+    @Override
+    public int compareTo(Document<K> other) {
+
+      for (int i = 0; i < sortKey.size(); i++) {
+        int result = SORT_VALUE_ORDER.compare(sortKey.get(i), other.sortKey.get(i));
+        if (result != 0) {
+          return result;
+        }
+      }
+
+      return key.compareTo(other.key);
+    }
+  }
+
+}
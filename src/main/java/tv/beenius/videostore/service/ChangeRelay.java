@@ -0,0 +1,202 @@
+package tv.beenius.videostore.service;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJBException;
+import javax.ejb.Schedule;
+import javax.ejb.SessionContext;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.data.OutboxRepository;
+import tv.beenius.videostore.event.ActorEvent;
+import tv.beenius.videostore.event.EntityChange;
+import tv.beenius.videostore.event.EntityChangeBatch;
+import tv.beenius.videostore.event.MovieEvent;
+import tv.beenius.videostore.model.OutboxEvent;
+import tv.beenius.videostore.model.OutboxEvent.Channel;
+import tv.beenius.videostore.tracing.Traced;
+
+/**
+ * Publishes recorded outbox events to CDI observers of movie and actor changes.
+ *
+ * <p>Outbox is relayed by a managed executor thread once a recording transaction succeeds,
+ * so that the writer neither waits for relay nor for observers. Triggers arriving while
+ * relay is pending are coalesced. Outbox is also relayed periodically, so that events left
+ * over by a failed relay or server stop are published too. Relays do not overlap.
+ *
+ * <p>Events are published in recording order, by batches, each in its own transaction.
+ * Observers are notified synchronously within that transaction and events are removed
+ * only after all of them succeeded. Failing observer rolls back the batch, which is then
+ * published again by the next relay, i.e. observers see each event at least once.
+ * Consecutive events of a channel are published as {@link EntityChangeBatch}, single event
+ * as {@link EntityChange}.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ChangeRelay {
+
+  private static final int BATCH_SIZE = 500;
+
+  Logger logger = Logger.getLogger(getClass());
+
+  @Resource
+  SessionContext sessionContext;
+
+  @Resource
+  ManagedExecutorService executor;
+
+  @Inject
+  OutboxRepository outboxRepo;
+
+  @Inject
+  @ActorEvent
+  private Event<EntityChange> actorChangeSrc;
+
+  @Inject
+  @MovieEvent
+  private Event<EntityChange> movieChangeSrc;
+
+  @Inject
+  @ActorEvent
+  private Event<EntityChangeBatch> actorChangesSrc;
+
+  @Inject
+  @MovieEvent
+  private Event<EntityChangeBatch> movieChangesSrc;
+
+  private final ReentrantLock relayLock = new ReentrantLock();
+
+  private final AtomicBoolean triggered = new AtomicBoolean();
+
+  /**
+   * Triggers relay after recording transaction succeeded. Relay is run by executor,
+   * trigger is ignored when relay has already been triggered and has not started yet.
+   *
+   * @param recorded Recorded outbox event.
+   */
+  @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+  @Traced
+  public void onRecorded(
+      @Observes(during = TransactionPhase.AFTER_SUCCESS)
+      final OutboxEvent recorded) {
+
+    if (! triggered.compareAndSet(false, true)) {
+      return;
+    }
+
+    ChangeRelay relay = sessionContext.getBusinessObject(ChangeRelay.class);
+
+    try {
+      executor.execute(() -> {
+        triggered.set(false);
+        relay.relay();
+      });
+    } catch (RejectedExecutionException ree) {
+      triggered.set(false);
+      logger.log(Level.WARN, "Relay is rejected, outbox is relayed periodically.");
+    }
+  }
+
+  /**
+   * Relays events left over in outbox.
+   */
+  @Schedule(hour = "*", minute = "*", second = "*/30", persistent = false)
+  @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+  public void relayPending() {
+
+    int published = relay();
+
+    if (published > 0) {
+      logger.log(Level.INFO, "Relayed " + published + " left over outbox events.");
+    }
+  }
+
+  /**
+   * Publishes all pending outbox events, waits for relay in progress.
+   *
+   * @return Number of published events.
+   */
+  @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+  public int relay() {
+
+    ChangeRelay relay = sessionContext.getBusinessObject(ChangeRelay.class);
+    int published = 0;
+
+    relayLock.lock();
+    try {
+      int relayed;
+      do {
+        relayed = relay.relayBatch();
+        published += relayed;
+      } while (relayed == BATCH_SIZE);
+    } catch (EJBException ejbe) {
+      logger.log(Level.WARN, "Relay failed, events are kept in outbox: "
+          + ejbe.getLocalizedMessage());
+    } finally {
+      relayLock.unlock();
+    }
+
+    return published;
+  }
+
+  /**
+   * Publishes the oldest batch of pending outbox events and removes them.
+   * Intended to be called by {@link #relay()} only, which serializes relays.
+   *
+   * @return Number of published events.
+   */
+  @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+  public int relayBatch() {
+
+    List<OutboxEvent> events = outboxRepo.findPending(BATCH_SIZE);
+
+    publish(events);
+    outboxRepo.removeAll(events);
+
+    return events.size();
+  }
+
+  private void publish(List<OutboxEvent> events) {
+
+    int start = 0;
+
+    for (int i = 1; i <= events.size(); i++) {
+      if (i == events.size() || events.get(i).getChannel() != events.get(start).getChannel()) {
+        publish(events.get(start).getChannel(), events.subList(start, i).stream()
+            .map(OutboxEvent::toEntityChange)
+            .collect(Collectors.toList()));
+        start = i;
+      }
+    }
+  }
+
+  private void publish(Channel channel, List<EntityChange> changes) {
+
+    if (changes.size() == 1) {
+      (channel == Channel.MOVIE ? movieChangeSrc : actorChangeSrc).fire(changes.get(0));
+    } else {
+      (channel == Channel.MOVIE ? movieChangesSrc : actorChangesSrc)
+          .fire(new EntityChangeBatch(changes));
+    }
+  }
+
+}
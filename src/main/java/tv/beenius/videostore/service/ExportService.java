@@ -0,0 +1,118 @@
+package tv.beenius.videostore.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.data.ActorRepository;
+import tv.beenius.videostore.data.MovieRepository;
+import tv.beenius.videostore.model.Actor;
+import tv.beenius.videostore.model.Movie;
+
+/**
+ * Exports movies and actors as newline delimited JSON, i.e. a JSON object per line.
+ *
+ * <p>Entities are streamed from database cursor straight into output, so heap use
+ * is constant regardless of catalogue size. Export is read in a single transaction.
+ * Incremental export selects entities modified since given instant, e.g. since start
+ * of previous export.
+ */
+@Stateless
+public class ExportService {
+
+  private static final JsonFactory JSON = new JsonFactory()
+      .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+      .setRootValueSeparator(null);
+
+  Logger logger = Logger.getLogger(getClass());
+
+  @Inject
+  ActorRepository actorRepo;
+
+  @Inject
+  MovieRepository movieRepo;
+
+  /**
+   * Writes movies with cast actor identifiers ordered by imdbId.
+   *
+   * @param since Minimal last modification instant or null for all movies.
+   * @param output Output stream, left open.
+   * @return Number of written movies.
+   * @throws IOException on write error.
+   */
+  public long exportMovies(Instant since, OutputStream output) throws IOException {
+
+    long count = 0;
+
+    try (Stream<Movie> movies = movieRepo.streamAll(since);
+        JsonGenerator generator = JSON.createGenerator(output)) {
+
+      for (Iterator<Movie> iterator = movies.iterator(); iterator.hasNext(); count++) {
+        Movie movie = iterator.next();
+
+        generator.writeStartObject();
+        generator.writeStringField("imdbId", movie.getImdbId());
+        generator.writeStringField("title", movie.getTitle());
+        generator.writeNumberField("year", movie.getYear());
+        generator.writeStringField("description", movie.getDescription());
+        generator.writeNumberField("version", movie.getVersion());
+        generator.writeArrayFieldStart("actorIds");
+        for (Actor actor : movie.getActors()) {
+          generator.writeNumber(actor.getId());
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+      }
+    }
+
+    logger.log(Level.INFO, "Exported " + count + " movies modified since " + since + ".");
+
+    return count;
+  }
+
+  /**
+   * Writes actors ordered by identifier.
+   *
+   * @param since Minimal last modification instant or null for all actors.
+   * @param output Output stream, left open.
+   * @return Number of written actors.
+   * @throws IOException on write error.
+   */
+  public long exportActors(Instant since, OutputStream output) throws IOException {
+
+    long count = 0;
+
+    try (Stream<Actor> actors = actorRepo.streamAll(since);
+        JsonGenerator generator = JSON.createGenerator(output)) {
+
+      for (Iterator<Actor> iterator = actors.iterator(); iterator.hasNext(); count++) {
+        Actor actor = iterator.next();
+
+        generator.writeStartObject();
+        generator.writeNumberField("id", actor.getId());
+        generator.writeStringField("firstName", actor.getFirstName());
+        generator.writeStringField("lastName", actor.getLastName().orElse(null));
+        generator.writeStringField("bornDate", actor.getBornDate().toString());
+        generator.writeNumberField("version", actor.getVersion());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+      }
+    }
+
+    logger.log(Level.INFO, "Exported " + count + " actors modified since " + since + ".");
+
+    return count;
+  }
+
+}
@@ -0,0 +1,175 @@
+package tv.beenius.videostore.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.validation.Validator;
+
+import tv.beenius.videostore.data.ActorRepository;
+import tv.beenius.videostore.data.MovieRepository;
+import tv.beenius.videostore.event.ChangeOutbox;
+import tv.beenius.videostore.event.EntityChange;
+import tv.beenius.videostore.event.EntityChange.Operation;
+import tv.beenius.videostore.model.Actor;
+import tv.beenius.videostore.model.Movie;
+import tv.beenius.videostore.model.OutboxEvent.Channel;
+import tv.beenius.videostore.service.ImportReport.Failure;
+
+/**
+ * Validates and saves a single batch of imported movies in its own transaction.
+ * Used by {@link ImportService}.
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+public class ImportBatchWriter {
+
+  @Inject
+  ActorRepository actorRepo;
+
+  @Inject
+  MovieRepository movieRepo;
+
+  @Inject
+  private Validator validator;
+
+  @Inject
+  ChangeOutbox changeOutbox;
+
+  /**
+   * Validates and saves a batch of movies with cast.
+   *
+   * <p>Invalid records are skipped and reported, the rest of batch is saved.
+   * Movie should not have been registered. Cast actor with identifier should have been
+   * registered and is linked to movie, cast actor w/o identifier is registered.
+   * Existence is checked by key-only queries for the whole batch, versions of linked actors
+   * are retrieved together with their keys. Linked actors are marked modified by a single
+   * bulk update, so that their versions, i.e. entity tags, change as on cast registration.
+   * Changes are recorded into outbox and published as a movie and an actor batch.
+   *
+   * @param records Movies by record number.
+   * @return Failures of skipped records.
+   */
+  public List<Failure> write(Map<Integer, Movie> records) {
+
+    List<Failure> failures = new ArrayList<>();
+    Map<Integer, Movie> validRecords = new LinkedHashMap<>();
+    Set<String> imdbIds = new HashSet<>();
+
+    // Validate attributes and uniqueness within batch.
+
+    records.forEach((record, movie) -> {
+      Map<String, String> errors = validate(movie);
+
+      if (errors.isEmpty() && ! imdbIds.add(movie.getImdbId())) {
+        errors.put("imdbId", movie.getImdbId() + " is repeated in import.");
+      }
+
+      if (errors.isEmpty()) {
+        validRecords.put(record, movie);
+      } else {
+        failures.add(new Failure(record, movie == null ? null : movie.getImdbId(), errors));
+      }
+    });
+
+    // Validate persistence.
+
+    Set<String> existingImdbIds = movieRepo.findExistingIds(imdbIds);
+    Map<Long, Long> existingActorVersions = actorRepo.findVersionsByIds(validRecords.values()
+        .stream()
+        .flatMap(movie -> movie.getActors().stream())
+        .map(Actor::getId)
+        .filter(id -> id != null)
+        .collect(Collectors.toSet()));
+
+    List<Movie> movies = new ArrayList<>();
+
+    validRecords.forEach((record, movie) -> {
+      Map<String, String> errors = new TreeMap<>();
+
+      if (existingImdbIds.contains(movie.getImdbId())) {
+        errors.put("imdbId", movie.getImdbId() + " is already registered.");
+      }
+
+      movie.getActors().stream()
+          .map(Actor::getId)
+          .filter(id -> id != null && ! existingActorVersions.containsKey(id))
+          .forEach(id -> errors.put("actors", id + " has not been registered."));
+
+      if (errors.isEmpty()) {
+        movies.add(movie);
+      } else {
+        failures.add(new Failure(record, movie.getImdbId(), errors));
+      }
+    });
+
+    movieRepo.saveAll(movies);
+
+    actorRepo.markModifiedByIds(movies.stream()
+        .flatMap(movie -> movie.getActors().stream())
+        .map(Actor::getId)
+        .filter(existingActorVersions::containsKey)
+        .collect(Collectors.toSet()));
+
+    recordChanges(movies, existingActorVersions);
+
+    return failures;
+  }
+
+  private Map<String, String> validate(Movie movie) {
+
+    Map<String, String> errors = new TreeMap<>();
+
+    if (movie == null) {
+      errors.put("Movie", "Entity should not be null.");
+      return errors;
+    }
+
+    validator.validate(movie).forEach(violation ->
+        errors.put(violation.getPropertyPath().toString(), violation.getMessage()));
+
+    // Actors w/o identifier are registered together with movie.
+    movie.getActors().stream()
+        .filter(actor -> actor.getId() == null)
+        .flatMap(actor -> validator.validate(actor).stream())
+        .forEach(violation ->
+            errors.put("actors." + violation.getPropertyPath(), violation.getMessage()));
+
+    return errors;
+  }
+
+  private void recordChanges(List<Movie> movies, Map<Long, Long> linkedActorVersions) {
+
+    if (movies.isEmpty()) {
+      return;
+    }
+
+    List<EntityChange> movieChanges = movies.stream()
+        .map(movie -> new EntityChange(
+            Movie.class, movie.getImdbId(), Operation.CREATED, movie.getVersion()))
+        .collect(Collectors.toList());
+
+    // Versions of linked actors have been incremented by bulk update.
+    Map<Long, EntityChange> actorChanges = new LinkedHashMap<>();
+    movies.forEach(movie -> movie.getActors().forEach(actor -> actorChanges.putIfAbsent(
+        actor.getId(),
+        linkedActorVersions.containsKey(actor.getId())
+            ? new EntityChange(Actor.class, actor.getId(), Operation.UPDATED,
+                linkedActorVersions.get(actor.getId()) + 1)
+            : new EntityChange(
+                Actor.class, actor.getId(), Operation.CREATED, actor.getVersion()))));
+
+    changeOutbox.record(Channel.MOVIE, movieChanges);
+    changeOutbox.record(Channel.ACTOR, new ArrayList<>(actorChanges.values()));
+  }
+
+}
@@ -0,0 +1,110 @@
+package tv.beenius.videostore.service;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk import.
+ *
+ * <p>Records are numbered from 1 in order of appearance in imported stream.
+ * Each failed record is reported with its own errors, other records are imported.
+ */
+@SuppressWarnings("serial")
+public class ImportReport implements Serializable {
+
+  private int received;
+
+  private int imported;
+
+  private int batches;
+
+  private long elapsedMillis;
+
+  private final List<Failure> failures = new ArrayList<>();
+
+  public int getReceived() {
+    return this.received;
+  }
+
+  public int getImported() {
+    return this.imported;
+  }
+
+  public int getBatches() {
+    return this.batches;
+  }
+
+  public long getElapsedMillis() {
+    return this.elapsedMillis;
+  }
+
+  public List<Failure> getFailures() {
+    return this.failures;
+  }
+
+  void addReceived(int count) {
+    this.received += count;
+  }
+
+  void addImported(int count) {
+    this.imported += count;
+  }
+
+  void addBatch() {
+    this.batches++;
+  }
+
+  void setElapsedMillis(long elapsedMillis) {
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  void addFailure(Failure failure) {
+    this.failures.add(failure);
+  }
+
+  /**
+   * Failed record together with errors by property.
+   */
+  public static class Failure implements Serializable {
+
+    private final int record;
+
+    private final String id;
+
+    private final Map<String, String> errors;
+
+    /**
+     * Failed record.
+     *
+     * @param record Record number.
+     * @param id Record identifier or null when unknown.
+     * @param errors Error messages by property.
+     */
+    public Failure(int record, String id, Map<String, String> errors) {
+      super();
+      this.record = record;
+      this.id = id;
+      this.errors = errors;
+    }
+
+    public int getRecord() {
+      return this.record;
+    }
+
+    public String getId() {
+      return this.id;
+    }
+
+    public Map<String, String> getErrors() {
+      return this.errors;
+    }
+
+    @Override
+    public String toString() {
+      return "Failure {record='" + record + "', id='" + id + "', errors='" + errors + "'}";
+    }
+  }
+
+}
@@ -0,0 +1,163 @@
+package tv.beenius.videostore.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.ejb.EJBException;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.model.Movie;
+import tv.beenius.videostore.service.ImportReport.Failure;
+
+/**
+ * Imports movies with cast in bulk.
+ *
+ * <p>Records are streamed, i.e. only a single batch is held in memory. Each batch is validated
+ * and saved in its own transaction by {@link ImportBatchWriter}, so a failing batch does not
+ * affect other batches. Import itself is not transactional.
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class ImportService {
+
+  /** Number of records validated and saved in a single transaction. */
+  static final int BATCH_SIZE = 500;
+
+  Logger logger = Logger.getLogger(getClass());
+
+  @Inject
+  ImportBatchWriter writer;
+
+  @Inject
+  ObjectMapper mapper;
+
+  /**
+   * Imports movies with cast from a JSON array or from a sequence of JSON objects,
+   * e.g. newline delimited JSON.
+   *
+   * <p>Movie records are read one by one and imported batch by batch. When a batch fails
+   * on save, its records are retried one by one, so that only failing records are skipped.
+   * A record not matching movie attributes is skipped. Malformed JSON stops the import,
+   * records read so far are imported. Skipped records are reported together with errors.
+   *
+   * @param input JSON stream.
+   * @return Import report.
+   * @throws IOException on stream read error.
+   */
+  public ImportReport importMovies(InputStream input) throws IOException {
+
+    long start = System.nanoTime();
+    ImportReport report = new ImportReport();
+    Map<Integer, JsonNode> batch = new LinkedHashMap<>();
+    int record = 0;
+
+    try (JsonParser parser = mapper.getFactory().createParser(input)) {
+      JsonToken token = parser.nextToken();
+      if (token == JsonToken.START_ARRAY) {
+        token = parser.nextToken();
+      }
+
+      while (token != null && token != JsonToken.END_ARRAY) {
+        JsonNode node = mapper.readTree(parser);
+        batch.put(++record, node);
+
+        if (batch.size() == BATCH_SIZE) {
+          write(batch, report);
+          batch.clear();
+        }
+
+        token = parser.nextToken();
+      }
+    } catch (JsonProcessingException jpe) {
+      report.addFailure(new Failure(
+          ++record, null, Collections.singletonMap("JSON", jpe.getOriginalMessage())));
+    }
+
+    write(batch, report);
+
+    report.addReceived(record);
+    report.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+    logger.log(Level.INFO, "Imported " + report.getImported() + " of " + report.getReceived()
+        + " movies in " + report.getElapsedMillis() + " ms.");
+
+    return report;
+  }
+
+  private void write(Map<Integer, JsonNode> batch, ImportReport report) {
+
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    report.addBatch();
+
+    List<Failure> failures = new ArrayList<>();
+    Map<Integer, Movie> records = toMovies(batch, failures);
+
+    try {
+      failures.addAll(writer.write(records));
+    } catch (EJBException ee) {
+      logger.log(Level.WARN, "Batch of records " + batch.keySet().iterator().next()
+          + "+ failed, retrying record by record: " + ee.getLocalizedMessage());
+
+      // Saved entities may have been modified, so records are mapped once again.
+      failures.clear();
+      records = toMovies(batch, failures);
+
+      for (Map.Entry<Integer, Movie> entry : records.entrySet()) {
+        try {
+          failures.addAll(
+              writer.write(Collections.singletonMap(entry.getKey(), entry.getValue())));
+        } catch (EJBException re) {
+          failures.add(new Failure(
+              entry.getKey(),
+              entry.getValue() == null ? null : entry.getValue().getImdbId(),
+              Collections.singletonMap("Movie", "For more details dive into server log.")));
+          logger.log(Level.ERROR, re.getLocalizedMessage());
+        }
+      }
+    }
+
+    report.addImported(batch.size() - failures.size());
+    failures.forEach(report::addFailure);
+  }
+
+  private Map<Integer, Movie> toMovies(
+      Map<Integer, JsonNode> batch,
+      List<Failure> failures) {
+
+    Map<Integer, Movie> records = new LinkedHashMap<>();
+
+    batch.forEach((record, node) -> {
+      try {
+        records.put(record, mapper.treeToValue(node, Movie.class));
+      } catch (JsonProcessingException jpe) {
+        failures.add(new Failure(
+            record,
+            node.path("imdbId").asText(null),
+            Collections.singletonMap("Movie", jpe.getOriginalMessage())));
+      }
+    });
+
+    return records;
+  }
+
+}
@@ -1,36 +1,63 @@
 package tv.beenius.videostore.service;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.ejb.Stateless;
-import javax.enterprise.event.Event;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
 
 import org.jboss.logging.Logger;
-import org.jboss.logging.Logger.Level;
 
 import tv.beenius.videostore.data.ActorRepository;
+import tv.beenius.videostore.data.BlobStore;
 import tv.beenius.videostore.data.ImageRepository;
 import tv.beenius.videostore.data.MovieRepository;
-import tv.beenius.videostore.event.ActorEvent;
-import tv.beenius.videostore.event.MovieEvent;
+import tv.beenius.videostore.data.Revision;
+import tv.beenius.videostore.event.ChangeOutbox;
+import tv.beenius.videostore.event.EntityChange;
+import tv.beenius.videostore.event.EntityChange.Operation;
 import tv.beenius.videostore.exception.EjbConstraintViolationException;
 import tv.beenius.videostore.exception.EjbValidationException;
+import tv.beenius.videostore.metrics.Instrumented;
+import tv.beenius.videostore.metrics.Instrumented.Layer;
 import tv.beenius.videostore.model.Actor;
+import tv.beenius.videostore.model.Cast;
 import tv.beenius.videostore.model.Image;
 import tv.beenius.videostore.model.Movie;
+import tv.beenius.videostore.model.OutboxEvent.Channel;
+import tv.beenius.videostore.model.RenditionSize;
+import tv.beenius.videostore.search.ActorSearchIndex;
+import tv.beenius.videostore.search.MovieSearchIndex;
+import tv.beenius.videostore.search.Suggestion;
+import tv.beenius.videostore.tracing.Traced;
+import tv.beenius.videostore.util.ImageUtil;
 
 @Stateless
+@Instrumented(Layer.SERVICE)
+@Traced
 public class RegisterService {
   
   Logger logger = Logger.getLogger(getClass());
@@ -44,10 +71,17 @@ public class RegisterService {
   
   @NotBlank
   String searchFor;
+  
+  @NotEmpty
+  @Size(max = 100)
+  List<?> ids;
 
   @Inject
   ActorRepository actorRepo;
 
+  @Inject
+  BlobStore blobStore;
+
   @Inject
   ImageRepository imageRepo;
 
@@ -58,12 +92,19 @@ public class RegisterService {
   private Validator validator;
   
   @Inject
-  @ActorEvent
-  private Event<String> actorEventSrc;
+  ChangeOutbox changeOutbox;
+
+  @Inject
+  MovieSearchIndex movieIndex;
+
+  @Inject
+  ActorSearchIndex actorIndex;
+
+  @Inject
+  RenditionWorker renditionWorker;
 
   @Inject
-  @MovieEvent
-  private Event<String> movieEventSrc;
+  ImageUtil imageUtil;
 
   /**
    * Saves and relates new actor and new movies.
@@ -90,10 +131,12 @@ public class RegisterService {
     validateEntityIdentifier(actor.getId(), false);
     
     // Cannot register actor with already registered movie(s).
+    List<String> imdbIds = new ArrayList<>();
     for (Movie movie : actor.getMovies()) {
       validateEntity(movie);
-      validateMoviePersistence(movie.getImdbId(), false);
+      imdbIds.add(movie.getImdbId());
     }
+    validateMoviesPersistence(imdbIds, false);
 
     // Silently establish any missing bi-directional relationships.
     actor.getMovies().forEach(movie -> {
@@ -102,12 +145,11 @@ public class RegisterService {
     
     final Actor savedActor = actorRepo.save(actor);
     
-    actorEventSrc.fire(composeEvent(savedActor));
-    if (! savedActor.getMovies().isEmpty()) {
-      movieEventSrc.fire(composeEvent(savedActor.getMovies()));
-    }
-    
-    logger.log(Level.INFO, composeEvent(savedActor));   
+    changeOutbox.record(Channel.ACTOR, 
+        EntityChange.of(Actor.class, savedActor.getId(), Operation.CREATED, savedActor));
+    changeOutbox.record(Channel.MOVIE, savedActor.getMovies().stream()
+        .map(movie -> EntityChange.of(Movie.class, movie.getImdbId(), Operation.CREATED, movie))
+        .collect(Collectors.toList()));
 
     return savedActor;
   }
@@ -117,7 +159,7 @@ public class RegisterService {
    * 
    * <p>Movie and actors are saved into database.
    * A bi-directional relationship is established between movie and actors.
-   * Related movie images are saved to database.
+   * Related movie images are saved to database, their content to blob store.
    * Registration fails when movie or any of listed actors have already been registered.
    * Registered movie can be later updated via {@link #updateMovie(Movie)}.
    * Registered movie can be later related to registered actor via  
@@ -143,18 +185,59 @@ public class RegisterService {
       validateEntityIdentifier(actor.getId(), false);
     }
 
-    final Movie savedMovie = movieRepo.save(movie);
-    
-    movieEventSrc.fire(composeEvent(savedMovie));
-    if (! savedMovie.getActors().isEmpty()) {
-      actorEventSrc.fire(composeEvent(savedMovie.getActors()));
+    for (Image image : movie.getImages()) {
+      storeImageContent(image, true);
+      validateEntity(image);
     }
+
+    final Movie savedMovie = movieRepo.save(movie);
     
-    logger.log(Level.INFO, composeEvent(savedMovie));   
+    changeOutbox.record(Channel.MOVIE, 
+        EntityChange.of(Movie.class, savedMovie.getImdbId(), Operation.CREATED, savedMovie));
+    changeOutbox.record(Channel.ACTOR, savedMovie.getActors().stream()
+        .map(actor -> EntityChange.of(Actor.class, actor.getId(), Operation.CREATED, actor))
+        .collect(Collectors.toList()));
 
     return savedMovie;
   }
 
+  /**
+   * Streams uploaded image content into blob store and references it by image.
+   * 
+   * <p>Content is hashed while spooled, so only a fixed size buffer is held on heap
+   * regardless of upload size. Media type is detected from leading bytes before content
+   * is stored. Upload fails as soon as content exceeds 
+   * {@link ImageUtil#getMaxUploadBytes()}. Image is then registered or updated by
+   * {@link #registerMovieImage(String, Image)} or {@link #updateImage(Image)}.
+   * Upload is not transactional.
+   * 
+   * @param image Image referencing uploaded content.
+   * @param input Content stream, left open.
+   * @throws IOException on read error or when content is not a supported image,
+   *         {@link tv.beenius.videostore.exception.ContentTooLargeException}
+   *         when content exceeds maximal upload size.
+   */
+  @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+  public void uploadImageContent(Image image, InputStream input) throws IOException {
+    
+    BufferedInputStream bufferedInput = new BufferedInputStream(input);
+    bufferedInput.mark(ImageUtil.MEDIA_TYPE_HEAD_LENGTH);
+    String mediaType = 
+        imageUtil.getMediaType(bufferedInput.readNBytes(ImageUtil.MEDIA_TYPE_HEAD_LENGTH));
+    bufferedInput.reset();
+    
+    if (! imageUtil.isSupportedImage(mediaType)) {
+      throw new IOException("Content is not a JPEG, PNG or GIF image.");
+    }
+    
+    String contentHash = blobStore.put(bufferedInput, imageUtil.getMaxUploadBytes());
+    
+    image.setContent(null);
+    image.setContentHash(contentHash);
+    image.setContentLength(blobStore.size(contentHash));
+    image.setMediaType(mediaType);
+  }
+
   /**
    * Saves and relates a new movie image to a registered movie.
    * 
@@ -176,14 +259,16 @@ public class RegisterService {
     validateImdbId(imdbId);
     validateMoviePersistence(imdbId, true);
     
+    storeImageContent(image, true);
     validateEntity(image);
     validateEntityIdentifier(image.getId(), false);
  
     final Image savedImage = movieRepo.saveMovieImage(imdbId, image);
     
-    movieEventSrc.fire(composeEvent(imdbId, savedImage));
-    
-    logger.log(Level.INFO, composeEvent(imdbId, savedImage));   
+    // Modified movie is held by persistence context.
+    changeOutbox.record(Channel.MOVIE, 
+        EntityChange.of(Movie.class, imdbId, Operation.UPDATED, movieRepo.findById(imdbId).get()),
+        EntityChange.of(Image.class, savedImage.getId(), Operation.CREATED, savedImage));
 
     return savedImage;
   }
@@ -205,23 +290,140 @@ public class RegisterService {
       throws EjbConstraintViolationException, EjbValidationException {
 
     validateImdbId(imdbId);
-    final Optional<Movie> optionalFoundMovie = validateMoviePersistence(imdbId, true);
-    
     validateEntityIdentifier(id, true);
     validateActorId(id);
-    final Optional<Actor> optionalFoundActor = validateActorPersistence(id, true);
 
-    Movie movie = optionalFoundMovie.get();
-    Actor actor = optionalFoundActor.get();
+    Movie movie = movieRepo.findById(imdbId, Movie.GRAPH_WITH_CAST)
+        .orElseThrow(() -> new EjbValidationException(imdbId + " has not been registered."));
+    Actor actor = actorRepo.findById(id)
+        .orElseThrow(() -> new EjbValidationException(id + " has not been registered."));
     
     validateCastPersistence(movie, actor, false);
     
     movie.getActors().add(actor);
+    movie.markModified();
+    actor.markModified();
+    
+    changeOutbox.record(Channel.ACTOR, EntityChange.of(Actor.class, id, Operation.UPDATED, actor));
+    changeOutbox.record(Channel.MOVIE, 
+        EntityChange.of(Movie.class, imdbId, Operation.UPDATED, movie),
+        new EntityChange(Cast.class, Cast.id(imdbId, id), Operation.CREATED));
+  }
+
+  /**
+   * Registers casts between movie and many actors at once.
+   * 
+   * <p>Movie together with its cast and all actors are loaded by a single query each,
+   * i.e. actors are validated at once. Cast rows are inserted by JDBC batches on flush
+   * and changes are recorded once per channel, so that observers are notified by
+   * a single batch of changes. Registration fails as a whole when movie or any of actors
+   * have not been registered or any of actors has already been casted to movie.
+   * Repeated actor identifiers are registered once.
+   * 
+   * @param imdbId Movie identifier.
+   * @param ids Actor identifiers.
+   * 
+   * @throws EjbConstraintViolationException on invalid parameters.
+   * @throws EjbValidationException on non-existing entities or existing casts.
+   */
+  public void registerMovieCasts(String imdbId, List<Long> ids)  
+      throws EjbConstraintViolationException, EjbValidationException {
+
+    validateImdbId(imdbId);
+    validateCastSize(ids);
     
-    actorEventSrc.fire(composeEvent(imdbId, id));
-    movieEventSrc.fire(composeEvent(imdbId, id));
+    for (Long id : ids) {
+      validateEntityIdentifier(id, true);
+      validateActorId(id);
+    }
+    
+    List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+    
+    Movie movie = movieRepo.findById(imdbId, Movie.GRAPH_WITH_CAST)
+        .orElseThrow(() -> new EjbValidationException(imdbId + " has not been registered."));
+    List<Actor> actors = actorRepo.findByIdsForUpdate(distinctIds);
+    
+    validateAllPresent(distinctIds, actors.stream()
+        .map(Actor::getId)
+        .collect(Collectors.toSet()));
+    
+    for (Actor actor : actors) {
+      validateCastPersistence(movie, actor, false);
+    }
     
-    logger.log(Level.INFO, composeEvent(imdbId, id));   
+    List<EntityChange> actorChanges = new ArrayList<>();
+    List<EntityChange> movieChanges = new ArrayList<>();
+    movieChanges.add(EntityChange.of(Movie.class, imdbId, Operation.UPDATED, movie));
+    
+    for (Actor actor : actors) {
+      movie.getActors().add(actor);
+      actor.markModified();
+      
+      actorChanges.add(EntityChange.of(Actor.class, actor.getId(), Operation.UPDATED, actor));
+      movieChanges.add(new EntityChange(
+          Cast.class, Cast.id(imdbId, actor.getId()), Operation.CREATED));
+    }
+    movie.markModified();
+    
+    changeOutbox.record(Channel.ACTOR, actorChanges);
+    changeOutbox.record(Channel.MOVIE, movieChanges);
+  }
+
+  /**
+   * Registers casts between actor and many movies at once.
+   * 
+   * <p>Inverse of {@link #registerMovieCasts(String, List)}. Movies are loaded together
+   * with their casts by a single query, cast rows are inserted by JDBC batches on flush.
+   * Registration fails as a whole when actor or any of movies have not been registered
+   * or actor has already been casted to any of movies.
+   * Repeated movie identifiers are registered once.
+   * 
+   * @param id Actor identifier.
+   * @param imdbIds Movie identifiers.
+   * 
+   * @throws EjbConstraintViolationException on invalid parameters.
+   * @throws EjbValidationException on non-existing entities or existing casts.
+   */
+  public void registerActorCasts(Long id, List<String> imdbIds)  
+      throws EjbConstraintViolationException, EjbValidationException {
+
+    validateEntityIdentifier(id, true);
+    validateActorId(id);
+    validateCastSize(imdbIds);
+    
+    for (String imdbId : imdbIds) {
+      validateImdbId(imdbId);
+    }
+    
+    List<String> distinctImdbIds = new ArrayList<>(new LinkedHashSet<>(imdbIds));
+    
+    Actor actor = actorRepo.findById(id)
+        .orElseThrow(() -> new EjbValidationException(id + " has not been registered."));
+    List<Movie> movies = movieRepo.findByIdsForUpdate(distinctImdbIds, Movie.GRAPH_WITH_CAST);
+    
+    validateAllPresent(distinctImdbIds, movies.stream()
+        .map(Movie::getImdbId)
+        .collect(Collectors.toSet()));
+    
+    for (Movie movie : movies) {
+      validateCastPersistence(movie, actor, false);
+    }
+    
+    List<EntityChange> movieChanges = new ArrayList<>();
+    
+    for (Movie movie : movies) {
+      movie.getActors().add(actor);
+      movie.markModified();
+      
+      movieChanges.add(
+          EntityChange.of(Movie.class, movie.getImdbId(), Operation.UPDATED, movie));
+      movieChanges.add(new EntityChange(
+          Cast.class, Cast.id(movie.getImdbId(), id), Operation.CREATED));
+    }
+    actor.markModified();
+    
+    changeOutbox.record(Channel.ACTOR, EntityChange.of(Actor.class, id, Operation.UPDATED, actor));
+    changeOutbox.record(Channel.MOVIE, movieChanges);
   }
 
   /**
@@ -244,9 +446,8 @@ public class RegisterService {
     Optional<Actor> updatedOptionalActor = actorRepo.update(actor);
     Actor updatedActor = updatedOptionalActor.get();
     
-    actorEventSrc.fire(composeEvent(updatedActor));
-
-    logger.log(Level.INFO, composeEvent(updatedActor));   
+    changeOutbox.record(Channel.ACTOR, 
+        EntityChange.of(Actor.class, updatedActor.getId(), Operation.UPDATED, updatedActor));
     
     return updatedActor;
   }
@@ -271,9 +472,8 @@ public class RegisterService {
     Optional<Movie> updatedOptionalMovie = movieRepo.update(movie);
     Movie updatedMovie = updatedOptionalMovie.get();
     
-    movieEventSrc.fire(composeEvent(updatedMovie));
-    
-    logger.log(Level.INFO, composeEvent(updatedMovie));   
+    changeOutbox.record(Channel.MOVIE, 
+        EntityChange.of(Movie.class, updatedMovie.getImdbId(), Operation.UPDATED, updatedMovie));
     
     return updatedMovie;
   }
@@ -294,13 +494,13 @@ public class RegisterService {
     
     validateEntityIdentifier(image.getId(), true);
     validateMovieImagePersistence(null, image.getId(), true);
+    storeImageContent(image, false);
 
     Optional<Image> updatedOptionalImage = imageRepo.update(image);
     Image updatedImage = updatedOptionalImage.get();
     
-    movieEventSrc.fire(composeEvent(updatedImage));
-    
-    logger.log(Level.INFO, composeEvent(updatedImage));   
+    changeOutbox.record(Channel.MOVIE, 
+        EntityChange.of(Image.class, updatedImage.getId(), Operation.UPDATED, updatedImage));
     
     return updatedImage;
   }
@@ -319,10 +519,8 @@ public class RegisterService {
     validateActorId(id);
     
     if (actorRepo.removeById(id)) {
-      actorEventSrc.fire(composeEvent(id));
+      changeOutbox.record(Channel.ACTOR, new EntityChange(Actor.class, id, Operation.REMOVED));
     }
-    
-    logger.log(Level.INFO, composeEvent(id));   
   }
 
   /**
@@ -339,10 +537,9 @@ public class RegisterService {
     validateImdbId(imdbId);   
     
     if (movieRepo.removeById(imdbId)) {
-      movieEventSrc.fire(composeEvent(imdbId));
+      changeOutbox.record(Channel.MOVIE, 
+          new EntityChange(Movie.class, imdbId, Operation.REMOVED));
     }
-    
-    logger.log(Level.INFO, composeEvent(imdbId));   
   }
 
   /**
@@ -365,10 +562,11 @@ public class RegisterService {
     validateEntityIdentifier(id, true);
     
     if (movieRepo.removeMovieImageById(imdbId, id)) {
-      movieEventSrc.fire(composeEvent(imdbId, id));
+      // Modified movie is held by persistence context.
+      changeOutbox.record(Channel.MOVIE, EntityChange.of(
+          Movie.class, imdbId, Operation.UPDATED, movieRepo.findById(imdbId).get()),
+          new EntityChange(Image.class, id, Operation.REMOVED));
     }
-    
-    logger.log(Level.INFO, composeEvent(imdbId, id));   
   }
   
   /**
@@ -386,11 +584,11 @@ public class RegisterService {
       throws EjbConstraintViolationException, EjbValidationException {
     
     validateImdbId(imdbId);
-    final Optional<Movie> optionalFoundMovie = findMovieById(imdbId);
+    final Optional<Movie> optionalFoundMovie = movieRepo.findById(imdbId, Movie.GRAPH_WITH_CAST);
     
     validateEntityIdentifier(id, true);
     validateActorId(id);
-    Optional<Actor> optionalFoundActor = findActorById(id);
+    Optional<Actor> optionalFoundActor = actorRepo.findById(id, Actor.GRAPH_WITH_MOVIES);
 
     if (optionalFoundMovie.isPresent() && optionalFoundActor.isPresent()) {
       Movie movie = optionalFoundMovie.get();
@@ -398,12 +596,15 @@ public class RegisterService {
 
       movie.getActors().remove(actor);
       actor.getMovies().remove(movie);
+      movie.markModified();
+      actor.markModified();
       
-      movieEventSrc.fire(composeEvent(imdbId, id));
-      actorEventSrc.fire(composeEvent(imdbId, id));
+      changeOutbox.record(Channel.MOVIE, 
+          EntityChange.of(Movie.class, imdbId, Operation.UPDATED, movie),
+          new EntityChange(Cast.class, Cast.id(imdbId, id), Operation.REMOVED));
+      changeOutbox.record(Channel.ACTOR, 
+          EntityChange.of(Actor.class, id, Operation.UPDATED, actor));
     }
-    
-    logger.log(Level.INFO, composeEvent(imdbId, id));   
   }
 
   /**
@@ -412,13 +613,14 @@ public class RegisterService {
    * <p>Input parameter validation should be provided by caller.
    * 
    * <p>Retrieves actor by calling 
-   * {@link tv.beenius.videostore.data.ActorRepository#findById(Long)}.
+   * {@link tv.beenius.videostore.data.ActorRepository#findById(Long, String)}
+   * with entity graph {@link Actor#GRAPH_WITH_MOVIES}.
    * 
    * @param id Actor identifier
    * @return Actor with related movies.
    */
   public Optional<Actor> findActorById(Long id) {
-    return actorRepo.findById(id);
+    return actorRepo.findById(id, Actor.GRAPH_WITH_MOVIES);
   }
 
   /**
@@ -427,13 +629,47 @@ public class RegisterService {
    * <p>Input parameter validation should be provided by caller.
    * 
    * <p>Retrieves movie by calling 
-   * {@link tv.beenius.videostore.data.MovieRepository#findById(String)}.
+   * {@link tv.beenius.videostore.data.MovieRepository#findById(String, String)}
+   * with entity graph {@link Movie#GRAPH_WITH_CAST}.
+   * Movie images are fetched lazily, call {@link #findMovieImages(String)} to retrieve them.
    * 
    * @param imdbId Movie identifier.
-   * @return Movie together with  related actors and images.
+   * @return Movie together with related actors.
    */
   public Optional<Movie> findMovieById(String imdbId) { 
-    return movieRepo.findById(imdbId);
+    return movieRepo.findById(imdbId, Movie.GRAPH_WITH_CAST);
+  }
+
+  /**
+   * Finds revision of actor representation by id.
+   * 
+   * <p>Input parameter validation should be provided by caller.
+   * 
+   * <p>Retrieves revision by calling 
+   * {@link tv.beenius.videostore.data.ActorRepository#findRevisionById(Long)}.
+   * Revision covers actor and related movies returned by {@link #findActorById(Long)}.
+   * 
+   * @param id Actor identifier
+   * @return Optional revision.
+   */
+  public Optional<Revision> findActorRevision(Long id) {
+    return actorRepo.findRevisionById(id);
+  }
+
+  /**
+   * Finds revision of movie representation by imdbId.
+   * 
+   * <p>Input parameter validation should be provided by caller.
+   * 
+   * <p>Retrieves revision by calling 
+   * {@link tv.beenius.videostore.data.MovieRepository#findRevisionById(String)}.
+   * Revision covers movie and related actors returned by {@link #findMovieById(String)}.
+   * 
+   * @param imdbId Movie identifier.
+   * @return Optional revision.
+   */
+  public Optional<Revision> findMovieRevision(String imdbId) { 
+    return movieRepo.findRevisionById(imdbId);
   }
 
   /**
@@ -462,12 +698,87 @@ public class RegisterService {
     return movieRepo.findByIdLazily(imdbId);
   }
 
+  /**
+   * Finds registered actors among given actors.
+   *
+   * <p>Retrieves identifiers by a single query calling
+   * {@link tv.beenius.videostore.data.ActorRepository#findExistingIds(Collection)},
+   * prefer it to retrieving actors one by one.
+   *
+   * @param ids Actor identifiers.
+   * @return Identifiers of registered actors.
+   */
+  public Set<Long> findRegisteredActorIds(Collection<Long> ids) {
+    return actorRepo.findExistingIds(ids);
+  }
+
+  /**
+   * Finds registered movies among given movies.
+   *
+   * <p>Retrieves identifiers by a single query calling
+   * {@link tv.beenius.videostore.data.MovieRepository#findExistingIds(Collection)},
+   * prefer it to retrieving movies one by one.
+   *
+   * @param imdbIds Movie identifiers.
+   * @return Identifiers of registered movies.
+   */
+  public Set<String> findRegisteredImdbIds(Collection<String> imdbIds) {
+    return movieRepo.findExistingIds(imdbIds);
+  }
+
+  /**
+   * Retrieves actors by identifiers.
+   *
+   * <p>Retrieves actors by a single query calling
+   * {@link tv.beenius.videostore.data.ActorRepository#findByIds(List)},
+   * prefer it to retrieving actors one by one.
+   * 
+   * <p>Actors do not contain related movies due to lazy fetch.
+   *
+   * @param ids Actor identifiers, at most 100.
+   * @return Actors in order of identifiers, unregistered actors are skipped.
+   * @throws EjbConstraintViolationException on invalid identifiers or their number.
+   */
+  public List<Actor> findActorsByIds(List<Long> ids) throws EjbConstraintViolationException {
+    
+    validateIdentifiersParameter(ids);
+    for (Long id : ids) {
+      validateActorId(id);
+    }
+    
+    return actorRepo.findByIds(ids);
+  }
+
+  /**
+   * Retrieves movies by identifiers.
+   *
+   * <p>Retrieves movies by a single query calling
+   * {@link tv.beenius.videostore.data.MovieRepository#findByIds(List)},
+   * prefer it to retrieving movies one by one.
+   * 
+   * <p>Movies do not contain actors and movie images due to lazy fetch.
+   *
+   * @param imdbIds Movie identifiers, at most 100.
+   * @return Movies in order of identifiers, unregistered movies are skipped.
+   * @throws EjbConstraintViolationException on invalid identifiers or their number.
+   */
+  public List<Movie> findMoviesByIds(List<String> imdbIds) 
+      throws EjbConstraintViolationException {
+    
+    validateIdentifiersParameter(imdbIds);
+    for (String imdbId : imdbIds) {
+      validateImdbId(imdbId);
+    }
+    
+    return movieRepo.findByIds(imdbIds);
+  }
+
   /**
    * Retrieves a list of movies containing search string..
    * 
-   * <p>Retrieves a list of movies containing search string and sorted by title by calling 
-   * {@link tv.beenius.videostore.data.MovieRepository#findByTitle(String)}.
-   * Movie contains related actors.
+   * <p>Retrieves a list of movies containing search string and sorted by title
+   * from {@link tv.beenius.videostore.search.MovieSearchIndex#filter(String)} by calling 
+   * {@link tv.beenius.videostore.data.MovieRepository#findByIds(List)}.
    * 
    * <p>Movie does not contain movie images due to lazy fetch.
    * Call {@link #findMovieImageById(Long)} to retrieve specific movie with image.
@@ -475,15 +786,14 @@ public class RegisterService {
    *  
    * @param searchFor Search string.
    * @return Movie
-   * @throws Exception on exception from
-   * {@link tv.beenius.videostore.data.MovieRepository#findByTitle(String)}.
+   * @throws EjbConstraintViolationException on invalid search string.
    */
   public List<Movie> findMovieByTitleSearch(String searchFor) 
       throws EjbConstraintViolationException { 
     
     validateFilteringParameter(searchFor);  
     
-    return movieRepo.findByTitle(searchFor);
+    return movieRepo.findByIds(movieIndex.filter(searchFor));
   }
 
   /**
@@ -539,11 +849,147 @@ public class RegisterService {
       throws EjbConstraintViolationException, EjbValidationException {
     
     validateImdbId(imdbId);
-    Optional<Movie> optionalFoundMovie = validateMoviePersistence(imdbId, true);
+    validateMoviePersistence(imdbId, true);
+    
+    Optional<Movie> optionalFoundMovie = movieRepo.findById(imdbId, Movie.GRAPH_WITH_IMAGES);
  
     return new ArrayList<Image>(optionalFoundMovie.get().getImages());
   }
 
+  /**
+   * Retrieves list of all movie images for a movie. Lazily.
+   * 
+   * <p>Retrieves a sorted list (by description) of all movie images w/o content by calling 
+   * {@link tv.beenius.videostore.data.ImageRepository#findMovieImagesLazily(String)}.
+   * Image content can be retrieved by {@link #findImageContent(Long)}.
+   * 
+   * @param imdbId Movie identifier.
+   * @return List of Images w/o content.
+   * @throws EjbConstraintViolationException on invalid movie identifier.
+   * @throws EjbValidationException on movie not existing.
+   */
+  public List<Image> findMovieImagesLazily(String imdbId) 
+      throws EjbConstraintViolationException, EjbValidationException {
+    
+    validateImdbId(imdbId);
+    validateMoviePersistence(imdbId, true);
+ 
+    return imageRepo.findMovieImagesLazily(imdbId);
+  }
+
+  /**
+   * Retrieves image content.
+   * 
+   * <p>Retrieves image content hash by calling 
+   * {@link tv.beenius.videostore.data.ImageRepository#findContentHashById(Long)}
+   * and reads content from blob store. Large content should rather be transferred by
+   * {@link #transferContent(String, WritableByteChannel)}.
+   * 
+   * <p>Input parameter validation should be provided by caller.
+   * 
+   * @param id Image identifier.
+   * @return Optional image content.
+   */
+  public Optional<byte[]> findImageContent(Long id) {
+    return imageRepo.findContentHashById(id).map(this::readContent);
+  }
+
+  /**
+   * Transfers content from blob store to a channel w/o copying it onto heap.
+   * 
+   * @param contentHash Content hash, e.g. {@link Image#getContentHash()}.
+   * @param target Target channel, left open.
+   * @return Number of transferred bytes.
+   * @throws IOException on read or write error.
+   */
+  public long transferContent(String contentHash, WritableByteChannel target) 
+      throws IOException {
+    return blobStore.transferTo(contentHash, target);
+  }
+
+  /**
+   * Transfers a window of content from blob store to a channel.
+   * Only the window is read from storage, e.g. to answer HTTP range requests.
+   * 
+   * @param contentHash Content hash, e.g. {@link Image#getContentHash()}.
+   * @param position Position of first transferred byte.
+   * @param count Number of transferred bytes.
+   * @param target Target channel, left open.
+   * @return Number of transferred bytes.
+   * @throws IOException on read or write error.
+   */
+  public long transferContent(
+      String contentHash, 
+      long position, 
+      long count, 
+      WritableByteChannel target) throws IOException {
+    return blobStore.transferTo(contentHash, position, count, target);
+  }
+
+  /**
+   * Retrieves content hash of image scaled down to rendition size.
+   * 
+   * <p>Renditions are rendered by {@link RenditionWorker} once image is registered or updated.
+   * When rendition is missing or out of date, rendering is scheduled without waiting for it
+   * and hash of original content is returned, so that a later request gets the rendition.
+   * Image that cannot be scaled gets original content as its rendition, so that rendering
+   * is not scheduled again until image is updated. Content is not read, it should be transferred by
+   * {@link #transferContent(String, long, long, WritableByteChannel)}. Hash is the blob key,
+   * i.e. SHA-256 hash of content, so it is intended for strong entity tags too.
+   * 
+   * <p>Input parameter validation should be provided by caller.
+   * 
+   * @param id Image identifier.
+   * @param size Rendition size.
+   * @return Optional content hash.
+   */
+  public Optional<String> findImageRenditionHash(Long id, RenditionSize size) {
+    
+    Optional<String> contentHash = imageRepo.findRenditionHash(id, size);
+    
+    if (contentHash.isPresent()) {
+      return contentHash;
+    }
+    
+    renditionWorker.submit(id);
+    
+    return imageRepo.findContentHashById(id);
+  }
+
+  /**
+   * Retrieves media type of stored content. Only the leading bytes are read.
+   * 
+   * @param contentHash Content hash, e.g. {@link #findImageRenditionHash(Long, RenditionSize)}.
+   * @return Media type.
+   */
+  public String findContentMediaType(String contentHash) {
+    
+    ByteArrayOutputStream head = new ByteArrayOutputStream(ImageUtil.MEDIA_TYPE_HEAD_LENGTH);
+    
+    try {
+      blobStore.transferTo(
+          contentHash, 0, ImageUtil.MEDIA_TYPE_HEAD_LENGTH, Channels.newChannel(head));
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+    
+    return imageUtil.getMediaType(head.toByteArray());
+  }
+
+  /**
+   * Retrieves length of stored content.
+   * 
+   * @param contentHash Content hash, e.g. {@link #findImageRenditionHash(Long, RenditionSize)}.
+   * @return Content length in bytes.
+   */
+  public long findContentLength(String contentHash) {
+    try {
+      return blobStore.size(contentHash);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
   /**
    * Retrieves a list of all actors casted to a movie. Lazily.
    *  
@@ -638,8 +1084,9 @@ public class RegisterService {
   /**
    * Retrieves a page of movies filtered by title filter.
    * 
-   * <p>Retrieves a page from filtered and sorted (by title) list of all movies by calling 
-   * {@link tv.beenius.videostore.data.MovieRepository#findPageByTitle(int, int, String)}.
+   * <p>Retrieves a page of filtered and sorted (by title) movies provided by
+   * {@link tv.beenius.videostore.search.MovieSearchIndex#filter(String, int, int)}
+   * by calling {@link tv.beenius.videostore.data.MovieRepository#findByIds(List)}.
    * 
    * <p>Movies do not contain movie images due to lazy fetch.
    * Call {@link #findMovieImages(String)} to retrieve specific movie with images.
@@ -659,7 +1106,33 @@ public class RegisterService {
     validatePagingParameters(pageOffset, pageLimit);
     validateFilteringParameter(searchFor);
     
-    return movieRepo.findPageByTitle(pageOffset, pageLimit, searchFor);
+    return movieRepo.findByIds(movieIndex.filter(searchFor, pageOffset, pageLimit));
+  }
+
+  /**
+   * Retrieves a page of movies matching search query ranked by relevance.
+   * 
+   * <p>Retrieves a page of ranked movies matching all query terms by title or description
+   * provided by {@link tv.beenius.videostore.search.MovieSearchIndex#rank(String, int, int)}
+   * by calling {@link tv.beenius.videostore.data.MovieRepository#findByIds(List)}.
+   * Query terms match by prefix. Title matches and exact matches rank higher.
+   * 
+   * @param pageOffset Starting record for page. Records start with 0.
+   * @param pageLimit Maximum page size.
+   * @param searchFor Search query.
+   * @return Ranked list of movies.
+   * @throws EjbConstraintViolationException Exception is thrown on invalid input parameters.
+   */
+  public List<Movie> searchMovies(
+      int pageOffset, 
+      int pageLimit,  
+      String searchFor) 
+      throws EjbConstraintViolationException {
+    
+    validatePagingParameters(pageOffset, pageLimit);
+    validateFilteringParameter(searchFor);
+    
+    return movieRepo.findByIds(movieIndex.rank(searchFor, pageOffset, pageLimit));
   }
 
   /**
@@ -683,8 +1156,9 @@ public class RegisterService {
   /**
    * Retrieves a page of actors filtered by name filter.
    * 
-   * <p>Retrieves a page from filtered and sorted (by title) list of all actors by calling 
-   * {@link tv.beenius.videostore.data.ActorRepository#findPageByName(int, int, String)}.
+   * <p>Retrieves a page of filtered and sorted (by last and first name) actors provided by
+   * {@link tv.beenius.videostore.search.ActorSearchIndex#filter(String, int, int)}
+   * by calling {@link tv.beenius.videostore.data.ActorRepository#findByIds(List)}.
    * 
    * @param pageOffset Starting record for page. Records start with 0.
    * @param pageLimit Maximum page size.
@@ -701,9 +1175,182 @@ public class RegisterService {
     validatePagingParameters(pageOffset, pageLimit);
     validateFilteringParameter(searchFor);
     
-    return actorRepo.findPageByName(pageOffset, pageLimit, searchFor);
+    return actorRepo.findByIds(actorIndex.filter(searchFor, pageOffset, pageLimit));
   }
-  
+
+  /**
+   * Retrieves a page of actors matching search query ranked by relevance.
+   * 
+   * <p>Retrieves a page of ranked actors matching all query terms by name provided by
+   * {@link tv.beenius.videostore.search.ActorSearchIndex#rank(String, int, int)}
+   * by calling {@link tv.beenius.videostore.data.ActorRepository#findByIds(List)}.
+   * Query terms match by prefix. Exact matches rank higher.
+   * 
+   * @param pageOffset Starting record for page. Records start with 0.
+   * @param pageLimit Maximum page size.
+   * @param searchFor Search query.
+   * @return Ranked list of actors.
+   * @throws EjbConstraintViolationException Thrown on invalid input parameters.
+   */
+  public List<Actor> searchActors(
+      int pageOffset, 
+      int pageLimit,  
+      String searchFor) 
+      throws EjbConstraintViolationException {
+    
+    validatePagingParameters(pageOffset, pageLimit);
+    validateFilteringParameter(searchFor);
+    
+    return actorRepo.findByIds(actorIndex.rank(searchFor, pageOffset, pageLimit));
+  }
+
+  /**
+   * Suggests movies for typeahead.
+   * 
+   * <p>Suggests movies with a word of title starting with prefix by calling
+   * {@link tv.beenius.videostore.search.MovieSearchIndex#suggest(String, int)}.
+   * Database is not accessed.
+   * 
+   * @param prefix Prefix of a title word.
+   * @param pageLimit Maximum number of suggestions.
+   * @return List of suggestions in lexical order.
+   * @throws EjbConstraintViolationException Exception is thrown on invalid input parameters.
+   */
+  public List<Suggestion> suggestMovies(String prefix, int pageLimit)
+      throws EjbConstraintViolationException {
+    
+    validatePagingParameters(0, pageLimit);
+    validateFilteringParameter(prefix);
+    
+    return movieIndex.suggest(prefix, pageLimit);
+  }
+
+  /**
+   * Suggests actors for typeahead.
+   * 
+   * <p>Suggests actors with first or last name starting with prefix by calling
+   * {@link tv.beenius.videostore.search.ActorSearchIndex#suggest(String, int)}.
+   * Database is not accessed.
+   * 
+   * @param prefix Prefix of first or last name.
+   * @param pageLimit Maximum number of suggestions.
+   * @return List of suggestions in lexical order.
+   * @throws EjbConstraintViolationException Exception is thrown on invalid input parameters.
+   */
+  public List<Suggestion> suggestActors(String prefix, int pageLimit)
+      throws EjbConstraintViolationException {
+    
+    validatePagingParameters(0, pageLimit);
+    validateFilteringParameter(prefix);
+    
+    return actorIndex.suggest(prefix, pageLimit);
+  }
+
+  /**
+   * Retrieves a page of movies using keyset pagination.
+   *
+   * <p>Retrieves a page from sorted (by title and imdbId) list of all movies
+   * starting right after given movie by calling
+   * {@link tv.beenius.videostore.data.MovieRepository#findPageAfter(String, String, int)}.
+   *
+   * @param afterTitle Title of the last movie on previous page or null for first page.
+   * @param afterImdbId Identifier of the last movie on previous page.
+   * @param pageLimit Maximum page size.
+   * @return Sorted list of movies.
+   * @throws EjbConstraintViolationException Exception is thrown on invalid input parameters.
+   */
+  public List<Movie> findPageOfMoviesAfter(String afterTitle, String afterImdbId, int pageLimit)
+      throws EjbConstraintViolationException {
+    validatePagingParameters(0, pageLimit);
+    return movieRepo.findPageAfter(afterTitle, afterImdbId, pageLimit);
+  }
+
+  /**
+   * Retrieves a page of movies filtered by title filter using keyset pagination.
+   *
+   * <p>Retrieves a page from filtered and sorted (by title and imdbId) list of movies
+   * starting right after given movie provided by 
+   * {@link tv.beenius.videostore.search.MovieSearchIndex#filterAfter(
+   * String, String, String, int)} by calling
+   * {@link tv.beenius.videostore.data.MovieRepository#findByIds(List)}.
+   *
+   * @param afterTitle Title of the last movie on previous page or null for first page.
+   * @param afterImdbId Identifier of the last movie on previous page.
+   * @param pageLimit Maximum page size.
+   * @param searchFor Search string from title.
+   * @return Sorted list of movies.
+   * @throws EjbConstraintViolationException Exception is thrown on invalid input parameters.
+   */
+  public List<Movie> findPageOfMoviesByTitleAfter(
+      String afterTitle,
+      String afterImdbId,
+      int pageLimit,
+      String searchFor)
+      throws EjbConstraintViolationException {
+
+    validatePagingParameters(0, pageLimit);
+    validateFilteringParameter(searchFor);
+
+    return movieRepo.findByIds(
+        movieIndex.filterAfter(searchFor, afterTitle, afterImdbId, pageLimit));
+  }
+
+  /**
+   * Retrieves a page of actors using keyset pagination.
+   *
+   * <p>Retrieves a page from sorted (by last name, first name and id) list of all actors
+   * starting right after given actor by calling
+   * {@link tv.beenius.videostore.data.ActorRepository#findPageAfter(String, String, Long, int)}.
+   *
+   * @param afterLastName Last name of the last actor on previous page (may be null).
+   * @param afterFirstName First name of the last actor on previous page.
+   * @param afterId Identifier of the last actor on previous page or null for first page.
+   * @param pageLimit Maximum page size.
+   * @return Sorted list of actors.
+   * @throws EjbConstraintViolationException Thrown on invalid input parameters.
+   */
+  public List<Actor> findPageOfActorsAfter(
+      String afterLastName,
+      String afterFirstName,
+      Long afterId,
+      int pageLimit)
+      throws EjbConstraintViolationException {
+    validatePagingParameters(0, pageLimit);
+    return actorRepo.findPageAfter(afterLastName, afterFirstName, afterId, pageLimit);
+  }
+
+  /**
+   * Retrieves a page of actors filtered by name filter using keyset pagination.
+   *
+   * <p>Retrieves a page from filtered and sorted (by last name, first name and id) list
+   * of actors starting right after given actor provided by 
+   * {@link tv.beenius.videostore.search.ActorSearchIndex#filterAfter(
+   * String, String, String, Long, int)} by calling
+   * {@link tv.beenius.videostore.data.ActorRepository#findByIds(List)}.
+   *
+   * @param afterLastName Last name of the last actor on previous page (may be null).
+   * @param afterFirstName First name of the last actor on previous page.
+   * @param afterId Identifier of the last actor on previous page or null for first page.
+   * @param pageLimit Maximum page size.
+   * @param searchFor Search string from name.
+   * @return Sorted list of actors.
+   * @throws EjbConstraintViolationException Thrown on invalid input parameters.
+   */
+  public List<Actor> findPageOfActorsByNameAfter(
+      String afterLastName,
+      String afterFirstName,
+      Long afterId,
+      int pageLimit,
+      String searchFor)
+      throws EjbConstraintViolationException {
+
+    validatePagingParameters(0, pageLimit);
+    validateFilteringParameter(searchFor);
+
+    return actorRepo.findByIds(actorIndex.filterAfter(
+        searchFor, afterLastName, afterFirstName, afterId, pageLimit));
+  }
+
   /**
    * Counts all actors.
    * 
@@ -732,7 +1379,7 @@ public class RegisterService {
    * Counts all movies with title containing search string.
    * 
    * <p>Counts all movies by calling
-   * {@link tv.beenius.videostore.data.MovieRepository#countByTitle(String)}.
+   * {@link tv.beenius.videostore.search.MovieSearchIndex#count(String)}.
    * 
    * @return Number of movies.
    * @throws EjbConstraintViolationException Exception is thrown on invalid input parameter.
@@ -740,14 +1387,14 @@ public class RegisterService {
   public long countMoviesByTitle(String searchFor) 
       throws EjbConstraintViolationException {  
     validateFilteringParameter(searchFor);
-    return movieRepo.countByTitle(searchFor);
+    return movieIndex.count(searchFor);
   }
 
   /**
    * Counts all actors with name containing search string.
    * 
    * <p>Counts all actors by calling
-   * {@link tv.beenius.videostore.data.ActorRepository#countByName(String)}.
+   * {@link tv.beenius.videostore.search.ActorSearchIndex#count(String)}.
    * 
    * @return Number of actors.
    * @throws EjbConstraintViolationException Exception is thrown on invalid input parameter.
@@ -757,7 +1404,7 @@ public class RegisterService {
     
     validateFilteringParameter(searchFor);
 
-    return actorRepo.countByName(searchFor);
+    return actorIndex.count(searchFor);
   }
 
   /**
@@ -864,6 +1511,23 @@ public class RegisterService {
     }  
   }
   
+  /**
+   * Validates list of identifiers against empty value and maximum size.
+   * 
+   * @param ids Identifiers.
+   * @throws EjbConstraintViolationException on invalid identifiers parameter value.
+   */
+  private void validateIdentifiersParameter(List<?> ids) 
+      throws EjbConstraintViolationException {
+    
+    Set<ConstraintViolation<RegisterService>> violations =
+        validator.validateValue(RegisterService.class, "ids", ids);
+    
+    if (!violations.isEmpty()) {
+      throw new EjbConstraintViolationException(new HashSet<>(violations));
+    }  
+  }
+  
   /**
    * Validates entity against null value and field constraints.
    * 
@@ -885,6 +1549,52 @@ public class RegisterService {
     }
   }
   
+  /**
+   * Stores uploaded image content into blob store and references it by image.
+   * Identical content is stored only once. Content already streamed into blob store
+   * is only checked for presence.
+   * 
+   * @param image Image with uploaded content.
+   * @param shouldBePresent Whether content is mandatory.
+   * @throws EjbValidationException on null image or missing mandatory content.
+   */
+  private void storeImageContent(Image image, boolean shouldBePresent) 
+      throws EjbValidationException {
+    
+    if (image == null) {
+      throw new EjbValidationException("Entity should not be null.");
+    }
+    
+    byte[] content = image.getContent();
+    
+    if (content == null) {
+      // Content uploaded by uploadImageContent(Image, InputStream).
+      if (image.getContentHash() != null && blobStore.contains(image.getContentHash())) {
+        return;
+      }
+      if (shouldBePresent) {
+        throw new EjbValidationException("Image content should not be null.");
+      }
+      return;
+    }
+    
+    try {
+      image.setContentHash(blobStore.put(content));
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+    image.setContentLength((long) content.length);
+    image.setMediaType(imageUtil.getMediaType(content));
+  }
+  
+  private byte[] readContent(String contentHash) {
+    try {
+      return blobStore.read(contentHash);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+  
   /**
    * Validates actor identifier against expected outcome.
    * 
@@ -905,84 +1615,133 @@ public class RegisterService {
     
   /**
    * Validates existence of actor against expected outcome.
-   * Returns optional actor.
+   * Only the key is queried, entity is not loaded.
    * 
    * @param id Actor identifier.
    * @param shouldBePresent Expected outcome.
-   * @return oprtional actor.
    * @throws EjbValidationException on non-expected outcome.
    */
-  private Optional<Actor> validateActorPersistence(Long id, boolean shouldBePresent) 
+  private void validateActorPersistence(Long id, boolean shouldBePresent) 
       throws EjbValidationException {
     
-    Optional<Actor> optionalActor = findActorById(id);
+    boolean actorExists = actorRepo.existsById(id);
     
-    if (optionalActor.isPresent() && ! shouldBePresent) {
+    if (actorExists && ! shouldBePresent) {
       throw new EjbValidationException(id + " is already registered.");
     }
-    if (optionalActor.isEmpty() && shouldBePresent) {
+    if (! actorExists && shouldBePresent) {
       throw new EjbValidationException(id + " has not been registered.");
     }
-    
-    return optionalActor;
   }
   
   /**
    * Validates existence of movie against expected outcome.
-   * Returns optional movie.
+   * Only the key is queried, entity is not loaded.
    *  
    * @param imdbId Movie identifier.
    * @param shouldBePresent Expected outcome.
-   * @return optional movie.
    * @throws EjbValidationException on non-expected outcome.
    */
-  private Optional<Movie> validateMoviePersistence(String imdbId, boolean shouldBePresent) 
+  private void validateMoviePersistence(String imdbId, boolean shouldBePresent) 
       throws EjbValidationException {
     
-    Optional<Movie> optionalMovie = findMovieById(imdbId);
+    boolean movieExists = movieRepo.existsById(imdbId);
     
-    if (optionalMovie.isPresent() && ! shouldBePresent) {
+    if (movieExists && ! shouldBePresent) {
       throw new EjbValidationException(imdbId + " is already registered.");
     }
-    if (optionalMovie.isEmpty() && shouldBePresent) {
+    if (! movieExists && shouldBePresent) {
       throw new EjbValidationException(imdbId + " has not been registered.");
     }
+  }
+
+  /**
+   * Validates existence of movies against expected outcome.
+   * All keys are checked by a single query, entities are not loaded.
+   *  
+   * @param imdbIds Movie identifiers.
+   * @param shouldBePresent Expected outcome.
+   * @throws EjbValidationException on non-expected outcome for any of movies.
+   */
+  private void validateMoviesPersistence(Collection<String> imdbIds, boolean shouldBePresent) 
+      throws EjbValidationException {
+    
+    if (imdbIds.isEmpty()) {
+      return;
+    }
+    
+    Set<String> existingImdbIds = movieRepo.findExistingIds(imdbIds);
+    
+    for (String imdbId : imdbIds) {
+      if (existingImdbIds.contains(imdbId) && ! shouldBePresent) {
+        throw new EjbValidationException(imdbId + " is already registered.");
+      }
+      if (! existingImdbIds.contains(imdbId) && shouldBePresent) {
+        throw new EjbValidationException(imdbId + " has not been registered.");
+      }
+    }
+  }
+ 
+  /**
+   * Validates that all requested entities have been found.
+   * 
+   * @param <K> Identifier type.
+   * @param ids Requested identifiers.
+   * @param foundIds Identifiers of found entities.
+   * @throws EjbValidationException on the first identifier not found.
+   */
+  private static <K> void validateAllPresent(Collection<K> ids, Set<K> foundIds) 
+      throws EjbValidationException {
+    
+    for (K id : ids) {
+      if (! foundIds.contains(id)) {
+        throw new EjbValidationException(id + " has not been registered.");
+      }
+    }
+  }
+
+  /**
+   * Validates list of identifiers to be casted against null and empty value.
+   * 
+   * @param ids Identifiers.
+   * @throws EjbValidationException on null or empty list.
+   */
+  private static void validateCastSize(List<?> ids) throws EjbValidationException {
     
-    return optionalMovie;
+    if (ids == null || ids.isEmpty()) {
+      throw new EjbValidationException("Cast should not be empty.");
+    }
   }
  
   /**
    * Validates existence of movie image against expected outcome.
-   * Returns optional movie image.
+   * Only the key is queried, entity is not loaded.
    * 
-   * @param imdbId          Movie identifier.
+   * @param imdbId          Movie identifier or null for any movie.
    * @param id              Image identifier.
    * @param shouldBePresent Expected outcome.
-   * @return optional image.
    * @throws EjbValidationException on non-expected outcome.
    */
-  private Optional<Image> validateMovieImagePersistence(
+  private void validateMovieImagePersistence(
       String imdbId, 
       Long id, 
       boolean shouldBePresent) 
       throws EjbValidationException {
 
-    Optional<Image> optionalMovieImage;
+    boolean imageExists;
 
     if (imdbId == null) {
-      optionalMovieImage = findMovieImageById(id);
+      imageExists = imageRepo.existsById(id);
     } else {
-      optionalMovieImage = findMovieImageById(imdbId, id);
+      imageExists = imageRepo.existsMovieImageById(imdbId, id);
     }
 
-    if (optionalMovieImage.isPresent() && ! shouldBePresent) {
+    if (imageExists && ! shouldBePresent) {
       throw new EjbValidationException(id + " is already registered.");
     }
-    if (optionalMovieImage.isEmpty() && shouldBePresent) {
+    if (! imageExists && shouldBePresent) {
       throw new EjbValidationException(id + " has not been registered.");
     }
-    
-    return optionalMovieImage;
   }
 
   /**
@@ -1007,30 +1766,4 @@ public class RegisterService {
     }
   }
 
-  /**
-   * Retrieves enclosing method name and appends identifier.
-   * 
-   * @return event.
-   */
-  private String composeEvent(Object...objects) {
-    
-    StringBuilder sb = new StringBuilder();
-    
-    sb.append(Thread.currentThread() 
-        .getStackTrace()[2] 
-        .getMethodName());
-    
-    if (objects.length == 0) {
-      return sb.toString();
-    } else {
-      sb.append("( ");      
-      for (Object o: objects) {
-        sb.append(o.toString());
-        sb.append(" ");   
-      }
-      sb.append(")");   
-      return sb.toString();
-    }
-  }
-
 }  
@@ -0,0 +1,82 @@
+package tv.beenius.videostore.service;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.data.BlobStore;
+import tv.beenius.videostore.data.ImageRepository;
+import tv.beenius.videostore.model.Image;
+import tv.beenius.videostore.model.RenditionSize;
+import tv.beenius.videostore.util.ImageUtil;
+
+/**
+ * Renders and saves scaled down renditions of images.
+ * Intended to be called by {@link RenditionWorker} off request threads.
+ */
+@Stateless
+public class RenditionService {
+
+  Logger logger = Logger.getLogger(getClass());
+
+  @Inject
+  BlobStore blobStore;
+
+  @Inject
+  ImageRepository imageRepo;
+
+  @Inject
+  ImageUtil imageUtil;
+
+  /**
+   * Renders all rendition sizes of an image and saves them.
+   * Up to date renditions are kept, missing image is ignored.
+   *
+   * <p>When image content cannot be scaled, e.g. it is not a supported image or it has
+   * too many pixels, the original content is saved as the rendition. Failed rendering
+   * is thus remembered for the image version and is not retried on every request.
+   *
+   * @param id Image identifier.
+   * @throws IOException on blob store error.
+   */
+  public void render(Long id) throws IOException {
+
+    Optional<Image> optionalImage = imageRepo.findById(id);
+
+    if (! optionalImage.isPresent()) {
+      return;
+    }
+
+    Image image = optionalImage.get();
+    byte[] original = null;
+
+    for (RenditionSize size : RenditionSize.values()) {
+      if (! imageRepo.findRenditionHash(id, size).isPresent()) {
+        if (original == null) {
+          original = blobStore.read(image.getContentHash());
+        }
+
+        byte[] content;
+        try {
+          content = imageUtil.scale(original, size.getMaxDimension());
+        } catch (IOException | RuntimeException e) {
+          imageRepo.saveRendition(image, size, image.getContentHash());
+          logger.log(Level.WARN, "Rendering " + size.getKey() + " of image " + id
+              + " failed, original is served instead: " + e.getLocalizedMessage());
+          continue;
+        }
+
+        imageRepo.saveRendition(image, size, blobStore.put(content));
+
+        logger.log(Level.INFO, "Rendered " + size.getKey() + " of image " + id
+            + " (" + original.length + " -> " + content.length + " bytes).");
+      }
+    }
+  }
+
+}
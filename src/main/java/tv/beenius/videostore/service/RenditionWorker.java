@@ -0,0 +1,125 @@
+package tv.beenius.videostore.service;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.event.EntityChange;
+import tv.beenius.videostore.event.EntityChangeBatch;
+import tv.beenius.videostore.event.MovieEvent;
+import tv.beenius.videostore.model.Image;
+import tv.beenius.videostore.tracing.Traced;
+
+/**
+ * Renders image renditions by a bounded pool of worker threads.
+ *
+ * <p>Renditions of registered and updated images are rendered after the change is committed.
+ * Renditions of existing images are rendered lazily on first request. Pool has a fixed number
+ * of threads and a bounded queue, so that decoding of large images cannot exhaust memory.
+ * Image already waiting for rendering is not queued again.
+ */
+@ApplicationScoped
+public class RenditionWorker {
+
+  private static final int THREADS = 2;
+
+  private static final int QUEUE_CAPACITY = 100;
+
+  Logger logger = Logger.getLogger(getClass());
+
+  @Resource
+  ManagedThreadFactory threadFactory;
+
+  @Inject
+  RenditionService renditionService;
+
+  private final ConcurrentMap<Long, Future<?>> pending = new ConcurrentHashMap<>();
+
+  private ThreadPoolExecutor executor;
+
+  @PostConstruct
+  private void init() {
+    executor = new ThreadPoolExecutor(
+        THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+        threadFactory);
+  }
+
+  @PreDestroy
+  private void destroy() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Schedules rendering of image renditions unless already scheduled.
+   *
+   * @param id Image identifier.
+   * @return Optional future of rendering, empty when queue is full.
+   */
+  public Optional<Future<?>> submit(Long id) {
+    try {
+      return Optional.of(pending.computeIfAbsent(id, key -> executor.submit(() -> render(key))));
+    } catch (RejectedExecutionException ree) {
+      logger.log(Level.WARN, "Rendering of image " + id + " is rejected, queue is full.");
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Schedules rendering of registered or updated image after change is completed.
+   *
+   * @param change Movie change.
+   */
+  @Traced
+  public void onMovieChange(
+      @Observes
+      @MovieEvent
+      final EntityChange change) {
+
+    if (change.getEntityType() == Image.class
+        && change.getOperation() != EntityChange.Operation.REMOVED) {
+      submit((Long) change.getId());
+    }
+  }
+
+  /**
+   * Schedules rendering of images registered or updated within a batch of changes.
+   *
+   * @param changes Movie changes.
+   */
+  @Traced
+  public void onMovieChanges(
+      @Observes
+      @MovieEvent
+      final EntityChangeBatch changes) {
+    changes.getChanges().forEach(this::onMovieChange);
+  }
+
+  private void render(Long id) {
+    try {
+      renditionService.render(id);
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.ERROR, "Rendering of image " + id + " failed: " + e.getLocalizedMessage());
+    } finally {
+      pending.remove(id);
+    }
+  }
+
+}
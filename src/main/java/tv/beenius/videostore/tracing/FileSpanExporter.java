@@ -0,0 +1,76 @@
+package tv.beenius.videostore.tracing;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+import tv.beenius.videostore.util.Resources;
+
+/**
+ * Appends ended spans to a file as JSON lines. Fields are named after OpenTelemetry
+ * protocol spans, i.e. traceId, spanId, parentSpanId, name, startTimeUnixNano,
+ * endTimeUnixNano, attributes and status, so that spans can be converted and
+ * loaded into a trace viewer without running a collector.
+ */
+public class FileSpanExporter implements SpanExporter {
+
+  Logger logger = Logger.getLogger(getClass());
+
+  private final BufferedWriter writer;
+
+  /**
+   * Opens file for appending.
+   *
+   * @param file Output file, created when missing.
+   */
+  public FileSpanExporter(Path file) {
+    try {
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+      writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+
+    logger.log(Level.INFO, "Spans are exported to " + file + ".");
+  }
+
+  @Override
+  public void export(Span span) {
+
+    Map<String, Object> line = new LinkedHashMap<>();
+    line.put("traceId", span.getTraceId());
+    line.put("spanId", span.getSpanId());
+    line.put("parentSpanId", span.getParentSpanId());
+    line.put("name", span.getName());
+    line.put("startTimeUnixNano", span.getStartEpochNanos());
+    line.put("endTimeUnixNano", span.getStartEpochNanos() + span.getDurationNanos());
+    line.put("attributes", span.getAttributes());
+    line.put("status", span.getError() == null
+        ? Map.of("code", "STATUS_CODE_OK")
+        : Map.of("code", "STATUS_CODE_ERROR", "message", span.getError()));
+
+    try {
+      String json = Resources.getObjectMapper().writeValueAsString(line);
+      synchronized (writer) {
+        writer.write(json);
+        writer.newLine();
+        writer.flush();
+      }
+    } catch (IOException ioe) {
+      logger.log(Level.WARN, "Span export failed: " + ioe.getLocalizedMessage());
+    }
+  }
+
+}
@@ -0,0 +1,22 @@
+package tv.beenius.videostore.tracing;
+
+import org.jboss.logging.Logger;
+import org.jboss.logging.Logger.Level;
+
+/**
+ * Logs ended spans at INFO level, one line per span.
+ */
+public class LoggingSpanExporter implements SpanExporter {
+
+  Logger logger = Logger.getLogger(getClass());
+
+  @Override
+  public void export(Span span) {
+    logger.log(Level.INFO, String.format("trace=%s span=%s parent=%s %s %.3f ms%s%s",
+        span.getTraceId(), span.getSpanId(), span.getParentSpanId(), span.getName(),
+        span.getDurationNanos() / 1e6,
+        span.getAttributes().isEmpty() ? "" : " " + span.getAttributes(),
+        span.getError() == null ? "" : " error=" + span.getError()));
+  }
+
+}
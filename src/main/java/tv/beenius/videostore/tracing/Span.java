@@ -0,0 +1,167 @@
+package tv.beenius.videostore.tracing;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Timed operation of a trace, e.g. a REST request, a service invocation or a statement
+ * execution. Span identifiers follow W3C Trace Context, i.e. 32 and 16 hexadecimal digits.
+ *
+ * <p>Span is started by {@link Tracing#start(String)} and becomes the current span of
+ * the thread until it is ended. Ended span is passed to the configured exporter.
+ * When tracing is disabled, a non-recording span is returned, which ignores attributes.
+ */
+public final class Span {
+
+  /** Non-recording span. */
+  static final Span NONE = new Span(null, null, null, null, false);
+
+  private final Span parent;
+
+  private final String traceId;
+
+  private final String spanId;
+
+  private final String name;
+
+  private final boolean recording;
+
+  private final long startEpochNanos;
+
+  private final long startNanos;
+
+  private long durationNanos = -1;
+
+  private final Map<String, Object> attributes = new LinkedHashMap<>();
+
+  private String error;
+
+  private Span(Span parent, String traceId, String spanId, String name, boolean recording) {
+    this.parent = parent;
+    this.traceId = traceId;
+    this.spanId = spanId;
+    this.name = name;
+    this.recording = recording;
+
+    Instant now = Instant.now();
+    this.startEpochNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * Creates recording span, a child of given parent or a root of a new trace.
+   *
+   * @param parent Parent span or null.
+   * @param name Span name.
+   * @return Span.
+   */
+  static Span child(Span parent, String name) {
+    String traceId = parent != null && parent.traceId != null ? parent.traceId : randomId(2);
+    return new Span(parent, traceId, randomId(1), name, true);
+  }
+
+  /**
+   * Creates non-recording span standing for a span of a remote caller,
+   * e.g. propagated by W3C traceparent header.
+   *
+   * @param traceId Trace identifier.
+   * @param spanId Span identifier.
+   * @return Remote span.
+   */
+  static Span remote(String traceId, String spanId) {
+    return new Span(null, traceId, spanId, null, false);
+  }
+
+  private static String randomId(int longs) {
+    StringBuilder id = new StringBuilder(16 * longs);
+    for (int i = 0; i < longs; i++) {
+      id.append(String.format("%016x", ThreadLocalRandom.current().nextLong()));
+    }
+    return id.toString();
+  }
+
+  /**
+   * Sets an attribute, e.g. {@code db.statement}.
+   *
+   * @param key Attribute key.
+   * @param value Attribute value.
+   * @return This span.
+   */
+  public Span setAttribute(String key, Object value) {
+    if (recording) {
+      attributes.put(key, value);
+    }
+    return this;
+  }
+
+  /**
+   * Marks span as failed.
+   *
+   * @param e Failure.
+   * @return This span.
+   */
+  public Span setError(Throwable e) {
+    if (recording) {
+      error = e.getClass().getName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+    }
+    return this;
+  }
+
+  /**
+   * Ends span and exports it. Parent becomes the current span when this span is current.
+   * Span is ended once, subsequent calls are ignored.
+   */
+  public void end() {
+    if (recording && durationNanos < 0) {
+      durationNanos = System.nanoTime() - startNanos;
+      Tracing.ended(this);
+    }
+  }
+
+  Span getParent() {
+    return parent;
+  }
+
+  public boolean isRecording() {
+    return recording;
+  }
+
+  public String getTraceId() {
+    return traceId;
+  }
+
+  public String getSpanId() {
+    return spanId;
+  }
+
+  /** Identifier of parent span or null for root span. */
+  public String getParentSpanId() {
+    return parent != null ? parent.spanId : null;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getStartEpochNanos() {
+    return startEpochNanos;
+  }
+
+  /** Duration of ended span, negative while span is in progress. */
+  public long getDurationNanos() {
+    return durationNanos;
+  }
+
+  public Map<String, Object> getAttributes() {
+    return Collections.unmodifiableMap(attributes);
+  }
+
+  /** Failure description or null when span succeeded. */
+  public String getError() {
+    return error;
+  }
+
+}
@@ -0,0 +1,16 @@
+package tv.beenius.videostore.tracing;
+
+/**
+ * Exports ended spans. Exporter is called by the thread ending the span,
+ * so it should not block.
+ */
+public interface SpanExporter {
+
+  /**
+   * Exports ended span.
+   *
+   * @param span Ended span.
+   */
+  void export(Span span);
+
+}
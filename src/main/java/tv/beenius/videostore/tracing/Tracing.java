@@ -0,0 +1,155 @@
+package tv.beenius.videostore.tracing;
+
+import java.nio.file.Paths;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Starts spans and keeps the current span of each thread.
+ *
+ * <p>Spans are exported in-process, no collector is needed. Exporter is selected by system
+ * property {@value #EXPORTER_PROPERTY}: {@code log} logs spans by {@link LoggingSpanExporter},
+ * {@code file} appends them as JSON lines to the file set by {@value #FILE_PROPERTY},
+ * by default {@code videostore-spans.json} in server log directory, see
+ * {@link FileSpanExporter}. Tracing is disabled by default.
+ */
+public final class Tracing {
+
+  static final String EXPORTER_PROPERTY = "videostore.tracing.exporter";
+
+  static final String FILE_PROPERTY = "videostore.tracing.file";
+
+  /** W3C traceparent header, e.g. 00-{trace id}-{parent span id}-01. */
+  private static final Pattern TRACEPARENT =
+      Pattern.compile("[0-9a-f]{2}-([0-9a-f]{32})-([0-9a-f]{16})-[0-9a-f]{2}");
+
+  private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+  private static volatile SpanExporter exporter = createExporter();
+
+  private Tracing() {
+  }
+
+  private static SpanExporter createExporter() {
+
+    switch (System.getProperty(EXPORTER_PROPERTY, "none")) {
+      case "log":
+        return new LoggingSpanExporter();
+      case "file":
+        return new FileSpanExporter(Paths.get(System.getProperty(FILE_PROPERTY, Paths.get(
+            System.getProperty("jboss.server.log.dir", "."), "videostore-spans.json")
+            .toString())));
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Replaces exporter, e.g. to collect spans in tests.
+   *
+   * @param spanExporter Exporter or null to disable tracing.
+   */
+  public static void setExporter(SpanExporter spanExporter) {
+    exporter = spanExporter;
+  }
+
+  public static boolean isEnabled() {
+    return exporter != null;
+  }
+
+  /**
+   * Starts span as a child of the current span or a root of a new trace.
+   *
+   * @param name Span name.
+   * @return Started span, non-recording when tracing is disabled.
+   */
+  public static Span start(String name) {
+    return start(name, CURRENT.get());
+  }
+
+  /**
+   * Starts span as a child of given parent and makes it the current span.
+   *
+   * @param name Span name.
+   * @param parent Parent span or null for a root of a new trace.
+   * @return Started span, non-recording when tracing is disabled.
+   */
+  public static Span start(String name, Span parent) {
+
+    if (exporter == null) {
+      return Span.NONE;
+    }
+
+    Span span = Span.child(parent, name);
+    CURRENT.set(span);
+
+    return span;
+  }
+
+  /**
+   * Retrieves the current span of the thread.
+   *
+   * @return Current span, non-recording when there is none.
+   */
+  public static Span current() {
+    Span span = CURRENT.get();
+    return span != null ? span : Span.NONE;
+  }
+
+  /**
+   * Ends spans left in progress by the thread and clears the current span, so that a pooled
+   * thread does not carry spans over, e.g. a server span of a request failed before it ended.
+   */
+  public static void clear() {
+
+    Span span;
+
+    while ((span = CURRENT.get()) != null) {
+      if (span.getDurationNanos() < 0) {
+        span.end();
+      } else {
+        CURRENT.remove();
+      }
+    }
+  }
+
+  /**
+   * Parses span of a remote caller from W3C traceparent header.
+   *
+   * @param traceparent Header value or null.
+   * @return Remote span or null when header is missing or malformed.
+   */
+  public static Span parseTraceparent(String traceparent) {
+
+    if (traceparent == null) {
+      return null;
+    }
+
+    Matcher matcher = TRACEPARENT.matcher(traceparent.trim());
+
+    return matcher.matches() ? Span.remote(matcher.group(1), matcher.group(2)) : null;
+  }
+
+  /**
+   * Restores parent in progress as the current span and exports ended span.
+   *
+   * @param span Ended span.
+   */
+  static void ended(Span span) {
+
+    if (CURRENT.get() == span) {
+      Span parent = span.getParent();
+      if (parent != null && parent.isRecording() && parent.getDurationNanos() < 0) {
+        CURRENT.set(parent);
+      } else {
+        CURRENT.remove();
+      }
+    }
+
+    SpanExporter spanExporter = exporter;
+    if (spanExporter != null) {
+      spanExporter.export(span);
+    }
+  }
+
+}
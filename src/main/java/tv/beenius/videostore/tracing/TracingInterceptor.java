@@ -0,0 +1,49 @@
+package tv.beenius.videostore.tracing;
+
+import java.lang.reflect.Method;
+
+import javax.annotation.Priority;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+
+/**
+ * Wraps invocations of {@link Traced} beans and methods into spans named by class
+ * and method, e.g. {@code RegisterService.registerMovie}, with code attributes.
+ * Span of a failed invocation carries the exception.
+ */
+@Traced
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class TracingInterceptor {
+
+  /**
+   * Wraps invocation into a span.
+   *
+   * @param ctx Invocation context.
+   * @return Invocation result.
+   * @throws Exception thrown by invocation.
+   */
+  @AroundInvoke
+  public Object trace(InvocationContext ctx) throws Exception {
+
+    if (! Tracing.isEnabled()) {
+      return ctx.proceed();
+    }
+
+    Method method = ctx.getMethod();
+    Span span = Tracing.start(method.getDeclaringClass().getSimpleName() + "." + method.getName())
+        .setAttribute("code.namespace", method.getDeclaringClass().getName())
+        .setAttribute("code.function", method.getName());
+
+    try {
+      return ctx.proceed();
+    } catch (Exception e) {
+      span.setError(e);
+      throw e;
+    } finally {
+      span.end();
+    }
+  }
+
+}
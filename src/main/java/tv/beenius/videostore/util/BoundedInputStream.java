@@ -0,0 +1,78 @@
+package tv.beenius.videostore.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import tv.beenius.videostore.exception.ContentTooLargeException;
+
+/**
+ * Input stream failing by {@link ContentTooLargeException} as soon as more than maximal
+ * number of bytes is read. Intended to stop oversized uploads early, i.e. before they are
+ * read completely.
+ */
+public class BoundedInputStream extends FilterInputStream {
+
+  private final long maxLength;
+
+  private long length;
+
+  /**
+   * Bounded input stream.
+   *
+   * @param in Underlying input stream.
+   * @param maxLength Maximal number of bytes.
+   */
+  public BoundedInputStream(InputStream in, long maxLength) {
+    super(in);
+    this.maxLength = maxLength;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if (b != -1) {
+      count(1);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int read = super.read(b, off, len);
+    if (read > 0) {
+      count(read);
+    }
+    return read;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = super.skip(n);
+    count(skipped);
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  /**
+   * Number of bytes read so far.
+   *
+   * @return Number of bytes.
+   */
+  public long getLength() {
+    return length;
+  }
+
+  private void count(long read) throws IOException {
+    length += read;
+    if (length > maxLength) {
+      throw new ContentTooLargeException(
+          "Content exceeds maximal length of " + maxLength + " bytes.");
+    }
+  }
+
+}
@@ -1,9 +1,21 @@
 package tv.beenius.videostore.util;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 
+import javax.faces.context.FacesContext;
 import javax.faces.event.AjaxBehaviorEvent;
 import javax.faces.model.DataModel;
+import javax.faces.model.ListDataModel;
+
+import tv.beenius.videostore.event.EntityChange.Operation;
 
 /**
  * Supports pagination of dataTable.
@@ -17,6 +29,12 @@ import javax.faces.model.DataModel;
  * just before declaration of Paginator element in the caller code. For example:
  * f:event type="preRenderView" listener="#{movieListing.refresh}" 
  * 
+ * <p>Refresh triggered by WebSocket push should pass pushed changes as request parameter
+ * {@value #CHANGES_PARAMETER}, e.g. via h:commandScript called from f:websocket onmessage
+ * with {@code {changes: JSON.stringify(message.changes)}}. Extended class may then apply
+ * the changes to its current page in {@link #applyChanges(Map)} instead of reloading it.
+ * Notification flagged for reload, i.e. w/o changes, should refresh w/o the parameter.
+ * 
  * <p>Base paginator code and explanation can be found at:
  * https://dwuysan.wordpress.com/2013/11/17/using-jsf-2-2-features-to-develop-ajax-scrollable-lazy-loading-data-table/
  *
@@ -28,6 +46,12 @@ public abstract class DataListingSupport<T extends Serializable> implements Seri
   // Selected from Paginator radio button values. 
   protected static int DEFAULT_PAGINATOR_ROWS_PER_PAGE = 10;
   
+  /** Request parameter carrying pushed changes by entity type and identifier. */
+  public static final String CHANGES_PARAMETER = "changes";
+  
+  private static final TypeReference<Map<String, Map<String, Operation>>> CHANGES_TYPE =
+      new TypeReference<Map<String, Map<String, Operation>>>() {};
+  
   // Paginator variables shared with JSF view - implemented.
   private long recordCount = 0;
   private int totalPages = 0;
@@ -71,9 +95,18 @@ public abstract class DataListingSupport<T extends Serializable> implements Seri
   /**
    * Reloads a page of data from database according to filtering and paging criteria.
    * Calculates total number of pages in database.
+   * 
+   * <p>Page is not reloaded when refresh has been triggered by pushed changes 
+   * that have been applied to the current page.
    */
   public void refresh() {
     
+    Optional<Map<String, Map<String, Operation>>> changes = getPushedChanges();
+    
+    if (changes.isPresent() && getData() != null && applyChanges(changes.get())) {
+      return;
+    }
+    
     // Hook to extended class to populate data and record count.
     refreshDataModel();
     
@@ -92,6 +125,94 @@ public abstract class DataListingSupport<T extends Serializable> implements Seri
    */
   protected abstract void refreshDataModel();
 
+  /**
+   * Applies pushed changes to the current page instead of reloading it.
+   * Default implementation does not apply changes, i.e. page is reloaded.
+   * 
+   * @param changes Operations by entity type simple name and identifier.
+   * @return True when current page is up to date, false when it has to be reloaded.
+   */
+  protected boolean applyChanges(Map<String, Map<String, Operation>> changes) {
+    return false;
+  }
+
+  /**
+   * Replaces updated rows of the current page by their current state.
+   * 
+   * <p>Creation and removal change record count and shift rows between pages,
+   * so the page has to be reloaded. Updated entities not displayed on the current page
+   * do not affect it. Updated rows keep their position until the page is reloaded.
+   * 
+   * @param changes Operations by identifier of the entity type listed, may be null.
+   * @param idOf Retrieves row identifier.
+   * @param finder Retrieves current state of an entity by identifier.
+   * @return True when current page is up to date, false when it has to be reloaded.
+   */
+  protected boolean patchRows(
+      Map<String, Operation> changes, 
+      Function<T, Object> idOf, 
+      Function<String, Optional<T>> finder) {
+    
+    if (changes == null || changes.isEmpty()) {
+      return true;
+    }
+    
+    if (changes.values().stream().anyMatch(operation -> operation != Operation.UPDATED)) {
+      return false;
+    }
+    
+    List<T> rows = new ArrayList<>();
+    
+    for (T row : getData()) {
+      String id = String.valueOf(idOf.apply(row));
+      
+      if (changes.containsKey(id)) {
+        Optional<T> updated = finder.apply(id);
+        
+        if (! updated.isPresent()) {
+          return false;
+        }
+        
+        rows.add(updated.get());
+      } else {
+        rows.add(row);
+      }
+    }
+    
+    setData(new ListDataModel<>(rows));
+    return true;
+  }
+
+  /**
+   * Retrieves changes pushed with the current request.
+   * 
+   * @return Operations by entity type and identifier, empty when request does not carry
+   *         changes or they cannot be parsed.
+   */
+  private static Optional<Map<String, Map<String, Operation>>> getPushedChanges() {
+    
+    FacesContext context = FacesContext.getCurrentInstance();
+    
+    if (context == null) {
+      return Optional.empty();
+    }
+    
+    String changes = context.getExternalContext()
+        .getRequestParameterMap().get(CHANGES_PARAMETER);
+    
+    if (changes == null || changes.isBlank()) {
+      return Optional.empty();
+    }
+    
+    try {
+      Map<String, Map<String, Operation>> parsed = 
+          Resources.getObjectMapper().readValue(changes, CHANGES_TYPE);
+      return Optional.of(parsed == null ? Collections.emptyMap() : parsed);
+    } catch (IOException ioe) {
+      return Optional.empty();
+    }
+  }
+
   /**
    * Calculate number of pages in database respecting paging and filtering criteria.
    * 
@@ -0,0 +1,58 @@
+package tv.beenius.videostore.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 hashing shared by blob keys, content hashes and revisions.
+ */
+public final class HashUtil {
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private HashUtil() {
+    super();
+  }
+
+  /**
+   * Creates a SHA-256 digest, e.g. to hash streamed content.
+   *
+   * @return Message digest.
+   */
+  public static MessageDigest newSha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException nsae) {
+      throw new IllegalStateException("SHA-256 digest is not supported.", nsae);
+    }
+  }
+
+  /**
+   * Computes SHA-256 hash of content.
+   *
+   * @param content Content.
+   * @return Lowercase hexadecimal hash string.
+   */
+  public static String sha256Hex(byte[] content) {
+    return toHex(newSha256().digest(content));
+  }
+
+  /**
+   * Encodes digest as lowercase hexadecimal string.
+   *
+   * @param digest Digest.
+   * @return Hexadecimal string.
+   */
+  public static String toHex(byte[] digest) {
+
+    char[] hex = new char[digest.length * 2];
+
+    for (int i = 0; i < digest.length; i++) {
+      hex[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0x0F];
+      hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0x0F];
+    }
+
+    return new String(hex);
+  }
+
+}
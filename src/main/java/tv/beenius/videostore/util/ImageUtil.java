@@ -1,20 +1,43 @@
 package tv.beenius.videostore.util;
 
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.Iterator;
+import java.util.Set;
 
 import javax.imageio.ImageIO;
-import javax.servlet.http.Part;
-
-import org.jboss.resteasy.plugins.providers.multipart.InputPart;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 @SuppressWarnings("serial")
 public class ImageUtil implements Serializable {
   
+  /** System property with maximal size of uploaded image content in bytes. */
+  public static final String MAX_UPLOAD_BYTES_PROPERTY = "videostore.upload.maxBytes";
+  
+  /** System property with maximal number of pixels of a scaled image. */
+  public static final String MAX_IMAGE_PIXELS_PROPERTY = "videostore.image.maxPixels";
+  
+  /** Number of leading content bytes needed for media type detection. */
+  public static final int MEDIA_TYPE_HEAD_LENGTH = 16;
+  
+  private static final long DEFAULT_MAX_UPLOAD_BYTES = 20L * 1024 * 1024;
+  
+  private static final long DEFAULT_MAX_IMAGE_PIXELS = 50L * 1000 * 1000;
+  
+  private static final String DEFAULT_MEDIA_TYPE = "application/octet-stream";
+  
+  private static final Set<String> SUPPORTED_MEDIA_TYPES = 
+      Set.of("image/jpeg", "image/png", "image/gif");
+  
   public ImageUtil() {
     super();
   }
@@ -71,55 +94,177 @@ public class ImageUtil implements Serializable {
   }
   
   /**
-   * Reads image from Part.
+   * Retrieves maximal size of uploaded image content.
+   * Configured by system property {@value #MAX_UPLOAD_BYTES_PROPERTY}, defaults to 20 MiB.
+   * 
+   * @return Maximal content length in bytes.
+   */
+  public long getMaxUploadBytes() {
+    return Long.getLong(MAX_UPLOAD_BYTES_PROPERTY, DEFAULT_MAX_UPLOAD_BYTES);
+  }
+
+  /**
+   * Retrieves maximal number of pixels of an image to be scaled.
+   * Configured by system property {@value #MAX_IMAGE_PIXELS_PROPERTY}, defaults to 50 million.
+   * 
+   * @return Maximal width times height.
+   */
+  public long getMaxImagePixels() {
+    return Long.getLong(MAX_IMAGE_PIXELS_PROPERTY, DEFAULT_MAX_IMAGE_PIXELS);
+  }
+
+  /**
+   * Detects image media type from leading (magic) bytes of image content.
    * 
-   * @param part Part.
-   * @return Byte array with file content.
-   * @throws IOException on read exception.
+   * @param content Image content.
+   * @return Media type, e.g. image/jpeg, or application/octet-stream when unknown.
    */
-  public byte[] getImageFromPart(Part part) throws IOException {
+  public String getMediaType(byte[] content) {
     
-    if (part == null) {
-      return null;
+    if (content == null) {
+      return DEFAULT_MEDIA_TYPE;
     }
     
-    InputStream imageInputStream = part.getInputStream();
-    
-    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-    byte[] buffer = new byte[1024];
-    int len;
-    
-    while ((len = imageInputStream.read(buffer)) != -1) {
-      byteArrayOutputStream.write(buffer, 0, len);
+    if (startsWith(content, 0, 0xFF, 0xD8, 0xFF)) {
+      return "image/jpeg";
+    }
+    if (startsWith(content, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+      return "image/png";
+    }
+    if (startsWith(content, 0, 'G', 'I', 'F', '8')) {
+      return "image/gif";
+    }
+    if (startsWith(content, 0, 'R', 'I', 'F', 'F') 
+        && startsWith(content, 8, 'W', 'E', 'B', 'P')) {
+      return "image/webp";
     }
     
-    return byteArrayOutputStream.toByteArray();
+    return DEFAULT_MEDIA_TYPE;
   }
-
+  
+  /**
+   * Checks whether media type detected by {@link #getMediaType(byte[])} is a supported image,
+   * i.e. JPEG, PNG or GIF. WebP is detected but not supported, since it cannot be decoded
+   * by JDK image I/O and thus cannot be scaled.
+   * 
+   * @param mediaType Detected media type.
+   * @return True when image is supported.
+   */
+  public boolean isSupportedImage(String mediaType) {
+    return SUPPORTED_MEDIA_TYPES.contains(mediaType);
+  }
+  
   /**
-   * Reads image from InputPart.
+   * Computes SHA-256 hash of image content.
+   * Hash is intended for strong entity tags.
+   * 
+   * @param content Image content.
+   * @return Hexadecimal hash string.
+   */
+  public String getContentHash(byte[] content) {
+    return HashUtil.sha256Hex(content);
+  }
+  
+  /**
+   * Scales image down to fit into a square of given dimension keeping aspect ratio.
+   * 
+   * <p>Image dimensions are read from the header first, images with more pixels than
+   * {@link #getMaxImagePixels()} are rejected w/o decoding. Large images are decoded
+   * subsampled to at least double the target dimension and then halved step by step before
+   * final bilinear scaling, which keeps quality close to bicubic at a fraction of the cost
+   * and memory. Opaque images are encoded as JPEG, images with transparency as PNG.
+   * Images already fitting into the square are kept as is.
    * 
-   * @param part Part.
-   * @return Byte array with file content.
-   * @throws IOException on read exception.
+   * @param content Image content.
+   * @param maxDimension Maximum width and height in pixels.
+   * @return Scaled image content.
+   * @throws IOException when content is not a supported image or has too many pixels.
    */
-  public byte[] getImageFromInputPart(InputPart part) throws IOException {
+  public byte[] scale(byte[] content, int maxDimension) throws IOException {
     
-    if (part == null) {
-      return null;
+    BufferedImage image;
+    
+    try (ImageInputStream input = 
+        ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+      
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+      
+      if (! readers.hasNext()) {
+        throw new IOException("Image format is not supported.");
+      }
+      
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        int sourceWidth = reader.getWidth(0);
+        int sourceHeight = reader.getHeight(0);
+        
+        if ((long) sourceWidth * sourceHeight > getMaxImagePixels()) {
+          throw new IOException("Image of " + sourceWidth + "x" + sourceHeight 
+              + " pixels exceeds limit of " + getMaxImagePixels() + " pixels.");
+        }
+        
+        int sourceDimension = Math.max(sourceWidth, sourceHeight);
+        
+        if (sourceDimension <= maxDimension) {
+          return content;
+        }
+        
+        int step = Math.max(1, sourceDimension / (2 * maxDimension));
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(step, step, 0, 0);
+        image = reader.read(0, param);
+      } finally {
+        reader.dispose();
+      }
+    }
+    
+    double ratio = (double) maxDimension / Math.max(image.getWidth(), image.getHeight());
+    
+    if (ratio >= 1.0) {
+      return content;
     }
     
-    InputStream imageInputStream = part.getBody(InputStream.class,null);
+    int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+    int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+    boolean alpha = image.getColorModel().hasAlpha();
+    
+    int width = image.getWidth();
+    int height = image.getHeight();
+    do {
+      width = Math.max(targetWidth, width / 2);
+      height = Math.max(targetHeight, height / 2);
+      
+      BufferedImage scaled = new BufferedImage(
+          width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = scaled.createGraphics();
+      graphics.setRenderingHint(
+          RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.drawImage(image, 0, 0, width, height, null);
+      graphics.dispose();
+      
+      image = scaled;
+    } while (width != targetWidth || height != targetHeight);
+    
+    ByteArrayOutputStream byteOutStream = new ByteArrayOutputStream();
+    ImageIO.write(image, alpha ? "png" : "jpg", byteOutStream);
+    
+    return byteOutStream.toByteArray();
+  }
+  
+  private static boolean startsWith(byte[] content, int offset, int... signature) {
     
-    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-    byte[] buffer = new byte[1024];
-    int len;
+    if (content.length < offset + signature.length) {
+      return false;
+    }
     
-    while ((len = imageInputStream.read(buffer)) != -1) {
-      byteArrayOutputStream.write(buffer, 0, len);
+    for (int i = 0; i < signature.length; i++) {
+      if ((content[offset + i] & 0xFF) != signature[i]) {
+        return false;
+      }
     }
     
-    return byteArrayOutputStream.toByteArray();
+    return true;
   }
 
 }
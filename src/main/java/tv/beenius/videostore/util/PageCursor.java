@@ -0,0 +1,67 @@
+package tv.beenius.videostore.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque cursor for keyset (seek) pagination.
+ *
+ * <p>A cursor wraps sort keys of the last record of a page. The keys are
+ * serialized as a JSON array and encoded as URL safe Base64 string,
+ * so clients should treat it as an opaque token and pass it back unchanged.
+ */
+public final class PageCursor {
+
+  private static final TypeReference<List<String>> KEYS_TYPE =
+      new TypeReference<List<String>>() {};
+
+  private PageCursor() {
+    super();
+  }
+
+  /**
+   * Encodes sort keys into an opaque cursor.
+   *
+   * @param keys Sort keys of the last record of a page. Null keys are supported.
+   * @return Cursor.
+   */
+  public static String encode(String... keys) {
+    try {
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString(Resources.getObjectMapper().writeValueAsBytes(Arrays.asList(keys)));
+    } catch (IOException ioe) {
+      throw new IllegalStateException("Cursor cannot be encoded.", ioe);
+    }
+  }
+
+  /**
+   * Decodes an opaque cursor into sort keys.
+   *
+   * @param cursor Cursor obtained by {@link #encode(String...)}.
+   * @param keyCount Expected number of sort keys.
+   * @return List of sort keys.
+   * @throws IllegalArgumentException on malformed cursor.
+   */
+  public static List<String> decode(String cursor, int keyCount) {
+
+    List<String> keys;
+
+    try {
+      keys = Resources.getObjectMapper()
+          .readValue(Base64.getUrlDecoder().decode(cursor), KEYS_TYPE);
+    } catch (IOException | IllegalArgumentException e) {
+      throw new IllegalArgumentException("Cursor {" + cursor + "} is malformed.", e);
+    }
+
+    if (keys == null || keys.size() != keyCount) {
+      throw new IllegalArgumentException("Cursor {" + cursor + "} is malformed.");
+    }
+
+    return keys;
+  }
+
+}
@@ -1,5 +1,7 @@
 package tv.beenius.videostore.util;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.util.logging.Logger;
 
 import javax.enterprise.context.RequestScoped;
@@ -11,6 +13,10 @@ import javax.persistence.PersistenceContext;
 
 public class Resources {
 
+  /** Mapper is thread-safe once configured, so a single instance is shared. */
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+      .registerModule(new JavaTimeModule());
+
   @Produces
   @PersistenceContext
   private EntityManager em;
@@ -22,6 +28,26 @@ public class Resources {
                                           .getName());
   }
   
+  /**
+   * Produces JSON mapper shared by JAX-RS entity providers, import and multipart attributes.
+   * 
+   * @return Configured mapper.
+   */
+  @Produces
+  public ObjectMapper produceObjectMapper() {
+    return OBJECT_MAPPER;
+  }
+  
+  /**
+   * Retrieves the shared JSON mapper for code w/o injection, e.g. static helpers,
+   * serializable listings and span exporters.
+   * 
+   * @return Configured mapper.
+   */
+  public static ObjectMapper getObjectMapper() {
+    return OBJECT_MAPPER;
+  }
+  
   @Produces
   @RequestScoped
   public FacesContext produceFacesContext() {
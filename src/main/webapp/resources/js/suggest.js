@@ -0,0 +1,27 @@
+/*
+ * Typeahead for text filters. Inputs with data-suggest attribute (movie or actor)
+ * fill their datalist from GET rest/registration/suggest while typing.
+ */
+document.addEventListener("input", function (event) {
+	var input = event.target;
+	var type = input.getAttribute("data-suggest");
+	var list = input.list;
+
+	if (!type || !list || input.value.trim() === "") {
+		return;
+	}
+
+	var url = "rest/registration/suggest?type=" + type
+			+ "&q=" + encodeURIComponent(input.value.trim());
+
+	fetch(url)
+		.then(function (response) { return response.ok ? response.json() : []; })
+		.then(function (suggestions) {
+			list.innerHTML = "";
+			suggestions.forEach(function (suggestion) {
+				var option = document.createElement("option");
+				option.value = suggestion.text;
+				list.appendChild(option);
+			});
+		});
+});
@@ -1,20 +1,49 @@
 package tv.beenius.videostore.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.faces.push.PushContext;
+import javax.imageio.ImageIO;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.transaction.UserTransaction;
 
+import org.eclipse.microprofile.metrics.Counting;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.annotation.RegistryType;
 import org.hamcrest.Matchers;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
@@ -27,13 +56,54 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import tv.beenius.videostore.data.ActorRepository;
+import tv.beenius.videostore.data.BlobStore;
+import tv.beenius.videostore.data.FileSystemBlobStore;
 import tv.beenius.videostore.data.ImageRepository;
 import tv.beenius.videostore.data.MovieRepository;
+import tv.beenius.videostore.data.OutboxRepository;
+import tv.beenius.videostore.data.Revision;
+import tv.beenius.videostore.data.SecondLevelCache;
+import tv.beenius.videostore.event.ActorEvent;
+import tv.beenius.videostore.event.ChangeFeed;
+import tv.beenius.videostore.event.ChangeFeed.FeedEvent;
+import tv.beenius.videostore.event.ChangeNotificationDispatcher;
+import tv.beenius.videostore.event.ChangeOutbox;
+import tv.beenius.videostore.event.EntityChange;
+import tv.beenius.videostore.event.EntityChangeBatch;
+import tv.beenius.videostore.event.MovieEvent;
+import tv.beenius.videostore.exception.ContentTooLargeException;
 import tv.beenius.videostore.exception.EjbConstraintViolationException;
 import tv.beenius.videostore.exception.EjbValidationException;
+import tv.beenius.videostore.metrics.ApplicationGauges;
+import tv.beenius.videostore.metrics.InstrumentationInterceptor;
+import tv.beenius.videostore.metrics.Instrumented;
+import tv.beenius.videostore.metrics.Instrumented.Layer;
+import tv.beenius.videostore.metrics.StatementCounter;
+import tv.beenius.videostore.metrics.StatementReporter;
+import tv.beenius.videostore.metrics.StatementScope;
+import tv.beenius.videostore.metrics.StatementTimer;
 import tv.beenius.videostore.model.Actor;
+import tv.beenius.videostore.model.Cast;
 import tv.beenius.videostore.model.Image;
+import tv.beenius.videostore.model.ImageRendition;
 import tv.beenius.videostore.model.Movie;
+import tv.beenius.videostore.model.OutboxEvent;
+import tv.beenius.videostore.model.RenditionSize;
+import tv.beenius.videostore.model.Versioned;
+import tv.beenius.videostore.rest.ChangeStreamer;
+import tv.beenius.videostore.search.ActorSearchIndex;
+import tv.beenius.videostore.search.MovieSearchIndex;
+import tv.beenius.videostore.search.PrefixIndex;
+import tv.beenius.videostore.search.Suggestion;
+import tv.beenius.videostore.search.TextIndex;
+import tv.beenius.videostore.tracing.FileSpanExporter;
+import tv.beenius.videostore.tracing.LoggingSpanExporter;
+import tv.beenius.videostore.tracing.Span;
+import tv.beenius.videostore.tracing.SpanExporter;
+import tv.beenius.videostore.tracing.Traced;
+import tv.beenius.videostore.tracing.Tracing;
+import tv.beenius.videostore.tracing.TracingInterceptor;
+import tv.beenius.videostore.util.BoundedInputStream;
 import tv.beenius.videostore.util.ImageUtil;
 import tv.beenius.videostore.util.Resources;
 
@@ -54,16 +124,60 @@ public class RegisterServiceIT {
     Archive<?> testArchive = ShrinkWrap.create(WebArchive.class, "videostoreTest.war")
         .addClasses(
             Actor.class, 
+            ActorEvent.class,
             ActorRepository.class, 
+            ActorSearchIndex.class,
+            ApplicationGauges.class,
+            BlobStore.class,
+            BoundedInputStream.class,
+            Cast.class,
+            ChangeFeed.class,
+            ChangeNotificationDispatcher.class,
+            ChangeOutbox.class,
+            ChangeRelay.class,
+            ChangeStreamer.class,
+            ContentTooLargeException.class,
             EjbConstraintViolationException.class,
             EjbValidationException.class,
+            EntityChange.class,
+            EntityChangeBatch.class,
+            FileSpanExporter.class,
+            FileSystemBlobStore.class,
             Image.class,
+            ImageRendition.class,
             ImageRepository.class,
             ImageUtil.class, 
+            ImportBatchWriter.class,
+            ImportReport.class,
+            InstrumentationInterceptor.class,
+            Instrumented.class,
+            LoggingSpanExporter.class,
             Movie.class, 
+            MovieEvent.class,
             MovieRepository.class,
+            MovieSearchIndex.class,
+            OutboxEvent.class,
+            OutboxRepository.class,
+            PrefixIndex.class,
             RegisterService.class,
-            Resources.class)
+            RenditionService.class,
+            RenditionSize.class,
+            RenditionWorker.class,
+            Resources.class,
+            Revision.class,
+            SecondLevelCache.class,
+            Span.class,
+            SpanExporter.class,
+            StatementCounter.class,
+            StatementReporter.class,
+            StatementScope.class,
+            StatementTimer.class,
+            Suggestion.class,
+            TextIndex.class,
+            Traced.class,
+            Tracing.class,
+            TracingInterceptor.class,
+            Versioned.class)
         .addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
         .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml")
         .addAsWebInfResource("videostore-test-ds.xml")
@@ -75,7 +189,8 @@ public class RegisterServiceIT {
   }
   
   private static List<String> TABLE_NAMES = 
-      new ArrayList<>(Arrays.asList("ACTOR", "CAST", "IMAGE", "MOVIE", "MOVIE_IMAGE"));
+      new ArrayList<>(Arrays.asList(
+          "ACTOR", "CAST", "IMAGE", "IMAGE_RENDITION", "MOVIE", "MOVIE_IMAGE", "OUTBOX_EVENT"));
 
   @Inject
   RegisterService registerService;
@@ -83,6 +198,37 @@ public class RegisterServiceIT {
   @Inject
   ImageUtil imageUtil;
   
+  @Inject
+  ImportBatchWriter importBatchWriter;
+  
+  @Inject
+  ActorSearchIndex actorSearchIndex;
+  
+  @Inject
+  MovieSearchIndex movieSearchIndex;
+  
+  @Inject
+  MovieRepository movieRepository;
+  
+  @Inject
+  ChangeNotificationDispatcher notificationDispatcher;
+  
+  @Inject
+  ChangeFeed changeFeed;
+  
+  @Inject
+  ChangeRelay changeRelay;
+  
+  @Inject
+  RenditionWorker renditionWorker;
+  
+  @Inject
+  ObjectMapper objectMapper;
+  
+  @Inject
+  @RegistryType(type = MetricRegistry.Type.APPLICATION)
+  MetricRegistry metricRegistry;
+  
   @PersistenceContext
   EntityManager em;
 
@@ -133,6 +279,8 @@ public class RegisterServiceIT {
    * <p>@throws Exception
    */  
   private void clearPersistenceData() throws Exception {
+    changeRelay.relay();
+    
     utx.begin();
     em.flush();
     em.createNativeQuery("SET REFERENTIAL_INTEGRITY FALSE").executeUpdate();
@@ -141,6 +289,10 @@ public class RegisterServiceIT {
         .executeUpdate());
     em.createNativeQuery("SET REFERENTIAL_INTEGRITY TRUE").executeUpdate();
     utx.commit();
+    
+    // Tables are truncated bypassing events, so search indexes are rebuilt.
+    actorSearchIndex.reindex();
+    movieSearchIndex.reindex();
   }
   
   private void instantiateEntities() throws Exception {
@@ -361,6 +513,35 @@ public class RegisterServiceIT {
     assertEquals(1, registeredActors.size());    
   }
 
+  /**
+   * Testing:  JPA creation of entities via RegisterService.
+   * Scenario: Register an actor with two movies, one of them already registered.
+   * Expected: Registration is rejected and actor is not registered.
+   */
+  @Test
+  public void testRegisterActorWithRegisteredMovie() throws Exception {
+
+    // Registration.
+
+    registerService.registerMovie(movieZombieland);
+
+    actorBillMurray.addMovie(movieGroudhogDay);
+    actorBillMurray.addMovie(movieZombieland);
+
+    boolean rejected = false;
+    try {
+      registerService.registerActor(actorBillMurray);
+    } catch (EjbValidationException ve) {
+      rejected = true;
+    }
+
+    // Validate rejected registration.
+
+    assertTrue(rejected);
+    assertEquals(0, registerService.countActors());
+    assertEquals(1, registerService.countMovies());
+  }
+
   /**
    * Testing: JPA creation of entities via RegisterService.
    * Scenario: Register two movies with same actor. Second way to do it.
@@ -503,6 +684,7 @@ public class RegisterServiceIT {
     
     registerService.registerMovie(movieGroudhogDay);
     registerService.registerMovie(movieZombieland);
+    changeRelay.relay();
     
     registeredMovies = registerService.findMovieByTitleSearch("hog");
     
@@ -860,6 +1042,7 @@ public class RegisterServiceIT {
     registerService.registerMovie(movieArtOfSelfdefense);
     registerService.registerMovie(movieGroudhogDay);
     registerService.registerMovie(movieZombieland);
+    changeRelay.relay();
     
     // Retrieve first page of Movies.
 
@@ -905,7 +1088,85 @@ public class RegisterServiceIT {
     assertThat(registeredActors, 
         Matchers.hasItem(
             Matchers.hasProperty("id", Matchers.is(actorBillMurray.getId()))));
-  }  
+  }
+
+  /**
+   * Testing: JPA keyset retrieval of entities via RegisterService.
+   * Scenario: Register three movies. Define page size 2.
+   *           Find first page and then the page after its last movie.
+   *           Movies are sorted by title and imdbId.
+   * Expected: Two movies on first page, single movie on second page.
+   */
+  @Test
+  public void testFindPageOfMoviesAfter() throws Exception {
+
+    // Registration.
+
+    registerService.registerMovie(movieArtOfSelfdefense);
+    registerService.registerMovie(movieGroudhogDay);
+    registerService.registerMovie(movieZombieland);
+
+    // Retrieve first page of movies.
+
+    registeredMovies = registerService.findPageOfMoviesAfter(null, null, 2);
+
+    assertEquals(2, registeredMovies.size());
+
+    // Retrieve page after last movie.
+
+    Movie lastMovie = registeredMovies.get(1);
+    registeredMovies = registerService
+        .findPageOfMoviesAfter(lastMovie.getTitle(), lastMovie.getImdbId(), 2);
+
+    // Validate retrieved movies.
+
+    assertEquals(1, registeredMovies.size());
+
+    assertThat(registeredMovies,
+        Matchers.hasItem(
+            Matchers.hasProperty("imdbId", Matchers.is(movieZombieland.getImdbId()))));
+  }
+
+  /**
+   * Testing: JPA keyset retrieval of entities via RegisterService.
+   * Scenario: Register four actors. Define page size 2.
+   *           Find first page and then the page after its last actor.
+   *           Actors are sorted by last name, first name and id.
+   * Expected: Two actors are found on second page.
+   */
+  @Test
+  public void testFindPageOfActorsAfter() throws Exception {
+
+    // Registration.
+
+    actorAndyMacDowell = registerService.registerActor(actorAndyMacDowell);
+    actorBillMurray = registerService.registerActor(actorBillMurray);
+    registerService.registerActor(actorChrisElliott);
+    registerService.registerActor(actorJesseEisenberg);
+
+    // Retrieve first page of actors.
+
+    registeredActors = registerService.findPageOfActorsAfter(null, null, null, 2);
+
+    assertEquals(2, registeredActors.size());
+
+    // Retrieve page after last actor.
+
+    Actor lastActor = registeredActors.get(1);
+    registeredActors = registerService.findPageOfActorsAfter(
+        lastActor.getLastName().orElse(null), lastActor.getFirstName(), lastActor.getId(), 2);
+
+    // Validate retrieved actors.
+
+    assertEquals(2, registeredActors.size());
+
+    assertThat(registeredActors,
+        Matchers.hasItem(
+            Matchers.hasProperty("id", Matchers.is(actorAndyMacDowell.getId()))));
+    assertThat(registeredActors,
+        Matchers.hasItem(
+            Matchers.hasProperty("id", Matchers.is(actorBillMurray.getId()))));
+  }
 
   /**
    * Testing: JPA registering image to a movie via RegisterService.
@@ -936,6 +1197,152 @@ public class RegisterServiceIT {
                 Matchers.is(registeredImage.getId()))));
   }
 
+  /**
+   * Testing: JPA retrieval of image content via RegisterService.
+   * Scenario: Register two images to a movie. Retrieve images lazily and content separately.
+   * Expected: Images are retrieved w/o content, content matches registered content.
+   */
+  @Test
+  public void testFindImageContent() throws Exception {
+
+    // Registration.
+
+    movieGroudhogDay.getImages().add(imageGroundhogDayAlarmClock);
+    movieGroudhogDay.getImages().add(imageGroundhogDayPoster);
+    registerService.registerMovie(movieGroudhogDay);
+
+    // Retrieve images w/o content.
+
+    registeredImages = registerService.findMovieImagesLazily(movieGroudhogDay.getImdbId());
+    assertEquals(2, registeredImages.size());
+
+    registeredImage = registeredImages.get(1);
+    assertEquals(imageGroundhogDayPoster.getId(), registeredImage.getId());
+    assertEquals(null, registeredImage.getContent());
+
+    // Retrieve content.
+
+    Optional<byte[]> optionalContent = registerService.findImageContent(registeredImage.getId());
+    assertTrue(optionalContent.isPresent());
+    assertTrue(Arrays.equals(imageGroundhogDayPosterContent, optionalContent.get()));
+  }
+
+  /**
+   * Testing: Content addressed storage of image content via RegisterService.
+   * Scenario: Register identical content as images of two movies.
+   * Expected: Images reference the same content hash, content is retrieved for both.
+   */
+  @Test
+  public void testImageContentDeduplication() throws Exception {
+
+    // Registration.
+
+    Image imageZombielandPoster = new Image();
+    imageZombielandPoster.setDescription("Poster of Zombieland.");
+    imageZombielandPoster.setContent(imageGroundhogDayPosterContent);
+
+    registerService.registerMovie(movieGroudhogDay);
+    registerService.registerMovie(movieZombieland);
+    registerService.registerMovieImage(movieGroudhogDay.getImdbId(), imageGroundhogDayPoster);
+    registerService.registerMovieImage(movieZombieland.getImdbId(), imageZombielandPoster);
+
+    // Validate content references.
+
+    Image groundhogDayPoster = 
+        registerService.findMovieImageById(imageGroundhogDayPoster.getId()).get();
+    Image zombielandPoster = 
+        registerService.findMovieImageById(imageZombielandPoster.getId()).get();
+
+    assertNotEquals(groundhogDayPoster.getId(), zombielandPoster.getId());
+    assertEquals(groundhogDayPoster.getContentHash(), zombielandPoster.getContentHash());
+    assertEquals(imageUtil.getContentHash(imageGroundhogDayPosterContent), 
+        zombielandPoster.getContentHash());
+    assertEquals(Long.valueOf(imageGroundhogDayPosterContent.length), 
+        zombielandPoster.getContentLength());
+    assertEquals(imageUtil.getMediaType(imageGroundhogDayPosterContent), 
+        zombielandPoster.getMediaType());
+
+    // Retrieve content.
+
+    assertTrue(Arrays.equals(imageGroundhogDayPosterContent, 
+        registerService.findImageContent(zombielandPoster.getId()).get()));
+  }
+
+  /**
+   * Testing: Streaming upload of image content via RegisterService.
+   * Scenario: Upload content as a stream and register image. Upload oversized content.
+   * Expected: Registered image references uploaded content. Oversized upload is rejected.
+   */
+  @Test
+  public void testUploadImageContent() throws Exception {
+
+    // Upload and registration.
+
+    registerService.registerMovie(movieGroudhogDay);
+
+    Image image = new Image();
+    image.setDescription("Poster of GroundhogDay.");
+    registerService.uploadImageContent(
+        image, new ByteArrayInputStream(imageGroundhogDayPosterContent));
+    registeredImage = registerService.registerMovieImage(movieGroudhogDay.getImdbId(), image);
+
+    // Validate uploaded content.
+
+    assertEquals(imageUtil.getMediaType(imageGroundhogDayPosterContent), 
+        registeredImage.getMediaType());
+    assertTrue(Arrays.equals(imageGroundhogDayPosterContent, 
+        registerService.findImageContent(registeredImage.getId()).get()));
+
+    // Oversized upload.
+
+    InputStream oversizedInput = new SequenceInputStream(
+        new ByteArrayInputStream(imageGroundhogDayPosterContent),
+        new ByteArrayInputStream(new byte[(int) imageUtil.getMaxUploadBytes()]));
+
+    boolean rejected = false;
+    try {
+      registerService.uploadImageContent(new Image(), oversizedInput);
+    } catch (ContentTooLargeException ctle) {
+      rejected = true;
+    }
+
+    assertTrue(rejected);
+  }
+
+  /**
+   * Testing: Transfer of image content window via RegisterService.
+   * Scenario: Register an image. Transfer a window inside content and a window past its end.
+   * Expected: Only window bytes are transferred, window past end is truncated.
+   */
+  @Test
+  public void testTransferContentWindow() throws Exception {
+
+    // Registration.
+
+    registerService.registerMovie(movieGroudhogDay);
+    registeredImage = registerService
+        .registerMovieImage(movieGroudhogDay.getImdbId(), imageGroundhogDayPoster);
+    String contentHash = registeredImage.getContentHash();
+    int length = imageGroundhogDayPosterContent.length;
+
+    // Transfer window inside content.
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    assertEquals(20, registerService.transferContent(
+        contentHash, 10, 20, Channels.newChannel(output)));
+    assertTrue(Arrays.equals(
+        Arrays.copyOfRange(imageGroundhogDayPosterContent, 10, 30), output.toByteArray()));
+
+    // Transfer window past end of content.
+
+    output.reset();
+    assertEquals(10, registerService.transferContent(
+        contentHash, length - 10, 100, Channels.newChannel(output)));
+    assertTrue(Arrays.equals(
+        Arrays.copyOfRange(imageGroundhogDayPosterContent, length - 10, length), 
+        output.toByteArray()));
+  }
+
   /**
    * Testing: JPA registering image to a movie via RegisterService.
    * Scenario: Register two images to a registered movie. Delete one image.
@@ -1026,6 +1433,7 @@ public class RegisterServiceIT {
     
     registerService.registerMovie(movieArtOfSelfdefense);
     registerService.registerMovie(movieGroudhogDay);
+    changeRelay.relay();
     
     // Retrieve count of movies.
 
@@ -1059,4 +1467,768 @@ public class RegisterServiceIT {
     assertEquals(2, count); 
   }
 
+  /**
+   * Testing: JPA retrieval of entity revision via RegisterService.
+   * Scenario: Register a movie and an actor. Retrieve movie revision repeatedly,
+   *           after movie update and after cast registration.
+   * Expected: Revision is stable between retrievals and changes on update and cast.
+   */
+  @Test
+  public void testFindMovieRevision() throws Exception {
+    
+    // Registration.
+    
+    registerService.registerMovie(movieGroudhogDay);
+    registerService.registerActor(actorBillMurray);
+    
+    Optional<Revision> optionalRevision = 
+        registerService.findMovieRevision(movieGroudhogDay.getImdbId());
+    assertTrue(optionalRevision.isPresent());
+    String registeredTag = optionalRevision.get().getTag();
+    assertTrue(optionalRevision.get().getLastModified().isPresent());
+    
+    assertEquals(registeredTag, 
+        registerService.findMovieRevision(movieGroudhogDay.getImdbId()).get().getTag());
+    
+    // Update movie.
+    
+    registeredMovie = registerService.findMovieById(movieGroudhogDay.getImdbId()).get();
+    registeredMovie.setDescription("Weatherman is living the same day over and over again.");
+    registerService.updateMovie(registeredMovie);
+    
+    String updatedTag = 
+        registerService.findMovieRevision(movieGroudhogDay.getImdbId()).get().getTag();
+    assertNotEquals(registeredTag, updatedTag);
+    
+    // Register cast.
+    
+    registerService.registerCast(movieGroudhogDay.getImdbId(), actorBillMurray.getId());
+    
+    String castTag = 
+        registerService.findMovieRevision(movieGroudhogDay.getImdbId()).get().getTag();
+    assertNotEquals(updatedTag, castTag);
+    
+    assertFalse(registerService.findMovieRevision("tt0000000").isPresent());
+  }
+
+  /**
+   * Testing: Second-level cache eviction via RegisterService events.
+   * Scenario: Register a movie and an actor. Retrieve actor with movies into cache.
+   *           Register cast. Retrieve actor with movies again.
+   * Expected: Cached actor movies reflect registered cast. Cache puts are exposed as metrics.
+   */
+  @Test
+  public void testFindActorByIdAfterRegisterCast() throws Exception {
+    
+    // Registration.
+    
+    registerService.registerMovie(movieGroudhogDay);
+    registerService.registerActor(actorBillMurray);
+    
+    optionalRegisteredActor = registerService.findActorById(actorBillMurray.getId());
+    assertTrue(optionalRegisteredActor.isPresent());
+    assertTrue(optionalRegisteredActor.get().getMovies().isEmpty());
+    
+    // Register cast on owning side only.
+    
+    registerService.registerCast(movieGroudhogDay.getImdbId(), actorBillMurray.getId());
+    
+    optionalRegisteredActor = registerService.findActorById(actorBillMurray.getId());
+    assertTrue(optionalRegisteredActor.isPresent());
+    assertEquals(1, optionalRegisteredActor.get().getMovies().size());
+    
+    long cachePuts = metricRegistry
+        .getGauges((id, metric) -> ApplicationGauges.CACHE_PUTS.equals(id.getName()))
+        .values().stream()
+        .mapToLong(gauge -> ((Number) gauge.getValue()).longValue())
+        .sum();
+    assertTrue(cachePuts > 0);
+  }
+
+  /**
+   * Testing: JSON form of movie and actor retrieved via RegisterService.
+   * Scenario: Register a movie with two actors. Serialize movie with cast and actor
+   *           with movies.
+   * Expected: Related entities are serialized one level deep, i.e. cast actors w/o movies
+   *           and actor movies w/o actors, so that lazy collections are not accessed.
+   */
+  @Test
+  public void testSerializeMovieAndActor() throws Exception {
+    
+    // Registration.
+    
+    movieGroudhogDay.getActors().add(actorBillMurray);
+    movieGroudhogDay.getActors().add(actorAndyMacDowell);
+    registerService.registerMovie(movieGroudhogDay);
+    
+    // Serialize movie with cast.
+    
+    JsonNode movieJson = objectMapper.valueToTree(
+        registerService.findMovieById(movieGroudhogDay.getImdbId()).get());
+    
+    assertEquals(movieGroudhogDay.getImdbId(), movieJson.path("imdbId").asText());
+    assertEquals(2, movieJson.path("actors").size());
+    movieJson.path("actors").forEach(actorJson -> {
+      assertTrue(actorJson.has("id"));
+      assertFalse(actorJson.has("movies"));
+    });
+    
+    // Serialize actor with movies.
+    
+    JsonNode actorJson = objectMapper.valueToTree(
+        registerService.findActorById(actorBillMurray.getId()).get());
+    
+    assertEquals(actorBillMurray.getId().longValue(), actorJson.path("id").asLong());
+    assertEquals(1, actorJson.path("movies").size());
+    assertEquals(movieGroudhogDay.getImdbId(), 
+        actorJson.path("movies").get(0).path("imdbId").asText());
+    assertFalse(actorJson.path("movies").get(0).has("actors"));
+  }
+
+  /**
+   * Testing: Full-text search of movies via RegisterService.
+   * Scenario: Register three movies. Search movies by single term and by two terms.
+   * Expected: Title match ranks first, equally ranked movies are sorted by title.
+   *           All terms must match, terms match by prefix.
+   */
+  @Test
+  public void testSearchMovies() throws Exception {
+    
+    // Registration.
+    
+    registerService.registerMovie(movieArtOfSelfdefense);
+    registerService.registerMovie(movieGroudhogDay);
+    registerService.registerMovie(movieZombieland);
+    changeRelay.relay();
+    
+    // Search by single term.
+    
+    registeredMovies = registerService.searchMovies(0, 10, "the");
+    
+    assertEquals(3, registeredMovies.size());
+    assertEquals(movieArtOfSelfdefense.getImdbId(), registeredMovies.get(0).getImdbId());
+    assertEquals(movieGroudhogDay.getImdbId(), registeredMovies.get(1).getImdbId());
+    assertEquals(movieZombieland.getImdbId(), registeredMovies.get(2).getImdbId());
+    
+    // Search by two terms.
+    
+    registeredMovies = registerService.searchMovies(0, 10, "Day gro");
+    
+    assertEquals(1, registeredMovies.size());
+    assertEquals(movieGroudhogDay.getImdbId(), registeredMovies.get(0).getImdbId());
+  }
+
+  /**
+   * Testing: Typeahead suggestions of movies via RegisterService.
+   * Scenario: Register three movies. Suggest by prefix of first and of further title word.
+   *           Unregister a movie and suggest again.
+   * Expected: Movies are suggested by prefix of any title word.
+   *           Unregistered movie is not suggested anymore.
+   */
+  @Test
+  public void testSuggestMovies() throws Exception {
+    
+    // Registration.
+    
+    registerService.registerMovie(movieArtOfSelfdefense);
+    registerService.registerMovie(movieGroudhogDay);
+    registerService.registerMovie(movieZombieland);
+    changeRelay.relay();
+    
+    // Suggest by prefix of first title word.
+    
+    List<Suggestion> suggestions = registerService.suggestMovies("gro", 10);
+    
+    assertEquals(1, suggestions.size());
+    assertEquals(movieGroudhogDay.getImdbId(), suggestions.get(0).getId());
+    assertEquals(movieGroudhogDay.getTitle(), suggestions.get(0).getText());
+    
+    // Suggest by prefix of further title words.
+    
+    suggestions = registerService.suggestMovies("DAY", 10);
+    
+    assertEquals(1, suggestions.size());
+    assertEquals(movieGroudhogDay.getImdbId(), suggestions.get(0).getId());
+    
+    suggestions = registerService.suggestMovies("self", 10);
+    
+    assertEquals(1, suggestions.size());
+    assertEquals(movieArtOfSelfdefense.getImdbId(), suggestions.get(0).getId());
+    
+    // Unregistration.
+    
+    registerService.unRegisterMovie(movieGroudhogDay.getImdbId());
+    changeRelay.relay();
+    
+    assertTrue(registerService.suggestMovies("gro", 10).isEmpty());
+  }
+
+  /**
+   * Testing: Bulk import of a movie batch via ImportBatchWriter.
+   * Scenario: Register a movie and an actor. Import a batch of a new movie cast with
+   *           the registered actor and a new actor, the registered movie and an invalid movie.
+   * Expected: New movie is imported together with cast, other records are reported as failed.
+   *           Version of linked actor is incremented. Search indexes are updated by aggregated
+   *           batch events.
+   */
+  @Test
+  public void testImportMovieBatch() throws Exception {
+    
+    // Registration.
+    
+    registerService.registerMovie(movieZombieland);
+    registeredActor = registerService.registerActor(actorBillMurray);
+    
+    // Import.
+    
+    movieGroudhogDay.getActors().add(new Actor(registeredActor.getId(), null, null, null));
+    movieGroudhogDay.getActors().add(actorAndyMacDowell);
+    
+    Map<Integer, Movie> records = new LinkedHashMap<>();
+    records.put(1, movieGroudhogDay);
+    records.put(2, movieZombieland);
+    records.put(3, new Movie("xx0000001", "", 1800, null));
+    
+    List<ImportReport.Failure> failures = importBatchWriter.write(records);
+    
+    // Validate failures.
+    
+    assertEquals(2, failures.size());
+    assertThat(
+        failures.stream().map(ImportReport.Failure::getRecord).collect(Collectors.toList()),
+        Matchers.containsInAnyOrder(2, 3));
+    
+    // Validate imported movie with cast.
+    
+    optionalRegisteredMovie = registerService.findMovieById(movieGroudhogDay.getImdbId());
+    
+    assertTrue(optionalRegisteredMovie.isPresent());
+    assertEquals(2, optionalRegisteredMovie.get().getActors().size());
+    assertEquals(1, registerService.findActorMoviesLazily(registeredActor.getId()).size());
+    assertEquals(registeredActor.getVersion() + 1, 
+        registerService.findActorById(registeredActor.getId()).get().getVersion().longValue());
+    
+    // Validate search indexes.
+    
+    changeRelay.relay();
+    
+    assertEquals(1, registerService.countMoviesByTitle("groundhog"));
+    assertEquals(1, registerService.countActorsByName("MacDowell"));
+  }
+
+  /**
+   * Testing: Streaming of movies with cast via MovieRepository.
+   * Scenario: Register three movies, two of them with cast. Stream all movies
+   *           and movies modified since after registration.
+   * Expected: Movies are streamed ordered by imdbId with cast actor identifiers.
+   *           No movie is modified since after registration.
+   */
+  @Test
+  public void testStreamMovies() throws Exception {
+    
+    // Registration.
+    
+    movieGroudhogDay.getActors().add(actorBillMurray);
+    movieGroudhogDay.getActors().add(actorAndyMacDowell);
+    movieZombieland.getActors().add(actorJesseEisenberg);
+    
+    registerService.registerMovie(movieArtOfSelfdefense);
+    registerService.registerMovie(movieGroudhogDay);
+    registerService.registerMovie(movieZombieland);
+    
+    Instant afterRegistration = Instant.now().plusSeconds(1);
+    
+    // Stream all movies.
+    
+    utx.begin();
+    try (Stream<Movie> movies = movieRepository.streamAll(null)) {
+      registeredMovies = movies.collect(Collectors.toList());
+    }
+    utx.commit();
+    
+    assertEquals(3, registeredMovies.size());
+    assertEquals(movieGroudhogDay.getImdbId(), registeredMovies.get(0).getImdbId());
+    assertEquals(2, registeredMovies.get(0).getActors().size());
+    assertEquals(movieZombieland.getImdbId(), registeredMovies.get(1).getImdbId());
+    assertEquals(actorJesseEisenberg.getId(), 
+        registeredMovies.get(1).getActors().iterator().next().getId());
+    assertEquals(movieArtOfSelfdefense.getImdbId(), registeredMovies.get(2).getImdbId());
+    assertTrue(registeredMovies.get(2).getActors().isEmpty());
+    
+    // Stream movies modified since registration.
+    
+    utx.begin();
+    try (Stream<Movie> movies = movieRepository.streamAll(afterRegistration)) {
+      assertEquals(0, movies.count());
+    }
+    utx.commit();
+  }
+
+  /**
+   * Testing: Image renditions via RegisterService.
+   * Scenario: Register a movie image, wait for rendering and retrieve its thumbnail
+   *           and medium rendition.
+   * Expected: Renditions fit into their sizes and are not larger than original content.
+   *           Renditions are streamed and their hash is the hash of their content.
+   */
+  @Test
+  public void testFindImageRendition() throws Exception {
+    
+    // Registration.
+    
+    registerService.registerMovie(movieGroudhogDay);
+    registeredImage = registerService
+        .registerMovieImage(movieGroudhogDay.getImdbId(), imageGroundhogDayPoster);
+    changeRelay.relay();
+    
+    // Rendition is not awaited by retrieval, wait for rendering.
+    
+    Optional<Future<?>> rendering = renditionWorker.submit(registeredImage.getId());
+    assertTrue(rendering.isPresent());
+    rendering.get().get(10, TimeUnit.SECONDS);
+    
+    // Retrieve renditions.
+    
+    for (RenditionSize size : RenditionSize.values()) {
+      Optional<String> contentHash = 
+          registerService.findImageRenditionHash(registeredImage.getId(), size);
+      
+      assertTrue(contentHash.isPresent());
+      assertTrue(registerService.findContentLength(contentHash.get()) 
+          <= imageGroundhogDayPosterContent.length);
+      assertTrue(registerService.findContentMediaType(contentHash.get()).startsWith("image/"));
+      
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      registerService.transferContent(contentHash.get(), Channels.newChannel(content));
+      
+      assertEquals(contentHash.get(), imageUtil.getContentHash(content.toByteArray()));
+      
+      BufferedImage rendition = ImageIO.read(new ByteArrayInputStream(content.toByteArray()));
+      
+      assertTrue(rendition.getWidth() <= size.getMaxDimension());
+      assertTrue(rendition.getHeight() <= size.getMaxDimension());
+    }
+  }
+
+  /**
+   * Testing: Coalescing of change notifications via ChangeNotificationDispatcher.
+   * Scenario: Enqueue changes, including repeated ones, within a notification window.
+   * Expected: Single notification carrying each changed identifier once with merged operation.
+   *           Fan-out latency is timed.
+   */
+  @Test
+  public void testCoalesceChangeNotifications() throws Exception {
+    
+    List<Object> messages = new CopyOnWriteArrayList<>();
+    
+    PushContext channel = new PushContext() {
+      
+      @Override
+      public Set<Future<Void>> send(Object message) {
+        messages.add(message);
+        return Collections.emptySet();
+      }
+      
+      @Override
+      public <S extends Serializable> Set<Future<Void>> send(Object message, S user) {
+        return send(message);
+      }
+      
+      @Override
+      public <S extends Serializable> Map<S, Set<Future<Void>>> send(
+          Object message, Collection<S> users) {
+        send(message);
+        return Collections.emptyMap();
+      }
+    };
+    
+    MetricID fanOut = new MetricID(ApplicationGauges.NOTIFICATION_FAN_OUT);
+    long sent = count(metricRegistry.getTimers().get(fanOut));
+    
+    // Enqueue changes.
+    
+    notificationDispatcher.enqueue("testNotification", channel, Arrays.asList(
+        new EntityChange(Movie.class, "tt0107048", EntityChange.Operation.CREATED),
+        new EntityChange(Image.class, 7L, EntityChange.Operation.CREATED)));
+    notificationDispatcher.enqueue("testNotification", channel, Arrays.asList(
+        new EntityChange(Movie.class, "tt0107048", EntityChange.Operation.UPDATED),
+        new EntityChange(Image.class, 7L, EntityChange.Operation.REMOVED)));
+    
+    assertTrue(messages.isEmpty());
+    
+    // Wait for window to close.
+    
+    Thread.sleep(1000);
+    
+    assertEquals(1, messages.size());
+    assertEquals(sent + 1, count(metricRegistry.getTimers().get(fanOut)));
+    
+    @SuppressWarnings("unchecked")
+    Map<String, Object> payload = (Map<String, Object>) messages.get(0);
+    
+    assertEquals("testNotification", payload.get("event"));
+    
+    @SuppressWarnings("unchecked")
+    Map<String, Map<String, String>> changes = 
+        (Map<String, Map<String, String>>) payload.get("changes");
+    
+    assertEquals(Collections.singletonMap("tt0107048", "CREATED"), changes.get("Movie"));
+    assertEquals(Collections.singletonMap("7", "REMOVED"), changes.get("Image"));
+  }
+
+  /**
+   * Testing: Transactional outbox via RegisterService.
+   * Scenario: Register a movie with cast within a transaction and commit it.
+   * Expected: Typed changes with entity versions are recorded within the transaction
+   *           and relayed, i.e. published and removed from outbox, after commit.
+   */
+  @Test
+  public void testRecordChangesInOutbox() throws Exception {
+    
+    movieGroudhogDay.getActors().add(actorBillMurray);
+    
+    // Registration records changes.
+    
+    utx.begin();
+    registerService.registerMovie(movieGroudhogDay);
+    List<OutboxEvent> events = em
+        .createQuery("SELECT e FROM OutboxEvent e ORDER BY e.id", OutboxEvent.class)
+        .getResultList();
+    utx.commit();
+    
+    assertEquals(2, events.size());
+    
+    EntityChange movieChange = events.get(0).toEntityChange();
+    
+    assertEquals(OutboxEvent.Channel.MOVIE, events.get(0).getChannel());
+    assertEquals(Movie.class, movieChange.getEntityType());
+    assertEquals(movieGroudhogDay.getImdbId(), movieChange.getId());
+    assertEquals(EntityChange.Operation.CREATED, movieChange.getOperation());
+    assertEquals(movieGroudhogDay.getVersion(), movieChange.getVersion());
+    
+    EntityChange actorChange = events.get(1).toEntityChange();
+    
+    assertEquals(OutboxEvent.Channel.ACTOR, events.get(1).getChannel());
+    assertEquals(Actor.class, actorChange.getEntityType());
+    assertTrue(actorChange.getId() instanceof Long);
+    
+    // Relay publishes changes after commit.
+    
+    changeRelay.relay();
+    
+    utx.begin();
+    long pending = em.createQuery("SELECT COUNT(e) FROM OutboxEvent e", Long.class)
+        .getSingleResult();
+    utx.commit();
+    
+    assertEquals(0, pending);
+    assertEquals(1, registerService.findMovieByTitleSearch("hog").size());
+  }
+
+  /**
+   * Testing: Change feed of published changes.
+   * Scenario: Register a movie and an actor, then cast the actor.
+   * Expected: Feed resumes after last seen sequence with typed changes in publication order,
+   *           unknown sequence cannot be resumed.
+   */
+  @Test
+  public void testChangeFeed() throws Exception {
+    
+    long lastSequence = changeFeed.getLastSequence();
+    
+    // Registration.
+    
+    registerService.registerMovie(movieGroudhogDay);   
+    registeredActor = registerService.registerActor(actorBillMurray);  
+    registerService.registerCast(movieGroudhogDay.getImdbId(), registeredActor.getId());
+    changeRelay.relay();
+    
+    // Resume after last seen sequence.
+    
+    List<EntityChange> changes = changeFeed.readAfter(lastSequence, 100).get().stream()
+        .map(FeedEvent::getChange)
+        .collect(Collectors.toList());
+    
+    assertEquals(5, changes.size());
+    assertEquals(Movie.class, changes.get(0).getEntityType());
+    assertEquals(EntityChange.Operation.CREATED, changes.get(0).getOperation());
+    assertEquals(Actor.class, changes.get(1).getEntityType());
+    assertEquals(Actor.class, changes.get(2).getEntityType());
+    assertEquals(EntityChange.Operation.UPDATED, changes.get(2).getOperation());
+    assertEquals(Movie.class, changes.get(3).getEntityType());
+    assertEquals(Cast.class, changes.get(4).getEntityType());
+    assertEquals(Cast.id(movieGroudhogDay.getImdbId(), registeredActor.getId()), 
+        changes.get(4).getId());
+    
+    // Nothing after last sequence, unknown sequence.
+    
+    assertTrue(changeFeed.readAfter(changeFeed.getLastSequence(), 100).get().isEmpty());
+    assertFalse(changeFeed.readAfter(changeFeed.getLastSequence() + 1, 100).isPresent());
+  }
+
+
+  /**
+   * Testing: Instrumentation of service and repository layers.
+   * Scenario: Register a movie with an image, register it again and retrieve a page of movies.
+   * Expected: Service invocations are timed, rejected registration is counted as failure
+   *           by exception, returned rows are recorded and stored image bytes are gauged.
+   */
+  @Test
+  public void testInstrumentation() throws Exception {
+    
+    MetricID registrations = new MetricID(
+        Layer.SERVICE.getTimerName(), new Tag("method", "registerMovie"));
+    MetricID rejections = new MetricID(Layer.SERVICE.getErrorsName(), 
+        new Tag("method", "registerMovie"), new Tag("exception", "EjbValidationException"));
+    MetricID pageRows = new MetricID(Layer.REPOSITORY.getRowsName(), 
+        new Tag("repository", "MovieRepository"), new Tag("method", "findPage"));
+    
+    long registered = count(metricRegistry.getTimers().get(registrations));
+    long rejected = count(metricRegistry.getCounters().get(rejections));
+    long pages = count(metricRegistry.getHistograms().get(pageRows));
+    
+    // Registration and retrieval.
+    
+    movieGroudhogDay.getImages().add(imageGroundhogDayPoster);
+    registerService.registerMovie(movieGroudhogDay);
+    
+    try {
+      registerService.registerMovie(movieGroudhogDay);
+    } catch (EjbValidationException ve) {
+      // Counted as failure.
+    }
+    
+    assertEquals(1, registerService.findPageOfMovies(0, 10).size());
+    
+    // Validate metrics.
+    
+    assertEquals(registered + 2, count(metricRegistry.getTimers().get(registrations)));
+    assertEquals(rejected + 1, count(metricRegistry.getCounters().get(rejections)));
+    assertEquals(pages + 1, count(metricRegistry.getHistograms().get(pageRows)));
+    
+    long storedBytes = (Long) metricRegistry.getGauges()
+        .get(new MetricID(ApplicationGauges.IMAGE_BYTES)).getValue();
+    assertTrue(storedBytes >= imageGroundhogDayPosterContent.length);
+  }
+  
+  private static long count(Counting metric) {
+    return metric != null ? metric.getCount() : 0;
+  }
+
+
+  /**
+   * Testing: Statement budget of retrievals via RegisterService.
+   * Scenario: Register three movies, check which are registered and retrieve a page of movies,
+   *           then retrieve revisions of movies one by one.
+   * Expected: Check and page retrieval stay within budget of a single statement,
+   *           retrieval one by one repeats the same statement per movie.
+   */
+  @Test
+  public void testStatementBudget() throws Exception {
+    
+    // Registration.
+    
+    movieGroudhogDay.getActors().add(actorBillMurray);
+    registerService.registerMovie(movieGroudhogDay);
+    registerService.registerMovie(movieZombieland);
+    registerService.registerMovie(movieArtOfSelfdefense);
+    
+    List<String> imdbIds = Arrays.asList(movieGroudhogDay.getImdbId(), 
+        movieZombieland.getImdbId(), movieArtOfSelfdefense.getImdbId());
+    
+    // Batch retrievals.
+    
+    try (StatementScope scope = StatementScope.open("testStatementBudget")) {
+      assertEquals(3, registerService.findRegisteredImdbIds(imdbIds).size());
+      assertThat(scope.getStatements(), Matchers.lessThanOrEqualTo(1));
+      
+      assertEquals(3, registerService.findPageOfMovies(0, 10).size());
+      assertThat(scope.getStatements(), Matchers.lessThanOrEqualTo(2));
+    }
+    
+    // Retrieval one by one.
+    
+    try (StatementScope scope = StatementScope.open("testStatementBudget")) {
+      for (String imdbId : imdbIds) {
+        assertTrue(registerService.findMovieRevision(imdbId).isPresent());
+      }
+      
+      Map<String, Integer> repeated = scope.takeRepeatedStatements(imdbIds.size());
+      
+      assertEquals(1, repeated.size());
+      assertEquals(Integer.valueOf(imdbIds.size()), repeated.values().iterator().next());
+      assertTrue(scope.takeRepeatedStatements(imdbIds.size()).isEmpty());
+    }
+  }
+
+
+  /**
+   * Testing: Registration of many casts at once.
+   * Scenario: Register casts of a movie including an unknown actor, then whole cast with
+   *           a repeated actor, then an existing cast and finally casts of an actor.
+   * Expected: Registration with unknown actor or existing cast is rejected as a whole,
+   *           repeated actor is casted once and inverse registration casts all movies.
+   */
+  @Test
+  public void testRegisterCastsInBatch() throws Exception {
+    
+    // Registration.
+    
+    actorAndyMacDowell = registerService.registerActor(actorAndyMacDowell);
+    actorBillMurray = registerService.registerActor(actorBillMurray);
+    actorChrisElliott = registerService.registerActor(actorChrisElliott);
+    registerService.registerMovie(movieGroudhogDay);
+    registerService.registerMovie(movieZombieland);
+    
+    String imdbId = movieGroudhogDay.getImdbId();
+    
+    boolean rejected = false;
+    try {
+      registerService.registerMovieCasts(imdbId, 
+          Arrays.asList(actorAndyMacDowell.getId(), Long.MAX_VALUE));
+    } catch (EjbValidationException ve) {
+      rejected = true;
+    }
+    
+    assertTrue(rejected);
+    assertEquals(0, registerService.findMovieActorsLazily(imdbId).size());
+    
+    registerService.registerMovieCasts(imdbId, Arrays.asList(actorAndyMacDowell.getId(), 
+        actorBillMurray.getId(), actorChrisElliott.getId(), actorBillMurray.getId()));
+    
+    assertEquals(3, registerService.findMovieActorsLazily(imdbId).size());
+    
+    rejected = false;
+    try {
+      registerService.registerMovieCasts(imdbId, Arrays.asList(actorBillMurray.getId()));
+    } catch (EjbValidationException ve) {
+      rejected = true;
+    }
+    
+    assertTrue(rejected);
+    
+    // Inverse registration.
+    
+    registerService.registerActorCasts(actorBillMurray.getId(), 
+        Arrays.asList(movieZombieland.getImdbId()));
+    
+    assertEquals(2, registerService.findActorMoviesLazily(actorBillMurray.getId()).size());
+    assertEquals(1, registerService.findMovieActorsLazily(movieZombieland.getImdbId()).size());
+  }
+
+  /**
+   * Testing: Retrieval of many movies and actors by identifiers.
+   * Scenario: Register movies and an actor, retrieve them by identifiers including
+   *           an unregistered one, then by empty list of identifiers.
+   * Expected: Registered entities are retrieved by a single statement in order of identifiers,
+   *           unregistered ones are skipped and empty list is rejected.
+   */
+  @Test
+  public void testFindByIds() throws Exception {
+    
+    // Registration.
+    
+    registerService.registerMovie(movieGroudhogDay);
+    registerService.registerMovie(movieZombieland);
+    actorBillMurray = registerService.registerActor(actorBillMurray);
+    
+    // Retrieval.
+    
+    try (StatementScope scope = StatementScope.open("testFindByIds")) {
+      List<Movie> movies = registerService.findMoviesByIds(Arrays.asList(
+          movieZombieland.getImdbId(), movieArtOfSelfdefense.getImdbId(), 
+          movieGroudhogDay.getImdbId()));
+      
+      assertEquals(2, movies.size());
+      assertEquals(movieZombieland.getImdbId(), movies.get(0).getImdbId());
+      assertEquals(movieGroudhogDay.getImdbId(), movies.get(1).getImdbId());
+      assertThat(scope.getStatements(), Matchers.lessThanOrEqualTo(1));
+    }
+    
+    List<Actor> actors = registerService.findActorsByIds(
+        Arrays.asList(Long.MAX_VALUE, actorBillMurray.getId()));
+    
+    assertEquals(1, actors.size());
+    assertEquals(actorBillMurray.getId(), actors.get(0).getId());
+    
+    // Validate rejected retrieval.
+    
+    boolean rejected = false;
+    try {
+      registerService.findMoviesByIds(List.of());
+    } catch (EjbConstraintViolationException cve) {
+      rejected = true;
+    }
+    
+    assertTrue(rejected);
+  }
+
+  /**
+   * Testing: Tracing of service, repository, JDBC and observer invocations.
+   * Scenario: Register a movie within a root span.
+   * Expected: Spans share the trace, service span is a child of the root span, statements
+   *           are traced within repository spans, flush and change observers are traced.
+   */
+  @Test
+  public void testTracing() throws Exception {
+    
+    List<Span> spans = new CopyOnWriteArrayList<>();
+    Tracing.setExporter(spans::add);
+    
+    // Registration.
+    
+    Span root = Tracing.start("testTracing");
+    try {
+      registerService.registerMovie(movieGroudhogDay);
+    } finally {
+      root.end();
+      Tracing.setExporter(null);
+    }
+    
+    // Validate spans.
+    
+    Map<String, Span> spansById = spans.stream()
+        .collect(Collectors.toMap(Span::getSpanId, span -> span));
+    Map<String, List<Span>> spansByName = spans.stream()
+        .collect(Collectors.groupingBy(Span::getName));
+    
+    assertTrue(spans.stream().allMatch(span -> root.getTraceId().equals(span.getTraceId())));
+    
+    Span registration = spansByName.get("RegisterService.registerMovie").get(0);
+    assertEquals(root.getSpanId(), registration.getParentSpanId());
+    assertEquals("registerMovie", registration.getAttributes().get("code.function"));
+    
+    Span execution = spansByName.get("jdbc.execute").get(0);
+    assertTrue(execution.getAttributes().get("db.statement") != null);
+    assertTrue(spansById.get(execution.getParentSpanId()).getName()
+        .startsWith("MovieRepository."));
+    
+    assertTrue(spansByName.containsKey("hibernate.flush"));
+    assertTrue(spansByName.containsKey("ChangeRelay.onRecorded"));
+  }
+
+  /**
+   * Testing: Clearing of spans left in progress, e.g. by a failed request.
+   * Scenario: Start a root span and its child, clear tracing without ending them.
+   * Expected: Both spans are ended and exported, thread has no current span.
+   */
+  @Test
+  public void testClearTracing() throws Exception {
+    
+    List<Span> spans = new CopyOnWriteArrayList<>();
+    Tracing.setExporter(spans::add);
+    
+    try {
+      Span root = Tracing.start("testClearTracing");
+      Span child = Tracing.start("child");
+      
+      Tracing.clear();
+      
+      assertEquals(Arrays.asList(child, root), spans);
+      assertFalse(Tracing.current().isRecording());
+    } finally {
+      Tracing.setExporter(null);
+    }
+  }
+
 }